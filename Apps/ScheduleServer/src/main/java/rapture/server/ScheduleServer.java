@@ -49,6 +49,7 @@ public final class ScheduleServer {
     }
 
     private static Logger log = Logger.getLogger(ScheduleServer.class);
+    private static final long MAX_WAIT_MILLIS = 60 * 1000L;
 
     /**
      * @param args
@@ -76,17 +77,18 @@ public final class ScheduleServer {
         StatusHelper.setStatusAndCapability(ContextFactory.getKernelUser(), "RUNNING", cap, Kernel.getRunner());
         StatusHelper.startStatusUpdating(ContextFactory.getKernelUser(), Kernel.getRunner());
 
-        // We will call the schedule manager periodically (after locking)
+        // The schedule manager wakes us when the next job is due, or when the wait runs out
+        ScheduleManager.startTimeline();
         while (true) {
             try {
-                Thread.sleep(1000);
                 try {
-                    ScheduleManager.manageJobExecStatus();
-                } catch (Exception e) {
+                    ScheduleManager.fireDueJobs(MAX_WAIT_MILLIS);
+                } catch (RuntimeException e) {
                     log.error(String.format("Got exception %s when running a task, the show goes on. stack: %s", e.getMessage(), ExceptionToString.format(e)));
+                    Thread.sleep(1000);
                 }
             } catch (InterruptedException e) {
-                log.error("Error while sleeping on main thread");
+                log.error("Error while waiting on main thread");
                 System.exit(-1);
             }
         }
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.kernel.file.FileRepoUtils;
+import rapture.repo.KeyStore;
+import rapture.repo.file.FileDataStore;
+import rapture.repo.mem.MemKeyStore;
+
+/**
+ * Creates the key stores and test documents shared by the benchmarks. Only MEMORY and FILE stores are supported so that the suites run on a single
+ * box with no external services.
+ */
+public final class BenchmarkStores {
+    public static final String MEMORY = "MEMORY";
+    public static final String FILE = "FILE";
+
+    private BenchmarkStores() {
+    }
+
+    /**
+     * Create an empty key store of the given type. FILE stores live under a new directory in the system temp area
+     */
+    public static KeyStore create(String type, String name) throws IOException {
+        Map<String, String> config = new HashMap<>();
+        KeyStore store;
+        if (MEMORY.equals(type)) {
+            store = new MemKeyStore();
+        } else if (FILE.equals(type)) {
+            File dir = Files.createTempDirectory("rapture-bench-" + name).toFile();
+            config.put(FileRepoUtils.PREFIX, dir.getAbsolutePath());
+            store = new FileDataStore();
+        } else {
+            throw new IllegalArgumentException("Unknown store type " + type);
+        }
+        store.setInstanceName(name);
+        store.setConfig(config);
+        return store;
+    }
+
+    /**
+     * Remove everything a store created, including the directory of a FILE store
+     */
+    public static void destroy(KeyStore store) {
+        if (store instanceof FileDataStore) {
+            FileUtils.deleteQuietly(new File(((FileDataStore) store).getStoreId()));
+        } else if (store != null) {
+            store.dropKeyStore();
+        }
+    }
+
+    /**
+     * A JSON document of roughly the given size in bytes, made of a spread of string, number and boolean fields
+     */
+    public static String document(int size, int seed) {
+        return JacksonUtil.jsonFromObject(documentMap(size, seed));
+    }
+
+    public static Map<String, Object> documentMap(int size, int seed) {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("id", seed);
+        ret.put("active", seed % 2 == 0);
+        int field = 0;
+        int written = 32;
+        while (written < size) {
+            String value = Integer.toHexString(seed * 31 + field) + "-" + Long.toString(seed * 7919L + field * 104729L, 36);
+            ret.put("field" + field, (field % 3 == 0) ? (Object) (seed + field * 0.5) : value);
+            written += 14 + value.length();
+            field++;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.model.DocumentMetadata;
+
+/**
+ * JSON round trips of documents and of the metadata stored alongside every version
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonUtilBenchmark {
+
+    @Param({ "256", "4096", "65536" })
+    public int docSize;
+
+    private Map<String, Object> document;
+    private String json;
+    private DocumentMetadata metadata;
+    private String metadataJson;
+
+    @Setup
+    public void setup() {
+        document = BenchmarkStores.documentMap(docSize, 1);
+        json = JacksonUtil.jsonFromObject(document);
+        metadata = new DocumentMetadata();
+        metadata.setVersion(3);
+        metadata.setUser("bench");
+        metadata.setComment("benchmark metadata");
+        metadata.setWriteTime(new java.util.Date(1480000000000L));
+        metadata.setModifiedTimestamp(1480000000000L);
+        metadataJson = JacksonUtil.jsonFromObject(metadata);
+    }
+
+    @Benchmark
+    public String serializeDocument() {
+        return JacksonUtil.jsonFromObject(document);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseDocument() {
+        return JacksonUtil.getMapFromJson(json);
+    }
+
+    @Benchmark
+    public Map<String, Object> roundTripDocument() {
+        return JacksonUtil.getMapFromJson(JacksonUtil.jsonFromObject(document));
+    }
+
+    @Benchmark
+    public DocumentMetadata roundTripMetadata() {
+        return JacksonUtil.objectFromJson(JacksonUtil.jsonFromObject(metadata), DocumentMetadata.class);
+    }
+
+    @Benchmark
+    public DocumentMetadata parseMetadata() {
+        return JacksonUtil.objectFromJson(metadataJson, DocumentMetadata.class);
+    }
+}
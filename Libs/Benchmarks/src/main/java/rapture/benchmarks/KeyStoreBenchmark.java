@@ -0,0 +1,116 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rapture.repo.KeyStore;
+
+/**
+ * Raw key store reads and writes against the MEMORY and FILE implementations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyStoreBenchmark {
+
+    @Param({ BenchmarkStores.MEMORY, BenchmarkStores.FILE })
+    public String store;
+
+    @Param({ "256", "4096", "65536" })
+    public int docSize;
+
+    @Param({ "1000" })
+    public int keyCount;
+
+    @Param({ "100" })
+    public int batchSize;
+
+    private KeyStore keyStore;
+    private String[] keys;
+    private String[] documents;
+
+    @Setup
+    public void setup() throws IOException {
+        keyStore = BenchmarkStores.create(store, "keystore");
+        keys = new String[keyCount];
+        documents = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = String.format("folder%d/doc%05d", i % 10, i);
+            documents[i] = BenchmarkStores.document(docSize, i);
+            keyStore.put(keys[i], documents[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkStores.destroy(keyStore);
+    }
+
+    @Benchmark
+    public String get() {
+        return keyStore.get(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(keyCount);
+        keyStore.put(keys[i], documents[i]);
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+        return keyStore.containsKey(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public List<String> getBatch() {
+        int start = ThreadLocalRandom.current().nextInt(keyCount);
+        List<String> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(keys[(start + i) % keyCount]);
+        }
+        return keyStore.getBatch(batch);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rapture.dsl.serfun.DecimalSeriesValue;
+import rapture.dsl.serfun.LongSeriesValue;
+import rapture.dsl.serfun.SeriesValueCodec;
+import rapture.dsl.serfun.StringSeriesValue;
+import rapture.common.SeriesValue;
+
+/**
+ * Encoding and decoding of the series point values written by the series stores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesValueCodecBenchmark {
+
+    private SeriesValue decimal;
+    private SeriesValue longValue;
+    private SeriesValue string;
+    private byte[] encodedDecimal;
+    private byte[] encodedLong;
+    private byte[] encodedString;
+
+    @Setup
+    public void setup() throws IOException {
+        decimal = new DecimalSeriesValue(1234.5678, "col");
+        longValue = new LongSeriesValue(1234567890123L, "col");
+        string = new StringSeriesValue("a moderately long string point value", "col");
+        encodedDecimal = SeriesValueCodec.encodeValue(decimal);
+        encodedLong = SeriesValueCodec.encodeValue(longValue);
+        encodedString = SeriesValueCodec.encodeValue(string);
+    }
+
+    @Benchmark
+    public byte[] encodeDecimal() throws IOException {
+        return SeriesValueCodec.encodeValue(decimal);
+    }
+
+    @Benchmark
+    public byte[] encodeLong() throws IOException {
+        return SeriesValueCodec.encodeValue(longValue);
+    }
+
+    @Benchmark
+    public byte[] encodeString() throws IOException {
+        return SeriesValueCodec.encodeValue(string);
+    }
+
+    @Benchmark
+    public SeriesValue decodeDecimal() throws IOException {
+        return SeriesValueCodec.decode("col", encodedDecimal);
+    }
+
+    @Benchmark
+    public SeriesValue decodeLong() throws IOException {
+        return SeriesValueCodec.decode("col", encodedLong);
+    }
+
+    @Benchmark
+    public SeriesValue decodeString() throws IOException {
+        return SeriesValueCodec.decode("col", encodedString);
+    }
+}
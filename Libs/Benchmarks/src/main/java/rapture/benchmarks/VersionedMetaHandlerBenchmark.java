@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rapture.common.model.DocumentMetadata;
+import rapture.common.model.DocumentWithMeta;
+import rapture.repo.KeyStore;
+import rapture.repo.meta.handler.VersionedMetaHandler;
+
+/**
+ * The versioned document write path (latest, version and meta stores) and the matching latest read
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionedMetaHandlerBenchmark {
+
+    @Param({ BenchmarkStores.MEMORY, BenchmarkStores.FILE })
+    public String store;
+
+    @Param({ "256", "4096", "65536" })
+    public int docSize;
+
+    @Param({ "1000" })
+    public int keyCount;
+
+    private KeyStore[] stores;
+    private VersionedMetaHandler handler;
+    private String[] keys;
+    private String[] documents;
+    private String[] editedDocuments;
+
+    @Setup
+    public void setup() throws IOException {
+        stores = new KeyStore[] { BenchmarkStores.create(store, "latest"), BenchmarkStores.create(store, "version"), BenchmarkStores.create(store, "meta"),
+                BenchmarkStores.create(store, "attribute") };
+        handler = new VersionedMetaHandler(stores[0], stores[1], stores[2], stores[3]);
+        keys = new String[keyCount];
+        documents = new String[keyCount];
+        editedDocuments = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = String.format("folder%d/doc%05d", i % 10, i);
+            documents[i] = BenchmarkStores.document(docSize, i);
+            editedDocuments[i] = BenchmarkStores.document(docSize, keyCount + i);
+            handler.addDocument(keys[i], documents[i], "bench", "setup", null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (KeyStore keyStore : stores) {
+            BenchmarkStores.destroy(keyStore);
+        }
+    }
+
+    /**
+     * Each call writes a new version, alternating between two documents so the content always changes. Concurrent writers to the same key may lose
+     * the version race, which is part of what is measured
+     */
+    @Benchmark
+    public DocumentWithMeta addDocumentWithExpectedVersion() {
+        int i = ThreadLocalRandom.current().nextInt(keyCount);
+        DocumentMetadata latest = handler.getLatestMeta(keys[i]);
+        String content = (latest.getVersion() % 2 == 1) ? editedDocuments[i] : documents[i];
+        return handler.addDocumentWithExpectedVersion(keys[i], content, "bench", "edit", latest.getVersion(), null);
+    }
+
+    @Benchmark
+    public DocumentWithMeta getLatestDocAndMeta() {
+        return handler.getLatestDocAndMeta(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+}
@@ -658,6 +658,11 @@ public abstract class AbstractTTree extends TreeParser {
         String apiNamePath = getGeneratedFilePath(sdkName, "server", "common", "hooks/ApiName.java");
         StringTemplate apiNameTemplate = getTemplateLib().getInstanceOf("apiNamesEnum", new STAttrMap().put("sdkname", sdkName).put("ents", getApiNames()));
         addKernelTemplate(apiNamePath, "1", apiNameTemplate);
+        if (sdkName == null) {
+            String dispatchersPath = getGeneratedFilePath(null, "server", "common", "shared/ApiDispatchers.java");
+            StringTemplate dispatchersTemplate = getTemplateLib().getInstanceOf("apiDispatchers", new STAttrMap().put("ents", getApiNames()));
+            addKernelTemplate(dispatchersPath, "1", dispatchersTemplate);
+        }
 
         StringTemplate scriptApiNameTemplate = getTemplateLib().getInstanceOf("scriptApiInterface",
                 new STAttrMap().put("sdkname", sdkName).put("ents", getApiNames()));
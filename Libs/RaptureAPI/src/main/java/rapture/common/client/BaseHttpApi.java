@@ -28,6 +28,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.util.zip.GZIPOutputStream;
@@ -52,6 +53,8 @@ import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.entity.mime.content.StringBody;
@@ -68,7 +71,9 @@ import rapture.common.exception.RaptureException;
 import rapture.common.exception.RaptureExceptionFactory;
 import rapture.common.exception.RaptureExceptionFormatter;
 import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.impl.jackson.WireFormat;
 import rapture.common.model.BasePayload;
+import rapture.common.model.BinaryResponse;
 import rapture.common.model.GeneralResponse;
 
 /**
@@ -83,10 +88,14 @@ import rapture.common.model.GeneralResponse;
  * 1. If we already have a connection, use that. 2. If we don't have a connection, pick a hostUrl at random and use that to create a connection. 3. If we have
  * an error on a connection, mark the hostUrl as "down" and pick a new url at random from those that are "up". If there are no other up connections, fail. 4.
  * Periodically look at the "down" connections and mark them as "up", so that they are returned to the pool.
+ * 
+ * Calls are sent as JSON by default. Setting a binary {@link WireFormat} (on the login api, before creating the others from it) streams each payload
+ * and response in that format instead, with the function named in the {@link #FUNCTION_HEADER} header.
  */
 
 public class BaseHttpApi {
     private static final Logger log = Logger.getLogger(BaseHttpApi.class);
+    public static final String FUNCTION_HEADER = "x-rapture-function";
     private String keyholeUrl;
     protected String currentUrl;
     protected String fullUrl;
@@ -94,6 +103,8 @@ public class BaseHttpApi {
 
     protected HttpClient httpclient;
     private CallingContext ctx;
+    private WireFormat wireFormat = WireFormat.JSON;
+    private HttpBatchApi batch;
 
     public BaseHttpApi(HttpLoginApi login, String keyholePart) {
         this.ctx = login.getContext();
@@ -101,6 +112,7 @@ public class BaseHttpApi {
         this.keyholeUrl = keyholePart;
         this.currentUrl = login.currentUrl;
         this.fullUrl = login.fullUrl;
+        this.wireFormat = login.getWireFormat();
 
         this.setStateManager(login.getStateManager());
         setup();
@@ -119,6 +131,10 @@ public class BaseHttpApi {
     private static final int MAX_RETRIES = 3;
 
     protected <T> T doRequest(BasePayload payload, String requestCode, TypeReference<T> reference) {
+        if (batch != null) {
+            batch.add(keyholeUrl, requestCode, payload, reference);
+            return null;
+        }
         int numTries = 0;
         while (numTries < MAX_RETRIES - 1) {
             numTries++;
@@ -148,6 +164,9 @@ public class BaseHttpApi {
     }
 
     private <T> T innerDoRequest(BasePayload payload, String requestCode, TypeReference<T> reference) throws ClientProtocolException, IOException {
+        if (wireFormat.isBinary()) {
+            return makeBinaryRequest(requestCode, payload, reference);
+        }
         String responseObjectJson;
         responseObjectJson = makeRequest(requestCode, JacksonUtil.jsonFromObject(payload));
         GeneralResponse resp = responseFromJson(responseObjectJson);
@@ -165,6 +184,26 @@ public class BaseHttpApi {
         return ctx;
     }
 
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    public HttpBatchApi getBatch() {
+        return batch;
+    }
+
+    /**
+     * While a batch is set, calls made through this api are queued on it and return null. Their results are returned in order by
+     * {@link HttpBatchApi#execute()}. Set the batch back to null to resume making calls directly.
+     */
+    public void setBatch(HttpBatchApi batch) {
+        this.batch = batch;
+    }
+
     private String inputStreamToString(InputStream is) throws IOException {
         String line = "";
         StringBuilder total = new StringBuilder();
@@ -235,19 +274,65 @@ public class BaseHttpApi {
                 return responseObjectJson;
             } catch (IOException e) {
                 log.error(String.format("Got exception during makeRequest. Will try to recover."));
-                String oldUrl = currentUrl;
-                stateManager.markURLBad(currentUrl);
-                currentUrl = stateManager.getURL();
-                if (currentUrl == null) {
-                    String message = String.format("Got exception accessing %s, and there are no available Rapture end points", oldUrl);
-                    throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, message, e);
+                failOver(e);
+            }
+        }
+        return "";
+    }
 
+    /**
+     * Stream the payload to the server in our binary wire format and bind the streamed response straight to the expected type. A server that answers in
+     * JSON instead (e.g. for an unexpected failure) is handled as for {@link #makeRequest(String, String)}.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T makeBinaryRequest(String fn, final BasePayload payload, TypeReference<T> reference) throws ClientProtocolException, IOException {
+        final WireFormat format = wireFormat;
+        while (true) {
+            try {
+                HttpPost httppost = new HttpPost(fullUrl);
+                httppost.setHeader(FUNCTION_HEADER, fn);
+                EntityTemplate entity = new EntityTemplate(new ContentProducer() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        format.getMapper().writeValue(out, payload);
+                    }
+                });
+                entity.setContentType(format.getContentType());
+                httppost.setEntity(entity);
+                HttpResponse response = httpclient.execute(httppost);
+                HttpEntity responseEntity = response.getEntity();
+                Header contentType = responseEntity.getContentType();
+                InputStream content = responseEntity.getContent();
+                if (contentType == null || WireFormat.forContentType(contentType.getValue()) != format) {
+                    GeneralResponse resp = responseFromJson(inputStreamToString(content));
+                    if (reference == null || resp.getResponse() == null || resp.getResponse().getContent() == null) {
+                        return null;
+                    }
+                    return JacksonUtil.objectFromJson(resp.getResponse().getContent(), reference);
                 }
-                httpclient = null;
-                setup();
+                BinaryResponse resp = BinaryResponse.read(content, format.getMapper(), reference);
+                if (resp.isInError()) {
+                    throwError((ErrorWrapper) resp.getResponse());
+                }
+                return (T) resp.getResponse();
+            } catch (IOException e) {
+                log.error(String.format("Got exception during makeBinaryRequest. Will try to recover."));
+                failOver(e);
             }
         }
-        return "";
+    }
+
+    private void failOver(IOException e) {
+        String oldUrl = currentUrl;
+        stateManager.markURLBad(currentUrl);
+        currentUrl = stateManager.getURL();
+        if (currentUrl == null) {
+            String message = String.format("Got exception accessing %s, and there are no available Rapture end points", oldUrl);
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, message, e);
+
+        }
+        httpclient = null;
+        setup();
     }
 
     protected GeneralResponse responseFromJson(String responseObjectJson) {
@@ -348,14 +433,20 @@ public class BaseHttpApi {
     }
 
     protected void throwError(GeneralResponse resp) {
-        ErrorWrapper wrapper = JacksonUtil.objectFromJson(resp.getResponse().getContent(), ErrorWrapper.class);
+        throwError(JacksonUtil.objectFromJson(resp.getResponse().getContent(), ErrorWrapper.class));
+    }
+
+    protected void throwError(ErrorWrapper wrapper) {
+        throw createError(wrapper);
+    }
+
+    protected static RaptureException createError(ErrorWrapper wrapper) {
         log.debug("Received error with message " + wrapper.getMessage());
         String exceptionMessage = wrapper.getMessage();
         if (exceptionMessage == null || exceptionMessage.length() == 0) {
             exceptionMessage = "Received an unknown error from the API";
         }
-        RaptureException raptException = new RaptureException(wrapper.getId(), wrapper.getStatus(), wrapper.getStackTrace());
-        throw raptException;
+        return new RaptureException(wrapper.getId(), wrapper.getStatus(), wrapper.getStackTrace());
     }
 
     public URLStateManager getStateManager() {
@@ -0,0 +1,58 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.client;
+
+import rapture.common.exception.RaptureException;
+
+/**
+ * The outcome of one call in a {@link HttpBatchApi}: either the value the call returned or the error it raised
+ */
+public class BatchResult {
+    private final Object value;
+    private final RaptureException error;
+
+    BatchResult(Object value, RaptureException error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public boolean isInError() {
+        return error != null;
+    }
+
+    public RaptureException getError() {
+        return error;
+    }
+
+    /**
+     * Return the value of the call, or throw the error it raised
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get() {
+        if (error != null) {
+            throw error;
+        }
+        return (T) value;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import rapture.common.ErrorWrapper;
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.impl.jackson.WireFormat;
+import rapture.common.model.BasePayload;
+import rapture.common.model.BatchCall;
+import rapture.common.model.BatchPayload;
+import rapture.common.model.GeneralResponse;
+
+/**
+ * Sends many api calls to Rapture in one round trip. Set this batch on any of the Http apis with {@link BaseHttpApi#setBatch(HttpBatchApi)}, make the
+ * calls as normal (they return null), then call {@link #execute()} to send them. The server validates the session once and runs each call through the
+ * normal entitlement checks, so one call failing does not affect the others.
+ * 
+ * Batches are always sent as JSON.
+ */
+public class HttpBatchApi extends BaseHttpApi {
+    private static final class ResultsTypeReference extends TypeReference<List<GeneralResponse>> {
+    }
+
+    private final List<BatchCall> calls = new ArrayList<>();
+    private final List<TypeReference<?>> references = new ArrayList<>();
+    private boolean parallel = false;
+
+    public HttpBatchApi(HttpLoginApi login) {
+        super(login, "batch");
+        setWireFormat(WireFormat.JSON);
+    }
+
+    /**
+     * Allow the server to run the calls concurrently. Only set this when no call depends on the effects of another.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    void add(String api, String function, BasePayload payload, TypeReference<?> reference) {
+        calls.add(new BatchCall(api, function, JacksonUtil.DEFAULT_MAPPER.valueToTree(payload)));
+        references.add(reference);
+    }
+
+    /**
+     * Send the queued calls and return their results in the order the calls were made. The batch is empty afterwards and can be reused.
+     */
+    public List<BatchResult> execute() {
+        List<BatchResult> ret = new ArrayList<>(calls.size());
+        if (calls.isEmpty()) {
+            return ret;
+        }
+        BatchPayload payload = new BatchPayload();
+        payload.setContext(getContext());
+        payload.setCalls(new ArrayList<>(calls));
+        payload.setParallel(parallel);
+        List<TypeReference<?>> callReferences = new ArrayList<>(references);
+        calls.clear();
+        references.clear();
+
+        List<GeneralResponse> responses = doRequest(payload, "BATCH", new ResultsTypeReference());
+        for (int i = 0; i < callReferences.size(); i++) {
+            ret.add(toResult(responses.get(i), callReferences.get(i)));
+        }
+        return ret;
+    }
+
+    static BatchResult toResult(GeneralResponse response, TypeReference<?> reference) {
+        if (response.isInError()) {
+            ErrorWrapper wrapper = JacksonUtil.objectFromJson(response.getResponse().getContent(), ErrorWrapper.class);
+            return new BatchResult(null, createError(wrapper));
+        }
+        if (reference == null || response.getResponse() == null || response.getResponse().getContent() == null) {
+            return new BatchResult(null, null);
+        }
+        return new BatchResult(JacksonUtil.objectFromJson(response.getResponse().getContent(), reference), null);
+    }
+}
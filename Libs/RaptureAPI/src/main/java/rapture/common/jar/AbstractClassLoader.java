@@ -29,8 +29,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -53,6 +55,7 @@ public abstract class AbstractClassLoader extends URLClassLoader {
 
     protected ScriptingApi api;
     protected Map<String, String> classNameMap = new HashMap<>();
+    private Set<String> expandedJarUris = new HashSet<>();
 
     public AbstractClassLoader(ClassLoader parent, ScriptingApi api, List<String> jarUris) throws ExecutionException {
         super(new URL[0], parent);
@@ -63,6 +66,7 @@ public abstract class AbstractClassLoader extends URLClassLoader {
             for (String jarUri : jarUris) {
                 List<String> expandedUris = JarUtils.expandWildcardUri(api, jarUri);
                 for (String expandedUri : expandedUris) {
+                    expandedJarUris.add(expandedUri);
                     List<String> classNames = JarCache.getInstance().getClassNames(api, expandedUri);
                     for (String className : classNames) {
                         classNameMap.put(className, expandedUri);
@@ -72,6 +76,13 @@ public abstract class AbstractClassLoader extends URLClassLoader {
         }
     }
 
+    /**
+     * The jars this loader reads from, after any wildcards have been expanded
+     */
+    public Set<String> getExpandedJarUris() {
+        return Collections.unmodifiableSet(expandedJarUris);
+    }
+
     @Override
     protected Class<?> findClass(String className) throws ClassNotFoundException {
         log.debug("findClass() for className: " + className);
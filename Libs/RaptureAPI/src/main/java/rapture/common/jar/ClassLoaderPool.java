@@ -0,0 +1,116 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.jar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import rapture.common.api.ScriptingApi;
+import rapture.config.ConfigLoader;
+
+/**
+ * Workflow class loaders, pooled by user, loading order and the ordered list of jar dependencies, so that steps run repeatedly reuse classes that are already
+ * defined (and compiled by the JIT) rather than defining them again for every step. A loader is dropped when any jar it reads from is updated, or when a jar
+ * is updated and the loader was built from a wildcard uri, as the wildcard may now expand differently.
+ * 
+ * Classes loaded this way are shared by every step that uses the same loader, including any static state they hold.
+ */
+public enum ClassLoaderPool {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(ClassLoaderPool.class);
+
+    private static final class PooledLoader {
+        private final AbstractClassLoader loader;
+        private final boolean wildcard;
+
+        private PooledLoader(AbstractClassLoader loader, boolean wildcard) {
+            this.loader = loader;
+            this.wildcard = wildcard;
+        }
+    }
+
+    private final Cache<String, PooledLoader> loaders = CacheBuilder.newBuilder().maximumSize(ConfigLoader.getConf().WorkflowClassLoaderPoolSize).build();
+
+    public static ClassLoaderPool getInstance() {
+        return INSTANCE;
+    }
+
+    public AbstractClassLoader get(final ClassLoader parent, final ScriptingApi api, String user, final boolean parentFirst, List<String> jarUris)
+            throws ExecutionException {
+        final List<String> deps = new ArrayList<>(jarUris);
+        String key = user + "|" + (parentFirst ? "parent" : "child") + "|" + StringUtils.join(deps, ",");
+        try {
+            return loaders.get(key, new Callable<PooledLoader>() {
+                @Override
+                public PooledLoader call() throws Exception {
+                    boolean wildcard = false;
+                    for (String dep : deps) {
+                        wildcard |= dep.endsWith("*");
+                    }
+                    // the loaders reorder the list they are given
+                    List<String> copy = new ArrayList<>(deps);
+                    AbstractClassLoader loader = parentFirst ? new ParentFirstClassLoader(parent, api, copy) : new ChildFirstClassLoader(parent, api, copy);
+                    return new PooledLoader(loader, wildcard);
+                }
+            }).loader;
+        } catch (UncheckedExecutionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Drop the loaders that a change to this jar could affect
+     */
+    public void invalidate(String jarUri) {
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, PooledLoader> entry : loaders.asMap().entrySet()) {
+            if (entry.getValue().wildcard || entry.getValue().loader.getExpandedJarUris().contains(jarUri)) {
+                stale.add(entry.getKey());
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.info(String.format("Dropping %d pooled class loaders after update of jar [%s]", stale.size(), jarUri));
+            loaders.invalidateAll(stale);
+        }
+    }
+
+    public void invalidateAll() {
+        loaders.invalidateAll();
+    }
+
+    public long size() {
+        return loaders.size();
+    }
+}
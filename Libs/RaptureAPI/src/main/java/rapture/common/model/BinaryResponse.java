@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rapture.common.ErrorWrapper;
+
+/**
+ * The binary wire counterpart of {@link GeneralResponse}. Rather than holding the result as a JSON string it holds the object itself, which is written
+ * straight to the response stream and read straight back into the caller's type. The flags are written before the response so a reader knows what to
+ * bind it to.
+ */
+@JsonPropertyOrder({ "inError", "success", "response" })
+public class BinaryResponse {
+    private Object response;
+    private boolean inError = false;
+    private boolean success = true;
+
+    public BinaryResponse() {
+
+    }
+
+    public BinaryResponse(ErrorWrapper ew, boolean b) {
+        setInError(b);
+        response = ew;
+    }
+
+    public BinaryResponse(Object resp) {
+        response = resp;
+    }
+
+    public Object getResponse() {
+        return response;
+    }
+
+    public void setResponse(Object response) {
+        this.response = response;
+    }
+
+    public boolean isInError() {
+        return inError;
+    }
+
+    public void setInError(boolean inError) {
+        this.inError = inError;
+        this.success = !inError;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+        this.inError = !success;
+    }
+
+    /**
+     * Stream a response in, binding its content to the given type, or to an {@link ErrorWrapper} if the call failed
+     *
+     * @param reference the type of the response, or null to skip it
+     */
+    public static BinaryResponse read(InputStream in, ObjectMapper mapper, TypeReference<?> reference) throws IOException {
+        BinaryResponse ret = new BinaryResponse();
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected a response object", parser.getCurrentLocation());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("inError".equals(field)) {
+                    ret.setInError(parser.getBooleanValue());
+                } else if ("response".equals(field) && ret.isInError()) {
+                    ret.setResponse(mapper.readValue(parser, ErrorWrapper.class));
+                } else if ("response".equals(field) && reference != null) {
+                    ret.setResponse(mapper.readValue(parser, reference));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return ret;
+    }
+}
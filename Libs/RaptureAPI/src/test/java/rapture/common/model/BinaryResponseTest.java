@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import rapture.common.ErrorWrapper;
+import rapture.common.impl.jackson.JsonContent;
+import rapture.common.impl.jackson.WireFormat;
+
+public class BinaryResponseTest {
+    private BinaryResponse roundTrip(BinaryResponse response, TypeReference<?> reference) throws IOException {
+        byte[] bytes = WireFormat.SMILE.getMapper().writeValueAsBytes(response);
+        return BinaryResponse.read(new ByteArrayInputStream(bytes), WireFormat.SMILE.getMapper(), reference);
+    }
+
+    @Test
+    public void testTypedResponse() throws IOException {
+        DocumentRepoConfig config = new DocumentRepoConfig();
+        config.setAuthority("authority");
+        config.setDescription("The description");
+        Map<String, DocumentRepoConfig> configs = new LinkedHashMap<>();
+        configs.put("doc://authority", config);
+
+        BinaryResponse after = roundTrip(new BinaryResponse(configs), new TypeReference<Map<String, DocumentRepoConfig>>() {
+        });
+        assertFalse(after.isInError());
+        assertEquals(configs, after.getResponse());
+    }
+
+    @Test
+    public void testPrimitivesAndNull() throws IOException {
+        List<Boolean> exists = Arrays.asList(true, false, true);
+        assertEquals(exists, roundTrip(new BinaryResponse(exists), new TypeReference<List<Boolean>>() {
+        }).getResponse());
+        assertNull(roundTrip(new BinaryResponse(null), new TypeReference<String>() {
+        }).getResponse());
+        assertNull(roundTrip(new BinaryResponse("ignored"), null).getResponse());
+    }
+
+    @Test
+    public void testEmbeddedJson() throws IOException {
+        // JsonContent is written as raw JSON in text, so has to be re-encoded for Smile
+        GeneralResponse general = new GeneralResponse("{\"a\":[1,2]}");
+        GeneralResponse after = (GeneralResponse) roundTrip(new BinaryResponse(general), new TypeReference<GeneralResponse>() {
+        }).getResponse();
+        assertEquals(new JsonContent("\"{\\\"a\\\":[1,2]}\""), after.getResponse());
+    }
+
+    @Test
+    public void testError() throws IOException {
+        ErrorWrapper wrapper = new ErrorWrapper();
+        wrapper.setId("abc");
+        wrapper.setStatus(404);
+        wrapper.setMessage("Not found");
+        BinaryResponse after = roundTrip(new BinaryResponse(wrapper, true), new TypeReference<String>() {
+        });
+        assertTrue(after.isInError());
+        assertEquals(wrapper, after.getResponse());
+    }
+}
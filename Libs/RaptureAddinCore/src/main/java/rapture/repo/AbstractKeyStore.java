@@ -24,8 +24,8 @@
 package rapture.repo;
 
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import rapture.common.MessageFormat;
 import rapture.common.Messages;
@@ -88,11 +88,13 @@ public abstract class AbstractKeyStore implements KeyStore {
 
     @Override
     public List<String> getBatch(List<String> keys) {
-        List<String> ret = new ArrayList<String>(keys.size());
-        for (String key : keys) {
-            ret.add(get(key));
-        }
-        return ret;
+        // Stores without a native multi-get read large batches with parallel single gets
+        return KeyStoreBatchExecutor.fanOut(this, keys);
+    }
+
+    @Override
+    public Future<List<String>> getBatchAsync(List<String> keys) {
+        return KeyStoreBatchExecutor.submit(this, keys);
     }
 
     @Override
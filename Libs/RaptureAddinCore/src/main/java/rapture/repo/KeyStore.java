@@ -25,6 +25,7 @@ package rapture.repo;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import rapture.common.RaptureFolderInfo;
 import rapture.common.RaptureNativeQueryResult;
@@ -66,6 +67,14 @@ public interface KeyStore {
 
     List<String> getBatch(List<String> keys);
 
+    /**
+     * Start reading a batch of keys. The values come back in key order, with null for missing keys, as with {@link #getBatch(List)}
+     *
+     * @param keys
+     * @return
+     */
+    Future<List<String>> getBatchAsync(List<String> keys);
+
     String getStoreId();
 
     void put(String k, String v);
@@ -0,0 +1,129 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.repo;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rapture.common.exception.RaptureException;
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.config.ConfigLoader;
+
+/**
+ * Shared, bounded pool used to read batches of keys from key stores in parallel.
+ * 
+ * The pool has no queue: a task either gets an idle thread straight away or runs on the submitting thread. Nothing ever waits behind a task that is
+ * itself waiting, so fanning out from inside a batch read cannot deadlock the pool.
+ */
+public final class KeyStoreBatchExecutor {
+
+    // Batches smaller than this are not worth handing to another thread
+    static final int MIN_KEYS_PER_TASK = 8;
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        int threads = Math.max(1, ConfigLoader.getConf().KeyStoreBatchThreads);
+        executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("KeyStoreBatch-%d").build(), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private KeyStoreBatchExecutor() {
+    }
+
+    /**
+     * Run a batch read of the store in the background
+     */
+    public static Future<List<String>> submit(final KeyStore store, final List<String> keys) {
+        return executor.submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                return store.getBatch(keys);
+            }
+        });
+    }
+
+    /**
+     * Read each key with {@link KeyStore#get(String)}, splitting the keys into contiguous slices that are read in parallel. Values are returned in
+     * key order, with null for missing keys.
+     */
+    public static List<String> fanOut(final KeyStore store, List<String> keys) {
+        int tasks = Math.min(executor.getMaximumPoolSize() + 1, keys.size() / MIN_KEYS_PER_TASK);
+        if (tasks <= 1) {
+            return readSlice(store, keys);
+        }
+        int sliceSize = (keys.size() + tasks - 1) / tasks;
+        List<Future<List<String>>> futures = new ArrayList<>(tasks);
+        // The first slice is read on this thread once the others have been handed out
+        for (int start = sliceSize; start < keys.size(); start += sliceSize) {
+            final List<String> slice = keys.subList(start, Math.min(keys.size(), start + sliceSize));
+            futures.add(executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    return readSlice(store, slice);
+                }
+            }));
+        }
+        List<String> ret = new ArrayList<>(keys.size());
+        ret.addAll(readSlice(store, keys.subList(0, sliceSize)));
+        for (Future<List<String>> future : futures) {
+            ret.addAll(await(future));
+        }
+        return ret;
+    }
+
+    /**
+     * Wait for a batch read, rethrowing any failure as a RaptureException
+     */
+    public static List<String> await(Future<List<String>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Interrupted waiting for batch read", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RaptureException) {
+                throw (RaptureException) e.getCause();
+            }
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Error in batch read", e.getCause());
+        }
+    }
+
+    private static List<String> readSlice(KeyStore store, List<String> keys) {
+        List<String> ret = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            ret.add(store.get(key));
+        }
+        return ret;
+    }
+}
@@ -33,6 +33,7 @@ import rapture.common.impl.jackson.JsonContent;
 import rapture.index.IndexProducer;
 import rapture.index.IndexHandler;
 import rapture.repo.KeyStore;
+import rapture.repo.KeyStoreBatchExecutor;
 import rapture.repo.RepoLockHandler;
 import rapture.repo.RepoVisitor;
 import rapture.repo.StoreKeyVisitor;
@@ -42,6 +43,7 @@ import java.net.HttpURLConnection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 
 /*
@@ -170,6 +172,11 @@ public class CassandraKeyStore implements KeyStore {
         return repoConnection.batchGet(keys);
     }
 
+    @Override
+    public Future<List<String>> getBatchAsync(List<String> keys) {
+        return KeyStoreBatchExecutor.submit(this, keys);
+    }
+
     @Override
     public String getStoreId() {
         return repoConnection.getUniqueId();
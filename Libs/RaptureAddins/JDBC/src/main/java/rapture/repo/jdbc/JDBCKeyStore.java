@@ -22,6 +22,7 @@ import rapture.common.exception.RaptureExceptionFormatter;
 import rapture.index.IndexProducer;
 import rapture.index.IndexHandler;
 import rapture.repo.KeyStore;
+import rapture.repo.KeyStoreBatchExecutor;
 import rapture.repo.RepoLockHandler;
 import rapture.repo.RepoVisitor;
 import rapture.repo.StoreKeyVisitor;
@@ -33,6 +34,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -128,6 +130,11 @@ public class JDBCKeyStore implements KeyStore {
         return null;
     }
 
+    @Override
+    public Future<List<String>> getBatchAsync(List<String> keys) {
+        return KeyStoreBatchExecutor.submit(this, keys);
+    }
+
     @Override
     public String getStoreId() {
         // TODO Auto-generated method stub
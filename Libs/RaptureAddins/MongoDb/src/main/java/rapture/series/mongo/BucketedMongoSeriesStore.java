@@ -0,0 +1,422 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.mongo;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.bson.Document;
+
+import com.google.common.base.Preconditions;
+import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+
+import rapture.common.SeriesValue;
+import rapture.common.exception.ExceptionToString;
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.mongodb.MongoRetryWrapper;
+
+/**
+ * A Mongo series store that packs the points of a series into bucket documents rather than keeping one document per point. A point belongs to the bucket
+ * named by the first {@value #DEFAULT_BUCKET_LENGTH} (or {@code bucketLength}) characters of its column, so for time-stamped columns such as
+ * <code>yyyyMMddHHmmss</code> a bucket holds an hour of points. Each bucket document maps its columns to their values, so writes are one upsert per bucket
+ * sent as a single unordered bulk write, and range reads fetch whole buckets.
+ * <p>
+ * Selected with {@code format="bucketed"} in the MONGODB config, e.g. <code>SREP {} USING MONGODB { prefix="ticks", format="bucketed" }</code>. The bucketed
+ * and per-point layouts cannot share a collection.
+ * <p>
+ * A bucket is a single Mongo document, so it must stay under Mongo's 16MB document limit: choose {@code bucketLength} so that a bucket holds thousands of
+ * points, not millions (sub-second columns need a longer one than the default). A write that would take a bucket past {@code maxBucketPoints} points
+ * (default {@value #DEFAULT_MAX_BUCKET_POINTS}, 0 for no limit) is refused with a RaptureException, although points in the same write that go to buckets with room may still be saved.
+ * Each bucket keeps a count of its points that only grows, so the limit is checked in the same upsert, and a bucket is only counted exactly when the count
+ * says it may be full.
+ */
+public class BucketedMongoSeriesStore extends MongoSeriesStore {
+    public static final String BUCKET_LENGTH = "bucketLength";
+    static final int DEFAULT_BUCKET_LENGTH = 10;
+    public static final String MAX_BUCKET_POINTS = "maxBucketPoints";
+    static final int DEFAULT_MAX_BUCKET_POINTS = 50000;
+    public static final String BUCKETKEY = "bucket";
+    public static final String POINTSKEY = "pts";
+    public static final String COUNTKEY = "n";
+    private static final String $SET = "$set";
+    private static final String $INC = "$inc";
+    private static final String $UNSET = "$unset";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final Document INDEX_KEYS = new Document(ROWKEY, 1).append(BUCKETKEY, 1);
+    private static final IndexOptions INDEX_OPTS = new IndexOptions().unique(true);
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static Logger log = Logger.getLogger(BucketedMongoSeriesStore.class);
+
+    private int bucketLength = DEFAULT_BUCKET_LENGTH;
+    private int maxBucketPoints = DEFAULT_MAX_BUCKET_POINTS;
+
+    @Override
+    public void setConfig(Map<String, String> config) {
+        String length = StringUtils.trimToNull(config.get(BUCKET_LENGTH));
+        if (length != null) bucketLength = Integer.parseInt(length);
+        String maxPoints = StringUtils.trimToNull(config.get(MAX_BUCKET_POINTS));
+        if (maxPoints != null) maxBucketPoints = Integer.parseInt(maxPoints);
+        super.setConfig(config);
+    }
+
+    @Override
+    protected void createIndex(MongoCollection<Document> collection) {
+        collection.createIndex(INDEX_KEYS, INDEX_OPTS);
+    }
+
+    String bucketOf(String column) {
+        return (column.length() > bucketLength) ? column.substring(0, bucketLength) : column;
+    }
+
+    /**
+     * Columns become field names within a bucket, so characters Mongo does not allow there are escaped, as is the escape character itself
+     */
+    static String encodeColumn(String column) {
+        if (column.isEmpty()) return "%";
+        StringBuilder sb = new StringBuilder(column.length() + 4);
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '%' || c == '.' || c == '\u0000' || (c == '$' && i == 0)) {
+                sb.append('%').append(String.format("%02X", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String decodeColumn(String field) {
+        if (field.indexOf('%') < 0) return field;
+        if (field.equals("%")) return "";
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '%') {
+                sb.append((char) Integer.parseInt(field.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    protected void saveDocument(String key, String column, Object val) {
+        List<String> columns = new ArrayList<>(1);
+        List<Object> values = new ArrayList<>(1);
+        columns.add(column);
+        values.add(val);
+        saveDocuments(key, columns, values);
+    }
+
+    /**
+     * Write the points with one upsert per bucket, all in one unordered bulk write
+     */
+    private void saveDocuments(String key, List<String> columns, List<Object> values) {
+        registerKey(key);
+        Map<String, Document> sets = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            String bucket = bucketOf(column);
+            Document set = sets.get(bucket);
+            if (set == null) {
+                set = new Document();
+                sets.put(bucket, set);
+            }
+            set.append(POINTSKEY + "." + encodeColumn(column), values.get(i));
+        }
+        List<String> buckets = new ArrayList<>(sets.keySet());
+        List<WriteModel<Document>> writes = new ArrayList<>(sets.size());
+        for (String bucket : buckets) {
+            Document set = sets.get(bucket);
+            checkBucketSize(key, bucket, set.size());
+            Document filter = new Document(ROWKEY, key).append(BUCKETKEY, bucket);
+            Document update = new Document($SET, set);
+            if (maxBucketPoints > 0) {
+                // only match a bucket that has room for all of these as new points
+                filter.append(COUNTKEY, new Document("$not", new Document("$gt", maxBucketPoints - set.size())));
+                update.append($INC, new Document(COUNTKEY, set.size()));
+            }
+            writes.add(new UpdateOneModel<Document>(filter, update, UPSERT));
+        }
+        MongoCollection<Document> collection = getCollection(key);
+        List<String> turnedAway = new ArrayList<>();
+        List<String> full = new ArrayList<>();
+        try {
+            try {
+                collection.bulkWrite(writes, UNORDERED);
+            } catch (MongoBulkWriteException e) {
+                // the unique index turns away an upsert whose bucket exists but did not match: it may be full, or another writer created it first
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    if (error.getCode() != DUPLICATE_KEY) throw e;
+                    turnedAway.add(buckets.get(error.getIndex()));
+                }
+            } catch (DuplicateKeyException e) {
+                // reported without saying which write it was, so check them all
+                turnedAway.addAll(buckets);
+            }
+            List<WriteModel<Document>> retries = new ArrayList<>(turnedAway.size());
+            for (String bucket : turnedAway) {
+                Document filter = new Document(ROWKEY, key).append(BUCKETKEY, bucket);
+                Document set = new Document(sets.get(bucket));
+                if (maxBucketPoints > 0) {
+                    int points = countPointsAfter(collection, filter, set);
+                    if (points > maxBucketPoints) {
+                        full.add(bucket);
+                        continue;
+                    }
+                    set.append(COUNTKEY, points);
+                }
+                retries.add(new UpdateOneModel<Document>(filter, new Document($SET, set), UPSERT));
+            }
+            if (!retries.isEmpty()) collection.bulkWrite(retries, UNORDERED);
+        } catch (MongoException me) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, new ExceptionToString(me));
+        }
+        if (!full.isEmpty()) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, String.format(
+                    "Buckets %s of series %s would hold more than the %s of %d points; use a longer %s", full, key, MAX_BUCKET_POINTS, maxBucketPoints,
+                    BUCKET_LENGTH));
+        }
+    }
+
+    /**
+     * Count the points a bucket will hold once these are set, from the columns already in it
+     */
+    private static int countPointsAfter(MongoCollection<Document> collection, Document filter, Document set) {
+        Set<String> points = new HashSet<>();
+        Document existing = collection.find(filter).projection(new Document(POINTSKEY, 1)).first();
+        if (existing != null && existing.get(POINTSKEY) instanceof Map) {
+            for (Object field : ((Map<?, ?>) existing.get(POINTSKEY)).keySet()) {
+                points.add(field.toString());
+            }
+        }
+        for (String field : set.keySet()) {
+            points.add(field.substring(POINTSKEY.length() + 1));
+        }
+        return points.size();
+    }
+
+    private void checkBucketSize(String key, String bucket, int points) {
+        if (maxBucketPoints > 0 && points > maxBucketPoints) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, String.format(
+                    "Bucket %s of series %s would hold %d points, more than the %s of %d; use a longer %s", bucket, key, points, MAX_BUCKET_POINTS,
+                    maxBucketPoints, BUCKET_LENGTH));
+        }
+    }
+
+    private BulkWriteResult bulkWrite(String key, List<WriteModel<Document>> writes) {
+        try {
+            return getCollection(key).bulkWrite(writes, UNORDERED);
+        } catch (MongoException me) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, new ExceptionToString(me));
+        }
+    }
+
+    private <T> void multiAdd(String key, List<String> columns, List<T> values, boolean quote) {
+        Preconditions.checkArgument(columns.size() == values.size());
+        boolean nullKey = false;
+        List<String> cols = new ArrayList<>(columns.size());
+        List<Object> vals = new ArrayList<>(values.size());
+        Iterator<T> val = values.iterator();
+        for (String column : columns) {
+            T value = val.next();
+            if (column == null) {
+                nullKey = true;
+            } else {
+                cols.add(column);
+                vals.add(quote ? "'" + value : value);
+            }
+        }
+        if (!cols.isEmpty()) saveDocuments(key, cols, vals);
+        if (nullKey) throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, mongoMsgCatalog.getMessage("NullKey"));
+    }
+
+    @Override
+    public void addDoublesToSeries(String key, List<String> columns, List<Double> values) {
+        multiAdd(key, columns, values, false);
+    }
+
+    @Override
+    public void addLongsToSeries(String key, List<String> columns, List<Long> values) {
+        multiAdd(key, columns, values, false);
+    }
+
+    @Override
+    public void addStringsToSeries(String key, List<String> columns, List<String> values) {
+        multiAdd(key, columns, values, true);
+    }
+
+    @Override
+    public void addStructuresToSeries(String key, List<String> columns, List<String> values) {
+        multiAdd(key, columns, values, false);
+    }
+
+    @Override
+    public void addPointsToSeries(String key, List<SeriesValue> values) {
+        List<String> columns = new ArrayList<>(values.size());
+        List<Object> encoded = new ArrayList<>(values.size());
+        for (SeriesValue value : values) {
+            columns.add(value.getColumn());
+            encoded.add(encodeValue(value));
+        }
+        multiAdd(key, columns, encoded, false);
+    }
+
+    @Override
+    public boolean deletePointsFromSeriesByPointKey(String key, List<String> pointKeys) {
+        Map<String, Document> unsets = new LinkedHashMap<>();
+        for (String pointKey : pointKeys) {
+            String bucket = bucketOf(pointKey);
+            Document unset = unsets.get(bucket);
+            if (unset == null) {
+                unset = new Document();
+                unsets.put(bucket, unset);
+            }
+            unset.append(POINTSKEY + "." + encodeColumn(pointKey), "");
+        }
+        if (unsets.isEmpty()) return false;
+        List<WriteModel<Document>> writes = new ArrayList<>(unsets.size());
+        for (Map.Entry<String, Document> entry : unsets.entrySet()) {
+            writes.add(new UpdateOneModel<Document>(new Document(ROWKEY, key).append(BUCKETKEY, entry.getKey()), new Document($UNSET, entry.getValue())));
+        }
+        BulkWriteResult result = bulkWrite(key, writes);
+        return result.getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean deletePointsFromSeries(String key) {
+        boolean ret = false;
+        MongoCollection<Document> collection = getCollection(key);
+        try {
+            DeleteResult result = collection.deleteMany(new Document(ROWKEY, key));
+            log.info("Removed " + result.getDeletedCount() + " buckets");
+            ret = (result.getDeletedCount() > 0);
+        } catch (MongoException me) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, new ExceptionToString(me));
+        }
+        unregisterKey(key);
+        return ret;
+    }
+
+    @Override
+    public List<SeriesValue> getPoints(String key) {
+        return readBuckets(key, null, null, Integer.MAX_VALUE, false);
+    }
+
+    @Override
+    public List<SeriesValue> getPointsAfter(String key, String startColumn, int maxNumber) {
+        return readBuckets(key, startColumn, null, maxNumber, false);
+    }
+
+    @Override
+    public List<SeriesValue> getPointsAfterReverse(String key, String startColumn, int maxNumber) {
+        return readBuckets(key, null, startColumn, maxNumber, true);
+    }
+
+    @Override
+    public List<SeriesValue> getPointsAfter(String key, String startColumn, String endColumn, int maxNumber) {
+        return readBuckets(key, startColumn, endColumn, maxNumber, false);
+    }
+
+    @Override
+    public SeriesValue getLastPoint(String key) {
+        List<SeriesValue> last = readBuckets(key, null, null, 1, true);
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    private static final Comparator<SeriesValue> BY_COLUMN = new Comparator<SeriesValue>() {
+        @Override
+        public int compare(SeriesValue a, SeriesValue b) {
+            return a.getColumn().compareTo(b.getColumn());
+        }
+    };
+
+    /**
+     * Read the points with columns from startColumn to endColumn inclusive (either may be null for no limit), walking whole buckets in column order
+     */
+    private List<SeriesValue> readBuckets(final String key, final String startColumn, final String endColumn, int maxNumber, final boolean reverse) {
+        final int limit = maxNumber > overflowLimit ? overflowLimit : maxNumber;
+        MongoRetryWrapper<List<SeriesValue>> wrapper = new MongoRetryWrapper<List<SeriesValue>>() {
+            @Override
+            public FindIterable<Document> makeCursor() {
+                Document query = new Document(ROWKEY, key);
+                Document range = new Document();
+                if (startColumn != null) range.append("$gte", bucketOf(startColumn));
+                if (endColumn != null) range.append("$lte", bucketOf(endColumn));
+                if (!range.isEmpty()) query.append(BUCKETKEY, range);
+                return getCollection(key).find(query).sort(new Document(BUCKETKEY, reverse ? -1 : 1));
+            }
+
+            @Override
+            public List<SeriesValue> action(FindIterable<Document> cursor) {
+                List<SeriesValue> result = new ArrayList<>();
+                if (cursor == null) return result;
+                for (Document bucket : cursor) {
+                    List<SeriesValue> points = new ArrayList<>();
+                    Object pts = bucket.get(POINTSKEY);
+                    if (pts instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) pts).entrySet()) {
+                            String column = decodeColumn(entry.getKey().toString());
+                            if (startColumn != null && column.compareTo(startColumn) < 0) continue;
+                            if (endColumn != null && column.compareTo(endColumn) > 0) continue;
+                            points.add(makeSeriesValue(column, entry.getValue()));
+                        }
+                    }
+                    Collections.sort(points, reverse ? Collections.reverseOrder(BY_COLUMN) : BY_COLUMN);
+                    for (SeriesValue point : points) {
+                        if (result.size() >= limit) return result;
+                        result.add(point);
+                    }
+                }
+                return result;
+            }
+        };
+        return wrapper.doAction();
+    }
+}
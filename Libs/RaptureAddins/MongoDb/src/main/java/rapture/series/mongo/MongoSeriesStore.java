@@ -80,7 +80,7 @@ public class MongoSeriesStore extends AbstractSeriesStore {
     private final ChildrenRepo childrenRepo;
     private static Logger log = Logger.getLogger(MongoSeriesStore.class);
 
-    private Messages mongoMsgCatalog;
+    protected Messages mongoMsgCatalog;
 
     public MongoSeriesStore() {
         mongoMsgCatalog = new Messages("Mongo");
@@ -138,14 +138,21 @@ public class MongoSeriesStore extends AbstractSeriesStore {
 
     @Override
     public void addPointToSeries(String key, SeriesValue value) {
-        if (value.isDouble()) addDoubleToSeries(key, value.getColumn(), value.asDouble());
-        else if (value.isLong()) addLongToSeries(key, value.getColumn(), value.asLong());
-        else if (value.isString()) addStringToSeries(key, value.getColumn(), value.asString());
-        else if (value.isStructure()) addStructureToSeries(key, value.getColumn(), value.asString());
+        saveDocument(key, value.getColumn(), encodeValue(value));
+    }
+
+    /**
+     * @return the value as it is held in Mongo: doubles and longs as themselves, strings with a leading quote and structures as JSON
+     */
+    protected Object encodeValue(SeriesValue value) {
+        if (value.isDouble()) return value.asDouble();
+        else if (value.isLong()) return value.asLong();
+        else if (value.isString()) return "'" + value.asString();
+        else if (value.isStructure()) return value.asString();
         else throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, mongoMsgCatalog.getMessage("NoEncoder", value.asString()));
     }
 
-    private void saveDocument(String key, String column, Object val) {
+    protected void saveDocument(String key, String column, Object val) {
         registerKey(key);
         MongoCollection<Document> collection = getCollection(key);
         Document dbkey = new Document(ROWKEY, key).append(COLKEY, column);
@@ -167,7 +174,7 @@ public class MongoSeriesStore extends AbstractSeriesStore {
         }
     };
 
-    private void registerKey(String key) {
+    protected void registerKey(String key) {
         if (DIRECTORY_KEY.equals(key) || ChildKeyUtil.isRowKey(key)) {
             return;
         } else try {
@@ -337,8 +344,13 @@ public class MongoSeriesStore extends AbstractSeriesStore {
     }
 
     private SeriesValue makeSeriesValue(Document entry) {
-        Object val = entry.get(VALKEY);
-        String col = (String) entry.get(COLKEY);
+        return makeSeriesValue((String) entry.get(COLKEY), entry.get(VALKEY));
+    }
+
+    /**
+     * The reverse of {@link #encodeValue(SeriesValue)}
+     */
+    protected SeriesValue makeSeriesValue(String col, Object val) {
         if (val instanceof Double) return new DecimalSeriesValue(((Double) val).doubleValue(), col);
         if (val instanceof String) return decodeString((String) val, col);
         if (val instanceof Long) return new LongSeriesValue(((Long) val).longValue(), col);
@@ -418,7 +430,11 @@ public class MongoSeriesStore extends AbstractSeriesStore {
         }
         // WARNING: Fragile code assumes setInstanceName is called BEFORE
         // setConfig
-        MongoDBFactory.getCollection(instanceName, tableName).createIndex(INDEX_KEYS, INDEX_OPTS);
+        createIndex(getCollection(null));
+    }
+
+    protected void createIndex(MongoCollection<Document> collection) {
+        collection.createIndex(INDEX_KEYS, INDEX_OPTS);
     }
 
     @Override
@@ -441,7 +457,7 @@ public class MongoSeriesStore extends AbstractSeriesStore {
         return childrenRepo.getChildren(folderName);
     }
 
-    private MongoCollection<Document> getCollection(String checkAllTheCallersIfYouStopIgnoringThisParameter) {
+    protected MongoCollection<Document> getCollection(String checkAllTheCallersIfYouStopIgnoringThisParameter) {
         MongoCollection<Document> result = MongoDBFactory.getCollection(instanceName, tableName);
         return result;
     }
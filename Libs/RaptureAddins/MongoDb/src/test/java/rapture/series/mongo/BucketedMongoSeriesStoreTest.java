@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.mongo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.client.MongoCollection;
+
+import rapture.common.SeriesValue;
+import rapture.common.exception.RaptureException;
+import rapture.dsl.serfun.DecimalSeriesValue;
+import rapture.repo.SeriesRepo;
+import rapture.series.SeriesContract;
+
+public class BucketedMongoSeriesStoreTest extends SeriesContract {
+    // assigned from createRepo, which runs during the superclass's initialization, so these must not have initializers
+    private MongoCollection<Document> collection;
+    private SeriesRepo bucketed;
+
+    @Override
+    public SeriesRepo createRepo() {
+        collection = new Fongo("bucketUnitTest").getDatabase("bucketUnitTestDB").getCollection("bucketUnitTestCollection");
+        Map<String, String> config = ImmutableMap.of("prefix", "bucketUnitTestCollection", "bucketLength", "2");
+        BucketedMongoSeriesStore store = new BucketedMongoSeriesStore() {
+            @Override
+            protected MongoCollection<Document> getCollection(String key) {
+                return collection;
+            }
+        };
+        store.setConfig(config);
+        bucketed = new SeriesRepo(store);
+        return bucketed;
+    }
+
+    @Test
+    public void testBuckets() {
+        String key = "Buckets";
+        List<SeriesValue> points = new ArrayList<>();
+        for (int i = 100; i < 400; i++) {
+            points.add(new DecimalSeriesValue(i, String.valueOf(i)));
+        }
+        bucketed.addPointsToSeries(key, points);
+        // three points per bucket prefix of length 2 means 30 buckets for 300 points
+        assertEquals(30, collection.count(new Document(MongoSeriesStore.ROWKEY, key)));
+
+        List<SeriesValue> range = bucketed.getPointsAfter(key, "155", "205", 1000);
+        assertEquals(51, range.size());
+        assertEquals("155", range.get(0).getColumn());
+        assertEquals("205", range.get(50).getColumn());
+        List<SeriesValue> reverse = bucketed.getPointsAfterReverse(key, "205", 3);
+        assertEquals("205", reverse.get(0).getColumn());
+        assertEquals("203", reverse.get(2).getColumn());
+        assertEquals("399", bucketed.getLastPoint(key).getColumn());
+    }
+
+    @Test
+    public void testOddColumns() {
+        String key = "OddColumns";
+        String[] columns = { "a.b", "$dollar", "50%", "", "x$y.z" };
+        for (int i = 0; i < columns.length; i++) {
+            bucketed.addDoubleToSeries(key, columns[i], i);
+        }
+        List<SeriesValue> points = bucketed.getPoints(key);
+        assertEquals(columns.length, points.size());
+        for (SeriesValue point : points) {
+            String column = point.getColumn();
+            boolean found = false;
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(column)) {
+                    assertEquals(i, point.asDouble(), 0);
+                    found = true;
+                }
+            }
+            assertTrue(column, found);
+        }
+        assertTrue(bucketed.deletePointsFromSeriesByColumn(key, Arrays.asList("a.b")));
+        assertEquals(columns.length - 1, bucketed.getPoints(key).size());
+        assertFalse(bucketed.deletePointsFromSeriesByColumn("NoSuchSeries", Arrays.asList("a.b")));
+    }
+
+    @Test
+    public void testFullBucketIsRefused() {
+        final MongoCollection<Document> small = new Fongo("bucketUnitTest").getDatabase("bucketUnitTestDB").getCollection("bucketLimitCollection");
+        BucketedMongoSeriesStore store = new BucketedMongoSeriesStore() {
+            @Override
+            protected MongoCollection<Document> getCollection(String key) {
+                return small;
+            }
+        };
+        store.setConfig(ImmutableMap.of("prefix", "bucketLimitCollection", "bucketLength", "2", "maxBucketPoints", "5"));
+        SeriesRepo repo = new SeriesRepo(store);
+        String key = "Limited";
+        for (int i = 100; i < 105; i++) {
+            repo.addDoubleToSeries(key, String.valueOf(i), i);
+        }
+        // overwriting a point does not add one, even though the running count says the bucket may be full
+        repo.addDoubleToSeries(key, "100", 1.0);
+        assertEquals(1.0, repo.getPoints(key).get(0).asDouble(), 0);
+        try {
+            repo.addPointsToSeries(key, Arrays.<SeriesValue> asList(new DecimalSeriesValue(105, "105"), new DecimalSeriesValue(200, "200")));
+            fail("Bucket 10 should be full");
+        } catch (RaptureException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("maxBucketPoints"));
+        }
+        List<SeriesValue> points = repo.getPoints(key);
+        assertEquals(6, points.size());
+        assertEquals("200", points.get(5).getColumn());
+        try {
+            List<SeriesValue> tooMany = new ArrayList<>();
+            for (int i = 300; i < 306; i++) {
+                tooMany.add(new DecimalSeriesValue(i, String.valueOf(i)));
+            }
+            repo.addPointsToSeries(key, tooMany);
+            fail("Six new points cannot fit in a bucket of five");
+        } catch (RaptureException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("maxBucketPoints"));
+        }
+    }
+}
@@ -172,12 +172,10 @@ public class PostgresDataStore extends AbstractKeyStore implements KeyStore {
 
     @Override
     public List<String> getBatch(final List<String> keys) {
-        List<String> ret = new ArrayList<String>();
-        // Batch is slow at present
-        for (String k : keys) {
-            ret.add(get(k));
+        if (keys.isEmpty()) {
+            return new ArrayList<String>();
         }
-        return ret;
+        return docHandler.getBatch(keys);
     }
 
     @Override
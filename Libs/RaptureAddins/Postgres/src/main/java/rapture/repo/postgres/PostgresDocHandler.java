@@ -21,7 +21,10 @@ import rapture.repo.StoreKeyVisitor;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -41,6 +44,9 @@ import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 public class PostgresDocHandler {
     private static Logger log = Logger.getLogger(PostgresDocHandler.class);
 
+    // Maximum number of keys bound into one IN clause
+    private static final int BATCH_SIZE = 1000;
+
     private String tableName;
     private NamedParameterJdbcTemplate namedJdbcTemplate;
 
@@ -129,6 +135,34 @@ public class PostgresDocHandler {
         }
     }
 
+    /**
+     * Get the content of a batch of keys, in key order with null for missing keys. Keys are fetched in chunks, one query per chunk
+     *
+     * @param keys
+     * @return
+     */
+    public List<String> getBatch(List<String> keys) {
+        String sql = String.format("SELECT key, content\n"
+                + "FROM %s\n"
+                + "WHERE key IN (:keys);", tableName);
+        final Map<String, String> found = new HashMap<>();
+        RowCallbackHandler callback = new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                found.put(rs.getString(1), rs.getString(2));
+            }
+        };
+        for (int start = 0; start < keys.size(); start += BATCH_SIZE) {
+            List<String> chunk = keys.subList(start, Math.min(keys.size(), start + BATCH_SIZE));
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("keys", chunk), callback);
+        }
+        List<String> ret = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            ret.add(found.get(key));
+        }
+        return ret;
+    }
+
     public boolean exists(String key) {
         String sql = String.format("SELECT COUNT(key)\n"
                 + "FROM %s\n"
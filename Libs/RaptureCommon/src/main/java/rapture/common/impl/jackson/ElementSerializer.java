@@ -37,7 +37,12 @@ public class ElementSerializer extends StdScalarSerializer<JsonContent> {
 
     @Override
     public void serialize(JsonContent content, JsonGenerator generator, SerializerProvider provider) throws IOException {
-        generator.writeRawValue(content.getContent());
+        if (generator.canWriteBinaryNatively()) {
+            // binary formats such as Smile cannot embed raw JSON text, so re-encode it
+            generator.writeTree(JacksonUtil.DEFAULT_MAPPER.readTree(content.getContent()));
+        } else {
+            generator.writeRawValue(content.getContent());
+        }
     }
 
 }
@@ -40,6 +40,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.base.Charsets;
 
 import rapture.common.exception.ExceptionToString;
@@ -59,6 +60,10 @@ public final class JacksonUtil {
     private static final Logger log = Logger.getLogger(JacksonUtil.class);
 
     public static final ObjectMapper DEFAULT_MAPPER;
+    /**
+     * Configured like {@link #DEFAULT_MAPPER} but reads and writes Smile, the binary JSON encoding used by {@link WireFormat#SMILE}
+     */
+    public static final ObjectMapper SMILE_MAPPER;
     private static final ObjectWriter PRETTY_PRINTER;
 
     static {
@@ -68,6 +73,8 @@ public final class JacksonUtil {
         PRETTY_PRINTER = DEFAULT_MAPPER.writerWithDefaultPrettyPrinter();
         PRETTY_PRINTER.getFactory().enable(Feature.WRITE_BIGDECIMAL_AS_PLAIN);
 
+        SMILE_MAPPER = MapperFactory.createDefault(new SmileFactory());
+        SMILE_MAPPER.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
     }
     public static Map<String, Object> getHashFromObject(Object obj) {
         return getMapFromJson(jsonFromObject(obj));
@@ -26,6 +26,7 @@ package rapture.common.impl.jackson;
 import java.text.SimpleDateFormat;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -38,7 +39,14 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
  */
 public class MapperFactory {
     public static ObjectMapper createDefault() {
-        ObjectMapper mapper = create();
+        return createDefault(new JsonFactory());
+    }
+
+    /**
+     * Same configuration as {@link #createDefault()}, but reading and writing the format of the given factory (e.g. Smile)
+     */
+    public static ObjectMapper createDefault(JsonFactory factory) {
+        ObjectMapper mapper = create(factory);
 
         String moduleName = "RaptureModule";
         SimpleModule myModule = createModule(moduleName);
@@ -55,11 +63,11 @@ public class MapperFactory {
     }
 
     public static ObjectMapper createForStorables() {
-        return create();
+        return create(new JsonFactory());
     }
 
-    private static ObjectMapper create() {
-        ObjectMapper mapper = new ObjectMapper();
+    private static ObjectMapper create(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
 
         mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss"));
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.common.impl.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The encodings an API call can be sent and answered in. JSON is the default; a client that sends its payload with the Smile content type gets the
+ * response streamed back in Smile, without the intermediate JSON strings of the default path.
+ */
+public enum WireFormat {
+    JSON("application/json", JacksonUtil.DEFAULT_MAPPER), SMILE("application/x-jackson-smile", JacksonUtil.SMILE_MAPPER);
+
+    private final String contentType;
+    private final ObjectMapper mapper;
+
+    WireFormat(String contentType, ObjectMapper mapper) {
+        this.contentType = contentType;
+        this.mapper = mapper;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * @return the format for an HTTP content type, or null if it is not one of ours
+     */
+    public static WireFormat forContentType(String contentType) {
+        if (contentType != null) {
+            for (WireFormat format : values()) {
+                if (contentType.startsWith(format.contentType)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+}
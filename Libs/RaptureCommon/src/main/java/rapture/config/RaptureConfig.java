@@ -99,6 +99,49 @@ public class RaptureConfig {
     // maximum number of series points to return from any series get* call
     public int SeriesOverflowLimit = 100000;
 
+    // maximum size in bytes of the in-process content cache in front of each CACHE document repo
+    public long DocumentCacheMaxBytes = 64L * 1024 * 1024;
+
+    // maximum number of threads shared by all key stores for parallel batch reads
+    public int KeyStoreBatchThreads = 16;
+
+    // maximum number of calls in one api batch request, and the threads shared by batches run in parallel
+    public int ApiBatchMaxCalls = 1000;
+    public int ApiBatchThreads = 16;
+
+    // how long sessions, users and entitlement decisions are cached for on the request path; 0 turns the cache off
+    public int SecurityCacheSeconds = 60;
+
+    // run the event, index and search work that follows a document save on background workers
+    public boolean DocPostWriteAsync = false;
+    public int DocPostWriteQueueSize = 10000;
+    public int DocPostWriteThreads = 4;
+    public int DocPostWriteBatchSize = 100;
+
+    // how many ids each kernel reserves from an idgen store per round trip; 1 turns leasing off.
+    // An idgen can override this with lease="n" in its processor config. setIdGen and deleteIdGen make
+    // the other kernels drop their leases, but only once the notification reaches them, so with a lease
+    // above 1 ids just below a new count can still be issued in that window
+    public int IdGenLeaseSize = 1;
+
+    // maximum number of decoded objects, and of resolved document paths, kept for each versioned repo
+    public long ObjectDatabaseCacheSize = 10000;
+
+    // maximum number of class loaders kept for reuse by workflow steps; 0 gives every step its own loader
+    public int WorkflowClassLoaderPoolSize = 100;
+
+    // when on, a workflow step whose next step belongs to a category this server handles runs that step in the same thread
+    // instead of going back through the pipeline; a run is cut after WorkflowFusionMaxSteps steps and the worker is saved
+    // every WorkflowFusionCheckpointSteps steps
+    public boolean WorkflowStepFusion = false;
+    public int WorkflowFusionMaxSteps = 50;
+    public int WorkflowFusionCheckpointSteps = 10;
+
+    // how many compiled workflow definitions each kernel keeps, and for how long at most; changes made through the decision api
+    // clear them straight away
+    public long WorkflowCacheSize = 1000;
+    public long WorkflowCacheSeconds = 300;
+
     public String DefaultPythonLocation = "/usr/bin/python";
     public String DefaultAnacondaPythonLocation = "/opt/anaconda/bin/python";
     public String DefaultAnacondaRoot = "/opt/anaconda/envs/";
@@ -25,7 +25,7 @@ repdef	   : s=repstyle config { addProcessorConfig($s.text); };
 storedef   : s=storestyle config { addConfig($s.text); };
 
 repstyle   : SEARCH;
-storestyle : s=(ELASTIC) { setStore($s); };
+storestyle : s=(ELASTIC | LUCENE) { setStore($s); };
 
 config 	   : LBRACE entrylist RBRACE;
 
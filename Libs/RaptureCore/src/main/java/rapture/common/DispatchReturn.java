@@ -23,6 +23,8 @@
  */
 package rapture.common;
 
+import rapture.common.model.BinaryResponse;
+
 public class DispatchReturn {
     public String getResponse() {
         return response;
@@ -36,8 +38,15 @@ public class DispatchReturn {
     public void setContext(CallingContext context) {
         this.context = context;
     }
+    public BinaryResponse getBinaryResponse() {
+        return binaryResponse;
+    }
+    public void setBinaryResponse(BinaryResponse binaryResponse) {
+        this.binaryResponse = binaryResponse;
+    }
     private String response;
     private CallingContext context;
+    private BinaryResponse binaryResponse;
     
     public DispatchReturn(CallingContext ctx, String response) {
         this.context = ctx;
@@ -47,4 +56,11 @@ public class DispatchReturn {
         this.context = null;
         this.response = response;
     }
+    /**
+     * A response that is to be streamed back in a binary wire format rather than sent as a JSON string
+     */
+    public DispatchReturn(CallingContext ctx, BinaryResponse binaryResponse) {
+        this.context = ctx;
+        this.binaryResponse = binaryResponse;
+    }
 }
@@ -82,16 +82,19 @@ import rapture.common.event.EventConstants;
 import rapture.common.exception.RaptureException;
 import rapture.common.exception.RaptureExceptionFactory;
 import rapture.common.impl.jackson.JacksonUtil;
-import rapture.common.jar.ChildFirstClassLoader;
-import rapture.common.jar.ParentFirstClassLoader;
+import rapture.common.jar.ClassLoaderPool;
 import rapture.common.mime.MimeDecisionProcessAdvance;
+import rapture.config.ConfigLoader;
 import rapture.config.LocalConfigService;
+import rapture.config.RaptureConfig;
 import rapture.dp.event.WorkOrderStatusUpdateEvent;
 import rapture.dp.metrics.WorkflowMetricsService;
 import rapture.event.EventLevel;
 import rapture.kernel.ContextFactory;
 import rapture.kernel.DocApiImpl;
 import rapture.kernel.Kernel;
+import rapture.kernel.dp.CompiledWorkflow;
+import rapture.kernel.dp.CompiledWorkflow.CompiledStep;
 import rapture.kernel.LockApiImpl;
 import rapture.kernel.Pipeline2ApiImpl;
 import rapture.kernel.dp.ExecutionContextUtil;
@@ -332,32 +335,54 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
         return RaptureURI.builder(new RaptureURI(workOrderURI, Scheme.WORKORDER)).element(id).build();
     }
 
+    /**
+     * Execute the step at the top of the worker's stack. With WorkflowStepFusion on, a following step whose category this server handles is run here
+     * straight away rather than being published, for up to WorkflowFusionMaxSteps steps. Within such a run the worker is saved every
+     * WorkflowFusionCheckpointSteps steps rather than at the start of each step.
+     */
     @Override
     public void executeStep(Worker worker) {
+        int fused = 0;
+        while (executeStep(worker, fused)) {
+            fused++;
+        }
+    }
+
+    /**
+     * @return true if the next step is now at the top of the stack and should be run in this thread
+     */
+    private boolean executeStep(Worker worker, int fused) {
         WorkOrder workOrder = WorkOrderFactory.loadWorkOrder(worker);
         if (workOrder == null) {
             log.warn("No work order for worker " + worker.toString());
-            return;
+            return false;
         }
+        RaptureConfig config = ConfigLoader.getConf();
         List<String> stack = worker.getStack();
         worker.setStatus(WorkerExecutionState.RUNNING);
-        saveWorker(worker);
+        if (fused % Math.max(1, config.WorkflowFusionCheckpointSteps) == 0) {
+            saveWorker(worker);
+        }
 
         String workOrderURI = worker.getWorkOrderURI();
         String workerURI = createWorkerURI(workOrderURI, worker.getId()).toString();
 
-        workOrder.setStatus(WorkOrderStatusUtil.computeStatus(workOrder, false));
-        WorkOrderStorage.add(new RaptureURI(workOrder.getWorkOrderURI(), Scheme.WORKORDER), workOrder, ContextFactory.getKernelUser().getUser(),
-                "Updating status");
+        if (fused == 0) {
+            workOrder.setStatus(WorkOrderStatusUtil.computeStatus(workOrder, false));
+            WorkOrderStorage.add(new RaptureURI(workOrder.getWorkOrderURI(), Scheme.WORKORDER), workOrder, ContextFactory.getKernelUser().getUser(),
+                    "Updating status");
+        }
+        boolean mayFuse = config.WorkflowStepFusion && fused + 1 < config.WorkflowFusionMaxSteps;
 
         String stepURI = stack.get(0); // don't pop stack just yet -- we are
         // currently executing this
         log.info("Processing step: " + stepURI);
 
         CallingContext kernelUser = ContextFactory.getKernelUser();
-        Pair<Workflow, Step> pair = Kernel.getDecision().getTrusted().getWorkflowWithStep(kernelUser, stepURI);
-        Workflow flow = pair.getLeft();
-        Step step = pair.getRight();
+        CompiledWorkflow compiled = Kernel.getDecision().getTrusted().getCompiledWorkflow(kernelUser, stepURI);
+        Workflow flow = compiled.getWorkflow();
+        CompiledStep compiledStep = compiled.getStep(stepURI);
+        Step step = (compiledStep == null) ? null : compiledStep.getStep();
         if (step == null) {
             RaptureException re = RaptureExceptionFactory.create("Step to be executed not found: " + stepURI);
             markAsFinished(workOrder, worker, WorkerExecutionState.ERROR, Optional.of(re));
@@ -403,7 +428,7 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
                                 "Updating status");
                     } else {
                         log.trace("no suppress " + transitionName);
-                        transitionWorker(worker, workOrder, step, stepURI, transitionName);
+                        return transitionWorker(worker, workOrder, compiledStep, transitionName, mayFuse);
                     }
                 } else {
                     log.error("Step failed with error - " + re.getFormattedMessage());
@@ -422,6 +447,7 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
                         workOrder, worker, workerURI);
             }
         }
+        return false;
     }
 
     protected void markStepAsFinished(Worker worker, WorkOrder workOrder, List<String> stack, String stepURI, Step step, String transitionName,
@@ -449,11 +475,8 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
             stepAndWorkflowDeps.addAll(workflow.getJarUriDependencies());
             KernelScript ks = new KernelScript();
             ks.setCallingContext(ctx);
-            if (workflow.getUseParentFirstClassLoader()) {
-                classLoader = new ParentFirstClassLoader(this.getClass().getClassLoader(), ks, stepAndWorkflowDeps);
-            } else {
-                classLoader = new ChildFirstClassLoader(this.getClass().getClassLoader(), ks, stepAndWorkflowDeps);
-            }
+            classLoader = ClassLoaderPool.getInstance().get(this.getClass().getClassLoader(), ks, ctx.getUser(),
+                    workflow.getUseParentFirstClassLoader(), stepAndWorkflowDeps);
             invocableImpl = classLoader.loadClass(className);
         } catch (ClassNotFoundException | ExecutionException e) {
             log.error("Cannot load class " + className, e);
@@ -627,12 +650,11 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
     private void awakenWorker(WorkOrder workOrder, Worker worker, int litterSize) {
         String code = joinChildFailed(workOrder, worker, litterSize) ? "error" : OKAY;
         String stepURI = worker.getStack().remove(0);
-        Pair<Workflow, Step> pair = Kernel.getDecision().getTrusted().getWorkflowWithStep(ContextFactory.getKernelUser(), stepURI);
-        Step step = pair.getRight();
+        CompiledStep step = Kernel.getDecision().getTrusted().getCompiledWorkflow(ContextFactory.getKernelUser(), stepURI).getStep(stepURI);
         if (step == null) {
             throw RaptureExceptionFactory.create("SPLIT step missing when JOIN finished for " + stepURI);
         }
-        transitionWorker(worker, workOrder, step, stepURI, code);
+        transitionWorker(worker, workOrder, step, code, false);
     }
 
     private boolean joinChildFailed(WorkOrder workOrder, Worker parent, int litterSize) {
@@ -657,12 +679,25 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
     }
 
     public void transitionWorker(Worker worker, WorkOrder workOrder, Step step, String stepURI, String transitionName) {
+        CompiledStep compiledStep = Kernel.getDecision().getTrusted().getCompiledWorkflow(ContextFactory.getKernelUser(), stepURI).getStep(stepURI);
+        if (compiledStep == null) {
+            throw RaptureExceptionFactory.create("Step does not exist: " + stepURI);
+        }
+        transitionWorker(worker, workOrder, compiledStep, transitionName, false);
+    }
+
+    /**
+     * @param mayFuse
+     *            whether the next step may be left on the stack for the caller to run, when this server handles its category
+     * @return true if the next step was left for the caller to run rather than published
+     */
+    private boolean transitionWorker(Worker worker, WorkOrder workOrder, CompiledStep step, String transitionName, boolean mayFuse) {
         String workerURI = worker.getWorkOrderURI();
         List<String> stack = worker.getStack();
 
         while (true) {
             log.trace("Step " + step.getName() + " executed.  Transition name: " + transitionName);
-            Transition transition = getTransition(step, transitionName);
+            Transition transition = step.getTransition(transitionName);
             if (transition == null) transition = RETURN_TRANSITION;
             String targetName = transition.getTargetStep();
             if (targetName == null) {
@@ -672,16 +707,16 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
                 if (stack.isEmpty()) {
                     markAsFinished(workOrder, worker, WorkerExecutionState.FINISHED, EXCEPTION_ABSENT);
                     recordWorkerActivity(worker, "Finished", true);
-                    return;
+                    return false;
                 }
-                stepURI = stack.remove(0);
+                String stepURI = stack.remove(0);
                 // Pop the view from the workflow just returned from
                 // off the stack so it isn't used
                 // when resolving a view alias request
                 worker.getLocalView().remove(0);
                 worker.getAppStatusNameStack().remove(0);
                 saveWorker(worker);
-                step = Kernel.getDecision().getWorkflowStep(ContextFactory.getKernelUser(), stepURI);
+                step = Kernel.getDecision().getTrusted().getCompiledWorkflow(ContextFactory.getKernelUser(), stepURI).getStep(stepURI);
                 if (step == null) {
                     RaptureException re = RaptureExceptionFactory.create("Step does not exist: " + stepURI);
                     markAsFinished(workOrder, worker, WorkerExecutionState.ERROR, EXCEPTION_ABSENT);
@@ -694,25 +729,31 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
                 }
                 // We should also attempt to update the app status
                 // of this step (that we've just returned from)
-                recordAppStatusStepFinish(workOrder, worker, step);
+                recordAppStatusStepFinish(workOrder, worker, step.getStep());
             } else if (FAIL_TRANSITION.equals(targetName)) {
                 markAsFinished(workOrder, worker, WorkerExecutionState.ERROR, EXCEPTION_ABSENT);
                 recordWorkerActivity(worker, "Failed", true);
-                return;
+                return false;
             } else if ("$CANCEL".equals(targetName)) {
                 markAsFinished(workOrder, worker, WorkerExecutionState.CANCELLED, EXCEPTION_ABSENT);
                 recordWorkerActivity(worker, "Cancelled", true);
-                return;
+                return false;
             } else if ("$JOIN".equals(targetName)) {
                 markAsFinished(workOrder, worker, WorkerExecutionState.FINISHED, EXCEPTION_ABSENT);
                 recordWorkerActivity(worker, "Joined", true);
-                return;
+                return false;
             } else {
-                String nextStepURI = changeStepUri(stepURI, targetName);
+                CompiledStep nextStep = step.getWorkflow().getStepByName(targetName);
+                String nextStepURI = (nextStep == null) ? changeStepUri(step.getUri(), targetName) : nextStep.getUri();
                 log.trace("Target transition: " + nextStepURI);
                 stack.add(0, nextStepURI);
                 try {
-                    String stepCategory = Kernel.getDecision().getStepCategory(ContextFactory.getKernelUser(), nextStepURI);
+                    String stepCategory = (nextStep == null) ? Kernel.getDecision().getStepCategory(ContextFactory.getKernelUser(), nextStepURI)
+                            : nextStep.getCategory();
+                    if (mayFuse && Kernel.isCategoryMember(stepCategory)) {
+                        log.trace("Running " + nextStepURI + " in process");
+                        return true;
+                    }
                     saveWorker(worker);
                     publishStep(worker, stepCategory);
                 } catch (RaptureException e) {
@@ -720,7 +761,7 @@ public class DefaultDecisionProcessExecutor implements DecisionProcessExecutor {
                     log.error("Error in step " + step.getName() + ": " + e.getMessage());
                     throw e;
                 }
-                return;
+                return false;
             }
         }
     }
@@ -24,9 +24,12 @@
 package rapture.dsl.idgen;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.config.ConfigLoader;
 import rapture.dsl.idgen.IdGenStore;
 
 /**
@@ -34,6 +37,14 @@ import rapture.dsl.idgen.IdGenStore;
  * 
  * The implementation of the idgen store is provided by the factory that
  * creates this idgen
+ * 
+ * When the lease size is greater than one, single ids are handed out from a
+ * block reserved in the store in one round trip. The block is claimed before
+ * any of its ids are used, so a crash leaves a gap but never reuses an id.
+ * Ids from different kernels interleave rather than strictly ascend. Setting
+ * or deleting an idgen through the api tells every kernel to drop its block;
+ * a kernel can still hand out ids from the old block until that notice
+ * arrives.
  */
 
 public class RaptureIdGen {
@@ -49,6 +60,7 @@ public class RaptureIdGen {
     private static final String BASE = "base";
     private static final String PREFIX = "prefix";
     private static final String INITIAL = "initial";
+    private static final String LEASE = "lease";
     /**
      * What prefix (if any) we should put before any ids returned by this
      * idgen
@@ -76,6 +88,23 @@ public class RaptureIdGen {
 
     private IdGenStore idgenStore;
 
+    /**
+     * How many ids to reserve from the store at a time, and the block
+     * currently being handed out (null when there is none)
+     */
+    private long leaseSize = 1;
+    private volatile Lease lease;
+
+    private static final class Lease {
+        private final AtomicLong next;
+        private final long last;
+
+        private Lease(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+
     /**
      * Gets the idgenStore for this instance.
      * 
@@ -86,7 +115,7 @@ public class RaptureIdGen {
     }
 
     public String incrementIdGen(Long amount) {
-        Long newNumber = idgenStore.getNextIdGen(amount);
+        Long newNumber = (leaseSize > 1 && amount == 1L) ? nextLeasedId() : idgenStore.getNextIdGen(amount);
         String val = Long.toString(newNumber, this.base).toUpperCase();
         // Keep to length chars?
         int _length = val.length();
@@ -103,6 +132,38 @@ public class RaptureIdGen {
         return prefix + val;
     }
 
+    private Long nextLeasedId() {
+        while (true) {
+            Lease current = lease;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id <= current.last) {
+                    return id;
+                }
+            }
+            synchronized (this) {
+                if (lease == current) {
+                    Long last = idgenStore.getNextIdGen(leaseSize);
+                    if (last == null) {
+                        throw RaptureExceptionFactory.create("Cannot lease ids from idgen store");
+                    }
+                    lease = new Lease(last - leaseSize + 1, last);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop any ids leased but not yet handed out
+     */
+    public void releaseLease() {
+        lease = null;
+    }
+
+    public long getLeaseSize() {
+        return leaseSize;
+    }
+
     // TODO: Take these static strings for the config and handle them better,
     // probably through some config class
 
@@ -150,6 +211,16 @@ public class RaptureIdGen {
             length = 0;
         }
         
+        String ls = config.get(LEASE);
+        leaseSize = ConfigLoader.getConf().IdGenLeaseSize;
+        if (ls != null) {
+            try {
+                leaseSize = Long.parseLong(ls);
+            } catch (NumberFormatException e) {
+                log.error("Illegal lease " + ls + " - ignored");
+            }
+        }
+
         String i = config.get(INITIAL);
         if (i != null) {
             try {
@@ -162,7 +233,13 @@ public class RaptureIdGen {
         }
     }
     
+    public void resetIdGen(Long number) {
+        releaseLease();
+        idgenStore.resetIdGen(number);
+    }
+
     public void invalidate() {
+        releaseLease();
         idgenStore.invalidate();
     }
     
@@ -25,43 +25,95 @@ package rapture.idgen.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 
 import rapture.common.exception.RaptureExceptionFactory;
 import rapture.dsl.idgen.IdGenStore;
 import rapture.kernel.file.FileRepoUtils;
 
+/**
+ * An idgen held as a number in a file. Each update holds an OS file lock, so
+ * several processes can share the file, and a per-file monitor, because file
+ * locks are held by the whole JVM and cannot be nested within it.
+ */
 public class FileIdGenStore implements IdGenStore {
 
+    private static final ConcurrentMap<String, Object> monitors = new ConcurrentHashMap<>();
+
     private File parentDir;
     private String instanceName;
     
     @Override
     public Long getNextIdGen(Long interval) {
         File file = FileRepoUtils.makeGenericFile(parentDir, instanceName);
-        try {
-            if (!file.exists()) throw RaptureExceptionFactory.create("idgen has been deleted");
-            String value = FileUtils.readFileToString(file);
-            Long number = Long.parseLong(value);
-            number += interval;
-            FileUtils.writeStringToFile(file, "" + number);
-            return number;
-        } catch (NumberFormatException | IOException e) {
-            throw RaptureExceptionFactory.create("Cannot read idgen storage " + file.getName(), e);
+        if (!file.exists()) throw RaptureExceptionFactory.create("idgen has been deleted");
+        synchronized (monitorFor(file)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileLock lock = raf.getChannel().lock()) {
+                Long number = read(raf.getChannel());
+                number += interval;
+                write(raf.getChannel(), number);
+                return number;
+            } catch (NumberFormatException | IOException e) {
+                throw RaptureExceptionFactory.create("Cannot read idgen storage " + file.getName(), e);
+            }
         }
     }
 
     @Override
     public void resetIdGen(Long number) {
         File file = FileRepoUtils.makeGenericFile(parentDir, instanceName);
-        try {
-            FileUtils.writeStringToFile(file, "" + number);
-        } catch (NumberFormatException | IOException e) {
-            throw RaptureExceptionFactory.create("Cannot update idgen storage " + file.getName(), e);
+        synchronized (monitorFor(file)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileLock lock = raf.getChannel().lock()) {
+                write(raf.getChannel(), number);
+            } catch (NumberFormatException | IOException e) {
+                throw RaptureExceptionFactory.create("Cannot update idgen storage " + file.getName(), e);
+            }
+        }
+    }
+
+    private static Object monitorFor(File file) {
+        String path = file.getAbsolutePath();
+        Object monitor = monitors.get(path);
+        if (monitor == null) {
+            Object created = new Object();
+            monitor = monitors.putIfAbsent(path, created);
+            if (monitor == null) {
+                monitor = created;
+            }
+        }
+        return monitor;
+    }
+
+    private static Long read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading
         }
+        return Long.parseLong(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * Overwrite in place and then trim, so the file is never left empty, and
+     * force it to disk before the lock is released.
+     */
+    private static void write(FileChannel channel, Long number) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(number.toString().getBytes(StandardCharsets.UTF_8));
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.truncate(buffer.limit());
+        channel.force(true);
     }
 
     @Override
@@ -91,8 +143,21 @@ public class FileIdGenStore implements IdGenStore {
         // do nothing
     }
 
+    /**
+     * Start the count at zero, unless another kernel (or an earlier instance)
+     * is already counting in this file
+     */
     @Override
     public void init() {
-        resetIdGen(0L);
+        File file = FileRepoUtils.makeGenericFile(parentDir, instanceName);
+        synchronized (monitorFor(file)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileLock lock = raf.getChannel().lock()) {
+                if (raf.getChannel().size() == 0) {
+                    write(raf.getChannel(), 0L);
+                }
+            } catch (IOException e) {
+                throw RaptureExceptionFactory.create("Cannot create idgen storage " + file.getName(), e);
+            }
+        }
     }
 }
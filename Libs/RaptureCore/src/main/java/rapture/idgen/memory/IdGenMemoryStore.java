@@ -34,14 +34,14 @@ public class IdGenMemoryStore implements IdGenStore {
     private boolean valid = true;
     
     @Override
-    public Long getNextIdGen(Long interval) {
+    public synchronized Long getNextIdGen(Long interval) {
         if (!valid) throw RaptureExceptionFactory.create("idgen has been deleted");
         idgen = idgen + interval;
         return idgen;
     }
 
     @Override
-    public void resetIdGen(Long number) {
+    public synchronized void resetIdGen(Long number) {
         idgen = number;
     }
 
@@ -158,6 +158,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
             RaptureUserHelper.validateSalt(usr);
             usr.setInactive(false);
             RaptureUserStorage.add(usr, context.getUser(), adminMessageCatalog.getMessage("AddedUser", userName).toString()); //$NON-NLS-1$
+            Kernel.getSecurityCache().userChanged(userName);
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, Messages.getMessage("Admin", "UserAlreadyExists", null, null)); //$NON-NLS-1$
         }
@@ -209,6 +210,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
             }
             usr.setInactive(true);
             RaptureUserStorage.add(usr, context.getUser(), adminMessageCatalog.getMessage("Inactive", userName).toString()); //$NON-NLS-1$ //$NON-NLS-2$
+            Kernel.getSecurityCache().userChanged(usr.getUsername());
         }
     }
 
@@ -220,6 +222,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         if (usr.getInactive()) {
             usr.setInactive(false);
             RaptureUserStorage.add(usr, context.getUser(), adminMessageCatalog.getMessage("Active", userName).toString()); //$NON-NLS-1$ //$NON-NLS-2$
+            Kernel.getSecurityCache().userChanged(usr.getUsername());
         }
     }
 
@@ -251,6 +254,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         usr.setInactive(false);
         usr.setApiKey(true);
         RaptureUserStorage.add(usr, context.getUser(), adminMessageCatalog.getMessage("CreatedApi").toString()); //$NON-NLS-1$
+        Kernel.getSecurityCache().userChanged(usr.getUsername());
         return usr;
     }
 
@@ -348,6 +352,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
             usr.setInactive(false);
             usr.setHashPassword(newHashPassword);
             RaptureUserStorage.add(usr, context.getUser(), adminMessageCatalog.getMessage("PasswordChange", userName).toString()); //$NON-NLS-1$
+            Kernel.getSecurityCache().userChanged(usr.getUsername());
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, adminMessageCatalog.getMessage("NoExistUser", userName)); //$NON-NLS-1$
         }
@@ -365,6 +370,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         user.setTokenExpirationTime(DateTime.now().plusDays(1).getMillis());
 
         RaptureUserStorage.add(user, context.getUser(), adminMessageCatalog.getMessage("GenReset", userName).toString()); //$NON-NLS-1$
+        Kernel.getSecurityCache().userChanged(user.getUsername());
         return token;
     }
 
@@ -380,6 +386,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         user.setVerified(false);
         // Registration Token doesn't
         RaptureUserStorage.add(user, context.getUser(), adminMessageCatalog.getMessage("GenReg", userName).toString()); //$NON-NLS-1$
+        Kernel.getSecurityCache().userChanged(user.getUsername());
         return token;
     }
 
@@ -399,6 +406,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
                 user.setRegistrationToken("");
                 user.setVerified(true);
                 RaptureUserStorage.add(user, context.getUser(), adminMessageCatalog.getMessage("CreatedApi").toString()); //$NON-NLS-1$
+                Kernel.getSecurityCache().userChanged(user.getUsername());
             }
         }
         return match;
@@ -451,6 +459,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         // expire token now
         user.setTokenExpirationTime(System.currentTimeMillis());
         RaptureUserStorage.add(user, context.getUser(), "Cancel password reset token for user " + userName); //$NON-NLS-1$
+        Kernel.getSecurityCache().userChanged(user.getUsername());
     }
 
     @Override
@@ -460,6 +469,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
         if (user != null) {
             user.setEmailAddress(newEmail);
             RaptureUserStorage.add(user, context.getUser(), adminMessageCatalog.getMessage("UpdateEmail") + userName);
+            Kernel.getSecurityCache().userChanged(user.getUsername());
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, adminMessageCatalog.getMessage("NoExistUser", userName)); //$NON-NLS-1$
         }
@@ -636,6 +646,7 @@ public class AdminApiImpl extends KernelBase implements AdminApi {
             throw RaptureExceptionFactory.create(error);
         }
         RaptureUserStorage.deleteByFields(userName, context.getUser(), adminMessageCatalog.getMessage("UserDestroyed", userName).toString());
+        Kernel.getSecurityCache().userChanged(userName);
     }
 
     @Override
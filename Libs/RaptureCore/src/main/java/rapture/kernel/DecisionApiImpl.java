@@ -46,6 +46,7 @@ import org.joda.time.Period;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
 import com.google.common.collect.Maps;
 
 import rapture.common.AppStatus;
@@ -106,6 +107,8 @@ import rapture.dp.metrics.WorkflowMetricsFactory;
 import rapture.dp.semaphore.LockKeyFactory;
 import rapture.dp.semaphore.WorkOrderSemaphore;
 import rapture.dp.semaphore.WorkOrderSemaphoreFactory;
+import rapture.kernel.dp.CompiledWorkflow;
+import rapture.kernel.dp.CompiledWorkflow.CompiledStep;
 import rapture.kernel.dp.DpDebugReader;
 import rapture.kernel.dp.ExecutionContextUtil;
 import rapture.kernel.dp.StepRecordUtil;
@@ -128,6 +131,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
     public void putWorkflow(CallingContext context, Workflow workflow) {
         WorkflowValidator.validate(workflow);
         WorkflowStorage.add(new RaptureURI(workflow.getWorkflowURI(), Scheme.WORKFLOW), workflow, context.getUser(), "Define workflow");
+        Kernel.workflowsChanged();
     }
 
     @Override
@@ -157,6 +161,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
         }
         steps.add(step);
         WorkflowStorage.add(new RaptureURI(workflow.getWorkflowURI(), Scheme.WORKFLOW), workflow, context.getUser(), "Add step");
+        Kernel.workflowsChanged();
     }
 
     /**
@@ -197,6 +202,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
         if (found) {
             steps.remove(index);
             WorkflowStorage.add(new RaptureURI(workflow.getWorkflowURI(), Scheme.WORKFLOW), workflow, context.getUser(), "Remove step");
+            Kernel.workflowsChanged();
         }
     }
 
@@ -212,6 +218,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
         }
 
         WorkflowStorage.add(new RaptureURI(workflow.getWorkflowURI(), Scheme.WORKFLOW), workflow, context.getUser(), "Add transition");
+        Kernel.workflowsChanged();
     }
 
     public static Step getStep(Workflow workflow, String stepName) {
@@ -249,6 +256,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
             if (found) {
                 transitions.remove(index);
                 WorkflowStorage.add(new RaptureURI(workflow.getWorkflowURI(), Scheme.WORKFLOW), workflow, context.getUser(), "Remove transition");
+                Kernel.workflowsChanged();
             }
         }
     }
@@ -257,6 +265,7 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
     public void deleteWorkflow(CallingContext context, String workflowURI) {
         RaptureURI addressURI = new RaptureURI(workflowURI, Scheme.WORKFLOW);
         WorkflowStorage.deleteByAddress(addressURI, context.getUser(), "Delete workflow");
+        Kernel.workflowsChanged();
     }
 
     private static final String WORK_ORDER_IDGEN_URI = new RaptureURI("//sys/dp/workOrder", Scheme.IDGEN).toString();
@@ -621,6 +630,20 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
         return getStep(workflow, stepName);
     }
 
+    /**
+     * Trusted method to get the compiled form of the workflow that a step URI points into. This is cached, so the result must not be modified.
+     */
+    public CompiledWorkflow getCompiledWorkflow(CallingContext context, String stepURI) {
+        String workflowPart = CompiledWorkflow.workflowPart(stepURI);
+        Cache<String, CompiledWorkflow> cache = Kernel.getCompiledWorkflowCache();
+        CompiledWorkflow compiled = cache.getIfPresent(workflowPart);
+        if (compiled == null) {
+            compiled = new CompiledWorkflow(getWorkflowNotNull(context, workflowPart), workflowPart);
+            cache.put(workflowPart, compiled);
+        }
+        return compiled;
+    }
+
     /**
      * Trusted method to get the workflow and the selected step as a pair.
      */
@@ -637,20 +660,17 @@ public class DecisionApiImpl extends KernelBase implements DecisionApi {
 
     @Override
     public String getStepCategory(CallingContext context, String stepURI) {
-        RaptureURI uri = new RaptureURI(stepURI, Scheme.WORKFLOW);
-        Workflow workflow = getWorkflowNotNull(context, stepURI);
-        if (uri.getElement() == null) {
-            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
-                    String.format("The Step URI passed in does not contain an 'element' indicating the step, but it requires one: '%s'", uri.toString()));
-        }
-        Step step = getStep(workflow, uri.getElement());
+        CompiledWorkflow workflow = getCompiledWorkflow(context, stepURI);
+        CompiledStep step = workflow.getStep(stepURI);
         if (step == null) {
+            RaptureURI uri = new RaptureURI(stepURI, Scheme.WORKFLOW);
+            if (uri.getElement() == null) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                        String.format("The Step URI passed in does not contain an 'element' indicating the step, but it requires one: '%s'", uri.toString()));
+            }
             throw RaptureExceptionFactory.create(String.format("Error! No step exists for URI %s", stepURI));
-        } else if (step.getCategoryOverride() == null || "".equals(step.getCategoryOverride())) {
-            return workflow.getCategory();
-        } else {
-            return step.getCategoryOverride();
         }
+        return step.getCategory();
     }
 
     @Override
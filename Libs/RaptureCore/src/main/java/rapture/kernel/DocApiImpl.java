@@ -70,6 +70,7 @@ import rapture.common.model.RaptureDocConfig;
 import rapture.common.model.RunEventHandle;
 import rapture.common.shared.doc.DeleteDocPayload;
 import rapture.common.shared.doc.GetDocPayload;
+import rapture.config.ConfigLoader;
 import rapture.dsl.dparse.AbsoluteVersion;
 import rapture.dsl.dparse.AsOfTimeDirective;
 import rapture.dsl.dparse.BaseDirective;
@@ -225,6 +226,10 @@ public class DocApiImpl extends KernelBase implements DocApi, RaptureScheme {
                 Kernel.getSchedule().getTrusted().deleteJob(context, jobUri);
             }
         }
+        if (ConfigLoader.getConf().DocPostWriteAsync) {
+            // Saves still waiting would otherwise be published after the drop
+            DocPostWriteQueue.get().drain();
+        }
         // Yeah this is like "delete everything that is prefixed by //docRepoUri
         SearchPublisher.publishDropMessage(context, internalUri.toString());
         // We can't just delete the repo. If we do then
@@ -446,7 +451,12 @@ public class DocApiImpl extends KernelBase implements DocApi, RaptureScheme {
         }
         boolean ret = repository.removeDocument(internalUri.getDocPath(), context.getUser(), "");
         if (ret) {
-            SearchPublisher.publishDeleteMessage(context, type, internalUri);
+            if (ConfigLoader.getConf().DocPostWriteAsync) {
+                // Behind any save of this document that is still waiting, so the delete is published last
+                DocPostWriteQueue.get().submit(DocPostWriteQueue.Task.delete(this, context, internalUri, type));
+            } else {
+                publishDelete(context, type, internalUri);
+            }
         }
         return ret;
     }
@@ -637,21 +647,37 @@ public class DocApiImpl extends KernelBase implements DocApi, RaptureScheme {
             if (extraEventContextMap != null) {
                 eventContextMap.putAll(extraEventContextMap);
             }
-            RunEventHandle eventHandle = Kernel.getEvent().getTrusted().runEventWithContext(context, "//" + internalUri.getAuthority() + "/data/update",
-                    internalUri.getDocPath(), eventContextMap);
-            handle.setEventHandle(eventHandle);
+            newDoc.setDisplayName(internalUri.getFullPath());
+            if (ConfigLoader.getConf().DocPostWriteAsync) {
+                // The event runs later, so there is no event handle to return
+                DocPostWriteQueue.get().submit(new DocPostWriteQueue.Task(this, context, internalUri, content, type, eventContextMap, newDoc));
+            } else {
+                handle.setEventHandle(runUpdateEvent(context, internalUri, eventContextMap));
 
-            for (IndexScriptPair indexScriptPair : type.getIndexes()) {
-                runIndex(context, indexScriptPair, internalUri.getAuthority(), internalUri.getDocPath(), content);
+                for (IndexScriptPair indexScriptPair : type.getIndexes()) {
+                    runIndex(context, indexScriptPair, internalUri.getAuthority(), internalUri.getDocPath(), content);
+                }
+                publishSave(context, type, internalUri, newDoc);
             }
-            newDoc.setDisplayName(internalUri.getFullPath());
-            SearchPublisher.publishCreateMessage(context, type, new DocUpdateObject(internalUri, newDoc));
         }
         handle.setDocumentURI(internalUri.toString());
         handle.setIsSuccess(newDoc != null);
         return handle;
     }
 
+    RunEventHandle runUpdateEvent(CallingContext context, RaptureURI internalUri, Map<String, String> eventContextMap) {
+        return Kernel.getEvent().getTrusted().runEventWithContext(context, "//" + internalUri.getAuthority() + "/data/update", internalUri.getDocPath(),
+                eventContextMap);
+    }
+
+    void publishSave(CallingContext context, DocumentRepoConfig type, RaptureURI internalUri, DocumentWithMeta doc) {
+        SearchPublisher.publishCreateMessage(context, type, new DocUpdateObject(internalUri, doc));
+    }
+
+    void publishDelete(CallingContext context, DocumentRepoConfig type, RaptureURI internalUri) {
+        SearchPublisher.publishDeleteMessage(context, type, internalUri);
+    }
+
     @Override
     public Boolean putDocWithVersion(CallingContext context, String docUri, String content, int versionNumber) {
         RaptureURI internalUri = new RaptureURI(docUri, Scheme.DOCUMENT);
@@ -0,0 +1,245 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rapture.common.CallingContext;
+import rapture.common.RaptureURI;
+import rapture.common.exception.ExceptionToString;
+import rapture.common.model.DocumentRepoConfig;
+import rapture.common.model.DocumentWithMeta;
+import rapture.common.model.IndexScriptPair;
+import rapture.config.ConfigLoader;
+
+/**
+ * Runs the work that follows a document save (the data/update event, the repo's index scripts and the search update) on a pool of background
+ * workers, so that a save costs one store write. Enabled with RaptureConfig.DocPostWriteAsync.
+ * <p>
+ * Each worker owns a bounded queue, and a document always goes to the same one (chosen by a hash of its URI), so the follow-up work for one document
+ * runs in the order it was saved. Deletes go through the same queue, so a save that is still waiting can never be published after the delete that
+ * followed it. Workers take tasks off their queue in batches. Every save fires its own event, in order, but within a batch only the last save or
+ * delete of each document is indexed and published to search, as the earlier ones would be overwritten anyway. When a queue is full the saving
+ * thread does the waiting work of that queue itself, which slows writers down to the rate the workers can keep up with.
+ */
+public final class DocPostWriteQueue {
+    private static final Logger log = Logger.getLogger(DocPostWriteQueue.class);
+    private static final String METRIC = "docPostWrite.";
+
+    static final class Task {
+        private final DocApiImpl docApi;
+        private final CallingContext context;
+        private final RaptureURI uri;
+        private final String content;
+        private final DocumentRepoConfig type;
+        private final Map<String, String> eventContextMap;
+        private final DocumentWithMeta doc;
+        private final boolean delete;
+        private final long queuedAt = System.currentTimeMillis();
+
+        Task(DocApiImpl docApi, CallingContext context, RaptureURI uri, String content, DocumentRepoConfig type, Map<String, String> eventContextMap,
+                DocumentWithMeta doc) {
+            this(docApi, context, uri, content, type, eventContextMap, doc, false);
+        }
+
+        private Task(DocApiImpl docApi, CallingContext context, RaptureURI uri, String content, DocumentRepoConfig type,
+                Map<String, String> eventContextMap, DocumentWithMeta doc, boolean delete) {
+            this.docApi = docApi;
+            this.context = context;
+            this.uri = uri;
+            this.content = content;
+            this.type = type;
+            this.eventContextMap = eventContextMap;
+            this.doc = doc;
+            this.delete = delete;
+        }
+
+        /**
+         * The follow-up work of a document that has been removed from its repository
+         */
+        static Task delete(DocApiImpl docApi, CallingContext context, RaptureURI uri, DocumentRepoConfig type) {
+            return new Task(docApi, context, uri, null, type, null, null, true);
+        }
+    }
+
+    private static class Holder {
+        private static final DocPostWriteQueue INSTANCE = new DocPostWriteQueue(ConfigLoader.getConf().DocPostWriteQueueSize,
+                ConfigLoader.getConf().DocPostWriteThreads, ConfigLoader.getConf().DocPostWriteBatchSize);
+    }
+
+    public static DocPostWriteQueue get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * One worker's queue. Whoever processes its tasks holds the lock, so they are never processed out of order.
+     */
+    private static final class Partition {
+        private final BlockingQueue<Task> queue;
+        private final Object lock = new Object();
+
+        Partition(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private final Partition[] partitions;
+    private final int batchSize;
+
+    DocPostWriteQueue(int capacity, int threads, int batchSize) {
+        int workers = Math.max(1, threads);
+        this.partitions = new Partition[workers];
+        this.batchSize = Math.max(1, batchSize);
+        ThreadFactory factory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("DocPostWrite-%d").build();
+        for (int i = 0; i < workers; i++) {
+            final Partition partition = new Partition(Math.max(1, capacity / workers));
+            partitions[i] = partition;
+            factory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    work(partition);
+                }
+            }).start();
+        }
+    }
+
+    private Partition partitionFor(RaptureURI uri) {
+        return partitions[(uri.toString().hashCode() & Integer.MAX_VALUE) % partitions.length];
+    }
+
+    void submit(Task task) {
+        Partition partition = partitionFor(task.uri);
+        if (!partition.queue.offer(task)) {
+            Kernel.getMetricsService().recordCount(METRIC + "backPressure", 1L);
+            synchronized (partition.lock) {
+                // Anything still queued was saved before this, so runs first
+                List<Task> inline = new ArrayList<>();
+                partition.queue.drainTo(inline);
+                inline.add(task);
+                process(inline);
+            }
+        }
+    }
+
+    /**
+     * The number of saves and deletes waiting for their follow-up work
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (Partition partition : partitions) {
+            backlog += partition.queue.size();
+        }
+        return backlog;
+    }
+
+    /**
+     * Run the waiting follow-up work on this thread. Used to quiesce the queue, for example in tests.
+     */
+    public void drain() {
+        List<Task> batch = new ArrayList<>();
+        for (Partition partition : partitions) {
+            synchronized (partition.lock) {
+                while (partition.queue.drainTo(batch, batchSize) > 0) {
+                    process(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void work(Partition partition) {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                synchronized (partition.lock) {
+                    // The poll only waits while the queue is empty, and nobody else needs the lock then
+                    Task first = partition.queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    partition.queue.drainTo(batch, batchSize - 1);
+                    Kernel.getMetricsService().recordGaugeValue(METRIC + "backlog", (long) getBacklog());
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in document post write worker: " + ExceptionToString.format(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    static void process(List<Task> batch) {
+        Map<String, Task> latest = new LinkedHashMap<>();
+        for (Task task : batch) {
+            Kernel.getMetricsService().recordTimeDifference(METRIC + "lag", System.currentTimeMillis() - task.queuedAt);
+            if (!task.delete) {
+                try {
+                    task.docApi.runUpdateEvent(task.context, task.uri, task.eventContextMap);
+                } catch (Exception e) {
+                    failed(task, "event", e);
+                }
+            }
+            String key = task.uri.toString();
+            latest.remove(key);
+            latest.put(key, task);
+        }
+        for (Task task : latest.values()) {
+            try {
+                if (task.delete) {
+                    task.docApi.publishDelete(task.context, task.type, task.uri);
+                    continue;
+                }
+                for (IndexScriptPair indexScriptPair : task.type.getIndexes()) {
+                    task.docApi.runIndex(task.context, indexScriptPair, task.uri.getAuthority(), task.uri.getDocPath(), task.content);
+                }
+                task.docApi.publishSave(task.context, task.type, task.uri, task.doc);
+            } catch (Exception e) {
+                failed(task, "index", e);
+            }
+        }
+        Kernel.getMetricsService().recordCount(METRIC + "processed", (long) batch.size());
+        Kernel.getMetricsService().recordCount(METRIC + "coalesced", (long) (batch.size() - latest.size()));
+    }
+
+    private static void failed(Task task, String what, Exception e) {
+        Kernel.getMetricsService().recordCount(METRIC + "failures", 1L);
+        log.error(String.format("Post write %s for %s failed: %s", what, task.uri, ExceptionToString.format(e)));
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
@@ -117,7 +118,12 @@ public class EventApiImpl extends KernelBase implements EventApi {
         RunEventHandle handle = new RunEventHandle();
         handle.setEventUri(eUri.toString());
         handle.setDidRun(false);
-        final RaptureEvent event = getEvent(context, eventUri);
+        // Most documents have no update event, so remember which events are not defined rather than looking them up on every save
+        Cache<String, Boolean> undefinedEvents = Kernel.getUndefinedEventCache();
+        final RaptureEvent event = (undefinedEvents.getIfPresent(handle.getEventUri()) != null) ? null : getEvent(context, eventUri);
+        if (event == null) {
+            undefinedEvents.put(handle.getEventUri(), Boolean.TRUE);
+        }
         if (event != null) {
             String eventId = generateEventId(context);
             handle.setEventId(eventId);
@@ -239,12 +245,14 @@ public class EventApiImpl extends KernelBase implements EventApi {
     @Override
     public void putEvent(CallingContext context, RaptureEvent event) {
         RaptureEventStorage.add(event, context.getUser(), "Adding event");
+        Kernel.eventsChanged();
     }
 
     @Override
     public void deleteEvent(CallingContext context, String eventURI) {
         RaptureURI addressURI = new RaptureURI(eventURI, Scheme.EVENT);
         RaptureEventStorage.deleteByAddress(addressURI, context.getUser(), "Removing event");
+        Kernel.eventsChanged();
     }
 
     // testing for tracking remote
@@ -428,6 +436,7 @@ public class EventApiImpl extends KernelBase implements EventApi {
     @Override
     public List<String> deleteEventsByUriPrefix(CallingContext context, String uriPrefix){
         List<RaptureFolderInfo> rfis = RaptureEventStorage.removeFolder(uriPrefix);
+        Kernel.eventsChanged();
         List<String> deletedEvents = new ArrayList<>();
         for(RaptureFolderInfo rfi : rfis) {
             deletedEvents.add(rfi.getName());
@@ -25,9 +25,9 @@ package rapture.kernel;
 
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -54,7 +54,7 @@ public class IdGenApiImpl extends KernelBase implements IdGenApi {
 
     public IdGenApiImpl(Kernel raptureKernel) {
         super(raptureKernel);
-        idgenCache = new HashMap<String, RaptureIdGen>();
+        idgenCache = new ConcurrentHashMap<String, RaptureIdGen>();
     }
 
     @Override
@@ -81,10 +81,11 @@ public class IdGenApiImpl extends KernelBase implements IdGenApi {
             RaptureIdGen idgen = getIdGenConfig(uri);
             if (idgen != null) {
                 // RAP-2107 Can't delete the IdGen Store?
-                idgen.getIdGenStore().resetIdGen(0L);
+                idgen.resetIdGen(0L);
                 idgen.invalidate();
                 idgenCache.remove(normalized);
                 RaptureIdGenConfigStorage.deleteByFields(uri.getAuthority(), uri.getDocPath(), context.getUser(), "deleted idgen");
+                Kernel.idGenChanged(normalized);
             } else {
                 log.warn(idGenUri + " does not exist");
             }
@@ -178,7 +179,21 @@ public class IdGenApiImpl extends KernelBase implements IdGenApi {
     @Override
     public void setIdGen(CallingContext context, String idGenUri, Long count) {
         RaptureIdGen f = getIdGenConfig(idGenUri);
-        f.getIdGenStore().resetIdGen(count);
+        f.resetIdGen(count);
+        Kernel.idGenChanged(new RaptureURI(idGenUri, Scheme.IDGEN).toString());
+    }
+
+    /**
+     * Another kernel has set or deleted this idgen, so drop our copy and any ids it has leased
+     */
+    public void applyChange(String idGenUri) {
+        if (idGenUri == null) {
+            return;
+        }
+        RaptureIdGen idgen = idgenCache.remove(idGenUri);
+        if (idgen != null) {
+            idgen.releaseLease();
+        }
     }
 
     @Override
@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
@@ -44,6 +45,7 @@ import org.apache.log4j.Logger;
 
 import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
+import com.google.common.collect.Sets;
 
 import rapture.api.hooks.ApiHooksService;
 import rapture.audit.AuditLog;
@@ -51,7 +53,6 @@ import rapture.audit.AuditLogCache;
 import rapture.common.APIKeyDefinition;
 import rapture.common.APIKeyDefinitionStorage;
 import rapture.common.CallingContext;
-import rapture.common.CallingContextStorage;
 import rapture.common.IEntitlementsContext;
 import rapture.common.InstallableKernel;
 import rapture.common.LicenseInfo;
@@ -71,10 +72,9 @@ import rapture.common.exception.RaptureExceptionFormatter;
 import rapture.common.hooks.HooksConfig;
 import rapture.common.hooks.HooksConfigRepo;
 import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.mime.MimeDecisionProcessAdvance;
 import rapture.common.model.RaptureEntitlement;
 import rapture.common.model.RaptureEntitlementGroup;
-import rapture.common.model.RaptureEntitlementGroupStorage;
-import rapture.common.model.RaptureEntitlementStorage;
 import rapture.common.model.RaptureServerInfo;
 import rapture.common.model.RaptureServerStatus;
 import rapture.common.model.RaptureServerStatusStorage;
@@ -86,6 +86,8 @@ import rapture.exchange.QueueHandler;
 import rapture.index.IndexHandler;
 import rapture.kernel.cache.KernelCaches;
 import rapture.kernel.cache.RepoCacheManager;
+import rapture.kernel.cache.SecurityCache;
+import rapture.kernel.dp.CompiledWorkflow;
 import rapture.kernel.internalnotification.ExchangeChangeManager;
 import rapture.kernel.internalnotification.TypeChangeManager;
 import rapture.kernel.pipeline.KernelTaskHandler;
@@ -102,6 +104,7 @@ import rapture.notification.RaptureMessageListener;
 import rapture.object.storage.StorableIndexInfo;
 import rapture.repo.Repository;
 import rapture.repo.SeriesRepo;
+import rapture.repo.meta.DocumentCache;
 import rapture.script.ScriptFactory;
 import rapture.script.reflex.ReflexRaptureScript;
 import rapture.util.DefaultConfigRetriever;
@@ -271,6 +274,61 @@ public enum Kernel {
         return INSTANCE.kernelCaches.getObjectStorageCache();
     }
 
+    public static SecurityCache getSecurityCache() {
+        return INSTANCE.kernelCaches.getSecurityCache();
+    }
+
+    public static Cache<String, Boolean> getUndefinedEventCache() {
+        return INSTANCE.kernelCaches.getUndefinedEventCache();
+    }
+
+    /**
+     * An event has been defined, changed or removed, so forget which events are known to be undefined, here and in the other kernels
+     */
+    public static void eventsChanged() {
+        INSTANCE.kernelCaches.getUndefinedEventCache().invalidateAll();
+        if (INSTANCE.typeChangeManager != null) {
+            try {
+                INSTANCE.typeChangeManager.publishMessage(EVENTS_TYPE, new HashMap<String, Object>());
+            } catch (Exception e) {
+                log.warn("Could not publish event definition change: " + e.getMessage());
+            }
+        }
+    }
+
+    public static Cache<String, CompiledWorkflow> getCompiledWorkflowCache() {
+        return INSTANCE.kernelCaches.getCompiledWorkflowCache();
+    }
+
+    /**
+     * A workflow has been defined, changed or removed, so drop the compiled workflows here and in the other kernels
+     */
+    public static void workflowsChanged() {
+        INSTANCE.kernelCaches.getCompiledWorkflowCache().invalidateAll();
+        if (INSTANCE.typeChangeManager != null) {
+            try {
+                INSTANCE.typeChangeManager.publishMessage(WORKFLOWS_TYPE, new HashMap<String, Object>());
+            } catch (Exception e) {
+                log.warn("Could not publish workflow definition change: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An idgen has been set or deleted, so make every other kernel drop its copy, and with it any ids leased under the old count
+     */
+    public static void idGenChanged(String idGenUri) {
+        if (INSTANCE.typeChangeManager != null) {
+            Map<String, Object> attributes = new HashMap<String, Object>();
+            attributes.put(IDGEN_URI, idGenUri);
+            try {
+                INSTANCE.typeChangeManager.publishMessage(IDGEN_TYPE, attributes);
+            } catch (Exception e) {
+                log.warn("Could not publish idgen change for " + idGenUri + ": " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * The bootstrap uses an environment variable to boot up the initial repo that is used to define the configs - particularly RaptureConfig (used for
      * users/authorities etc.) and RaptureEphemeral (used for sessions/contexts etc.)
@@ -366,6 +424,10 @@ public enum Kernel {
     }
 
     private Map<String, RaptureMessageListener<NotificationMessage>> delayListen = new HashMap<>();
+    private static final String EVENTS_TYPE = "eventDefinition";
+    private static final String WORKFLOWS_TYPE = "workflowDefinition";
+    private static final String IDGEN_TYPE = "idgenDefinition";
+    private static final String IDGEN_URI = "uri";
 
     /*
      * Because typeChangeManager might not be available yet
@@ -410,6 +472,36 @@ public enum Kernel {
                 typeChangeManager.registerTypeListener(s, delayListen.get(s));
         }
         delayListen = null; // we don't need it any more
+        typeChangeManager.registerTypeListener(EVENTS_TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                kernelCaches.getUndefinedEventCache().invalidateAll();
+            }
+        });
+        typeChangeManager.registerTypeListener(WORKFLOWS_TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                kernelCaches.getCompiledWorkflowCache().invalidateAll();
+            }
+        });
+        typeChangeManager.registerTypeListener(IDGEN_TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                idgen.getTrusted().applyChange((String) message.getAttributes().get(IDGEN_URI));
+            }
+        });
+        typeChangeManager.registerTypeListener(DocumentCache.TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                repoCacheManager.applyDocumentChange(message);
+            }
+        });
+        typeChangeManager.registerTypeListener(SecurityCache.TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                kernelCaches.getSecurityCache().applyChange(message);
+            }
+        });
         exchangeChangeManager = new ExchangeChangeManager(notificationManager);
         exchangeChangeManager.registerExchangeListener(Kernel.INSTANCE.pipeline.getTrusted());
     }
@@ -585,16 +677,8 @@ public enum Kernel {
         return config;
     }
 
-    private RaptureEntitlement getEnt(String path) {
-        if (path.startsWith("/")) {
-            path = path.substring(1);
-        }
-        return RaptureEntitlementStorage.readByFields(path);
-
-    }
-
     private RaptureEntitlementGroup getEntGroup(String path) {
-        return RaptureEntitlementGroupStorage.readByFields(path);
+        return kernelCaches.getSecurityCache().getGroup(path);
     }
 
     public IndexHandler getIndex(String name) {
@@ -628,7 +712,7 @@ public enum Kernel {
     }
 
     private RaptureUser getUserViaCache(CallingContext context) {
-        return getUserViaName(context.getUser());
+        return kernelCaches.getSecurityCache().getUser(context.getUser());
     }
 
     private RaptureUser getUserViaName(String name) {
@@ -819,6 +903,8 @@ public enum Kernel {
         }
     }
 
+    private static final Set<String> memberCategories = Sets.newConcurrentHashSet();
+
     /**
      * Create a queue (if not already created) and create a subscriber thread that watches it. This could be moved to an external class. Called by Kernel and
      * SearchApiImpl
@@ -849,6 +935,7 @@ public enum Kernel {
         };
 
         pai2.subscribeToQueue(null, qsub);
+        memberCategories.add(queue);
         return qsub;
     }
 
@@ -894,7 +981,7 @@ public enum Kernel {
     }
 
     public CallingContext loadContext(String contextId) {
-        return CallingContextStorage.readByFields(contextId);
+        return kernelCaches.getSecurityCache().getContext(contextId);
     }
 
     public CallingContext loadContext(String appKey, String apiKey) {
@@ -938,19 +1025,18 @@ public enum Kernel {
         if (context == null) throw RaptureExceptionFactory.create("Null calling context in security validation");
         // Convert the entitlement path to a context specific path
         String realEntPath = ParseEntitlementPath.getEntPath(entitlementPath, entCtx);
-        // Now find an appropriate entitlement document for this path
-        RaptureEntitlement rEnt = null;
-        while (rEnt == null) {
-            rEnt = getEnt(realEntPath);
-            if (rEnt == null) {
-                int lastIndexPoint = realEntPath.lastIndexOf('/');
-                if (lastIndexPoint != -1) {
-                    realEntPath = realEntPath.substring(0, lastIndexPoint);
-                } else {
-                    break;
-                }
+        SecurityCache securityCache = kernelCaches.getSecurityCache();
+        Boolean decision = securityCache.getDecision(context.getUser(), realEntPath);
+        if (decision != null) {
+            if (!decision) {
+                throw notAuthorized(context, realEntPath);
             }
+            return;
         }
+        // Now find an appropriate entitlement document for this path
+        SecurityCache.Resolved resolved = securityCache.resolveEntitlement(realEntPath);
+        RaptureEntitlement rEnt = resolved.getEntitlement();
+        boolean dynamic = false;
         if (rEnt != null) {
             // The rEnt will be associated with groups, and the current user
             // may be in one of those groups
@@ -973,6 +1059,8 @@ public enum Kernel {
                     // Is this a Dynamic Entitlement Group?
                     String className = rGrp.getDynamicEntitlementClassName();
                     if ((className != null) && !className.isEmpty()) {
+                        // Dynamic groups decide per call, so the outcome cannot be remembered
+                        dynamic = true;
                         try {
                             log.debug("Found a dynamic entitlement group : " + className);
                             DynamicEntitlementGroup dynamicGroupInstance = classCache.get(className);
@@ -991,18 +1079,27 @@ public enum Kernel {
                     }
                 }
             }
+            if (!dynamic) {
+                securityCache.putDecision(context.getUser(), realEntPath, valid);
+            }
             if (!valid) {
-                // HTTP code 401 UNAUTHORIZED means you aren't logged in.
-                // 403 FORBIDDEN means you're logged in but can't do that
-                RaptureException raptException = RaptureExceptionFactory.create(HttpURLConnection.HTTP_FORBIDDEN,
-                        String.format("User %s not authorized for that operation", context.getUser()));
-                log.info(RaptureExceptionFormatter.getExceptionMessage(raptException,
-                        String.format("User %s not in any group associated with entitlement %s", context.getUser(), realEntPath)));
-                throw raptException;
+                throw notAuthorized(context, resolved.getPath());
             }
+        } else {
+            securityCache.putDecision(context.getUser(), realEntPath, true);
         }
     }
 
+    private RaptureException notAuthorized(CallingContext context, String entPath) {
+        // HTTP code 401 UNAUTHORIZED means you aren't logged in.
+        // 403 FORBIDDEN means you're logged in but can't do that
+        RaptureException raptException = RaptureExceptionFactory.create(HttpURLConnection.HTTP_FORBIDDEN,
+                String.format("User %s not authorized for that operation", context.getUser()));
+        log.info(RaptureExceptionFormatter.getExceptionMessage(raptException,
+                String.format("User %s not in any group associated with entitlement %s", context.getUser(), entPath)));
+        return raptException;
+    }
+
     /**
      * Register this server to handle messages on exchanges associated with the given category
      *
@@ -1013,9 +1110,17 @@ public enum Kernel {
             createAndSubscribe(category, ConfigLoader.getConf().DefaultExchange);
         } else {
             INSTANCE.taskHandler.setCategoryMembership(category);
+            memberCategories.add(category);
         }
     }
 
+    /**
+     * Whether this server has registered to handle messages, including workflow steps, for the given category
+     */
+    public static boolean isCategoryMember(String category) {
+        return category != null && memberCategories.contains(category);
+    }
+
     /**
      * Register this server to handle messages on exchanges associated with the given category. This differs from {@link #setCategoryMembership(String)} in what
      * Queue Handlers it allows. This method allows defining custom handlers, which will override all default handlers. If you wish to handle some custom mime
@@ -1031,6 +1136,9 @@ public enum Kernel {
             // createAndSubscribe(category, ConfigLoader.getConf().DefaultExchange);
         } else {
             INSTANCE.taskHandler.setCategoryMembership(category, customHandlers);
+            if (customHandlers == null || customHandlers.isEmpty() || customHandlers.containsKey(MimeDecisionProcessAdvance.getMimeType())) {
+                memberCategories.add(category);
+            }
         }
     }
 
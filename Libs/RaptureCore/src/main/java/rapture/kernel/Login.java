@@ -291,6 +291,7 @@ public class Login extends KernelBase {
         }
         user.setHashPassword(hashPassword);
         RaptureUserStorage.add(user, username, "Reset password for user " + username); //$NON-NLS-1$
+        Kernel.getSecurityCache().userChanged(user.getUsername());
         // cancel token
         Kernel.getAdmin().cancelPasswordResetToken(context, username);
 
@@ -62,6 +62,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
             if (usr.getHashPassword().equals(oldHashPassword)) {
                 usr.setHashPassword(newHashPassword);
                 RaptureUserStorage.add(usr, context.getUser(), "Updated my password");
+                Kernel.getSecurityCache().userChanged(usr.getUsername());
                 return usr;
             } else {
                 throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_UNAUTHORIZED, "Bad Password");
@@ -87,6 +88,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
         if (usr != null) {
             usr.setEmailAddress(newAddress);
             RaptureUserStorage.add(usr, context.getUser(), "Updated my email");
+            Kernel.getSecurityCache().userChanged(usr.getUsername());
             return usr;
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Could not find this user");
@@ -101,6 +103,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
         if (usr != null) {
             usr.setDescription(description);
             RaptureUserStorage.add(usr, context.getUser(), "Updated my description");
+            Kernel.getSecurityCache().userChanged(usr.getUsername());
             return usr;
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Could not find user record");
@@ -111,6 +114,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
     public void logoutUser(CallingContext context) {
         // Remove cookie, or actually remove session
         CallingContextStorage.deleteByFields(context.getContext(), context.getUser(), "Logout user");
+        Kernel.getSecurityCache().contextRemoved(context.getContext());
     }
 
     private String getPreferenceKey(String user, String category, String name) {
@@ -247,6 +251,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
 		RaptureUser user = RaptureUserStorage.readByFields(context.getUser());
 		user.getApiKeys().add(newPath);
 		RaptureUserStorage.add(user, context.getUser(), "Added api key");
+		Kernel.getSecurityCache().userChanged(user.getUsername());
 		APIKeyDefinitionStorage.add(def, context.getUser(), "New API Key");
 		return apiKey;
 	}
@@ -265,6 +270,7 @@ public class UserApiImpl extends KernelBase implements UserApi {
 		if (user.getApiKeys().contains(testKey)) {
 			user.getApiKeys().remove(testKey);
 			RaptureUserStorage.add(user, context.getUser(), "Revoked api key");
+			Kernel.getSecurityCache().userChanged(user.getUsername());
 			APIKeyDefinitionStorage.deleteByFields(appKey, apiKey, context.getUser(), "Revoke api key");
 		} else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "No api key for this user");
@@ -42,8 +42,12 @@ import rapture.dsl.idef.IndexDefinitionFactory;
 import rapture.index.IndexProducer;
 import rapture.kernel.ContextFactory;
 import rapture.kernel.cache.config.DocRepoConfigFactory;
+import rapture.kernel.internalnotification.TypeChangeManager;
+import rapture.notification.NotificationMessage;
 import rapture.repo.RepoFactory;
 import rapture.repo.Repository;
+import rapture.repo.meta.CachedRepo;
+import rapture.repo.meta.DocumentCache;
 
 /**
  * @author yanwang
@@ -57,6 +61,17 @@ public class DocRepoCache extends AbstractStorableRepoCache<DocumentRepoConfig>
         super(Scheme.DOCUMENT.toString());
     }
 
+    /**
+     * Apply a document change published by another kernel to the document cache of the repo, if that repo is loaded here
+     */
+    public void applyDocumentChange(NotificationMessage message) {
+        String authority = TypeChangeManager.getAuthorityFromMessage(message);
+        Repository repository = (authority == null) ? null : repoCache.get(authority);
+        if (repository instanceof CachedRepo) {
+            ((CachedRepo) repository).getDocumentCache().invalidateLocal((String) message.getAttributes().get(DocumentCache.KEY));
+        }
+    }
+
     @Override
     public DocumentRepoConfig reloadConfig(String authority) {
         DocumentRepoConfig config = DocumentRepoConfigStorage.readByFields(authority);
@@ -78,6 +93,9 @@ public class DocRepoCache extends AbstractStorableRepoCache<DocumentRepoConfig>
     @Override
     public Repository reloadRepository(DocumentRepoConfig documentRepoConfig, boolean autoloadIndex) {
         Repository repository = RepoFactory.getRepo(documentRepoConfig.getDocumentRepo().getConfig());
+        if (repository instanceof CachedRepo) {
+            ((CachedRepo) repository).getDocumentCache().bind(documentRepoConfig.getAuthority());
+        }
         if (repository != null && autoloadIndex) {
             // Is there an index with the same name? If there is,
             // attempt to load that and set it in the repo
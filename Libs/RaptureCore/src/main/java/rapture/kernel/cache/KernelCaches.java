@@ -24,6 +24,8 @@
 package rapture.kernel.cache;
 
 import rapture.common.RaptureURI;
+import rapture.config.ConfigLoader;
+import rapture.kernel.dp.CompiledWorkflow;
 
 import java.util.concurrent.TimeUnit;
 
@@ -49,8 +51,36 @@ public class KernelCaches {
 
     private final Cache<RaptureURI, Optional<String>> objectStorageCache;
 
+    public SecurityCache getSecurityCache() {
+        return securityCache;
+    }
+
+    private final SecurityCache securityCache;
+
+    /**
+     * Event uris known to have no event defined, so that saving a document need not look up its data/update event every time
+     */
+    public Cache<String, Boolean> getUndefinedEventCache() {
+        return undefinedEventCache;
+    }
+
+    private final Cache<String, Boolean> undefinedEventCache = CacheBuilder.newBuilder().maximumSize(10000).expireAfterWrite(30, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * Compiled workflows, keyed by the workflow part of the step URIs they were looked up with
+     */
+    public Cache<String, CompiledWorkflow> getCompiledWorkflowCache() {
+        return compiledWorkflowCache;
+    }
+
+    private final Cache<String, CompiledWorkflow> compiledWorkflowCache = CacheBuilder.newBuilder()
+            .maximumSize(ConfigLoader.getConf().WorkflowCacheSize).expireAfterWrite(ConfigLoader.getConf().WorkflowCacheSeconds, TimeUnit.SECONDS)
+            .build();
+
     public KernelCaches() {
         objectStorageCache = setupObjectStorageCache();
+        securityCache = new SecurityCache(ConfigLoader.getConf().SecurityCacheSeconds);
     }
 
     private static Cache<RaptureURI, Optional<String>> setupObjectStorageCache() {
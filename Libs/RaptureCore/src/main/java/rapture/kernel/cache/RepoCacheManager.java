@@ -31,6 +31,7 @@ import rapture.common.SeriesRepoConfig;
 import rapture.common.model.BlobRepoConfig;
 import rapture.common.model.DocumentRepoConfig;
 import rapture.kernel.search.SearchRepository;
+import rapture.notification.NotificationMessage;
 import rapture.object.storage.StorableIndexInfo;
 import rapture.repo.BlobRepo;
 import rapture.repo.Repository;
@@ -149,6 +150,10 @@ public class RepoCacheManager {
         }
     }
 
+    public void applyDocumentChange(NotificationMessage message) {
+        docRepoCache.applyDocumentChange(message);
+    }
+
     public void createDefaultUsers() {
         sysRepoCache.createDefaultUsers();
     }
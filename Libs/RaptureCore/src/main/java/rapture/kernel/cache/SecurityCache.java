@@ -0,0 +1,252 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import rapture.common.CallingContext;
+import rapture.common.CallingContextStorage;
+import rapture.common.model.RaptureEntitlement;
+import rapture.common.model.RaptureEntitlementGroup;
+import rapture.common.model.RaptureEntitlementGroupStorage;
+import rapture.common.model.RaptureEntitlementStorage;
+import rapture.common.model.RaptureUser;
+import rapture.common.model.RaptureUserStorage;
+import rapture.kernel.Kernel;
+import rapture.notification.NotificationMessage;
+
+/**
+ * Caches what the kernel reads to authenticate and authorise an api call: sessions, users, the entitlement each context specific path resolves to,
+ * entitlement groups, and the resulting allow/deny decision for a user on a resolved path.
+ * <p>
+ * Changes made through the entitlement, admin and user apis invalidate the affected entries here and are published to the other kernels, which apply
+ * them with {@link #applyChange(NotificationMessage)}. Entries also expire after a fixed time, which bounds how long a change made behind the apis'
+ * back can go unseen. Missing sessions and users are never cached, as they are usually about to be created.
+ */
+public class SecurityCache {
+    public static final String TYPE = "security";
+
+    private static final String KIND = "kind";
+    private static final String KEY = "key";
+    private static final String ENTITLEMENTS = "entitlements";
+    private static final String USER = "user";
+    private static final String CONTEXT = "context";
+
+    private static final Logger log = Logger.getLogger(SecurityCache.class);
+
+    /**
+     * The entitlement that governs a context specific entitlement path: the entitlement stored at the path or at its nearest ancestor, or none
+     */
+    public static final class Resolved {
+        private final String path;
+        private final RaptureEntitlement entitlement;
+
+        Resolved(String path, RaptureEntitlement entitlement) {
+            this.path = path;
+            this.entitlement = entitlement;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public RaptureEntitlement getEntitlement() {
+            return entitlement;
+        }
+    }
+
+    private final Cache<String, CallingContext> contexts;
+    private final Cache<String, RaptureUser> users;
+    private final Cache<String, Resolved> entitlements;
+    private final Cache<String, Optional<RaptureEntitlementGroup>> groups;
+    private final Cache<String, Boolean> decisions;
+
+    /**
+     * @param expirySeconds
+     *            how long an entry may be used for. Zero or less turns the cache off.
+     */
+    public SecurityCache(long expirySeconds) {
+        long size = (expirySeconds > 0) ? 100000 : 0;
+        contexts = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(Math.max(1, expirySeconds), TimeUnit.SECONDS).build();
+        users = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(Math.max(1, expirySeconds), TimeUnit.SECONDS).build();
+        entitlements = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(Math.max(1, expirySeconds), TimeUnit.SECONDS).build();
+        groups = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(Math.max(1, expirySeconds), TimeUnit.SECONDS).build();
+        decisions = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(Math.max(1, expirySeconds), TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Return a copy of the stored session, so that callers are free to change it
+     */
+    public CallingContext getContext(String contextId) {
+        if (contextId == null) {
+            return null;
+        }
+        CallingContext context = contexts.getIfPresent(contextId);
+        if (context == null) {
+            context = CallingContextStorage.readByFields(contextId);
+            if (context == null) {
+                return null;
+            }
+            contexts.put(contextId, context);
+        }
+        return copyOf(context);
+    }
+
+    public RaptureUser getUser(String name) {
+        if (name == null) {
+            return null;
+        }
+        RaptureUser user = users.getIfPresent(name);
+        if (user == null) {
+            user = RaptureUserStorage.readByFields(name);
+            if (user != null) {
+                users.put(name, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Find the entitlement for a context specific path, walking up the path one segment at a time until an entitlement is found
+     */
+    public Resolved resolveEntitlement(String entPath) {
+        Resolved resolved = entitlements.getIfPresent(entPath);
+        if (resolved == null) {
+            String path = entPath;
+            RaptureEntitlement entitlement = null;
+            while (entitlement == null) {
+                entitlement = RaptureEntitlementStorage.readByFields(path.startsWith("/") ? path.substring(1) : path);
+                if (entitlement == null) {
+                    int lastIndexPoint = path.lastIndexOf('/');
+                    if (lastIndexPoint != -1) {
+                        path = path.substring(0, lastIndexPoint);
+                    } else {
+                        break;
+                    }
+                }
+            }
+            resolved = new Resolved(path, entitlement);
+            entitlements.put(entPath, resolved);
+        }
+        return resolved;
+    }
+
+    public RaptureEntitlementGroup getGroup(String name) {
+        Optional<RaptureEntitlementGroup> group = groups.getIfPresent(name);
+        if (group == null) {
+            group = Optional.fromNullable(RaptureEntitlementGroupStorage.readByFields(name));
+            groups.put(name, group);
+        }
+        return group.orNull();
+    }
+
+    /**
+     * The remembered decision for a user on a context specific entitlement path, or null if it has to be worked out
+     */
+    public Boolean getDecision(String user, String entPath) {
+        return decisions.getIfPresent(decisionKey(user, entPath));
+    }
+
+    public void putDecision(String user, String entPath, boolean allowed) {
+        decisions.put(decisionKey(user, entPath), allowed);
+    }
+
+    /**
+     * An entitlement or entitlement group has been added, changed or removed
+     */
+    public void entitlementsChanged() {
+        invalidateEntitlements();
+        publish(ENTITLEMENTS, null);
+    }
+
+    public void userChanged(String user) {
+        users.invalidate(user);
+        publish(USER, user);
+    }
+
+    public void contextRemoved(String contextId) {
+        contexts.invalidate(contextId);
+        publish(CONTEXT, contextId);
+    }
+
+    /**
+     * Apply a change published by another kernel
+     */
+    public void applyChange(NotificationMessage message) {
+        String kind = (String) message.getAttributes().get(KIND);
+        String key = (String) message.getAttributes().get(KEY);
+        if (ENTITLEMENTS.equals(kind)) {
+            invalidateEntitlements();
+        } else if (USER.equals(kind) && key != null) {
+            users.invalidate(key);
+        } else if (CONTEXT.equals(kind) && key != null) {
+            contexts.invalidate(key);
+        }
+    }
+
+    private void invalidateEntitlements() {
+        entitlements.invalidateAll();
+        groups.invalidateAll();
+        decisions.invalidateAll();
+    }
+
+    private void publish(String kind, String key) {
+        if (Kernel.getTypeChangeManager() == null) {
+            return;
+        }
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(KIND, kind);
+        if (key != null) {
+            attributes.put(KEY, key);
+        }
+        try {
+            Kernel.getTypeChangeManager().publishMessage(TYPE, attributes);
+        } catch (Exception e) {
+            log.warn("Could not publish security change for " + kind + ": " + e.getMessage());
+        }
+    }
+
+    private static String decisionKey(String user, String entPath) {
+        return user + '\u0000' + entPath;
+    }
+
+    private static CallingContext copyOf(CallingContext context) {
+        CallingContext copy = new CallingContext();
+        copy.setUser(context.getUser());
+        copy.setContext(context.getContext());
+        copy.setSalt(context.getSalt());
+        copy.setValid(context.getValid());
+        copy.setMetadata((context.getMetadata() == null) ? null : new HashMap<String, String>(context.getMetadata()));
+        copy.set_raptureVersion(context.get_raptureVersion());
+        return copy;
+    }
+}
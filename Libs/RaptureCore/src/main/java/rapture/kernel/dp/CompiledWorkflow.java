@@ -0,0 +1,211 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.dp;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import rapture.common.RaptureURI;
+import rapture.common.Scheme;
+import rapture.common.dp.Step;
+import rapture.common.dp.StepHelper;
+import rapture.common.dp.Transition;
+import rapture.common.dp.Workflow;
+import rapture.kernel.DecisionApiImpl;
+
+/**
+ * A read-only, pre-resolved form of a {@link Workflow}: steps are indexed by name, transitions by name, and each step's full URI, category and soft
+ * timeout are worked out up front. The executor uses this so that moving from one step to the next needs no storage reads or URI parsing. The
+ * {@link Workflow} and {@link Step} objects held here are shared and must not be modified.
+ */
+public final class CompiledWorkflow {
+    private final Workflow workflow;
+    private final String workflowPart;
+    private final CompiledStep[] steps;
+    private final ImmutableMap<String, Integer> stepIndexByName;
+    private final ImmutableMap<String, Integer> stepIndexByElement;
+
+    /**
+     * @param workflow
+     *            the workflow as read from storage
+     * @param workflowPart
+     *            the step URI without its element, as returned by {@link #workflowPart(String)}
+     */
+    public CompiledWorkflow(Workflow workflow, String workflowPart) {
+        this.workflow = workflow;
+        this.workflowPart = workflowPart;
+        RaptureURI uri = new RaptureURI(workflowPart, Scheme.WORKFLOW);
+        List<Step> workflowSteps = workflow.getSteps();
+        steps = new CompiledStep[workflowSteps.size()];
+        Map<String, Integer> byName = new HashMap<>();
+        Map<String, Integer> byElement = new HashMap<>();
+        for (int i = 0; i < steps.length; i++) {
+            Step step = workflowSteps.get(i);
+            String element = StepHelper.encode(step.getName());
+            steps[i] = new CompiledStep(this, step, RaptureURI.builder(uri).element(element).asString());
+            // first definition wins, as it does when scanning the step list
+            if (!byName.containsKey(step.getName())) {
+                byName.put(step.getName(), i);
+                byElement.put(element, i);
+            }
+        }
+        stepIndexByName = ImmutableMap.copyOf(byName);
+        stepIndexByElement = ImmutableMap.copyOf(byElement);
+    }
+
+    /**
+     * @return the part of a step URI that identifies its workflow, i.e. everything before the element
+     */
+    public static String workflowPart(String stepURI) {
+        int index = stepURI.indexOf(RaptureURI.Parser.ELEMENT_CHAR);
+        return (index < 0) ? stepURI : stepURI.substring(0, index);
+    }
+
+    public Workflow getWorkflow() {
+        return workflow;
+    }
+
+    public String getWorkflowPart() {
+        return workflowPart;
+    }
+
+    /**
+     * @return the step named by the element of the URI, or null if there is no element or no such step
+     */
+    public CompiledStep getStep(String stepURI) {
+        int index = stepURI.indexOf(RaptureURI.Parser.ELEMENT_CHAR);
+        if (index < 0 || index == stepURI.length() - 1) {
+            return null;
+        }
+        String element = stepURI.substring(index + 1);
+        Integer stepIndex = stepIndexByElement.get(element);
+        if (stepIndex != null) {
+            return steps[stepIndex];
+        }
+        String stepName = StepHelper.decode(element);
+        stepIndex = stepIndexByName.get(stepName);
+        return (stepIndex == null) ? implied(stepName, stepURI) : steps[stepIndex];
+    }
+
+    /**
+     * @return the step with this (unencoded) name, or null if there is no such step
+     */
+    public CompiledStep getStepByName(String stepName) {
+        Integer stepIndex = stepIndexByName.get(stepName);
+        if (stepIndex != null) {
+            return steps[stepIndex];
+        }
+        String element = StepHelper.encode(stepName);
+        return implied(stepName, RaptureURI.builder(new RaptureURI(workflowPart, Scheme.WORKFLOW)).element(element).asString());
+    }
+
+    /**
+     * Steps such as $RETURN are not defined in the workflow but are made up as they are needed
+     */
+    private CompiledStep implied(String stepName, String stepURI) {
+        Step implied = DecisionApiImpl.getStep(workflow, stepName);
+        return (implied == null) ? null : new CompiledStep(this, implied, stepURI);
+    }
+
+    public static final class CompiledStep {
+        private final CompiledWorkflow workflow;
+        private final Step step;
+        private final String uri;
+        private final String category;
+        private final int softTimeout;
+        private final ImmutableMap<String, Transition> transitions;
+        private final Transition defaultTransition;
+        private final boolean hasTransitions;
+
+        private CompiledStep(CompiledWorkflow workflow, Step step, String uri) {
+            this.workflow = workflow;
+            this.step = step;
+            this.uri = uri;
+            String override = step.getCategoryOverride();
+            this.category = (override == null || override.isEmpty()) ? workflow.getWorkflow().getCategory() : override;
+            this.softTimeout = (step.getSoftTimeout() == null) ? -1 : step.getSoftTimeout();
+            Map<String, Transition> byName = new HashMap<>();
+            Transition defawlt = null;
+            List<Transition> stepTransitions = step.getTransitions();
+            hasTransitions = stepTransitions != null && !stepTransitions.isEmpty();
+            if (hasTransitions) {
+                for (Transition transition : stepTransitions) {
+                    if (!byName.containsKey(transition.getName())) {
+                        byName.put(transition.getName(), transition);
+                    }
+                    if ("".equals(transition.getName())) {
+                        defawlt = transition;
+                    }
+                }
+            }
+            transitions = ImmutableMap.copyOf(byName);
+            defaultTransition = defawlt;
+        }
+
+        public CompiledWorkflow getWorkflow() {
+            return workflow;
+        }
+
+        public Step getStep() {
+            return step;
+        }
+
+        public String getName() {
+            return step.getName();
+        }
+
+        /**
+         * @return the fully qualified URI of this step
+         */
+        public String getUri() {
+            return uri;
+        }
+
+        /**
+         * @return the category override of this step, or the workflow's category if there is none
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        public int getSoftTimeout() {
+            return softTimeout;
+        }
+
+        /**
+         * @return the transition with this name, else the default (unnamed) transition; null if there is neither, or if the step has no transitions
+         *         at all, which means the step returns
+         */
+        public Transition getTransition(String name) {
+            if (!hasTransitions) {
+                return null;
+            }
+            Transition transition = (name == null) ? null : transitions.get(name);
+            return (transition == null) ? defaultTransition : transition;
+        }
+    }
+}
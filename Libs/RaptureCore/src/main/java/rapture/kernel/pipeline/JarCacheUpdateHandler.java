@@ -29,6 +29,7 @@ import org.apache.log4j.Logger;
 
 import rapture.common.RapturePipelineTask;
 import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.jar.ClassLoaderPool;
 import rapture.common.jar.JarCache;
 import rapture.common.mime.MimeJarCacheUpdate;
 import rapture.exchange.QueueHandler;
@@ -58,6 +59,7 @@ public class JarCacheUpdateHandler implements QueueHandler {
         String jarUri = payload.getJarUri().toString();
         log.info(String.format("Updating jar cache for jar uri [%s]", jarUri));
         JarCache.getInstance().invalidate(jarUri);
+        ClassLoaderPool.getInstance().invalidate(jarUri);
         if (!payload.isDeletion()) {
             try {
                 KernelScript ks = new KernelScript();
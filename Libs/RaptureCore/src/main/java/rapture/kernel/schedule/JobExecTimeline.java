@@ -0,0 +1,164 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.schedule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The upcoming executions known to a scheduler, one per job, ordered by execution time. The scheduler thread blocks in {@link #takeDue(long)} until the
+ * earliest execution is due, and is woken early whenever the timeline changes, so jobs fire at their execution time rather than on the next poll.
+ */
+public class JobExecTimeline {
+
+    private static final class Entry implements Comparable<Entry> {
+        private final String jobURI;
+        private final long execTime;
+
+        private Entry(String jobURI, long execTime) {
+            this.jobURI = jobURI;
+            this.execTime = execTime;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int cmp = Long.compare(execTime, other.execTime);
+            return (cmp != 0) ? cmp : jobURI.compareTo(other.jobURI);
+        }
+    }
+
+    private final TreeSet<Entry> byTime = new TreeSet<Entry>();
+    private final Map<String, Entry> byJob = new HashMap<String, Entry>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * Set (or move) the next execution of a job
+     */
+    public void schedule(String jobURI, long execTime) {
+        lock.lock();
+        try {
+            removeEntry(jobURI);
+            Entry entry = new Entry(jobURI, execTime);
+            byJob.put(jobURI, entry);
+            byTime.add(entry);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(String jobURI) {
+        lock.lock();
+        try {
+            removeEntry(jobURI);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace the whole timeline, for example after reloading it from storage
+     */
+    public void reset(Map<String, Long> execTimes) {
+        lock.lock();
+        try {
+            byJob.clear();
+            byTime.clear();
+            for (Map.Entry<String, Long> execTime : execTimes.entrySet()) {
+                Entry entry = new Entry(execTime.getKey(), execTime.getValue());
+                byJob.put(entry.jobURI, entry);
+                byTime.add(entry);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return byJob.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The execution time of a job, or null if it has none
+     */
+    public Long getExecTime(String jobURI) {
+        lock.lock();
+        try {
+            Entry entry = byJob.get(jobURI);
+            return (entry == null) ? null : entry.execTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until at least one execution is due, or maxWaitMillis has passed, then remove and return the jobs whose executions are due, earliest first. The
+     * returned list is empty if nothing became due in time.
+     */
+    public List<String> takeDue(long maxWaitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (!byTime.isEmpty() && byTime.first().execTime <= now) {
+                    List<String> due = new ArrayList<String>();
+                    while (!byTime.isEmpty() && byTime.first().execTime <= now) {
+                        Entry entry = byTime.pollFirst();
+                        byJob.remove(entry.jobURI);
+                        due.add(entry.jobURI);
+                    }
+                    return due;
+                }
+                long wakeAt = byTime.isEmpty() ? deadline : Math.min(deadline, byTime.first().execTime);
+                if (wakeAt <= now) {
+                    return new ArrayList<String>();
+                }
+                changed.await(wakeAt - now, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeEntry(String jobURI) {
+        Entry entry = byJob.remove(jobURI);
+        if (entry != null) {
+            byTime.remove(entry);
+        }
+    }
+}
@@ -64,6 +64,8 @@ import rapture.common.pipeline.PipelineConstants;
 import rapture.kernel.ContextFactory;
 import rapture.kernel.Kernel;
 import rapture.kernel.pipeline.TaskSubmitter;
+import rapture.notification.NotificationMessage;
+import rapture.notification.RaptureMessageListener;
 
 /**
  * The schedule manage handles the interaction between Jobs and their executions, and is used by a Scheduler application (an application that is a RaptureCore
@@ -71,12 +73,23 @@ import rapture.kernel.pipeline.TaskSubmitter;
  * the Kernel to retrieve documents and interact with the Pipeline for task submission.
  * <p>
  * The kernel schedule api will also interact with this class when jobs are updated or changed - so that their next execution job can be set correctly.
+ * <p>
+ * A scheduler application calls {@link #startTimeline()} once and then {@link #fireDueJobs(long)} in a loop. The upcoming executions are held in a
+ * {@link JobExecTimeline}, which is loaded from storage at startup and then kept current as executions change, in this kernel directly and in other
+ * kernels through a notification. The timeline is also reloaded every few minutes in case a notification has been missed.
  * 
  * @author amkimian
  */
 public class ScheduleManager {
     private static Logger logger = Logger.getLogger(ScheduleManager.class);
 
+    private static final String TIMELINE_TYPE = "scheduleTimeline";
+    private static final String JOB_URI = "jobURI";
+    private static final long TIMELINE_RELOAD_MILLIS = 5 * 60 * 1000L;
+
+    private static volatile JobExecTimeline timeline;
+    private static volatile long timelineLoaded;
+
     /**
      * The definition of the RaptureJob has changed, so make sure it's still scheduled to run at the right time (upcoming job schedule etc)
      * <p>
@@ -124,12 +137,100 @@ public class ScheduleManager {
             logger.info("Job " + job.getJobURI() + " is not activated, no execution will be created, clearing current execution");
             String user = ContextFactory.getKernelUser().getUser();
             UpcomingJobExecStorage.deleteByFields(job.getJobURI(), user, "job changed, not active");
+            upcomingChanged(job.getJobURI(), null, true);
         }
     }
 
     private static void updateUpcoming(RaptureJobExec exec, String user, String comment) {
         UpcomingJobExec upcoming = JacksonUtil.objectFromJson(JacksonUtil.jsonFromObject(exec), UpcomingJobExec.class);
         UpcomingJobExecStorage.add(upcoming, user, comment);
+        upcomingChanged(exec.getJobURI(), exec, true);
+    }
+
+    /**
+     * Keep the timeline (if this kernel runs one) in step with a change to the upcoming execution of a job, and tell the other kernels about it
+     */
+    private static void upcomingChanged(String jobURI, RaptureJobExec exec, boolean notify) {
+        JobExecTimeline current = timeline;
+        if (current != null) {
+            if (exec != null && exec.getStatus() == JobExecStatus.WAITING) {
+                current.schedule(jobURI, exec.getExecTime());
+            } else {
+                current.cancel(jobURI);
+            }
+        }
+        if (notify && Kernel.getTypeChangeManager() != null) {
+            Map<String, Object> attributes = new HashMap<String, Object>();
+            attributes.put(JOB_URI, jobURI);
+            try {
+                Kernel.getTypeChangeManager().publishMessage(TIMELINE_TYPE, attributes);
+            } catch (Exception e) {
+                logger.warn("Could not publish schedule change for " + jobURI + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Load the upcoming executions into a timeline and start following changes to them. Called once by the scheduler application.
+     */
+    public static synchronized void startTimeline() {
+        if (timeline != null) {
+            return;
+        }
+        timeline = new JobExecTimeline();
+        Kernel.getKernel().registerTypeListener(TIMELINE_TYPE, new RaptureMessageListener<NotificationMessage>() {
+            @Override
+            public void signalMessage(NotificationMessage message) {
+                String jobURI = (String) message.getAttributes().get(JOB_URI);
+                if (jobURI != null) {
+                    upcomingChanged(jobURI, Kernel.getSchedule().getNextExec(ContextFactory.getKernelUser(), jobURI), false);
+                }
+            }
+        });
+        loadTimeline();
+    }
+
+    private static void loadTimeline() {
+        Map<String, Long> execTimes = new HashMap<String, Long>();
+        for (RaptureJobExec jobexec : Kernel.getSchedule().getUpcomingJobs(ContextFactory.getKernelUser())) {
+            if (jobexec.getStatus() == JobExecStatus.WAITING) {
+                execTimes.put(jobexec.getJobURI(), jobexec.getExecTime());
+            }
+        }
+        timeline.reset(execTimes);
+        timelineLoaded = System.currentTimeMillis();
+        logger.info("Loaded " + execTimes.size() + " upcoming job executions");
+    }
+
+    /**
+     * Wait up to maxWaitMillis for job executions to become due, and run those that are. This is the timeline based replacement for
+     * {@link #manageJobExecStatus()}: storage is only read for the jobs that are due.
+     */
+    public static void fireDueJobs(long maxWaitMillis) throws InterruptedException {
+        if (timeline == null) {
+            startTimeline();
+        }
+        if (System.currentTimeMillis() - timelineLoaded > TIMELINE_RELOAD_MILLIS) {
+            loadTimeline();
+        }
+        for (String jobURI : timeline.takeDue(maxWaitMillis)) {
+            try {
+                // the stored execution is the authority; it may have moved since the timeline was told about it
+                RaptureJobExec jobexec = Kernel.getSchedule().getNextExec(ContextFactory.getKernelUser(), jobURI);
+                if (jobexec == null || jobexec.getStatus() != JobExecStatus.WAITING) {
+                    continue;
+                }
+                if (jobexec.getExecTime() > System.currentTimeMillis()) {
+                    timeline.schedule(jobURI, jobexec.getExecTime());
+                    continue;
+                }
+                logger.info("Will run job " + jobexec.getJobURI());
+                RaptureJob job = Kernel.getSchedule().retrieveJob(ContextFactory.getKernelUser(), jobexec.getJobURI());
+                scheduleJobForExecutionNow(job, jobexec);
+            } catch (Exception e) {
+                logger.error(String.format("Error running job %s: %s", jobURI, ExceptionToString.format(e)));
+            }
+        }
     }
 
     public static String runJobNow(RaptureJob job, Map<String, String> passedParams) {
@@ -361,6 +462,7 @@ public class ScheduleManager {
         }
         LastJobExecStorage.deleteByFields(jobURI, user, comment);
         UpcomingJobExecStorage.deleteByFields(jobURI, user, comment);
+        upcomingChanged(jobURI, null, true);
     }
 
     /**
@@ -0,0 +1,519 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.search.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rapture.common.AbstractUpdateObject;
+import rapture.common.BlobContainer;
+import rapture.common.BlobUpdateObject;
+import rapture.common.DocUpdateObject;
+import rapture.common.RaptureURI;
+import rapture.common.Scheme;
+import rapture.common.SearchHit;
+import rapture.common.SearchResponse;
+import rapture.common.exception.ExceptionToString;
+import rapture.common.exception.RaptNotSupportedException;
+import rapture.common.exception.RaptureException;
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.model.DocumentWithMeta;
+import rapture.common.series.SeriesUpdateObject;
+import rapture.kernel.search.SearchRepository;
+import rapture.search.SearchRepoType;
+
+/**
+ * An embedded search repository backed by a Lucene index, for deployments that do not want to run an ElasticSearch cluster. The index lives in the
+ * directory given by the "path" config (in memory if there is none). Writes go to a single IndexWriter and become searchable through a near-real-time
+ * reader as soon as the next search is made; they are committed to disk every "commitEvery" writes or "commitSeconds" seconds, whichever comes first.
+ *
+ * Entries are kept as in ElasticSearch: one per (type, uri), holding the original json as the source and each json value as a field named by its dotted
+ * path. Queries use the query_string syntax understood by {@link QueryStringParser}.
+ *
+ * The repo cache recreates a search repository whenever its config changes, so the open index is not owned by one repository: every repository on the
+ * same path (or, in memory, with the same instance name, as ElasticSearch shares an index per instance) uses the same writer, searchers and cursors,
+ * which stay open for the life of the process. The first repository to open an index sets its commit policy.
+ */
+public class LuceneSearchRepository implements SearchRepository {
+
+    private static final Logger log = Logger.getLogger(LuceneSearchRepository.class);
+
+    private static final String ID = "_id";
+    private static final String TYPE = "_type";
+    private static final String URI = "_uri";
+    private static final String REPO = "_repo";
+    private static final String SOURCE = "_source";
+    private static final String ALL = "_all";
+
+    private static final int DEFAULT_SEARCH_SIZE = 10;
+    private static final int DEFAULT_COMMIT_EVERY = 1000;
+    private static final int DEFAULT_COMMIT_SECONDS = 5;
+
+    /*
+     * how long to keep the cursor alive between paginated search queries, in milliseconds
+     */
+    private static final long CURSOR_KEEPALIVE = 600000;
+
+    private static final ScheduledExecutorService committer = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("LuceneSearchCommit-%d").setDaemon(true).build());
+
+    private static final Map<String, OpenIndex> openIndexes = new HashMap<>();
+
+    private final SearchAnalyzer analyzer = new SearchAnalyzer();
+
+    private String instanceName;
+    private String path;
+    private int commitEvery = DEFAULT_COMMIT_EVERY;
+    private int commitSeconds = DEFAULT_COMMIT_SECONDS;
+    private volatile OpenIndex index;
+
+    @Override
+    public void setInstanceName(String instanceName) {
+        this.instanceName = instanceName;
+    }
+
+    @Override
+    public void setConfig(Map<String, String> config) {
+        path = config.get("path");
+        if (config.containsKey("commitEvery")) {
+            commitEvery = Integer.parseInt(config.get("commitEvery"));
+        }
+        if (config.containsKey("commitSeconds")) {
+            commitSeconds = Integer.parseInt(config.get("commitSeconds"));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (index != null) {
+            return;
+        }
+        String key = StringUtils.isBlank(path) ? "memory:" + StringUtils.defaultIfBlank(instanceName, "default") : new File(path).getAbsolutePath();
+        synchronized (openIndexes) {
+            OpenIndex existing = openIndexes.get(key);
+            if (existing == null) {
+                existing = new OpenIndex(key, path, analyzer, commitEvery, commitSeconds);
+                openIndexes.put(key, existing);
+                log.info(String.format("Lucene search index [%s] opened at [%s]", instanceName, StringUtils.isBlank(path) ? "memory" : path));
+            }
+            index = existing;
+        }
+    }
+
+    private OpenIndex ensureIndex() {
+        if (index == null) {
+            start();
+        }
+        return index;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void put(AbstractUpdateObject updateObject) {
+        RaptureURI uri = updateObject.getUri();
+        log.debug("URI for indexing is " + uri.toString());
+        putUriStore(uri);
+
+        if (updateObject instanceof DocUpdateObject) {
+            DocumentWithMeta docMeta = ((DocUpdateObject) updateObject).getPayload();
+            index(uri.getScheme().toString(), uri, docMeta.getContent());
+            index(SearchRepoType.meta.toString(), uri, JacksonUtil.jsonFromObject(docMeta.getMetaData()));
+        } else if (updateObject instanceof SeriesUpdateObject) {
+            Map<String, String> map = ((SeriesUpdateObject) updateObject).asStringMap();
+            if (!map.isEmpty()) {
+                String type = uri.getScheme().toString();
+                // merge with what is there already, as ElasticSearch's upsert does
+                synchronized (ensureIndex()) {
+                    Map<String, Object> merged = new LinkedHashMap<>();
+                    String existing = getSource(type, uri);
+                    if (existing != null) {
+                        merged.putAll(JacksonUtil.getMapFromJson(existing));
+                    }
+                    merged.putAll(map);
+                    index(type, uri, JacksonUtil.jsonFromObject(merged));
+                }
+            }
+        } else if (updateObject instanceof BlobUpdateObject) {
+            BlobContainer content = ((BlobUpdateObject) updateObject).getPayload();
+            // PDF text extraction needs Tika, which only the ElasticSearch addin carries; index the rest as text
+            if (!updateObject.getMimeType().equals(MediaType.PDF.toString())) {
+                Map<String, Object> blob = new LinkedHashMap<>();
+                blob.put("blob", new String(content.getContent(), StandardCharsets.UTF_8));
+                index(Scheme.BLOB.toString(), uri, JacksonUtil.jsonFromObject(blob));
+            }
+            Map<String, Object> meta = new LinkedHashMap<>();
+            if (content.getHeaders() != null) {
+                meta.putAll(content.getHeaders());
+            }
+            meta.put("mimetype", updateObject.getMimeType());
+            index(SearchRepoType.meta.toString(), uri, JacksonUtil.jsonFromObject(meta));
+        } else {
+            throw new RaptNotSupportedException(String.format("Search update for uri [%s] not supported yet", uri.toString()));
+        }
+    }
+
+    private void putUriStore(RaptureURI uri) {
+        Map<String, Object> uriStore = new LinkedHashMap<>();
+        uriStore.put("parts", Arrays.asList(uri.getDocPath().split("/")));
+        uriStore.put("repo", uri.getAuthority());
+        uriStore.put("scheme", uri.getScheme().toString());
+        index(SearchRepoType.uri.toString(), uri, JacksonUtil.jsonFromObject(uriStore));
+    }
+
+    private void index(String type, RaptureURI uri, String json) {
+        String id = uri.toString();
+        Document doc = new Document();
+        doc.add(new StringField(ID, type + '\u0000' + id, Field.Store.NO));
+        doc.add(new StringField(TYPE, type, Field.Store.YES));
+        doc.add(new StringField(URI, id, Field.Store.YES));
+        doc.add(new StringField(REPO, uri.getAuthority(), Field.Store.NO));
+        doc.add(new StoredField(SOURCE, json));
+        addFields(doc, null, JacksonUtil.getMapFromJson(json));
+        OpenIndex open = ensureIndex();
+        try {
+            open.writer.updateDocument(new Term(ID, type + '\u0000' + id), doc);
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot index " + id, e);
+        }
+        open.written();
+    }
+
+    private static void addFields(Document doc, String prefix, Object value) {
+        if (value instanceof Map) {
+            for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                addFields(doc, prefix == null ? entry.getKey().toString() : prefix + "." + entry.getKey(), entry.getValue());
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                addFields(doc, prefix, item);
+            }
+        } else if (value != null && prefix != null) {
+            String text = value.toString();
+            doc.add(new TextField(prefix, text, Field.Store.NO));
+            doc.add(new TextField(ALL, text, Field.Store.NO));
+        }
+    }
+
+    /**
+     * Read back what is indexed for a uri, for a merge. The previous write must be seen, or the merge would drop what it added.
+     */
+    private String getSource(String type, RaptureURI uri) {
+        OpenIndex open = ensureIndex();
+        IndexSearcher searcher = open.acquire(true);
+        try {
+            TopDocs top = searcher.search(new TermQuery(new Term(ID, type + '\u0000' + uri.toString())), 1);
+            return (top.totalHits == 0) ? null : searcher.doc(top.scoreDocs[0].doc).get(SOURCE);
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot read " + uri, e);
+        } finally {
+            open.release(searcher);
+        }
+    }
+
+    /**
+     * Remove this entry from the index
+     */
+    @Override
+    public void remove(RaptureURI uri) {
+        delete(new Term(URI, uri.toString()));
+    }
+
+    @Override
+    public void dropIndexForRepo(String repoName) {
+        delete(new Term(REPO, repoName));
+    }
+
+    private void delete(Term term) {
+        OpenIndex open = ensureIndex();
+        try {
+            open.writer.deleteDocuments(term);
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot delete " + term.text() + " from search index", e);
+        }
+        open.written();
+    }
+
+    /**
+     * Make everything written so far durable
+     */
+    void commit() {
+        ensureIndex().commit();
+    }
+
+    /**
+     * Make everything written so far visible to searches. Searches do this themselves; this is for tests that want to mirror the ElasticSearch ones.
+     */
+    void refresh() {
+        OpenIndex open = ensureIndex();
+        open.release(open.acquire(true));
+    }
+
+    // If the List is null, empty or only contains a single null or empty String then return all SearchRepoTypes
+    private static String[] allTypes(List<String> types) {
+        if ((types == null) || types.isEmpty() || ((types.size() == 1) && StringUtils.isEmpty(types.get(0)))) return SearchRepoType.valueArray;
+        return types.toArray(new String[types.size()]);
+    }
+
+    private Query buildQuery(List<String> types, String query) {
+        BooleanQuery typeQuery = new BooleanQuery();
+        for (String type : allTypes(types)) {
+            typeQuery.add(new TermQuery(new Term(TYPE, type)), Occur.SHOULD);
+        }
+        return new FilteredQuery(new QueryStringParser(analyzer, ALL).parse(query), new QueryWrapperFilter(typeQuery));
+    }
+
+    @Override
+    public SearchResponse search(List<String> types, String query) {
+        OpenIndex open = ensureIndex();
+        IndexSearcher searcher = open.acquire(false);
+        try {
+            return convert(searcher, searcher.search(buildQuery(types, query), DEFAULT_SEARCH_SIZE), null);
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot search " + instanceName, e);
+        } finally {
+            open.release(searcher);
+        }
+    }
+
+    @Override
+    public SearchResponse searchForRepoUris(String scheme, String repo, String cursorId) {
+        String searchQuery = String.format("scheme:%s AND repo:%s", scheme, repo);
+        return searchWithCursor(Arrays.asList(SearchRepoType.uri.toString()), cursorId, DEFAULT_SEARCH_SIZE, searchQuery);
+    }
+
+    /**
+     * A cursor pins the searcher it started with, so paging sees a consistent view of the index however it changes in the meantime.
+     */
+    @Override
+    public SearchResponse searchWithCursor(List<String> types, String cursorId, int size, String query) {
+        OpenIndex open = ensureIndex();
+        Cursor cursor;
+        if (StringUtils.isBlank(cursorId)) {
+            cursorId = UUID.randomUUID().toString();
+            cursor = new Cursor(open, open.acquire(false), buildQuery(types, query));
+            open.cursors.put(cursorId, cursor);
+        } else {
+            cursor = open.cursors.getIfPresent(cursorId);
+            if (cursor == null) {
+                throw expired(cursorId);
+            }
+        }
+        synchronized (cursor) {
+            // Expiry may have released the searcher since the lookup
+            if (cursor.released) {
+                throw expired(cursorId);
+            }
+            try {
+                TopDocs top = cursor.searcher.searchAfter(cursor.after, cursor.query, Math.max(1, size));
+                if (top.scoreDocs.length > 0) {
+                    cursor.after = top.scoreDocs[top.scoreDocs.length - 1];
+                } else {
+                    open.cursors.invalidate(cursorId);
+                }
+                return convert(cursor.searcher, top, cursorId);
+            } catch (IOException e) {
+                open.cursors.invalidate(cursorId);
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot search " + instanceName, e);
+            }
+        }
+    }
+
+    private static RaptureException expired(String cursorId) {
+        return RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Search cursor " + cursorId + " has expired");
+    }
+
+    private static SearchResponse convert(IndexSearcher searcher, TopDocs top, String cursorId) throws IOException {
+        SearchResponse ret = new SearchResponse();
+        ret.setCursorId(cursorId);
+        ret.setMaxScore(Double.parseDouble(Float.toString(top.getMaxScore())));
+        ret.setTotal((long) top.totalHits);
+        ret.setSearchHits(new ArrayList<SearchHit>());
+        for (ScoreDoc scoreDoc : top.scoreDocs) {
+            Document doc = searcher.doc(scoreDoc.doc);
+            SearchHit hit = new SearchHit();
+            hit.setScore(Double.parseDouble(Float.toString(scoreDoc.score)));
+            hit.setSource(doc.get(SOURCE));
+            hit.setIndexType(doc.get(TYPE));
+            hit.setId(doc.get(URI));
+            hit.setUri(doc.get(URI));
+            ret.getSearchHits().add(hit);
+        }
+        return ret;
+    }
+
+    /**
+     * The writer, searchers and cursors of one index, shared by every repository that uses it.
+     */
+    private static final class OpenIndex {
+        private final String name;
+        private final IndexWriter writer;
+        private final SearcherManager searcherManager;
+        private final AtomicInteger uncommitted = new AtomicInteger();
+        private final int commitEvery;
+        private final Cache<String, Cursor> cursors = CacheBuilder.newBuilder().expireAfterAccess(CURSOR_KEEPALIVE, TimeUnit.MILLISECONDS)
+                .removalListener(new RemovalListener<String, Cursor>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Cursor> notification) {
+                        notification.getValue().release();
+                    }
+                }).build();
+
+        private OpenIndex(String name, String path, SearchAnalyzer analyzer, int commitEvery, int commitSeconds) {
+            this.name = name;
+            this.commitEvery = commitEvery;
+            try {
+                Directory directory = StringUtils.isBlank(path) ? new RAMDirectory() : FSDirectory.open(new File(path));
+                writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_3, analyzer));
+                searcherManager = new SearcherManager(writer, true, null);
+            } catch (IOException e) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot open search index " + name, e);
+            }
+            if (commitSeconds > 0) {
+                committer.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Expiry is otherwise only noticed when the cursors are next used
+                        cursors.cleanUp();
+                        try {
+                            commit();
+                        } catch (RuntimeException e) {
+                            log.error("Cannot commit search index " + OpenIndex.this.name + ": " + e.getMessage());
+                        }
+                    }
+                }, commitSeconds, commitSeconds, TimeUnit.SECONDS);
+            }
+        }
+
+        private void written() {
+            if (uncommitted.incrementAndGet() >= commitEvery) {
+                commit();
+            }
+        }
+
+        private void commit() {
+            if (uncommitted.getAndSet(0) == 0) {
+                return;
+            }
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                log.debug(ExceptionToString.format(e));
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot commit search index " + name, e);
+            }
+        }
+
+        /**
+         * @param upToDate
+         *            wait for a searcher that sees every write made so far. Otherwise a refresh that another thread has under way is not waited for.
+         */
+        private IndexSearcher acquire(boolean upToDate) {
+            try {
+                if (upToDate) {
+                    searcherManager.maybeRefreshBlocking();
+                } else {
+                    searcherManager.maybeRefresh();
+                }
+                return searcherManager.acquire();
+            } catch (IOException e) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot open search index " + name, e);
+            }
+        }
+
+        private void release(IndexSearcher searcher) {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                log.error("Cannot release searcher for " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Cursor {
+        private final OpenIndex index;
+        private final IndexSearcher searcher;
+        private final Query query;
+        private ScoreDoc after;
+        private boolean released;
+
+        private Cursor(OpenIndex index, IndexSearcher searcher, Query query) {
+            this.index = index;
+            this.searcher = searcher;
+            this.query = query;
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                index.release(searcher);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.search.lucene;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+
+import rapture.common.exception.RaptureExceptionFactory;
+
+/**
+ * Turns the query strings accepted by the search api into Lucene queries. This covers the commonly used part of the query_string syntax: terms, quoted
+ * phrases, field:value, * and ? wildcards, parentheses, AND/OR/NOT and +/- prefixes, with OR between clauses by default. Terms with no field are matched
+ * against every field of the entry.
+ */
+class QueryStringParser {
+    private final Analyzer analyzer;
+    private final String defaultField;
+    private String text;
+    private int pos;
+
+    QueryStringParser(Analyzer analyzer, String defaultField) {
+        this.analyzer = analyzer;
+        this.defaultField = defaultField;
+    }
+
+    Query parse(String query) {
+        this.text = (query == null) ? "" : query;
+        this.pos = 0;
+        Query result = parseClauses(defaultField);
+        skipWhitespace();
+        if (pos < text.length()) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Unexpected '" + text.charAt(pos) + "' in search query " + text);
+        }
+        return (result == null) ? new MatchAllDocsQuery() : result;
+    }
+
+    private Query parseClauses(String field) {
+        List<BooleanClause> clauses = new ArrayList<>();
+        boolean and = false;
+        while (true) {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) == ')') break;
+            if (keyword("AND") || keyword("&&")) {
+                and = true;
+                continue;
+            }
+            if (keyword("OR") || keyword("||")) {
+                and = false;
+                continue;
+            }
+            boolean required = false;
+            boolean prohibited = false;
+            if (keyword("NOT")) {
+                prohibited = true;
+            } else if (text.charAt(pos) == '+') {
+                required = true;
+                pos++;
+            } else if (text.charAt(pos) == '-' || text.charAt(pos) == '!') {
+                prohibited = true;
+                pos++;
+            }
+            Query query = parseClause(field);
+            if (query == null) continue;
+            if (and && !clauses.isEmpty()) {
+                BooleanClause last = clauses.get(clauses.size() - 1);
+                if (!last.isProhibited()) last.setOccur(Occur.MUST);
+            }
+            if (and && !prohibited) required = true;
+            clauses.add(new BooleanClause(query, required ? Occur.MUST : prohibited ? Occur.MUST_NOT : Occur.SHOULD));
+            and = false;
+        }
+        if (clauses.isEmpty()) return null;
+        if (clauses.size() == 1 && clauses.get(0).getOccur() != Occur.MUST_NOT) return clauses.get(0).getQuery();
+        BooleanQuery query = new BooleanQuery();
+        boolean onlyProhibited = true;
+        for (BooleanClause clause : clauses) {
+            query.add(clause);
+            if (!clause.isProhibited()) onlyProhibited = false;
+        }
+        if (onlyProhibited) query.add(new MatchAllDocsQuery(), Occur.MUST);
+        return query;
+    }
+
+    private Query parseClause(String field) {
+        skipWhitespace();
+        if (pos >= text.length()) return null;
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            Query group = parseClauses(field);
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != ')') {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Missing ')' in search query " + text);
+            }
+            pos++;
+            return group;
+        }
+        if (c == '"') {
+            return phrase(field, readPhrase());
+        }
+        String word = readWord();
+        int colon = fieldSeparator(word);
+        if (colon > 0) {
+            String fieldName = unescape(word.substring(0, colon));
+            String value = word.substring(colon + 1);
+            return value.isEmpty() ? parseClause(fieldName) : term(fieldName, value);
+        }
+        return term(field, word);
+    }
+
+    private Query term(String field, String word) {
+        if (hasWildcard(word)) {
+            if (word.equals("*")) {
+                return field.equals(defaultField) ? new MatchAllDocsQuery() : new WildcardQuery(new Term(field, "*"));
+            }
+            return new WildcardQuery(new Term(field, word.toLowerCase(Locale.ROOT)));
+        }
+        return phrase(field, unescape(word));
+    }
+
+    private Query phrase(String field, String value) {
+        List<String> tokens = analyze(field, value);
+        if (tokens.isEmpty()) return null;
+        if (tokens.size() == 1) return new TermQuery(new Term(field, tokens.get(0)));
+        PhraseQuery query = new PhraseQuery();
+        for (String token : tokens) {
+            query.add(new Term(field, token));
+        }
+        return query;
+    }
+
+    private List<String> analyze(String field, String value) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, value)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Cannot analyze search query " + text, e);
+        }
+        return tokens;
+    }
+
+    private boolean keyword(String keyword) {
+        if (!text.startsWith(keyword, pos)) return false;
+        int end = pos + keyword.length();
+        if (end < text.length() && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '(' && text.charAt(end) != '"') return false;
+        pos = end;
+        return true;
+    }
+
+    private String readPhrase() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < text.length() && text.charAt(pos) != '"') {
+            if (text.charAt(pos) == '\\' && pos + 1 < text.length()) pos++;
+            sb.append(text.charAt(pos++));
+        }
+        if (pos >= text.length()) {
+            throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Unterminated phrase in search query " + text);
+        }
+        pos++;
+        return sb.toString();
+    }
+
+    /**
+     * @return the raw word, escapes included; a field name ends the word at its colon so that field:(...) and field:"..." work
+     */
+    private String readWord() {
+        int start = pos;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '\\' && pos + 1 < text.length()) {
+                pos += 2;
+                continue;
+            }
+            if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '"') break;
+            pos++;
+            if (c == ':' && pos - 1 > start) break;
+        }
+        return text.substring(start, pos);
+    }
+
+    private static int fieldSeparator(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\') i++;
+            else if (c == ':') return i;
+        }
+        return -1;
+    }
+
+    private static boolean hasWildcard(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '*' || c == '?') return true;
+        }
+        return false;
+    }
+
+    private static String unescape(String word) {
+        if (word.indexOf('\\') < 0) return word;
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\' && i + 1 < word.length()) c = word.charAt(++i);
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+}
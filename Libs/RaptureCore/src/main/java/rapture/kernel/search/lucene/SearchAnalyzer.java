@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.search.lucene;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+/**
+ * Splits text into lower-cased runs of letters and digits. Only lucene-core is on the classpath, so this stands in for the analyzers module.
+ */
+class SearchAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+        return new TokenStreamComponents(new LetterOrDigitTokenizer(reader));
+    }
+
+    private static final class LetterOrDigitTokenizer extends Tokenizer {
+        private static final int MAX_TOKEN_LENGTH = 255;
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final char[] buffer = new char[4096];
+        private int bufferLength = 0;
+        private int bufferIndex = 0;
+        private int offset = 0;
+
+        LetterOrDigitTokenizer(Reader input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            clearAttributes();
+            int start = -1;
+            int length = 0;
+            while (true) {
+                if (bufferIndex >= bufferLength) {
+                    bufferLength = input.read(buffer);
+                    bufferIndex = 0;
+                    if (bufferLength <= 0) {
+                        bufferLength = 0;
+                        break;
+                    }
+                }
+                char c = buffer[bufferIndex++];
+                offset++;
+                if (Character.isLetterOrDigit(c)) {
+                    if (length == 0) start = offset - 1;
+                    if (length < MAX_TOKEN_LENGTH) termAtt.append(Character.toLowerCase(c));
+                    length++;
+                } else if (length > 0) {
+                    break;
+                }
+            }
+            if (length == 0) return false;
+            offsetAtt.setOffset(correctOffset(start), correctOffset(start + length));
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            int finalOffset = correctOffset(offset);
+            offsetAtt.setOffset(finalOffset, finalOffset);
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            bufferLength = 0;
+            bufferIndex = 0;
+            offset = 0;
+        }
+    }
+}
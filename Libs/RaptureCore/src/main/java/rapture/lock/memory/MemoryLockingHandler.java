@@ -23,68 +23,156 @@
  */
 package rapture.lock.memory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import rapture.common.LockHandle;
 import rapture.lock.ILockingHandler;
 
 /*
  * The memory locking handler is basically a local synchronization point
- * 
+ *
+ * Lock names are spread over a fixed set of stripes, each with its own mutex, so unrelated locks do not contend. Waiters for a lock queue up in
+ * arrival order and are woken as soon as the lock is released, or, for the waiter at the head of the queue, when the current hold expires. A
+ * background sweep drops expired locks that nobody is waiting for.
  */
 public class MemoryLockingHandler implements ILockingHandler {
-    private Map<String, MemoryLock> lockMap;
-    private Object syncLock;
-    @SuppressWarnings("unused")
-    private String instanceName;
+    private static final int STRIPES = 32;
+    private static final long SWEEP_SECONDS = 30;
 
-    public MemoryLockingHandler() {
-        lockMap = new HashMap<String, MemoryLock>();
-        syncLock = new Object();
+    private static final Set<MemoryLockingHandler> handlers = Collections.synchronizedSet(Collections
+            .newSetFromMap(new WeakHashMap<MemoryLockingHandler, Boolean>()));
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("MemoryLockSweeper-%d").setDaemon(true).build());
+
+    static {
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                List<MemoryLockingHandler> current;
+                synchronized (handlers) {
+                    current = new ArrayList<MemoryLockingHandler>(handlers);
+                }
+                for (MemoryLockingHandler handler : current) {
+                    handler.sweep();
+                }
+            }
+        }, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
     }
 
-    @Override
-    public LockHandle acquireLock(String lockContext, String lockName, long secondsToWait, long secondsToHold) {
-        if (getLockForMe(lockContext, lockName, secondsToHold)) {
-            return new LockHandle();
+    private static final class Stripe {
+        private final ReentrantLock mutex = new ReentrantLock();
+        private final Map<String, LockEntry> entries = new HashMap<String, LockEntry>();
+    }
+
+    private static final class LockEntry {
+        private MemoryLock lock;
+        private final Deque<Condition> waiters = new ArrayDeque<Condition>();
+
+        private boolean isFree() {
+            return lock == null || lock.readyToRelease();
         }
 
-        if (secondsToWait != 0) {
-            long secondsCountdown = secondsToWait;
-            while (secondsCountdown > 0) {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
+        private boolean isIdle() {
+            return waiters.isEmpty() && isFree();
+        }
 
-                }
-                if (getLockForMe(lockContext, lockName, secondsToHold)) {
-                    return new LockHandle();
-                }
-                secondsCountdown--;
+        private void wakeNext() {
+            Condition next = waiters.peekFirst();
+            if (next != null) {
+                next.signal();
             }
         }
-        return null;
     }
 
-    private boolean checkLock(String lockContext, String lockName, long secondsToHold) {
-        if (!lockExists(lockName)) {
-            createLock(lockContext, lockName, secondsToHold);
-            return true;
-        } else {
-            MemoryLock lock = lockMap.get(lockName);
-            if (lock.readyToRelease()) {
-                // Replace lock as current lock has expired
-                createLock(lockContext, lockName, secondsToHold);
-                return true;
-            }
+    private volatile Stripe[] stripes;
+    @SuppressWarnings("unused")
+    private String instanceName;
+
+    public MemoryLockingHandler() {
+        stripes = newStripes();
+        handlers.add(this);
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] result = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            result[i] = new Stripe();
         }
-        return false;
+        return result;
     }
 
-    private void createLock(String lockContext, String lockName, long secondsToHold) {
-        MemoryLock lock = generateLock(lockContext, lockName, secondsToHold);
-        lockMap.put(lockName, lock);
+    private Stripe stripeFor(String lockName) {
+        Stripe[] current = stripes;
+        return current[(lockName.hashCode() & Integer.MAX_VALUE) % current.length];
+    }
+
+    @Override
+    public LockHandle acquireLock(String lockContext, String lockName, long secondsToWait, long secondsToHold) {
+        Stripe stripe = stripeFor(lockName);
+        long deadline = System.currentTimeMillis() + 1000 * secondsToWait;
+        stripe.mutex.lock();
+        try {
+            LockEntry entry = stripe.entries.get(lockName);
+            if (entry == null) {
+                entry = new LockEntry();
+                stripe.entries.put(lockName, entry);
+            }
+            if (entry.waiters.isEmpty() && entry.isFree()) {
+                entry.lock = generateLock(lockContext, lockName, secondsToHold);
+                return new LockHandle();
+            }
+            if (secondsToWait <= 0) {
+                return null;
+            }
+            Condition me = stripe.mutex.newCondition();
+            entry.waiters.addLast(me);
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    boolean first = entry.waiters.peekFirst() == me;
+                    if (first && entry.isFree()) {
+                        entry.lock = generateLock(lockContext, lockName, secondsToHold);
+                        return new LockHandle();
+                    }
+                    if (now >= deadline) {
+                        return null;
+                    }
+                    long wakeAt = deadline;
+                    if (first) {
+                        // nobody will signal an expiry, so time the wait to it
+                        wakeAt = Math.min(deadline, entry.lock.getTimeToRelease() + 1);
+                    }
+                    me.await(Math.max(1, wakeAt - now), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                entry.waiters.remove(me);
+                entry.wakeNext();
+                if (entry.waiters.isEmpty() && entry.lock == null) {
+                    stripe.entries.remove(lockName);
+                }
+            }
+        } finally {
+            stripe.mutex.unlock();
+        }
     }
 
     private MemoryLock generateLock(String lockHolder, String lockName, long secondsToHold) {
@@ -95,15 +183,6 @@ public class MemoryLockingHandler implements ILockingHandler {
         return lock;
     }
 
-    private boolean getLockForMe(String lockContext, String lockName, long secondsToHold) {
-        synchronized (syncLock) {
-            if (checkLock(lockContext, lockName, secondsToHold)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private long getReleaseTime(long secondsToHold) {
         if (secondsToHold != 0) {
             return System.currentTimeMillis() + 1000 * secondsToHold;
@@ -112,25 +191,53 @@ public class MemoryLockingHandler implements ILockingHandler {
         }
     }
 
-    private boolean lockExists(String lockName) {
-        return lockMap.containsKey(lockName);
-    }
-
     @Override
     public Boolean releaseLock(String lockContext, String lockName, LockHandle lockHandle) {
-        synchronized (syncLock) {
-            if (lockMap.containsKey(lockName) && lockContext.equals(lockMap.get(lockName).getLockHolder())) {
-                lockMap.remove(lockName);
+        Stripe stripe = stripeFor(lockName);
+        stripe.mutex.lock();
+        try {
+            LockEntry entry = stripe.entries.get(lockName);
+            if (entry != null && entry.lock != null && entry.lock.hasContext(lockContext)) {
+                release(stripe, lockName, entry);
                 return true;
             }
+        } finally {
+            stripe.mutex.unlock();
         }
         return false;
     }
 
+    private void release(Stripe stripe, String lockName, LockEntry entry) {
+        entry.lock = null;
+        if (entry.waiters.isEmpty()) {
+            stripe.entries.remove(lockName);
+        } else {
+            entry.wakeNext();
+        }
+    }
+
+    /**
+     * Drop expired locks that have no waiters
+     */
+    void sweep() {
+        for (Stripe stripe : stripes) {
+            stripe.mutex.lock();
+            try {
+                Iterator<LockEntry> entries = stripe.entries.values().iterator();
+                while (entries.hasNext()) {
+                    if (entries.next().isIdle()) {
+                        entries.remove();
+                    }
+                }
+            } finally {
+                stripe.mutex.unlock();
+            }
+        }
+    }
+
     @Override
     public void setConfig(Map<String, String> config) {
-        lockMap = new HashMap<String, MemoryLock>();
-        syncLock = new Object();
+        stripes = newStripes();
     }
 
     @Override
@@ -140,11 +247,16 @@ public class MemoryLockingHandler implements ILockingHandler {
 
     @Override
     public Boolean forceReleaseLock(String lockName) {
-        synchronized (syncLock) {
-            if (lockMap.containsKey(lockName)) {
-                lockMap.remove(lockName);
+        Stripe stripe = stripeFor(lockName);
+        stripe.mutex.lock();
+        try {
+            LockEntry entry = stripe.entries.get(lockName);
+            if (entry != null && entry.lock != null) {
+                release(stripe, lockName, entry);
                 return true;
             }
+        } finally {
+            stripe.mutex.unlock();
         }
         return false;
     }
@@ -87,24 +87,36 @@ public class NonBlockingMetricsService implements MetricsService {
 
     @Override
     public void recordTimeDifference(final String parameterName, final Long delta) {
+        if (delta == null) {
+            return;
+        }
         cache.addTimer(parameterName, delta);
         cache.ensureScheduled();
     }
 
     @Override
     public void recordGaugeValue(String parameterName, Long value) {
+        if (value == null) {
+            return;
+        }
         cache.addGaugeValue(parameterName, value);
         cache.ensureScheduled();
     }
 
     @Override
     public void recordGaugeValue(String parameterName, Double value) {
+        if (value == null) {
+            return;
+        }
         cache.addGaugeValue(parameterName, value);
         cache.ensureScheduled();
     }
 
     @Override
     public void recordCount(String parameterName, Long count) {
+        if (count == null) {
+            return;
+        }
         cache.addCount(parameterName, count);
         cache.ensureScheduled();
     }
@@ -29,17 +29,22 @@ import rapture.common.metrics.TimerStartRecordStorage;
 import rapture.kernel.ContextFactory;
 import rapture.metrics.cache.Count;
 import rapture.metrics.cache.Gauge;
+import rapture.metrics.cache.Histogram;
 import rapture.metrics.cache.Metric;
 import rapture.metrics.cache.Timer;
+import rapture.metrics.cache.TimerSummary;
 import rapture.metrics.store.MetricsStore;
 
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.log4j.Logger;
 
@@ -47,11 +52,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
+ * Timers, gauges and counts are aggregated in place by the calling thread without locking: counts are summed in a {@link LongAdder}, timers go into a
+ * {@link Histogram} and gauges keep their latest value. The cache thread drains these on each flush, so the store sees one count, one timer summary
+ * and one gauge value per metric name per interval, however many samples were recorded.
+ *
  * @author bardhi
  * @since 1/23/15.
  */
 public class ServiceCache {
-    private static final int BATCH_SIZE = 50;
     final long MAX_CACHE_SIZE; //max cache size allowed before it is flushed
     final long CACHE_FLUSH_TO; //timeout after which the cache is flushed
     final long EVENT_EXPIRATION_TO; //timeout after which we discard an "end" event
@@ -61,14 +69,15 @@ public class ServiceCache {
     private final Map<String, TimerStartRecord> recordIdToStart;
     private final List<TimerEndRecord> timerEndRecords;
 
-    private final List<Gauge> gauges;
-    private final List<Timer> timers;
-    private final List<Count> counts;
+    private final ConcurrentMap<String, Long> longGauges;
+    private final ConcurrentMap<String, Double> doubleGauges;
+    private final ConcurrentMap<String, Histogram> timers;
+    private final ConcurrentMap<String, LongAdder> counts;
 
     private final MetricsStore metricsStore;
     private long recordsLastFlushTime;
     private int runNum;
-    private boolean isScheduled;
+    private volatile boolean isScheduled;
 
     public ServiceCache(long maxCacheSize, long cacheFlushTO, long endExpirationTO, MetricsStore metricsStore) {
         MAX_CACHE_SIZE = maxCacheSize;
@@ -77,9 +86,10 @@ public class ServiceCache {
 
         isScheduled = false;
         recordIdToStart = new HashMap<>();
-        gauges = new LinkedList<>();
-        timers = new LinkedList<>();
-        counts = new LinkedList<>();
+        longGauges = new ConcurrentHashMap<>();
+        doubleGauges = new ConcurrentHashMap<>();
+        timers = new ConcurrentHashMap<>();
+        counts = new ConcurrentHashMap<>();
 
         timerEndRecords = new LinkedList<>();
         recordsLastFlushTime = System.currentTimeMillis();
@@ -95,8 +105,7 @@ public class ServiceCache {
                     isScheduled = false;
                     flushIfNeeded();
 
-                    if (gauges.size() > 0 || timers.size() > 0 || counts.size() > 0 || timerEndRecords.size() > 0
-                            || recordIdToStart.keySet().size() > 0) { //we need to schedule it again soon
+                    if (hasPendingMetrics()) { //we need to schedule it again soon
                         isScheduled = true;
                     }
                 }
@@ -131,37 +140,88 @@ public class ServiceCache {
 
         storeMetrics(calculatedTimers);
 
-        storeMetrics(timers);
-        timers.clear();
+        storeMetrics(drainTimers());
+        storeMetrics(drainGauges());
+        storeMetrics(drainCounts());
+    }
 
-        storeMetrics(gauges);
-        gauges.clear();
+    /**
+     * Whether anything is still waiting to be stored. Aggregated timers, gauges and counts are only stored on every fourth run, so they can be left
+     * over by a run that stored nothing.
+     */
+    @VisibleForTesting
+    boolean hasPendingMetrics() {
+        if (timerEndRecords.size() > 0 || recordIdToStart.keySet().size() > 0 || !longGauges.isEmpty() || !doubleGauges.isEmpty()) {
+            return true;
+        }
+        for (Histogram histogram : timers.values()) {
+            if (!histogram.isEmpty()) {
+                return true;
+            }
+        }
+        for (LongAdder count : counts.values()) {
+            if (count.sum() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<TimerSummary> drainTimers() {
+        List<TimerSummary> summaries = new LinkedList<>();
+        for (Map.Entry<String, Histogram> entry : timers.entrySet()) {
+            TimerSummary summary = entry.getValue().drain(entry.getKey());
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
 
-        storeMetrics(counts);
-        counts.clear();
+    private List<Gauge> drainGauges() {
+        List<Gauge> drained = new LinkedList<>();
+        for (Map.Entry<String, Long> entry : longGauges.entrySet()) {
+            // only remove the value we send, a newer one stays for the next flush
+            if (longGauges.remove(entry.getKey(), entry.getValue())) {
+                Gauge gauge = new Gauge();
+                gauge.setParameterName(entry.getKey());
+                gauge.setLongValue(entry.getValue());
+                drained.add(gauge);
+            }
+        }
+        for (Map.Entry<String, Double> entry : doubleGauges.entrySet()) {
+            if (doubleGauges.remove(entry.getKey(), entry.getValue())) {
+                Gauge gauge = new Gauge();
+                gauge.setParameterName(entry.getKey());
+                gauge.setDoubleValue(entry.getValue());
+                drained.add(gauge);
+            }
+        }
+        return drained;
+    }
 
+    private List<Count> drainCounts() {
+        List<Count> drained = new LinkedList<>();
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long sum = entry.getValue().sumThenReset();
+            if (sum != 0) {
+                Count count = new Count();
+                count.setParameterName(entry.getKey());
+                count.setCount(sum);
+                drained.add(count);
+            }
+        }
+        return drained;
     }
 
     private <T extends Metric> void storeMetrics(List<T> metrics) {
         if (metrics.size() > 0) {
             printTraceInfo(metrics);
-            int i = 0;
             try {
+                // One summary per metric per interval, so there is no need to pace the sends
                 for (T metric : metrics) {
-                    i++;
-                    if (i % BATCH_SIZE == 0) {
-                        if (log.isDebugEnabled()) {
-                            log.debug(String.format("Recorded %s statistics, will sleep then send next batch...", i));
-                        }
-                        TimeUnit.MILLISECONDS.sleep(100);
-                        if (log.isDebugEnabled()) {
-                            log.debug(String.format("Done sleeping, sending next batch of statistics now..."));
-                        }
-                    }
                     metric.storeMe(metricsStore);
                 }
-            } catch (InterruptedException e) {
-                log.error("Interrupted while sending statistics: " + ExceptionToString.format(e));
             } catch (Exception e) {
                 log.error(ExceptionToString.format(e));
             }
@@ -220,12 +280,10 @@ public class ServiceCache {
     }
 
     public void ensureScheduled() {
-        cacheExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                isScheduled = true;
-            }
-        });
+        // read first so the hot path does not keep writing to a shared cache line
+        if (!isScheduled) {
+            isScheduled = true;
+        }
     }
 
     public void addEndRecord(final TimerEndRecord endRecord) {
@@ -293,53 +351,35 @@ public class ServiceCache {
         return cacheExecutor;
     }
 
-    public void addTimer(final String parameterName, final Long delta) {
-        cacheExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                Timer timer = new Timer();
-                timer.setParameterName(parameterName);
-                timer.setDelta(delta);
-                timers.add(timer);
+    public void addTimer(String parameterName, long delta) {
+        Histogram histogram = timers.get(parameterName);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = timers.putIfAbsent(parameterName, created);
+            if (histogram == null) {
+                histogram = created;
             }
-        });
+        }
+        histogram.record(delta);
     }
 
-    public void addGaugeValue(final String parameterName, final Long value) {
-        cacheExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                Gauge gauge = new Gauge();
-                gauge.setParameterName(parameterName);
-                gauge.setLongValue(value);
-                gauges.add(gauge);
-
-            }
-        });
+    public void addGaugeValue(String parameterName, Long value) {
+        longGauges.put(parameterName, value);
     }
 
-    public void addGaugeValue(final String parameterName, final Double value) {
-        cacheExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                Gauge gauge = new Gauge();
-                gauge.setParameterName(parameterName);
-                gauge.setDoubleValue(value);
-                gauges.add(gauge);
-
-            }
-        });
+    public void addGaugeValue(String parameterName, Double value) {
+        doubleGauges.put(parameterName, value);
     }
 
-    public void addCount(final String parameterName, final Long value){
-        cacheExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                Count count = new Count();
-                count.setParameterName(parameterName);
-                count.setCount(value);
-                counts.add(count);
+    public void addCount(String parameterName, long value) {
+        LongAdder adder = counts.get(parameterName);
+        if (adder == null) {
+            LongAdder created = new LongAdder();
+            adder = counts.putIfAbsent(parameterName, created);
+            if (adder == null) {
+                adder = created;
             }
-        });
+        }
+        adder.add(value);
     }
 }
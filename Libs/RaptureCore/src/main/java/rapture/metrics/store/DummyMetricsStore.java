@@ -48,6 +48,11 @@ public class DummyMetricsStore implements MetricsStore {
 
     }
 
+    @Override
+    public void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99) {
+
+    }
+
     @Override
     public void stop() {
         //noop
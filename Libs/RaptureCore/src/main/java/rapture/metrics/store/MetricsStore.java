@@ -37,5 +37,10 @@ public interface MetricsStore {
 
     void recordCount(String parameterName, Long value);
 
+    /**
+     * Record a timer that has already been aggregated over an interval
+     */
+    void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99);
+
     void stop();
 }
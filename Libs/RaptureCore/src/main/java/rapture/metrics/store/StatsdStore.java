@@ -106,6 +106,18 @@ public class StatsdStore implements MetricsStore {
         statsd.count(parameterName, value);
     }
 
+    @Override
+    public void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99) {
+        if (log.isTraceEnabled()) {
+            log.trace(String.format("Recording timer summary. parameterName: %s; count: %s; p50: %s; p99: %s", parameterName, count, p50, p99));
+        }
+        statsd.count(parameterName + ".count", count);
+        statsd.recordGaugeValue(parameterName + ".min", min);
+        statsd.recordGaugeValue(parameterName + ".max", max);
+        statsd.recordGaugeValue(parameterName + ".p50", p50);
+        statsd.recordGaugeValue(parameterName + ".p99", p99);
+    }
+
     @Override
     public void stop() {
         statsd.stop();
@@ -446,29 +446,11 @@ public class VersionedRepo extends BaseRepo implements Repository {
     }
 
     public String getDocumentFromCommit(String documentName, CommitObject cObj) {
-        TreeObject tObj = objDb.getTree(cObj.getTreeRef());
-        String[] parts = documentName.split("/");
-        String ret = null;
-        for (int i = 0; i < parts.length; i++) {
-            if (tObj == null) {
-                break;
-            }
-            if (i == parts.length - 1) {
-                for (DocumentBagReference bagRef : tObj.getDocuments()) {
-                    DocumentBagObject dObj = objDb.getDocumentBag(bagRef.getBagRef());
-
-                    ret = dObj.getDocRefs().get(parts[i]);
-                    if (ret != null) {
-                        ret = objDb.getDocument(ret).getContent().toString();
-                        break;
-                    }
-                }
-            } else {
-                String treeRef = tObj.getTrees().get(parts[i]);
-                tObj = objDb.getTree(treeRef);
-            }
+        String ref = objDb.resolveDocumentRef(cObj.getTreeRef(), documentName);
+        if (ref == null) {
+            return null;
         }
-        return ret;
+        return objDb.getDocument(ref).getContent().toString();
     }
 
     @Override
@@ -27,35 +27,60 @@ import rapture.common.RaptureFolderInfo;
 import rapture.common.impl.jackson.JacksonUtil;
 import rapture.common.impl.jackson.MD5Utils;
 import rapture.common.repo.*;
+import rapture.config.ConfigLoader;
 import rapture.repo.KeyStore;
 
 import java.util.List;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * An object database reads and write BaseObjects
  * 
+ * Objects are content addressed, so decoded objects are cached by reference
+ * along with the document reference each (tree, path) resolves to. Objects
+ * handed out are shared and must not be modified unless they are written
+ * back under the same reference.
+ * 
  * @author amkimian
  * 
  */
 public class ObjectDatabase {
     private KeyStore store;
+    private final Cache<String, Object> objects;
+    private final Cache<String, String> paths;
 
     public ObjectDatabase(KeyStore store) {
         this.store = store;
+        long size = ConfigLoader.getConf().ObjectDatabaseCacheSize;
+        this.objects = CacheBuilder.newBuilder().maximumSize(size).build();
+        this.paths = CacheBuilder.newBuilder().maximumSize(size).build();
     }
 
-    public CommentaryObject getCommentary(String ref) {
-        if (store.containsKey(ref)) {
-            return JacksonUtil.objectFromJson(store.get(ref), CommentaryObject.class);
+    private <T> T read(String ref, Class<T> type) {
+        if (ref == null) {
+            return null;
+        }
+        Object cached = objects.getIfPresent(ref);
+        if (type.isInstance(cached)) {
+            return type.cast(cached);
         }
-        return null;
+        String json = store.get(ref);
+        if (json == null) {
+            return null;
+        }
+        T ret = JacksonUtil.objectFromJson(json, type);
+        objects.put(ref, ret);
+        return ret;
+    }
+
+    public CommentaryObject getCommentary(String ref) {
+        return read(ref, CommentaryObject.class);
     }
 
     public CommitObject getCommit(String ref) {
-        if (store.containsKey(ref)) {
-            return JacksonUtil.objectFromJson(store.get(ref), CommitObject.class);
-        }
-        return null;
+        return read(ref, CommitObject.class);
     }
 
     public String getCommitReference(CommitObject cObj) {
@@ -64,24 +89,49 @@ public class ObjectDatabase {
     }
 
     public DocumentObject getDocument(String ref) {
-        if (store.containsKey(ref)) {
-            return JacksonUtil.objectFromJson(store.get(ref), DocumentObject.class);
-        }
-        return null;
+        return read(ref, DocumentObject.class);
     }
 
     public DocumentBagObject getDocumentBag(String bagRef) {
-        if (store.containsKey(bagRef)) {
-            return JacksonUtil.objectFromJson(store.get(bagRef), DocumentBagObject.class);
-        }
-        return null;
+        return read(bagRef, DocumentBagObject.class);
     }
 
     public TreeObject getTree(String ref) {
-        if (store.containsKey(ref)) {
-            return JacksonUtil.objectFromJson(store.get(ref), TreeObject.class);
+        return read(ref, TreeObject.class);
+    }
+
+    /**
+     * Walk down from a tree to the reference of the document at path, or null
+     * if there is no such document
+     */
+    public String resolveDocumentRef(String treeRef, String path) {
+        String key = treeRef + '\u0000' + path;
+        String ret = paths.getIfPresent(key);
+        if (ret != null) {
+            return ret;
+        }
+        TreeObject tObj = getTree(treeRef);
+        String[] parts = path.split("/");
+        for (int i = 0; i < parts.length; i++) {
+            if (tObj == null) {
+                break;
+            }
+            if (i == parts.length - 1) {
+                for (DocumentBagReference bagRef : tObj.getDocuments()) {
+                    DocumentBagObject dObj = getDocumentBag(bagRef.getBagRef());
+                    ret = dObj.getDocRefs().get(parts[i]);
+                    if (ret != null) {
+                        break;
+                    }
+                }
+            } else {
+                tObj = getTree(tObj.getTrees().get(parts[i]));
+            }
+        }
+        if (ret != null) {
+            paths.put(key, ret);
         }
-        return null;
+        return ret;
     }
 
     public String writeCommentary(CommentaryObject comment) {
@@ -95,6 +145,7 @@ public class ObjectDatabase {
     public void writeCommit(CommitObject cObj, String cRef) {
         String json = JacksonUtil.jsonFromObject(cObj);
         store.put(cRef, json);
+        objects.invalidate(cRef);
     }
 
     public String writeDocument(DocumentObject d) {
@@ -103,6 +154,7 @@ public class ObjectDatabase {
 
     public void writeDocument(DocumentObject docObject, String reference) {
         store.put(reference, JacksonUtil.jsonFromObject(docObject));
+        objects.invalidate(reference);
     }
 
     public String writeDocumentBag(DocumentBagObject d) {
@@ -121,9 +173,13 @@ public class ObjectDatabase {
 
     public void writeTree(TreeObject treeObject, String reference) {
         store.put(reference, JacksonUtil.jsonFromObject(treeObject));
+        objects.invalidate(reference);
+        paths.invalidateAll();
     }
 
     public boolean delete(List<String> keys) {
+        objects.invalidateAll(keys);
+        paths.invalidateAll();
         return store.delete(keys);
     }
 
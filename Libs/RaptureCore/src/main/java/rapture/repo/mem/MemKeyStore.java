@@ -28,10 +28,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.Futures;
+
 import rapture.common.RaptureFolderInfo;
 import rapture.common.RaptureQueryResult;
 import rapture.common.exception.RaptNotSupportedException;
@@ -44,9 +48,12 @@ import rapture.repo.StoreKeyVisitor;
 import rapture.table.memory.MemoryIndexHandler;
 import rapture.util.IDGenerator;
 
+/**
+ * An in-memory key store. Keys are held in a concurrent skip list so that readers never block writers, and prefix and start point visits are range
+ * scans rather than walks over every key. Iteration is weakly consistent: a visit sees the store as it is while the visit proceeds.
+ */
 public class MemKeyStore extends AbstractKeyStore implements KeyStore {
-    // Trivial implementation at present - delegate to storage class later
-    private Map<String, String> db;
+    private volatile ConcurrentNavigableMap<String, String> db;
     private String id;
     @SuppressWarnings("unused")
     private static final Logger log = Logger.getLogger(MemKeyStore.class);
@@ -55,12 +62,12 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     }
 
     @Override
-    public synchronized boolean containsKey(String ref) {
-        return db.containsKey(ref);
+    public boolean containsKey(String ref) {
+        return ref != null && db.containsKey(ref);
     }
 
     @Override
-    public synchronized long countKeys() throws RaptNotSupportedException {
+    public long countKeys() throws RaptNotSupportedException {
         return db.size();
     }
 
@@ -73,19 +80,34 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     }
 
     @Override
-    public synchronized boolean delete(String key) {
-        return null != db.remove(key);
+    public boolean delete(String key) {
+        return key != null && null != db.remove(key);
     }
 
     @Override
-    public synchronized boolean dropKeyStore() {
-        db = new HashMap<String, String>();
+    public boolean dropKeyStore() {
+        db = new ConcurrentSkipListMap<String, String>();
         return true;
     }
 
     @Override
-    public synchronized String get(String k) {
-        return db.get(k);
+    public String get(String k) {
+        return (k == null) ? null : db.get(k);
+    }
+
+    @Override
+    public List<String> getBatch(List<String> keys) {
+        // Lookups are in memory, there is nothing to gain from reading in parallel
+        List<String> ret = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            ret.add(get(key));
+        }
+        return ret;
+    }
+
+    @Override
+    public Future<List<String>> getBatchAsync(List<String> keys) {
+        return Futures.immediateFuture(getBatch(keys));
     }
 
     @Override
@@ -94,8 +116,13 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     }
 
     @Override
-    public synchronized void put(String k, String v) {
-        db.put(k, v);
+    public void put(String k, String v) {
+        // the skip list holds neither null keys nor null values, so storing null is a removal
+        if (v == null) {
+            delete(k);
+        } else {
+            db.put(k, v);
+        }
     }
 
     @Override
@@ -108,34 +135,46 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     }
 
     @Override
-    public synchronized void setConfig(Map<String, String> config) {
-        db = new HashMap<String, String>();
+    public void setConfig(Map<String, String> config) {
+        db = new ConcurrentSkipListMap<String, String>();
         id = IDGenerator.getUUID();
     }
 
+    /**
+     * The keys starting with prefix, in key order
+     */
+    private ConcurrentNavigableMap<String, String> withPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return db;
+        }
+        return db.subMap(prefix, true, prefixEnd(prefix), false);
+    }
+
+    /**
+     * The smallest string greater than every string starting with prefix
+     */
+    private static String prefixEnd(String prefix) {
+        return prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1);
+    }
+
     @Override
-    public synchronized void visitKeys(String prefix, StoreKeyVisitor iStoreKeyVisitor) {
-        for (String k : new CopyOnWriteArrayList<>(db.keySet())) {
-            if (k.startsWith(prefix)) {
-                if (!iStoreKeyVisitor.visit(k, db.get(k))) {
-                    break;
-                }
+    public void visitKeys(String prefix, StoreKeyVisitor iStoreKeyVisitor) {
+        for (Map.Entry<String, String> entry : withPrefix(prefix).entrySet()) {
+            if (!iStoreKeyVisitor.visit(entry.getKey(), entry.getValue())) {
+                break;
             }
         }
     }
 
+    /**
+     * Visit the keys after startPoint in key order, or every key if startPoint is null
+     */
     @Override
-    public synchronized void visitKeysFromStart(String startPoint, StoreKeyVisitor iStoreKeyVisitor) {
-        boolean canStart = startPoint == null;
-        for (String k : db.keySet()) {
-            if (canStart) {
-                if (!iStoreKeyVisitor.visit(k, db.get(k))) {
-                    break;
-                }
-            } else {
-                if (k.equals(startPoint)) {
-                    canStart = true;
-                }
+    public void visitKeysFromStart(String startPoint, StoreKeyVisitor iStoreKeyVisitor) {
+        Map<String, String> range = (startPoint == null) ? db : db.tailMap(startPoint, false);
+        for (Map.Entry<String, String> entry : range.entrySet()) {
+            if (!iStoreKeyVisitor.visit(entry.getKey(), entry.getValue())) {
+                break;
             }
         }
     }
@@ -144,30 +183,32 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     public void setInstanceName(String name) {
     }
 
+    /**
+     * Each child folder is a contiguous run of keys, so once one key in it has been seen the scan seeks past the rest of the run.
+     */
     @Override
-    public synchronized List<RaptureFolderInfo> getSubKeys(String prefix) {
+    public List<RaptureFolderInfo> getSubKeys(String prefix) {
         if (!prefix.isEmpty() && !prefix.endsWith("/")) prefix += "/";
-        Map<String, RaptureFolderInfo> retMap = new HashMap<String, RaptureFolderInfo>();
-        for (String key : db.keySet()) {
-            if (key.startsWith(prefix)) {
-                String tail = key.substring(prefix.length());
-                int nextSlash = tail.indexOf('/');
-                String name;
-                if (nextSlash < 0) {
-                    name = tail;
-                } else {
-                    name = tail.substring(0, nextSlash);
-                }
-                if (!name.isEmpty()) {
-                    RaptureFolderInfo info = new RaptureFolderInfo();
-                    info.setName(name);
-                    info.setFolder(nextSlash >= 0);
-                    retMap.put((info.isFolder()) ? name + "/" : name, info);
-                }
+        ConcurrentNavigableMap<String, String> current = db;
+        String end = prefix.isEmpty() ? null : prefixEnd(prefix);
+        List<RaptureFolderInfo> ret = new ArrayList<RaptureFolderInfo>();
+        String key = current.ceilingKey(prefix);
+        while (key != null && (end == null || key.compareTo(end) < 0)) {
+            String tail = key.substring(prefix.length());
+            int nextSlash = tail.indexOf('/');
+            String name = (nextSlash < 0) ? tail : tail.substring(0, nextSlash);
+            if (!name.isEmpty()) {
+                RaptureFolderInfo info = new RaptureFolderInfo();
+                info.setName(name);
+                info.setFolder(nextSlash >= 0);
+                ret.add(info);
+            }
+            if (nextSlash >= 0) {
+                key = current.ceilingKey(prefixEnd(prefix + name + "/"));
+            } else {
+                key = current.higherKey(key);
             }
         }
-        List<RaptureFolderInfo> ret = new ArrayList<RaptureFolderInfo>();
-        ret.addAll(retMap.values());
         return ret;
     }
 
@@ -206,15 +247,13 @@ public class MemKeyStore extends AbstractKeyStore implements KeyStore {
     }
 
     @Override
-    public synchronized List<String> getAllSubKeys(String displayNamePart) {
+    public List<String> getAllSubKeys(String displayNamePart) {
         List<String> ret = new ArrayList<String>();
-        for (String key : db.keySet()) {
-            if (key.startsWith(displayNamePart)) {
-                if (key.length() > displayNamePart.length() + 1) {
-                    ret.add(key.substring(displayNamePart.length()));
-                } else {
-                    // ret.add(key); //TODO do we need this?
-                }
+        for (String key : withPrefix(displayNamePart).keySet()) {
+            if (key.length() > displayNamePart.length() + 1) {
+                ret.add(key.substring(displayNamePart.length()));
+            } else {
+                // ret.add(key); //TODO do we need this?
             }
         }
         return ret;
@@ -39,6 +39,7 @@ import rapture.common.repo.CommentaryObject;
 import rapture.common.repo.CommitObject;
 import rapture.common.repo.DocumentObject;
 import rapture.common.repo.TreeObject;
+import rapture.config.ConfigLoader;
 import rapture.dsl.dparse.BaseDirective;
 import rapture.index.IndexHandler;
 import rapture.index.IndexProducer;
@@ -47,6 +48,7 @@ import rapture.repo.RepoVisitor;
 import rapture.repo.Repository;
 import rapture.repo.stage.Stage;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -57,15 +59,24 @@ import com.google.common.base.Optional;
  * main, it looks to the shadow and goes to that, and if it finds something it
  * will put it in main (which is assumed to be "cache")
  *
+ * Document content is also held in an in-process {@link DocumentCache} in
+ * front of both, which is invalidated whenever this repo changes a document.
+ *
  * @author amkimian
  */
 public class CachedRepo implements Repository {
 	private Repository main;
 	private Repository shadow;
+	private DocumentCache documentCache;
 
 	public CachedRepo(Repository mainRepo, Repository shadowRepo) {
 		this.main = mainRepo;
 		this.shadow = shadowRepo;
+		this.documentCache = new DocumentCache(ConfigLoader.getConf().DocumentCacheMaxBytes);
+	}
+
+	public DocumentCache getDocumentCache() {
+		return documentCache;
 	}
 
 	@Override
@@ -81,6 +92,7 @@ public class CachedRepo implements Repository {
 		DocumentWithMeta ver = main.addDocument(key, value, user, comment,
 				mustBeNew);
 		shadow.addDocument(key, value, user, comment, mustBeNew);
+		documentCache.invalidate(key);
 		return ver;
 	}
 
@@ -88,6 +100,9 @@ public class CachedRepo implements Repository {
 	public void addDocuments(List<String> dispNames, String content,
 			String user, String comment) {
 		shadow.addDocuments(dispNames, content, user, comment);
+		for (String dispName : dispNames) {
+			documentCache.invalidate(dispName);
+		}
 	}
 
 	@Override
@@ -106,6 +121,7 @@ public class CachedRepo implements Repository {
 	public void commitStage(String stage, String user, String comment) {
 		main.commitStage(stage, user, comment);
 		shadow.commitStage(stage, user, comment);
+		documentCache.invalidateAll();
 	}
 
 	@Override
@@ -129,6 +145,7 @@ public class CachedRepo implements Repository {
 		// Drop them both
 		main.drop();
 		shadow.drop();
+		documentCache.invalidateAll();
 	}
 
 	@Override
@@ -153,18 +170,27 @@ public class CachedRepo implements Repository {
 
 	@Override
 	public String getDocument(String key) {
-		String content = main.getDocument(key);
+		String content = documentCache.get(key);
+		if (content != null) {
+			return content;
+		}
+		long generation = documentCache.generation(key);
+		content = main.getDocument(key);
 		if (content == null) {
 			content = shadow.getDocument(key);
 			if (content != null) {
 				main.addDocument(key, content, "cache", "Set from cache", true);
 			}
 		}
+		documentCache.put(key, content, generation);
 		return content;
 	}
 
 	@Override
 	public String getDocument(String key, BaseDirective directive) {
+		if (directive == null) {
+			return getDocument(key);
+		}
 		String content = main.getDocument(key);
 		if (content == null) {
 			content = shadow.getDocument(key);
@@ -182,7 +208,31 @@ public class CachedRepo implements Repository {
 
 	@Override
 	public List<String> getDocuments(List<String> keys) {
-		return shadow.getDocuments(keys);
+		List<String> contents = new ArrayList<String>(keys.size());
+		List<String> missing = new ArrayList<String>();
+		List<Long> generations = new ArrayList<Long>();
+		for (String key : keys) {
+			String content = documentCache.get(key);
+			contents.add(content);
+			if (content == null) {
+				missing.add(key);
+				generations.add(documentCache.generation(key));
+			}
+		}
+		if (missing.isEmpty()) {
+			return contents;
+		}
+		List<String> fetched = shadow.getDocuments(missing);
+		int next = 0;
+		for (int i = 0; i < contents.size(); i++) {
+			if (contents.get(i) == null) {
+				String content = fetched.get(next);
+				contents.set(i, content);
+				documentCache.put(keys.get(i), content, generations.get(next));
+				next++;
+			}
+		}
+		return contents;
 	}
 
 	@Override
@@ -218,6 +268,7 @@ public class CachedRepo implements Repository {
 	public boolean removeDocument(String key, String user, String comment) {
 		boolean ret = main.removeDocument(key, user, comment);
 		shadow.removeDocument(key, user, comment);
+		documentCache.invalidate(key);
 		return ret;
 	}
 
@@ -313,7 +364,9 @@ public class CachedRepo implements Repository {
 
 	@Override
 	public DocumentWithMeta revertDoc(String disp, BaseDirective directive) {
-		return shadow.revertDoc(disp, directive);
+		DocumentWithMeta dwm = shadow.revertDoc(disp, directive);
+		documentCache.invalidate(disp);
+		return dwm;
 	}
 
 	@Override
@@ -323,6 +376,7 @@ public class CachedRepo implements Repository {
 				comment, mustBeNew, expectedVersion);
 		shadow.addDocumentWithVersion(disp, content, user, comment, mustBeNew,
 				expectedVersion);
+		documentCache.invalidate(disp);
 		return ret;
 	}
 
@@ -334,7 +388,9 @@ public class CachedRepo implements Repository {
 	@Override
 	public List<RaptureFolderInfo> removeChildren(String area, Boolean force) {
 		shadow.removeChildren(area, force);
-		return main.removeChildren(area, force);
+		List<RaptureFolderInfo> ret = main.removeChildren(area, force);
+		documentCache.invalidateAll();
+		return ret;
 	}
 
 	@Override
@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.repo.meta;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+import rapture.kernel.Kernel;
+
+/**
+ * An in-process, size bounded cache of document content, used by a {@link CachedRepo} in front of its cache and shadow repositories. Entries are evicted
+ * least recently used first once the total size of the cached content passes the limit. Content read from the store is only cached if no invalidation
+ * of its key happened while it was being read.
+ * <p>
+ * Once bound to the authority of the repo it caches, every invalidation is published to the other kernels, and
+ * {@link rapture.kernel.cache.DocRepoCache} applies the invalidations it receives to its own repos.
+ */
+public class DocumentCache {
+    public static final String TYPE = "documentCache";
+    public static final String AUTHORITY = "authority";
+    public static final String KEY = "key";
+
+    private static final Logger log = Logger.getLogger(DocumentCache.class);
+    private static final int STRIPES = 64;
+
+    private final Cache<String, String> cache;
+    // Bumped by every invalidation of a key in the stripe, so that a fill racing with it can tell
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private volatile String authority;
+
+    public DocumentCache(long maxBytes) {
+        cache = CacheBuilder.newBuilder().maximumWeight(maxBytes).weigher(new Weigher<String, String>() {
+            @Override
+            public int weigh(String key, String content) {
+                return 2 * (key.length() + content.length());
+            }
+        }).removalListener(new RemovalListener<String, String>() {
+            @Override
+            public void onRemoval(RemovalNotification<String, String> notification) {
+                if (notification.wasEvicted()) {
+                    count("evictions");
+                }
+            }
+        }).build();
+    }
+
+    /**
+     * Associate this cache with a document repo authority, so that its invalidations reach the other kernels caching the same repo
+     */
+    public void bind(String authority) {
+        this.authority = authority;
+    }
+
+    public String getAuthority() {
+        return authority;
+    }
+
+    public String get(String key) {
+        String content = cache.getIfPresent(key);
+        count((content == null) ? "misses" : "hits");
+        return content;
+    }
+
+    /**
+     * The invalidation generation for a key. Take it before reading a document from the store, and pass it to
+     * {@link #put(String, String, long)} with what was read.
+     */
+    public long generation(String key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * Cache content read from the store, unless the key was invalidated since the generation was taken. The content could then be older than the
+     * change that invalidated it.
+     */
+    public void put(String key, String content, long generation) {
+        if (content == null || generations.get(stripe(key)) != generation) {
+            return;
+        }
+        cache.put(key, content);
+        // An invalidation may have landed between the check and the put. It bumps the generation before it drops the entry, so either it drops what
+        // was just put or it shows up here.
+        if (generations.get(stripe(key)) != generation) {
+            cache.asMap().remove(key, content);
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Drop a document that has been changed here, and tell the other kernels
+     */
+    public void invalidate(String key) {
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+        publish(key);
+    }
+
+    /**
+     * Drop every document, after a change whose keys are not known, and tell the other kernels
+     */
+    public void invalidateAll() {
+        bumpAll();
+        cache.invalidateAll();
+        publish(null);
+    }
+
+    /**
+     * Apply an invalidation published by another kernel. A null key drops every document.
+     */
+    public void invalidateLocal(String key) {
+        if (key == null) {
+            bumpAll();
+            cache.invalidateAll();
+        } else {
+            generations.incrementAndGet(stripe(key));
+            cache.invalidate(key);
+        }
+    }
+
+    private void bumpAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    private static int stripe(String key) {
+        return key.hashCode() & (STRIPES - 1);
+    }
+
+    private void publish(String key) {
+        if (authority == null || Kernel.getTypeChangeManager() == null) {
+            return;
+        }
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(AUTHORITY, authority);
+        if (key != null) {
+            attributes.put(KEY, key);
+        }
+        try {
+            Kernel.getTypeChangeManager().publishMessage(TYPE, attributes);
+        } catch (Exception e) {
+            log.warn("Could not publish document cache invalidation for " + authority + ": " + e.getMessage());
+        }
+    }
+
+    private void count(String what) {
+        Kernel.getMetricsService().recordCount("cacheMetrics.document." + ((authority == null) ? "unbound" : authority) + "." + what, 1L);
+    }
+}
@@ -28,6 +28,7 @@ import rapture.common.impl.jackson.JacksonUtil;
 import rapture.common.model.DocumentMetadata;
 import rapture.common.model.DocumentWithMeta;
 import rapture.repo.KeyStore;
+import rapture.repo.KeyStoreBatchExecutor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +36,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author bardhi
@@ -96,9 +98,10 @@ public class UnversionedMetaHandler extends AbstractMetaHandler {
         }
 
         List<Integer> latestPositionList = new ArrayList<Integer>(latestKeys.keySet());
-        List<String> latestContents = documentStore.getBatch(new ArrayList<String>(latestKeys.values()));
+        // Read the content in the background while the metadata is read here
+        Future<List<String>> latestContents = documentStore.getBatchAsync(new ArrayList<String>(latestKeys.values()));
         List<String> latestMeta = metaStore.getBatch(latestKeysWithVersion);
-        constructDocumentWithMetaList(ret, uris, latestPositionList, latestContents, latestMeta);
+        constructDocumentWithMetaList(ret, uris, latestPositionList, KeyStoreBatchExecutor.await(latestContents), latestMeta);
 
         return Arrays.asList(ret);
     }
@@ -33,6 +33,7 @@ import rapture.common.model.DocumentWithMeta;
 import rapture.dsl.dparse.AsOfTimeDirectiveParser;
 import rapture.index.IndexProducer;
 import rapture.repo.KeyStore;
+import rapture.repo.KeyStoreBatchExecutor;
 import rapture.repo.Messages;
 import rapture.repo.RepoUtil;
 
@@ -43,6 +44,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * This class handle the bringing together of three key stores - for latest
@@ -251,15 +253,17 @@ public class VersionedMetaHandler extends AbstractMetaHandler {
 
         List<String> versionedKeysList = new ArrayList<String>(versionedKeys.values());
         List<Integer> versionedPositionList = new ArrayList<Integer>(versionedKeys.keySet());
-        List<String> versionedContents = versionStore.getBatch(versionedKeysList);
-        List<String> versionedMeta = metaStore.getBatch(versionedKeysList);
-        constructDocumentWithMetaList(ret, uris, versionedPositionList, versionedContents, versionedMeta);
-
         List<Integer> latestPositionList = new ArrayList<Integer>(latestKeys.keySet());
-        List<String> latestContents = documentStore.getBatch(new ArrayList<String>(latestKeys.values()));
 
+        // Issue all of the batch reads together rather than one after another
+        Future<List<String>> versionedContents = versionStore.getBatchAsync(versionedKeysList);
+        Future<List<String>> versionedMeta = metaStore.getBatchAsync(versionedKeysList);
+        Future<List<String>> latestContents = documentStore.getBatchAsync(new ArrayList<String>(latestKeys.values()));
         List<String> latestMeta = metaStore.getBatch(latestKeysWithVersion);
-        constructDocumentWithMetaList(ret, uris, latestPositionList, latestContents, latestMeta);
+
+        constructDocumentWithMetaList(ret, uris, versionedPositionList, KeyStoreBatchExecutor.await(versionedContents),
+                KeyStoreBatchExecutor.await(versionedMeta));
+        constructDocumentWithMetaList(ret, uris, latestPositionList, KeyStoreBatchExecutor.await(latestContents), latestMeta);
 
         return Arrays.asList(ret);
     }
@@ -142,17 +142,29 @@ public class StageTree {
                         found = true;
                         DocumentObject dob = rp.getObjectDatabase().getDocument(d.getValue());
                         if (cRef.equals(dob.getCommitRef())) {
-                            stagedDocuments.put(d.getKey(), rp.getObjectDatabase().getDocument(d.getValue()));
+                            stagedDocuments.put(d.getKey(), copyOf(dob));
                         }
                     }
                 }
             }
             if (!found) {
-                stagedDocuments.put(d.getKey(), rp.getObjectDatabase().getDocument(d.getValue()));
+                stagedDocuments.put(d.getKey(), copyOf(rp.getObjectDatabase().getDocument(d.getValue())));
             }
         }
     }
 
+    /**
+     * Documents from the object database are shared, and committing a stage sets the commit reference on what was staged, so stage a copy
+     */
+    private static DocumentObject copyOf(DocumentObject doc) {
+        DocumentObject copy = new DocumentObject();
+        copy.setContent(doc.getContent());
+        copy.setCommitRef(doc.getCommitRef());
+        copy.setPreviousReference(doc.getPreviousReference());
+        copy.setCommentaryReferences(new LinkedList<String>(doc.getCommentaryReferences()));
+        return copy;
+    }
+
     private void mergeStageTree(VersionedRepo rp, String cRef, Map.Entry<String, String> t) {
         // They are different, we need to merge them
         StageTree st = new StageTree(rp.getObjectDatabase().getTree(shadow.getTrees().get(t.getKey())), capacity);
@@ -294,7 +306,9 @@ public class StageTree {
             Set<String> refsToSave) {
         for (DocumentBagReference docRef : shadow.getDocuments()) {
             refsToSave.add(docRef.getBagRef());
-            DocumentBagObject dbo = rp.getObjectDatabase().getDocumentBag(docRef.getBagRef());
+            // Bags from the object database are shared, so edit a copy
+            DocumentBagObject dbo = new DocumentBagObject();
+            dbo.getDocRefs().putAll(rp.getObjectDatabase().getDocumentBag(docRef.getBagRef()).getDocRefs());
             boolean changed = false;
             for (String key : stagedDocuments.keySet()) {
                 if (dbo.getDocRefs().containsKey(key)) {
@@ -38,6 +38,7 @@ import reflex.IReflexScriptHandler;
  */
 public class ReflexIncludeHelper implements IReflexScriptHandler {
     private CallingContext ctx;
+    private boolean included = false;
 
     public ReflexIncludeHelper(CallingContext ctx) {
         this.ctx = ctx;
@@ -45,10 +46,18 @@ public class ReflexIncludeHelper implements IReflexScriptHandler {
 
     @Override
     public String getScript(String name) {
+        included = true;
         RaptureScript script = Kernel.getScript().getScript(ctx, "//" + name);
         return script.getScript();
     }
 
+    /**
+     * Whether any script has been included through this helper
+     */
+    public boolean hasIncluded() {
+        return included;
+    }
+
     @Override
     public boolean hasCapability() {
         return true;
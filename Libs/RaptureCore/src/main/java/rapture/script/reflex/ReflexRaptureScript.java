@@ -31,8 +31,6 @@ import java.util.Map;
 import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
-import org.antlr.runtime.tree.CommonTree;
-import org.antlr.runtime.tree.CommonTreeNodeStream;
 import org.apache.log4j.Logger;
 
 import rapture.common.CallingContext;
@@ -100,7 +98,7 @@ public class ReflexRaptureScript implements IRaptureScript {
         walker.currentScope.assign("_params", new ReflexValue(extra));
     }
 
-    private ReflexTreeWalker getParserWithStandardContext(CallingContext context, String script, Map<String, ?> extra) throws RecognitionException {
+    private ReflexTreeWalker getParserWithStandardContext(CallingContext context, RaptureScript script, Map<String, ?> extra) throws RecognitionException {
         ReflexTreeWalker walker = getStandardWalker(context, script);
         if (extra != null && !extra.isEmpty()) {
             addObjectExtra(walker, extra);
@@ -119,22 +117,13 @@ public class ReflexRaptureScript implements IRaptureScript {
         return parser;
     }
 
-    private ReflexTreeWalker getStandardWalker(CallingContext ctx, String script) throws RecognitionException {
-        ReflexLexer lexer = new ReflexLexer();
-        lexer.dataHandler = new ReflexIncludeHelper(ctx);
-        lexer.setCharStream(new ANTLRStringStream(script));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        ReflexParser parser = new ReflexParser(tokens);
-        CommonTree tree;
-        tree = (CommonTree) parser.parse().getTree();
-        CommonTreeNodeStream nodes = new CommonTreeNodeStream(tree);
-        ReflexTreeWalker walker = new ReflexTreeWalker(nodes, parser.languageRegistry);
+    private ReflexTreeWalker getStandardWalker(CallingContext ctx, RaptureScript script) throws RecognitionException {
+        ReflexTreeWalker walker = ReflexScriptCache.INSTANCE.getWalker(ctx, getScriptName(script), script.getScript());
         walker.setReflexHandler(new AddingOutputReflexHandler());
         walker.getReflexHandler().setOutputHandler(new SimpleCollectingOutputHandler());
         walker.getReflexHandler().setOutputHandler(new DummyReflexOutputHandler());
         walker.getReflexHandler().setDataHandler(new ReflexDataHelper(ctx));
         walker.getReflexHandler().setIOHandler(new BlobOnlyIOHandler());
-        walker.setScriptInfo(parser.scriptInfo);
         return walker;
     }
 
@@ -144,7 +133,7 @@ public class ReflexRaptureScript implements IRaptureScript {
         // A filter is basically a program that returns true or false. No return
         // is equivalent to false
         try {
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), parameters);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, parameters);
             ReflexNode res = walker.walk();
             return res.evaluateWithoutScope(new NullDebugger()).asBoolean();
         } catch (RecognitionException e) {
@@ -157,7 +146,7 @@ public class ReflexRaptureScript implements IRaptureScript {
     @Override
     public void runIndexEntry(CallingContext context, RaptureScript script, IndexHandler indexHandler, RaptureDataContext data) {
         try {
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), null);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, null);
             walker.currentScope.assign("_data", new ReflexValue(JacksonUtil.getHashFromObject(data)));
             walker.currentScope.assign("_index", new ReflexValue(indexHandler));
             ReflexNode res = walker.walk();
@@ -172,7 +161,7 @@ public class ReflexRaptureScript implements IRaptureScript {
     @Override
     public List<Object> runMap(CallingContext context, RaptureScript script, RaptureDataContext data, Map<String, Object> parameters) {
         try {
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), parameters);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, parameters);
             walker.currentScope.assign("_data", new ReflexValue(JacksonUtil.getHashFromObject(data)));
             ReflexNode res = walker.walk();
             List<ReflexValue> ret = res.evaluateWithoutScope(new NullDebugger()).asList();
@@ -191,7 +180,7 @@ public class ReflexRaptureScript implements IRaptureScript {
     @Override
     public String runOperation(CallingContext context, RaptureScript script, String ctx, Map<String, Object> params) {
         try {
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), params);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, params);
             walker.currentScope.assign("_ctx", new ReflexValue(ctx));
             ReflexNode res = walker.walk();
             return res.evaluateWithoutScope(new NullDebugger()).toString();
@@ -289,7 +278,7 @@ public class ReflexRaptureScript implements IRaptureScript {
     private ScriptResult _doRunProgram(CallingContext context, IActivityInfo activity, RaptureScript script, Map<String, Object> params, int timeout,
             ScriptRunInfoCollector collector) throws RecognitionException, ReflexException {
         ScriptResult res = new ScriptResult();
-        ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), params);
+        ReflexTreeWalker walker = getParserWithStandardContext(context, script, params);
         ProgressDebugger progress = (timeout > 0) ? new TimeoutReflexDebugger(activity, script.getScript(), timeout)
                 : new ProgressDebugger(activity, script.getScript());
         // Setup an alternate output handler, and a standard data handler
@@ -438,7 +427,7 @@ public class ReflexRaptureScript implements IRaptureScript {
             PipelineReflexSuspendHandler suspendHandler, IReflexOutputHandler outputHandler) {
         try {
             ScriptResult result = new ScriptResult();
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), extraVals);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, extraVals);
             walker.getReflexHandler().setSuspendHandler(suspendHandler);
             if (outputHandler != null) {
                 walker.getReflexHandler().setOutputHandler(outputHandler);
@@ -472,7 +461,7 @@ public class ReflexRaptureScript implements IRaptureScript {
     public String runProgramWithResume(CallingContext context, RaptureScript script, IActivityInfo activity, Map<String, Object> extraVals,
             PipelineReflexSuspendHandler suspendHandler, IReflexOutputHandler outputHandler, String scopeContext) {
         try {
-            ReflexTreeWalker walker = getParserWithStandardContext(context, script.getScript(), extraVals);
+            ReflexTreeWalker walker = getParserWithStandardContext(context, script, extraVals);
             walker.getReflexHandler().setSuspendHandler(suspendHandler);
             walker.getReflexHandler().setOutputHandler(outputHandler);
             ReflexNode res = walker.walk();
@@ -501,7 +490,7 @@ public class ReflexRaptureScript implements IRaptureScript {
             // We call this as it parses the program and throws an exception if
             // the script
             // is not parseable.
-            getStandardWalker(context, script.getScript());
+            getStandardWalker(context, script);
         } catch (Exception e) {
             e.printStackTrace();
             if (e.getMessage() == null) {
@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.script.reflex;
+
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.CommonTreeNodeStream;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import rapture.common.CallingContext;
+import reflex.MetaScriptInfo;
+import reflex.ReflexLexer;
+import reflex.ReflexParser;
+import reflex.ReflexTreeWalker;
+import reflex.util.function.LanguageRegistry;
+
+/**
+ * Parsed Reflex scripts, keyed by script name and a hash of the script content, so that a script run many times is lexed and parsed once. Each run still
+ * walks the cached syntax tree to build its own nodes, bound to its own scope and handler, in the same way that a function call walks the tree of the function
+ * body.
+ * <p>
+ * Scripts that include other scripts are not cached, as the included scripts are read (with the entitlements of the caller) while lexing.
+ */
+public enum ReflexScriptCache {
+    INSTANCE;
+
+    private static final int MAX_SCRIPTS = 1000;
+
+    private static final class ParsedScript {
+        private final CommonTree tree;
+        private final LanguageRegistry registry;
+        private final MetaScriptInfo scriptInfo;
+
+        private ParsedScript(CommonTree tree, LanguageRegistry registry, MetaScriptInfo scriptInfo) {
+            this.tree = tree;
+            this.registry = registry;
+            this.scriptInfo = scriptInfo;
+        }
+
+        private ReflexTreeWalker newWalker() {
+            ReflexTreeWalker walker = new ReflexTreeWalker(new CommonTreeNodeStream(tree), new LanguageRegistry(registry));
+            walker.setScriptInfo(scriptInfo);
+            return walker;
+        }
+    }
+
+    private final Cache<String, ParsedScript> scripts = CacheBuilder.newBuilder().maximumSize(MAX_SCRIPTS).build();
+
+    /**
+     * Return a new walker over the parsed form of a script, parsing it first if it is not already cached. The walker has its script info set but no handler.
+     */
+    public ReflexTreeWalker getWalker(CallingContext ctx, String name, String script) throws RecognitionException {
+        String key = name + "@" + Hashing.sha256().hashString(script, StandardCharsets.UTF_8);
+        ParsedScript parsed = scripts.getIfPresent(key);
+        if (parsed == null) {
+            ReflexIncludeHelper includeHelper = new ReflexIncludeHelper(ctx);
+            ReflexLexer lexer = new ReflexLexer();
+            lexer.dataHandler = includeHelper;
+            lexer.setCharStream(new ANTLRStringStream(script));
+            ReflexParser parser = new ReflexParser(new CommonTokenStream(lexer));
+            CommonTree tree = (CommonTree) parser.parse().getTree();
+            parsed = new ParsedScript(tree, parser.languageRegistry, parser.scriptInfo);
+            if (!includeHelper.hasIncluded()) {
+                scripts.put(key, parsed);
+            }
+        }
+        return parsed.newWalker();
+    }
+
+    public long size() {
+        return scripts.size();
+    }
+
+    public void clear() {
+        scripts.invalidateAll();
+    }
+}
@@ -40,6 +40,7 @@ import rapture.generated.SRapGenParser;
 import rapture.repo.RepoFactory;
 import rapture.series.config.ConfigValidatorService;
 import rapture.series.config.InvalidConfigException;
+import rapture.series.file.FileSeriesStore;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -90,6 +91,10 @@ public class SeriesFactory {
         SRapGenLexer.CSV, "rapture.series.mem.CSVSeriesStore",
 	    SRapGenLexer.FILE, "rapture.series.file.FileSeriesStore");
 
+    private static final String SEGMENTED_FILE_STORE = "rapture.series.file.SegmentedFileSeriesStore";
+    private static final String BUCKETED_MONGO_STORE = "rapture.series.mongo.BucketedMongoSeriesStore";
+    private static final String BUCKETED = "bucketed";
+
     private static SeriesStore createSeriesStore(String className, String instanceName, Map<String, String> config) {
         try {
             Class<?> seriesClass = Class.forName(className);
@@ -113,8 +118,16 @@ public class SeriesFactory {
         // parser should have everything we want now
         int storeType = parser.getStoreType();
         if (keyStoreImplementationMap.containsKey(storeType)) {
+            Map<String, String> config = parser.getConfig().getConfig();
+            String className = keyStoreImplementationMap.get(storeType);
+            if (storeType == SRapGenLexer.FILE && FileSeriesStore.SEGMENTED.equals(config.get(FileSeriesStore.FORMAT))) {
+                className = SEGMENTED_FILE_STORE;
+            }
+            if (storeType == SRapGenLexer.MONGODB && BUCKETED.equals(config.get(FileSeriesStore.FORMAT))) {
+                className = BUCKETED_MONGO_STORE;
+            }
         	// TODO: Alan - why was this authority as the instanceName?
-            return createSeriesStore(keyStoreImplementationMap.get(storeType), "default", parser.getConfig().getConfig());
+            return createSeriesStore(className, "default", config);
         } else {
             throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Unsupported key store type");
         }
@@ -25,6 +25,9 @@ package rapture.series.config;
 
 import java.util.Map;
 
+import rapture.series.file.FileSeriesStore;
+import rapture.series.file.SegmentedFileSeriesStore;
+
 public class FileConfigValidator implements ConfigValidator{
 
     @Override
@@ -33,6 +36,18 @@ public class FileConfigValidator implements ConfigValidator{
         if ((filePath == null) || filePath.isEmpty()) {
             throw new InvalidConfigException("Mandatory argument prefix missing");
         }
+        String format = configMap.get(FileSeriesStore.FORMAT);
+        if ((format != null) && !FileSeriesStore.FLAT.equals(format) && !FileSeriesStore.SEGMENTED.equals(format)) {
+            throw new InvalidConfigException("Unknown format " + format + ", expected " + FileSeriesStore.FLAT + " or " + FileSeriesStore.SEGMENTED);
+        }
+        String compactAfter = configMap.get(SegmentedFileSeriesStore.COMPACT_AFTER);
+        if (compactAfter != null) {
+            try {
+                if (Integer.parseInt(compactAfter) <= 0) throw new InvalidConfigException("compactAfter must be positive");
+            } catch (NumberFormatException e) {
+                throw new InvalidConfigException("compactAfter must be a number");
+            }
+        }
     }
 
 }
@@ -40,6 +40,9 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 // TODO Not convinced that rapture.series.mem is the best package name for this
 // but if it moves then the class's full package name is hard coded as a String in a couple of places.
 
@@ -78,6 +81,12 @@ public class FileSeriesStore extends AbstractSeriesStore {
     }
 
     public static final String PREFIX = "prefix";
+    /**
+     * Optional config key selecting the on-disk layout: {@link #FLAT} (the default) or {@link #SEGMENTED}
+     */
+    public static final String FORMAT = "format";
+    public static final String FLAT = "flat";
+    public static final String SEGMENTED = "segmented";
     // Not sure what this is
     private final ChildrenRepo childrenRepo;
     private File parentDir = null;
@@ -99,6 +108,25 @@ public class FileSeriesStore extends AbstractSeriesStore {
 
     private String instanceName = "default";
 
+    /**
+     * A mapping of a series file, with the length and modification time the file had when it was mapped
+     */
+    private static final class Mapping {
+        private final long length;
+        private final long modified;
+        private final MappedSeriesFile file;
+
+        private Mapping(long length, long modified, MappedSeriesFile file) {
+            this.length = length;
+            this.modified = modified;
+            this.file = file;
+        }
+    }
+
+    private static final int MAPPED_FILES = 256;
+    // Reads reuse the mapping of a file until it is rewritten here, or its length or modification time show it was changed elsewhere
+    private final Cache<File, Mapping> mappings = CacheBuilder.newBuilder().maximumSize(MAPPED_FILES).build();
+
     public FileSeriesStore() {
         this.childrenRepo = new ChildrenRepo() {
 
@@ -134,10 +162,29 @@ public class FileSeriesStore extends AbstractSeriesStore {
         parentDir = FileRepoUtils.ensureDirectory(prefix + "_series");
     }
 
+    /**
+     * The file holding the series with the given key
+     */
+    protected File getSeriesFile(String key) {
+        return FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+    }
+
     @Override
     public void drop() {
         if (parentDir != null) FileUtils.deleteQuietly(parentDir);
         parentDir = null;
+        mappings.invalidateAll();
+    }
+
+    private MappedSeriesFile mapped(File seriesFile) throws IOException {
+        long length = seriesFile.length();
+        long modified = seriesFile.lastModified();
+        Mapping mapping = mappings.getIfPresent(seriesFile);
+        if ((mapping == null) || (mapping.length != length) || (mapping.modified != modified)) {
+            mapping = new Mapping(length, modified, MappedSeriesFile.open(seriesFile));
+            mappings.put(seriesFile, mapping);
+        }
+        return mapping.file;
     }
 
     /**
@@ -148,7 +195,7 @@ public class FileSeriesStore extends AbstractSeriesStore {
      * @return
      */
     protected Collection<SeriesValue> readSeriesSorted(String key, boolean direction) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key);
+        File seriesFile = getSeriesFile(key);
         if (!seriesFile.isFile()) return new ArrayList<>();
         TreeSet<SeriesValue> series = new TreeSet<>((direction) ? forwards : backwards);
         try {
@@ -175,7 +222,7 @@ public class FileSeriesStore extends AbstractSeriesStore {
      * @return
      */
     protected boolean writeSeries(String key, Collection<SeriesValue> values) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+        File seriesFile = getSeriesFile(key);
         if (!seriesFile.exists()) try {
             if ((!seriesFile.getParentFile().isDirectory() && !seriesFile.getParentFile().mkdirs())
                     || !seriesFile.createNewFile()) throw RaptureExceptionFactory
@@ -209,6 +256,8 @@ public class FileSeriesStore extends AbstractSeriesStore {
             // put it back
             seriesFile.renameTo(new File(path));
             return false;
+        } finally {
+            mappings.invalidate(seriesFile);
         }
         backupFile.delete();
         return true;
@@ -281,7 +330,7 @@ public class FileSeriesStore extends AbstractSeriesStore {
 
     @Override
     public boolean deletePointsFromSeriesByPointKey(String key, List<String> pointKeys) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+        File seriesFile = getSeriesFile(key);
         if ((pointKeys == null) || pointKeys.isEmpty() || !seriesFile.isFile()) return true;
         List<SeriesValue> series = getPoints(key);
         if (series == null) return true;
@@ -298,9 +347,13 @@ public class FileSeriesStore extends AbstractSeriesStore {
 
     @Override
     public boolean deletePointsFromSeries(String key) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+        File seriesFile = getSeriesFile(key);
         if (!seriesFile.isFile()) return false;
-        return seriesFile.delete();
+        try {
+            return seriesFile.delete();
+        } finally {
+            mappings.invalidate(seriesFile);
+        }
     }
 
     @Override
@@ -319,51 +372,33 @@ public class FileSeriesStore extends AbstractSeriesStore {
     }
 
     public List<SeriesValue> getPointsAfterReverse(String key, String startColumn, String endColumn, int maxNumber) {
-        List<SeriesValue> series = new ArrayList<>(); // or ((maxNumber > values.size()) ? values.size() : maxNumber);
-        boolean found = false;
+        File seriesFile = getSeriesFile(key);
+        if (!seriesFile.isFile()) return new ArrayList<>();
         int limit = (maxNumber > overflowLimit) ? overflowLimit : maxNumber;
-        for (SeriesValue value : readSeriesSorted(key, false)) {
-            if (!found) {
-                if (value.getColumn().equals(startColumn)) {
-                    found = true;
-                } else continue;
-            }
-            series.add(value);
-            if (series.size() == limit) break;
-            if ((endColumn != null) && value.getColumn().equals(endColumn)) break;
+        try {
+            return mapped(seriesFile).read(startColumn, endColumn, limit, true);
+        } catch (IOException e) {
+            log.debug(ExceptionToString.format(e));
+            throw RaptureExceptionFactory.create("Cannot read Series " + key, e);
         }
-        return series;
     }
 
+    /**
+     * Points are located by binary search over the memory mapped series file, so only the points returned are decoded and paging through a series with
+     * {@link #getRangeAsIteration(String, String, String, int)} costs a seek per page rather than a parse of the whole file.
+     */
     @Override
     public List<SeriesValue> getPointsAfter(String key, String startColumn, String endColumn, int maxNumber) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+        File seriesFile = getSeriesFile(key);
         if (!seriesFile.exists()) return new ArrayList<>();
         if (!seriesFile.isFile()) throw RaptureExceptionFactory.create("For FILE implementation you can't have a Series with the same name as a Folder");
-        List<SeriesValue> series = new ArrayList<>();
         int limit = (maxNumber > overflowLimit) ? overflowLimit : maxNumber;
-        boolean found = (startColumn == null);
         try {
-            List<String> lines = Files.readAllLines(seriesFile.toPath(), StandardCharsets.UTF_8);
-            for (String line : lines) {
-                char c = line.charAt(0);
-                int i = line.indexOf(c, 1);
-                String column = line.substring(1, i);
-                byte[] bytes = line.substring(i + 1).getBytes();
-                SeriesValue value = SeriesValueCodec.decode(column, bytes);
-                if (!found) {
-                    if (!value.getColumn().equals(startColumn)) continue;
-                    found = true;
-                }
-                series.add(value);
-                if (series.size() == limit) break;
-                if ((endColumn != null) && value.getColumn().equals(endColumn)) break;
-            }
+            return mapped(seriesFile).read(startColumn, endColumn, limit, false);
         } catch (IOException e) {
             log.debug(ExceptionToString.format(e));
             throw RaptureExceptionFactory.create("Cannot read Series " + key, e);
         }
-        return series;
     }
 
     @Override
@@ -406,6 +441,8 @@ public class FileSeriesStore extends AbstractSeriesStore {
         List<RaptureFolderInfo> info = new ArrayList<>((children == null) ? 0 : children.length);
         if ((children != null) && (children.length > 0)) {
             for (File kid : children) {
+                // Only files ending in a colon are series; anything else is a backup or a segment belonging to one
+                if (!kid.isDirectory() && !kid.getName().endsWith(String.valueOf(Parser.COLON_CHAR))) continue;
                 RaptureFolderInfo inf = new RaptureFolderInfo();
                 if (kid.isDirectory()) {
                     inf.setName(kid.getName());
@@ -433,18 +470,11 @@ public class FileSeriesStore extends AbstractSeriesStore {
 
     @Override
     public SeriesValue getLastPoint(String key) {
-        File seriesFile = FileRepoUtils.makeGenericFile(parentDir, key + Parser.COLON_CHAR);
+        File seriesFile = getSeriesFile(key);
         if (!seriesFile.isFile()) return null;
         try {
-            List<String> lines = Files.readAllLines(seriesFile.toPath(), StandardCharsets.UTF_8);
-            if (!lines.isEmpty()) {
-                String line = lines.get(lines.size() - 1);
-                char c = line.charAt(0);
-                int i = line.indexOf(c, 1);
-                String column = line.substring(1, i);
-                byte[] bytes = line.substring(i + 1).getBytes();
-                return SeriesValueCodec.decode(column, bytes);
-            }
+            List<SeriesValue> last = mapped(seriesFile).read(null, null, 1, true);
+            if (!last.isEmpty()) return last.get(0);
         } catch (IOException e) {
             log.debug(ExceptionToString.format(e));
         }
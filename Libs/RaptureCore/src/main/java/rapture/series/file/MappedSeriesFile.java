@@ -0,0 +1,250 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.AbstractIterator;
+
+import rapture.common.SeriesValue;
+
+/**
+ * A read-only, memory mapped view of a series file whose lines are in column order (a flat FILE series or the base segment of a segmented one).
+ * <p>
+ * Columns are located by binary search over byte offsets, re-synchronising on the newline before each probe, so only the handful of columns compared on
+ * the way down and the points actually returned are ever decoded. Files larger than 2GB are mapped as several regions.
+ */
+class MappedSeriesFile {
+    private static final int REGION_BITS = 30;
+    private static final long REGION_SIZE = 1L << REGION_BITS;
+    private static final long REGION_MASK = REGION_SIZE - 1;
+
+    private static final MappedSeriesFile EMPTY = new MappedSeriesFile(new MappedByteBuffer[0], 0);
+
+    private final MappedByteBuffer[] regions;
+    private final long length;
+
+    private MappedSeriesFile(MappedByteBuffer[] regions, long length) {
+        this.regions = regions;
+        this.length = length;
+    }
+
+    static MappedSeriesFile empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Map a series file. A missing file is treated as an empty series.
+     */
+    static MappedSeriesFile open(File file) throws IOException {
+        if (!file.isFile()) return EMPTY;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return EMPTY;
+            MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = (long) i << REGION_BITS;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+            }
+            return new MappedSeriesFile(regions, size);
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    private byte byteAt(long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+    }
+
+    private byte[] bytes(long from, long to) {
+        byte[] result = new byte[(int) (to - from)];
+        int copied = 0;
+        while (copied < result.length) {
+            long position = from + copied;
+            ByteBuffer region = regions[(int) (position >>> REGION_BITS)].duplicate();
+            region.position((int) (position & REGION_MASK));
+            int count = Math.min(result.length - copied, region.remaining());
+            region.get(result, copied, count);
+            copied += count;
+        }
+        return result;
+    }
+
+    /**
+     * The offset of the first byte of the line holding the given offset
+     */
+    long lineStart(long position) {
+        while (position > 0 && byteAt(position - 1) != '\n') {
+            position--;
+        }
+        return position;
+    }
+
+    /**
+     * The offset of the newline ending the line that starts at the given offset (or the file length for an unterminated last line)
+     */
+    private long lineEnd(long start) {
+        long position = start;
+        while (position < length && byteAt(position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * The start of the line after the one starting at the given offset, or the file length
+     */
+    long next(long start) {
+        return Math.min(length, lineEnd(start) + 1);
+    }
+
+    /**
+     * The start of the line before the one starting at the given offset, or -1
+     */
+    long previous(long start) {
+        return (start <= 0) ? -1 : lineStart(start - 1);
+    }
+
+    /**
+     * The start of the last line, or -1 for an empty file
+     */
+    long last() {
+        return previous(length);
+    }
+
+    String columnAt(long start) {
+        long end = lineEnd(start);
+        if (end == start) return "";
+        byte marker = byteAt(start);
+        long position = start + 1;
+        while (position < end && byteAt(position) != marker) {
+            position++;
+        }
+        return new String(bytes(start + 1, position), StandardCharsets.UTF_8);
+    }
+
+    SeriesRecord recordAt(long start) {
+        byte[] line = bytes(start, lineEnd(start));
+        return SeriesRecord.parse(line, 0, line.length);
+    }
+
+    /**
+     * Binary search the lines in [from, to) for the first one whose column is at or after (or, if not inclusive, strictly after) the given column. Both
+     * bounds must be line boundaries. Returns to if there is no such line.
+     */
+    long search(String column, boolean inclusive, long from, long to) {
+        long low = from;
+        long high = to;
+        while (low < high) {
+            long probe = lineStart(low + (high - low) / 2);
+            int cmp = columnAt(probe).compareTo(column);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                low = next(probe);
+            } else {
+                high = probe;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Iterate the lines in column order, starting at the first column not before start (or at the beginning when start is null).
+     */
+    Iterator<SeriesRecord> forward(String start) {
+        return forward((start == null) ? 0 : search(start, true, 0, length));
+    }
+
+    /**
+     * Iterate the lines in column order from the line starting at the given offset
+     */
+    Iterator<SeriesRecord> forward(final long from) {
+        return new AbstractIterator<SeriesRecord>() {
+            private long position = from;
+
+            @Override
+            protected SeriesRecord computeNext() {
+                while (position < length) {
+                    long start = position;
+                    position = MappedSeriesFile.this.next(start);
+                    if (lineEnd(start) > start) return recordAt(start);
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Iterate the lines in reverse column order, starting at the last column not after start (or at the end when start is null).
+     */
+    Iterator<SeriesRecord> reverse(String start) {
+        return reverse((start == null) ? last() : previous(search(start, false, 0, length)));
+    }
+
+    /**
+     * Iterate the lines in reverse column order from the line starting at the given offset
+     */
+    Iterator<SeriesRecord> reverse(final long from) {
+        return new AbstractIterator<SeriesRecord>() {
+            private long position = from;
+
+            @Override
+            protected SeriesRecord computeNext() {
+                while (position >= 0) {
+                    long start = position;
+                    position = previous(start);
+                    if (lineEnd(start) > start) return recordAt(start);
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Decode up to limit points, starting at start and stopping after end (either may be null), in column order or reverse column order.
+     */
+    List<SeriesValue> read(String start, String end, int limit, boolean reverse) {
+        List<SeriesValue> result = new ArrayList<>();
+        Iterator<SeriesRecord> records = reverse ? reverse(start) : forward(start);
+        while (result.size() < limit && records.hasNext()) {
+            SeriesRecord record = records.next();
+            if (end != null) {
+                int cmp = record.getColumn().compareTo(end);
+                if (reverse ? cmp < 0 : cmp > 0) break;
+            }
+            result.add(record.decode());
+        }
+        return result;
+    }
+}
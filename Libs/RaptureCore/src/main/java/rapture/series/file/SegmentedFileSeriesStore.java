@@ -0,0 +1,141 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import rapture.common.SeriesValue;
+import rapture.common.exception.RaptureExceptionFactory;
+
+/**
+ * A FILE series store that keeps each series as an append-only log over a sorted, sparsely indexed base segment (see {@link SegmentedSeries}). Adding points
+ * is a sequential append and range reads seek to the requested columns, so neither costs a pass over the whole series.
+ * <p>
+ * Selected with {@code format="segmented"} in the FILE config, e.g. <code>SREP {} USING FILE { prefix="/tmp/ticks", format="segmented" }</code>. A base
+ * segment is a valid flat series file, so existing FILE series can be opened in this format.
+ */
+public class SegmentedFileSeriesStore extends FileSeriesStore {
+    public static final String COMPACT_AFTER = "compactAfter";
+    static final int DEFAULT_COMPACT_AFTER = 4096;
+
+    private final ConcurrentMap<String, SegmentedSeries> openSeries = new ConcurrentHashMap<>();
+    private int compactAfter = DEFAULT_COMPACT_AFTER;
+
+    @Override
+    public void setConfig(Map<String, String> config) {
+        super.setConfig(config);
+        String compact = StringUtils.trimToNull(config.get(COMPACT_AFTER));
+        if (compact != null) compactAfter = Integer.parseInt(compact);
+    }
+
+    private SegmentedSeries getSeries(String key) {
+        SegmentedSeries series = openSeries.get(key);
+        if (series == null) {
+            series = new SegmentedSeries(getSeriesFile(key), compactAfter);
+            SegmentedSeries existing = openSeries.putIfAbsent(key, series);
+            if (existing != null) series = existing;
+        }
+        return series;
+    }
+
+    @Override
+    public void drop() {
+        for (SegmentedSeries series : openSeries.values()) {
+            series.delete();
+        }
+        openSeries.clear();
+        super.drop();
+    }
+
+    @Override
+    public void addPointsToSeries(String key, List<SeriesValue> values) {
+        boolean nullKey = false;
+        List<SeriesRecord> records = new ArrayList<>(values.size());
+        for (SeriesValue value : values) {
+            if (value.getColumn() == null) nullKey = true;
+            else records.add(SeriesRecord.of(value));
+        }
+        getSeries(key).append(records);
+        if (nullKey) throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Column Key may not be null, other values added");
+    }
+
+    @Override
+    public void addPointToSeries(String key, SeriesValue value) {
+        if (value.getColumn() == null) throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST, "Column Key may not be null");
+        List<SeriesRecord> records = new ArrayList<>(1);
+        records.add(SeriesRecord.of(value));
+        getSeries(key).append(records);
+    }
+
+    @Override
+    public boolean deletePointsFromSeriesByPointKey(String key, List<String> pointKeys) {
+        if ((pointKeys == null) || pointKeys.isEmpty() || !getSeriesFile(key).isFile()) return true;
+        List<SeriesRecord> records = new ArrayList<>(pointKeys.size());
+        for (String column : pointKeys) {
+            records.add(SeriesRecord.tombstone(column));
+        }
+        getSeries(key).append(records);
+        return true;
+    }
+
+    @Override
+    public boolean deletePointsFromSeries(String key) {
+        SegmentedSeries series = openSeries.remove(key);
+        return (series == null) ? SegmentedSeries.deleteFiles(getSeriesFile(key)) : series.delete();
+    }
+
+    @Override
+    public List<SeriesValue> getPointsAfter(String key, String startColumn, String endColumn, int maxNumber) {
+        if (!getSeriesFile(key).exists()) return new ArrayList<>();
+        if (!getSeriesFile(key).isFile()) throw RaptureExceptionFactory.create("For FILE implementation you can't have a Series with the same name as a Folder");
+        int limit = (maxNumber > overflowLimit) ? overflowLimit : maxNumber;
+        return getSeries(key).read(startColumn, endColumn, limit, false);
+    }
+
+    @Override
+    public List<SeriesValue> getPointsAfterReverse(String key, String startColumn, String endColumn, int maxNumber) {
+        if (!getSeriesFile(key).isFile()) return new ArrayList<>();
+        int limit = (maxNumber > overflowLimit) ? overflowLimit : maxNumber;
+        return getSeries(key).read(startColumn, endColumn, limit, true);
+    }
+
+    @Override
+    public SeriesValue getLastPoint(String key) {
+        if (!getSeriesFile(key).isFile()) return null;
+        List<SeriesValue> last = getSeries(key).read(null, null, 1, true);
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    @Override
+    public void createSeries(String key) {
+        getSeries(key).ensureBase();
+    }
+}
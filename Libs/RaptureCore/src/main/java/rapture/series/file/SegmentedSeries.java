@@ -0,0 +1,357 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rapture.common.SeriesValue;
+import rapture.common.exception.ExceptionToString;
+import rapture.common.exception.RaptureExceptionFactory;
+
+/**
+ * One series stored as a sorted base segment plus an append-only log.
+ * <p>
+ * The base segment ({@code key:}) uses the same line layout as the flat FILE format and is kept in column order. It is read through a
+ * {@link MappedSeriesFile}, with a {@link SparseColumnIndex} narrowing each binary search to one block.
+ * New points and deletions are appended to the log segment ({@code key:~log}) and mirrored in memory. Once the log holds enough records it is sealed
+ * ({@code key:~sealed}) and merged into a fresh base segment on a background thread, while new writes carry on into a new log. If the process dies part way
+ * through a compaction the sealed log is still on disk and is replayed when the series is next opened.
+ */
+class SegmentedSeries {
+    private static final Logger log = Logger.getLogger(SegmentedSeries.class);
+
+    static final String LOG_SUFFIX = "~log";
+    static final String SEALED_SUFFIX = "~sealed";
+    static final String COMPACT_SUFFIX = "~compact";
+
+    private static final ExecutorService compactor = Executors
+            .newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("SeriesCompaction-%d").setDaemon(true).build());
+
+    private final File base;
+    private final File logFile;
+    private final File sealedFile;
+    private final File compactFile;
+    private final int compactThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean(false);
+
+    private MappedSeriesFile mapped;
+    private SparseColumnIndex index;
+    private NavigableMap<String, SeriesRecord> pending = new TreeMap<>();
+    private NavigableMap<String, SeriesRecord> sealed = null;
+    private boolean deleted = false;
+
+    SegmentedSeries(File base, int compactThreshold) {
+        this.base = base;
+        this.logFile = new File(base.getPath() + LOG_SUFFIX);
+        this.sealedFile = new File(base.getPath() + SEALED_SUFFIX);
+        this.compactFile = new File(base.getPath() + COMPACT_SUFFIX);
+        this.compactThreshold = compactThreshold;
+        try {
+            Files.deleteIfExists(compactFile.toPath());
+            mapped = MappedSeriesFile.open(base);
+            index = SparseColumnIndex.scan(mapped);
+            if (sealedFile.isFile()) {
+                sealed = new TreeMap<>();
+                replay(sealedFile, sealed);
+            }
+            long complete = replay(logFile, pending);
+            if (logFile.isFile() && logFile.length() > complete) {
+                // A crash part way through an append leaves a torn last line, which must go before anything else is appended after it
+                log.warn("Discarding incomplete last record in " + logFile.getName());
+                try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(complete);
+                }
+            }
+        } catch (IOException e) {
+            log.debug(ExceptionToString.format(e));
+            throw RaptureExceptionFactory.create("Cannot open series " + base.getName(), e);
+        }
+        if (sealed != null || pending.size() >= compactThreshold) scheduleCompaction();
+    }
+
+    /**
+     * Load the records of a log segment
+     * 
+     * @return the length of the file up to and including its last complete line
+     */
+    private static long replay(File file, NavigableMap<String, SeriesRecord> into) throws IOException {
+        if (!file.isFile()) return 0L;
+        long complete = 0L;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] line;
+            while ((line = SeriesRecord.readLine(in, buffer)) != null) {
+                complete += line.length + 1;
+                if (line.length == 0) continue;
+                SeriesRecord record = SeriesRecord.parse(line, 0, line.length);
+                into.put(record.getColumn(), record);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Append points (or tombstones) to the log. Later records for a column replace earlier ones.
+     */
+    void append(List<SeriesRecord> records) {
+        if (records.isEmpty()) return;
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            ensureBase();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(logFile, true))) {
+                for (SeriesRecord record : records) {
+                    out.write(record.toLine());
+                }
+            } catch (IOException e) {
+                log.debug(ExceptionToString.format(e));
+                throw RaptureExceptionFactory.create("Cannot append to series " + base.getName(), e);
+            }
+            for (SeriesRecord record : records) {
+                pending.put(record.getColumn(), record);
+            }
+            compact = pending.size() >= compactThreshold;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) scheduleCompaction();
+    }
+
+    /**
+     * Make sure the base segment exists, as it is what marks the series as present in its folder
+     */
+    void ensureBase() {
+        if (base.isFile()) return;
+        try {
+            if ((!base.getParentFile().isDirectory() && !base.getParentFile().mkdirs()) || !base.createNewFile()) {
+                throw RaptureExceptionFactory.create("Cannot create series " + base.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            log.debug(ExceptionToString.format(e));
+            throw RaptureExceptionFactory.create("Cannot create series " + base.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Remove every segment of this series. The handle must not be used afterwards.
+     */
+    boolean delete() {
+        lock.writeLock().lock();
+        try {
+            deleted = true;
+            pending = new TreeMap<>();
+            sealed = null;
+            mapped = MappedSeriesFile.empty();
+            index = SparseColumnIndex.empty();
+            return deleteFiles(base);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the segments of a series that is not open
+     */
+    static boolean deleteFiles(File base) {
+        boolean existed = base.isFile();
+        for (String suffix : ImmutableList.of("", LOG_SUFFIX, SEALED_SUFFIX, COMPACT_SUFFIX)) {
+            new File(base.getPath() + suffix).delete();
+        }
+        return existed;
+    }
+
+    /**
+     * Read up to limit points, in column order (or reverse column order), starting at the first column at or beyond start and stopping after end.
+     * 
+     * @param start
+     *            first column to consider, or null to start at the beginning (or the end when reversed)
+     * @param end
+     *            last column to return, or null for no bound
+     */
+    List<SeriesValue> read(String start, String end, int limit, boolean reverse) {
+        Comparator<String> order = reverse ? Ordering.<String> natural().reverse() : Ordering.<String> natural();
+        List<SeriesValue> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<PeekingIterator<SeriesRecord>> tiers = new ArrayList<>(3);
+            tiers.add(Iterators.peekingIterator(reverse ? reverseBase(mapped, index, start) : forwardBase(mapped, index, start)));
+            if (sealed != null) tiers.add(Iterators.peekingIterator(window(sealed, start, reverse).values().iterator()));
+            tiers.add(Iterators.peekingIterator(window(pending, start, reverse).values().iterator()));
+            Iterator<SeriesRecord> merged = merge(order, tiers);
+            while (result.size() < limit && merged.hasNext()) {
+                SeriesRecord record = merged.next();
+                if ((end != null) && order.compare(record.getColumn(), end) > 0) break;
+                if (!record.isTombstone()) result.add(record.decode());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Iterate the base segment from start, using the index to narrow the binary search to a single block
+     */
+    private static Iterator<SeriesRecord> forwardBase(MappedSeriesFile mapped, SparseColumnIndex index, String start) {
+        if ((start == null) || (index.blockCount() == 0)) return mapped.forward(0L);
+        int block = index.floorBlock(start);
+        return mapped.forward(mapped.search(start, true, index.blockStart(block), index.blockEnd(block)));
+    }
+
+    private static Iterator<SeriesRecord> reverseBase(MappedSeriesFile mapped, SparseColumnIndex index, String start) {
+        if ((start == null) || (index.blockCount() == 0)) return mapped.reverse(mapped.last());
+        int block = index.floorBlock(start);
+        return mapped.reverse(mapped.previous(mapped.search(start, false, index.blockStart(block), index.blockEnd(block))));
+    }
+
+    private static NavigableMap<String, SeriesRecord> window(NavigableMap<String, SeriesRecord> map, String start, boolean reverse) {
+        if (reverse) return (start == null) ? map.descendingMap() : map.headMap(start, true).descendingMap();
+        return (start == null) ? map : map.tailMap(start, true);
+    }
+
+    /**
+     * Merge sorted tiers into one sorted stream. Where several tiers hold the same column the latest tier (the last in the list) wins.
+     */
+    private static Iterator<SeriesRecord> merge(final Comparator<String> order, final List<PeekingIterator<SeriesRecord>> tiers) {
+        return new AbstractIterator<SeriesRecord>() {
+            @Override
+            protected SeriesRecord computeNext() {
+                String next = null;
+                for (PeekingIterator<SeriesRecord> tier : tiers) {
+                    if (tier.hasNext() && (next == null || order.compare(tier.peek().getColumn(), next) < 0)) {
+                        next = tier.peek().getColumn();
+                    }
+                }
+                if (next == null) return endOfData();
+                SeriesRecord winner = null;
+                for (PeekingIterator<SeriesRecord> tier : tiers) {
+                    if (tier.hasNext() && tier.peek().getColumn().equals(next)) winner = tier.next();
+                }
+                return winner;
+            }
+        };
+    }
+
+    private void scheduleCompaction() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    compactionQueued.set(false);
+                    try {
+                        compact();
+                    } catch (Exception e) {
+                        log.error("Compaction of series " + base.getName() + " failed: " + ExceptionToString.format(e));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Merge the log into the base segment. Readers and writers are only held up while the log is sealed and while the new base is renamed into place; the
+     * merge itself works from the sealed log and the current base, which nothing else changes.
+     */
+    void compact() throws IOException {
+        NavigableMap<String, SeriesRecord> merging;
+        MappedSeriesFile current;
+        lock.writeLock().lock();
+        try {
+            if (deleted) return;
+            if (sealed == null) {
+                if (pending.isEmpty()) return;
+                if (logFile.isFile()) Files.move(logFile.toPath(), sealedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                sealed = pending;
+                pending = new TreeMap<>();
+            }
+            merging = sealed;
+            current = mapped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        SparseColumnIndex.Builder builder = new SparseColumnIndex.Builder();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(compactFile))) {
+            List<PeekingIterator<SeriesRecord>> tiers = ImmutableList.of(Iterators.peekingIterator(current.forward(0L)),
+                    Iterators.peekingIterator(merging.values().iterator()));
+            Iterator<SeriesRecord> merged = merge(Ordering.<String> natural(), tiers);
+            while (merged.hasNext()) {
+                SeriesRecord record = merged.next();
+                if (record.isTombstone()) continue;
+                byte[] line = record.toLine();
+                out.write(line);
+                builder.add(record.getColumn(), line.length);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                compactFile.delete();
+                return;
+            }
+            Files.move(compactFile.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapped = MappedSeriesFile.open(base);
+            index = builder.build();
+            sealed = null;
+            sealedFile.delete();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import rapture.common.SeriesValue;
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.dsl.serfun.SeriesValueCodec;
+
+/**
+ * A single line of a file based series. The layout is the one FileSeriesStore has always written: a marker character that does not appear in the column,
+ * the column, the marker again, the encoded value and a newline. An empty value marks a deleted column in an append log.
+ */
+class SeriesRecord {
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private final String column;
+    private final byte[] value;
+
+    SeriesRecord(String column, byte[] value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    static SeriesRecord of(SeriesValue value) {
+        try {
+            return new SeriesRecord(value.getColumn(), SeriesValueCodec.encodeValue(value));
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create("Cannot encode point " + value.getColumn(), e);
+        }
+    }
+
+    static SeriesRecord tombstone(String column) {
+        return new SeriesRecord(column, TOMBSTONE);
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    byte[] getValue() {
+        return value;
+    }
+
+    boolean isTombstone() {
+        return value.length == 0;
+    }
+
+    SeriesValue decode() {
+        try {
+            return SeriesValueCodec.decode(column, value);
+        } catch (IOException e) {
+            throw RaptureExceptionFactory.create("Cannot decode point " + column, e);
+        }
+    }
+
+    /**
+     * Encode this record as a complete line, including the trailing newline
+     */
+    byte[] toLine() {
+        int marker = ' ';
+        while (column.indexOf(marker) >= 0) {
+            marker++;
+        }
+        if (marker >= 0x7f) throw RaptureExceptionFactory.create("No free marker character for column " + column);
+        byte[] col = column.getBytes(StandardCharsets.UTF_8);
+        byte[] line = new byte[col.length + value.length + 3];
+        line[0] = (byte) marker;
+        System.arraycopy(col, 0, line, 1, col.length);
+        line[col.length + 1] = (byte) marker;
+        System.arraycopy(value, 0, line, col.length + 2, value.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    /**
+     * Parse a line (without its trailing newline)
+     */
+    static SeriesRecord parse(byte[] line, int offset, int length) {
+        byte marker = line[offset];
+        int end = offset + length;
+        int i = offset + 1;
+        while (i < end && line[i] != marker) {
+            i++;
+        }
+        if (i == end) throw RaptureExceptionFactory.create("Corrupt series record");
+        String column = new String(line, offset + 1, i - offset - 1, StandardCharsets.UTF_8);
+        byte[] value = (i + 1 == end) ? TOMBSTONE : Arrays.copyOfRange(line, i + 1, end);
+        return new SeriesRecord(column, value);
+    }
+
+    /**
+     * Read the next line from a stream, or return null at the end of the stream. A partial line at the end of the stream (a torn append) is ignored.
+     */
+    static byte[] readLine(InputStream in, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') return buffer.toByteArray();
+            buffer.write(b);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the column and byte offset of every {@link #INTERVAL}th line of a sorted series file, so a reader can seek close to a column rather than reading
+ * the file from the start. Instances are immutable; a new one is built whenever the file is rewritten.
+ */
+class SparseColumnIndex {
+    static final int INTERVAL = 128;
+
+    private final List<String> columns;
+    private final long[] offsets;
+    private final long length;
+
+    private SparseColumnIndex(List<String> columns, long[] offsets, long length) {
+        this.columns = columns;
+        this.offsets = offsets;
+        this.length = length;
+    }
+
+    static SparseColumnIndex empty() {
+        return new SparseColumnIndex(Collections.<String> emptyList(), new long[0], 0);
+    }
+
+    /**
+     * Build an index by reading through an existing sorted series file
+     */
+    static SparseColumnIndex scan(MappedSeriesFile file) {
+        Builder builder = new Builder();
+        long position = 0;
+        while (position < file.length()) {
+            long next = file.next(position);
+            if (next - position > 1) {
+                builder.add(file.columnAt(position), next - position);
+            } else {
+                builder.skip(next - position);
+            }
+            position = next;
+        }
+        return builder.build();
+    }
+
+    int blockCount() {
+        return columns.size();
+    }
+
+    long blockStart(int block) {
+        return offsets[block];
+    }
+
+    long blockEnd(int block) {
+        return (block + 1 < offsets.length) ? offsets[block + 1] : length;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * The block that would contain the given column: the last block whose first column is not greater than it, or the first block if there is none.
+     */
+    int floorBlock(String column) {
+        int i = Collections.binarySearch(columns, column);
+        if (i >= 0) return i;
+        return Math.max(0, -i - 2);
+    }
+
+    static class Builder {
+        private final List<String> columns = new ArrayList<>();
+        private long[] offsets = new long[16];
+        private long position = 0;
+        private long count = 0;
+
+        void add(String column, long lineLength) {
+            if (count++ % INTERVAL == 0) {
+                if (columns.size() == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                offsets[columns.size()] = position;
+                columns.add(column);
+            }
+            position += lineLength;
+        }
+
+        void skip(long bytes) {
+            position += bytes;
+        }
+
+        SparseColumnIndex build() {
+            return new SparseColumnIndex(columns, Arrays.copyOf(offsets, columns.size()), position);
+        }
+    }
+}
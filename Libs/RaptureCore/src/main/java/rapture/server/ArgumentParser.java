@@ -26,9 +26,12 @@ package rapture.server;
 import rapture.common.exception.ExceptionToString;
 import rapture.common.exception.RaptureException;
 import rapture.common.exception.RaptureExceptionFactory;
+import rapture.common.impl.jackson.JacksonUtil;
 import rapture.common.impl.jackson.JacksonUtilChecked;
+import rapture.common.impl.jackson.WireFormat;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
 import java.util.LinkedList;
@@ -39,6 +42,7 @@ import org.apache.log4j.Logger;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 
 /**
@@ -49,45 +53,79 @@ public class ArgumentParser {
     private static final Logger log = Logger.getLogger(ArgumentParser.class);
 
     public static <T> T parsePayload(String json, Class<T> tClass) {
-        final int errorCode = HttpURLConnection.HTTP_BAD_REQUEST;
-
         try {
             return JacksonUtilChecked.objectFromJson(json, tClass);
-        } catch (UnrecognizedPropertyException e) {
+        } catch (IOException e) {
+            throw translate(e, json);
+        }
+    }
+
+    /**
+     * Read a payload straight from a request stream in a binary wire format
+     */
+    public static <T> T parsePayload(InputStream params, WireFormat format, Class<T> tClass) {
+        try {
+            return format.getMapper().readValue(params, tClass);
+        } catch (IOException e) {
+            throw translate(e, "<" + format + " payload>");
+        }
+    }
+
+    /**
+     * Bind a payload that has already been read as part of a larger document, such as one call of a batch
+     */
+    public static <T> T parsePayload(JsonNode params, Class<T> tClass) {
+        try {
+            return JacksonUtil.DEFAULT_MAPPER.treeToValue(params, tClass);
+        } catch (IOException e) {
+            throw translate(e, String.valueOf(params));
+        }
+    }
+
+    /**
+     * Turn a Jackson failure into a readable bad request error
+     */
+    private static RaptureException translate(IOException ioe, String json) {
+        final int errorCode = HttpURLConnection.HTTP_BAD_REQUEST;
+
+        if (ioe instanceof UnrecognizedPropertyException) {
+            UnrecognizedPropertyException e = (UnrecognizedPropertyException) ioe;
             List<String> references = getReferences(e);
             if (references.size() > 1) {
                 String referencesString = StringUtils.join(references.subList(0, references.size()), "->");
-                throw RaptureExceptionFactory.create(errorCode,
+                return RaptureExceptionFactory.create(errorCode,
                         String.format("Bad value for argument \"%s\". Child field \"%s\" not recognized.",
                                 references.get(0),
                                 referencesString), e);
             } else {
-                throw RaptureExceptionFactory
+                return RaptureExceptionFactory
                         .create(errorCode, String.format("Unrecognized parameter \"%s\" passed to API call", e.getUnrecognizedPropertyName()), e);
             }
-        } catch (JsonMappingException e) {
+        } else if (ioe instanceof JsonMappingException) {
+            JsonMappingException e = (JsonMappingException) ioe;
             List<String> references = getReferences(e);
             if (references.size() > 1) {
                 String referencesString = StringUtils.join(references.subList(0, references.size()), "->");
-                throw RaptureExceptionFactory.create(errorCode,
+                return RaptureExceptionFactory.create(errorCode,
                         String.format("Bad value for argument \"%s\". The problem is in the child field \"%s\": %s", references.get(0), referencesString,
                                 getReadableMessage(e)), e);
             } else if (references.size() > 0) {
-                throw RaptureExceptionFactory
+                return RaptureExceptionFactory
                         .create(errorCode, String.format("Bad value for argument \"%s\": %s", references.get(0), getReadableMessage(e)), e);
             } else {
                 RaptureException raptureException = RaptureExceptionFactory.create(errorCode, "Error reading arguments: " + e.getMessage(), e);
                 log.error(String.format("exception id [%s]; json [%s]", raptureException.getId(), json));
-                throw raptureException;
+                return raptureException;
             }
-        } catch (JsonParseException e) {
+        } else if (ioe instanceof JsonParseException) {
+            JsonParseException e = (JsonParseException) ioe;
             RaptureException raptureException = RaptureExceptionFactory.create(errorCode, "Bad/incomplete arguments passed in: " + e.getMessage(), e);
             log.error(String.format("exception id [%s]; json [%s]", raptureException.getId(), json));
-            throw raptureException;
-        } catch (IOException e) {
-            RaptureException raptureException = RaptureExceptionFactory.create(errorCode, "Error reading arguments: " + e.getMessage(), e);
+            return raptureException;
+        } else {
+            RaptureException raptureException = RaptureExceptionFactory.create(errorCode, "Error reading arguments: " + ioe.getMessage(), ioe);
             log.error(String.format("exception id [%s]; json [%s]", raptureException.getId(), json));
-            throw raptureException;
+            return raptureException;
         }
     }
 
@@ -23,12 +23,17 @@
  */
 package rapture.server;
 
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import rapture.common.CallingContext;
 import rapture.common.DispatchReturn;
 import rapture.common.ErrorWrapper;
@@ -36,8 +41,11 @@ import rapture.common.ErrorWrapperFactory;
 import rapture.common.RaptureEntitlementsContext;
 import rapture.common.exception.RaptNotLoggedInException;
 import rapture.common.exception.RaptureException;
+import rapture.common.exception.RaptureExceptionFactory;
 import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.impl.jackson.WireFormat;
 import rapture.common.model.BasePayload;
+import rapture.common.model.BinaryResponse;
 import rapture.common.model.GeneralResponse;
 import rapture.kernel.Kernel;
 import rapture.kernel.stat.StatHelper;
@@ -58,8 +66,32 @@ public abstract class BaseDispatcher {
         }
     }
 
+    public static BinaryResponse binaryError(RaptureException raptException) {
+        log.error("ERROR WHEN SERVICING API CALL");
+        log.error(raptException.getFormattedMessage());
+        return new BinaryResponse(ErrorWrapperFactory.create(raptException), true);
+    }
+
     public abstract DispatchReturn dispatch(String params, HttpServletRequest req, HttpServletResponse resp);
 
+    /**
+     * Dispatch a call whose payload is streamed in a binary wire format. The response is returned as an object for the servlet to stream back in the same
+     * format. Dispatchers that only understand JSON report the call as a bad request.
+     */
+    public DispatchReturn dispatch(InputStream params, WireFormat format, HttpServletRequest req, HttpServletResponse resp) {
+        return new DispatchReturn(null, binaryError(RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                String.format("%s does not support the %s wire format", getClass().getSimpleName(), format))));
+    }
+
+    /**
+     * Run a single call of a batch. The session has already been validated by the batch, but entitlements are still checked against this call's payload.
+     * Returns the raw result for the batch to wrap.
+     */
+    public Object invoke(CallingContext sessionContext, JsonNode params) {
+        throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                String.format("%s cannot be called as part of a batch", getClass().getSimpleName()));
+    }
+
     public static String getContextIdFromRequest(HttpServletRequest req) {
         Cookie[] cookies = req.getCookies();
         if (cookies == null || cookies.length == 0) {
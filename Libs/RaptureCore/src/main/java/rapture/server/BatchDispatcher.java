@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.server;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rapture.common.CallingContext;
+import rapture.common.DispatchReturn;
+import rapture.common.ErrorWrapperFactory;
+import rapture.common.Messages;
+import rapture.common.exception.RaptureException;
+import rapture.common.exception.RaptureExceptionFactory;
+import rapture.common.model.BatchCall;
+import rapture.common.model.BatchPayload;
+import rapture.common.model.GeneralResponse;
+import rapture.common.shared.ApiDispatchers;
+import rapture.config.ConfigLoader;
+
+/**
+ * Runs an ordered list of api calls sent in one request. The session is validated once for the whole batch; each call then goes through its own
+ * dispatcher, so entitlements and usage stats are handled exactly as for a single call. A failing call is reported in its slot of the response and does
+ * not stop the others.
+ * 
+ * Parallel batches run on a shared bounded pool with no queue, so when the pool is busy the remaining calls simply run on the request thread.
+ */
+public class BatchDispatcher extends BaseDispatcher {
+    private static final Logger log = Logger.getLogger(BatchDispatcher.class);
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        int threads = Math.max(1, ConfigLoader.getConf().ApiBatchThreads);
+        executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ApiBatch-%d").build(), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public DispatchReturn dispatch(String params, HttpServletRequest req, HttpServletResponse resp) {
+        try {
+            BatchPayload payload = ArgumentParser.parsePayload(params, BatchPayload.class);
+            CallingContext sessionContext = validateSession(req, payload); // will throw RaptNotLoggedInException if not a valid logged in context
+            List<BatchCall> calls = payload.getCalls() == null ? new ArrayList<BatchCall>() : payload.getCalls();
+            int maxCalls = ConfigLoader.getConf().ApiBatchMaxCalls;
+            if (calls.size() > maxCalls) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                        String.format("A batch may contain at most %d calls, this one has %d", maxCalls, calls.size()));
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Running batch of %d calls, parallel=%s", calls.size(), payload.isParallel()));
+            }
+            List<GeneralResponse> results = payload.isParallel() ? runParallel(sessionContext, calls) : runSerial(sessionContext, calls);
+            return new DispatchReturn(sessionContext, processResponse(new GeneralResponse(results)));
+        } catch (RaptureException e) {
+            return new DispatchReturn(null, error(e));
+        } catch (Exception e) {
+            return new DispatchReturn(null, error(RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    Messages.getMessage("Api", "ServerError", null, null), e)));
+        }
+    }
+
+    private List<GeneralResponse> runSerial(CallingContext sessionContext, List<BatchCall> calls) {
+        List<GeneralResponse> ret = new ArrayList<>(calls.size());
+        for (BatchCall call : calls) {
+            ret.add(run(sessionContext, call));
+        }
+        return ret;
+    }
+
+    private List<GeneralResponse> runParallel(final CallingContext sessionContext, List<BatchCall> calls) {
+        List<Future<GeneralResponse>> futures = new ArrayList<>(calls.size());
+        for (final BatchCall call : calls) {
+            futures.add(executor.submit(new Callable<GeneralResponse>() {
+                @Override
+                public GeneralResponse call() {
+                    return run(sessionContext, call);
+                }
+            }));
+        }
+        List<GeneralResponse> ret = new ArrayList<>(calls.size());
+        for (Future<GeneralResponse> future : futures) {
+            ret.add(await(future));
+        }
+        return ret;
+    }
+
+    private GeneralResponse await(Future<GeneralResponse> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, "Interrupted waiting for batch call", e));
+        } catch (ExecutionException e) {
+            return failed(RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, Messages.getMessage("Api", "ServerError", null, null),
+                    e.getCause()));
+        }
+    }
+
+    /**
+     * Run one call of the batch, turning any failure into an error response for that call
+     */
+    static GeneralResponse run(CallingContext sessionContext, BatchCall call) {
+        try {
+            BaseDispatcher dispatcher = ApiDispatchers.getDispatcher(call.getApi(), call.getFunction());
+            if (dispatcher == null) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                        String.format("Unknown api call %s.%s", call.getApi(), call.getFunction()));
+            }
+            if (call.getParams() == null) {
+                throw RaptureExceptionFactory.create(HttpURLConnection.HTTP_BAD_REQUEST,
+                        String.format("No parameters given for %s.%s", call.getApi(), call.getFunction()));
+            }
+            return new GeneralResponse(dispatcher.invoke(sessionContext, call.getParams()));
+        } catch (RaptureException e) {
+            return failed(e);
+        } catch (Exception e) {
+            return failed(RaptureExceptionFactory.create(HttpURLConnection.HTTP_INTERNAL_ERROR, Messages.getMessage("Api", "ServerError", null, null), e));
+        }
+    }
+
+    private static GeneralResponse failed(RaptureException e) {
+        log.error(e.getFormattedMessage());
+        return new GeneralResponse(ErrorWrapperFactory.create(e), true);
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.table.memory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import rapture.dsl.iqry.WhereStatement;
+
+/**
+ * Secondary index over one field of a {@link MemoryIndexHandler}. Numeric values (numbers, and strings that parse as numbers) are kept in a sorted map
+ * keyed by their double value, and every value is also kept in a sorted map keyed by its string form, mirroring the two ways the where-clause
+ * predicates compare values. Lookups return a superset of the matching rows; the caller still applies the predicates to each candidate.
+ *
+ * Not thread safe, the owning handler guards access.
+ */
+class FieldIndex {
+    private final Map<String, Object> values = new HashMap<>();
+    private final TreeMap<Double, Set<String>> numbers = new TreeMap<>();
+    private final TreeMap<String, Set<String>> strings = new TreeMap<>();
+    private final Set<String> nonNumeric = new HashSet<>();
+
+    public void add(String rowId, Object value) {
+        remove(rowId);
+        if (value == null) {
+            return;
+        }
+        values.put(rowId, value);
+        Double number = asNumber(value);
+        if (number != null) {
+            addTo(numbers, number, rowId);
+        } else {
+            nonNumeric.add(rowId);
+        }
+        addTo(strings, value.toString(), rowId);
+    }
+
+    public void remove(String rowId) {
+        Object value = values.remove(rowId);
+        if (value == null) {
+            return;
+        }
+        Double number = asNumber(value);
+        if (number != null) {
+            removeFrom(numbers, number, rowId);
+        } else {
+            nonNumeric.remove(rowId);
+        }
+        removeFrom(strings, value.toString(), rowId);
+    }
+
+    public void clear() {
+        values.clear();
+        numbers.clear();
+        strings.clear();
+        nonNumeric.clear();
+    }
+
+    /**
+     * Estimated number of rows {@link #candidates} would return, or -1 if this statement cannot be answered from the index
+     */
+    public int estimate(WhereStatement statement) {
+        Object queryValue = statement.getValue().getValue();
+        if (queryValue == null) {
+            return -1;
+        }
+        switch (statement.getOper()) {
+        case EQUAL:
+            if (queryValue instanceof Number) {
+                double d = ((Number) queryValue).doubleValue();
+                return sizeOf(numbers.get(d)) + ((d == 0.0) ? sizeOf(numbers.get(-d)) : 0);
+            }
+            return sizeOf(strings.get(queryValue.toString()));
+        case GT:
+        case LT:
+            // Ranges are costed as a fraction of the rows; an equality match is almost always preferable
+            return (values.size() + 1) / 2;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * The rows that may satisfy the statement, or null if the index cannot answer it
+     */
+    public Set<String> candidates(WhereStatement statement) {
+        Object queryValue = statement.getValue().getValue();
+        if (queryValue == null) {
+            return null;
+        }
+        Set<String> ret = new HashSet<>();
+        if (queryValue instanceof Number) {
+            // Numbers compare numerically with numbers and numeric strings, and by their string form with everything else
+            double d = ((Number) queryValue).doubleValue();
+            switch (statement.getOper()) {
+            case EQUAL:
+                addAll(ret, numbers.get(d));
+                if (d == 0.0) {
+                    addAll(ret, numbers.get(-d));
+                }
+                return ret;
+            case GT:
+                addAll(ret, numbers.tailMap(d, false).values());
+                ret.addAll(nonNumeric);
+                return ret;
+            case LT:
+                addAll(ret, numbers.headMap(d, false).values());
+                ret.addAll(nonNumeric);
+                return ret;
+            default:
+                return null;
+            }
+        }
+        String s = queryValue.toString();
+        switch (statement.getOper()) {
+        case EQUAL:
+            addAll(ret, strings.get(s));
+            return ret;
+        case GT:
+            addAll(ret, strings.tailMap(s, false).values());
+            return ret;
+        case LT:
+            addAll(ret, strings.headMap(s, false).values());
+            return ret;
+        default:
+            return null;
+        }
+    }
+
+    private static Double asNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static <K> void addTo(NavigableMap<K, Set<String>> map, K key, String rowId) {
+        Set<String> rows = map.get(key);
+        if (rows == null) {
+            rows = new HashSet<>();
+            map.put(key, rows);
+        }
+        rows.add(rowId);
+    }
+
+    private static <K> void removeFrom(NavigableMap<K, Set<String>> map, K key, String rowId) {
+        Set<String> rows = map.get(key);
+        if (rows != null) {
+            rows.remove(rowId);
+            if (rows.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static void addAll(Set<String> target, Set<String> rows) {
+        if (rows != null) {
+            target.addAll(rows);
+        }
+    }
+
+    private static void addAll(Set<String> target, Collection<Set<String>> rows) {
+        for (Set<String> r : rows) {
+            target.addAll(r);
+        }
+    }
+
+    private static int sizeOf(Set<String> rows) {
+        return (rows == null) ? 0 : rows.size();
+    }
+}
@@ -24,12 +24,18 @@
 package rapture.table.memory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.log4j.Logger;
 
@@ -42,6 +48,9 @@ import rapture.common.model.DocumentMetadata;
 import rapture.dsl.iqry.IndexQuery;
 import rapture.dsl.iqry.IndexQueryFactory;
 import rapture.dsl.iqry.OrderDirection;
+import rapture.dsl.iqry.WhereClause;
+import rapture.dsl.iqry.WhereExtension;
+import rapture.dsl.iqry.WhereStatement;
 import rapture.index.AbstractIndexHandler;
 import rapture.index.IndexProducer;
 import rapture.index.IndexRecord;
@@ -49,11 +58,15 @@ import rapture.index.IndexRecord;
 /*
  * An in memory table, primarily for testing
  * 
+ * Fields used in where clauses get a secondary index (see FieldIndex) the first time they are queried, which is then maintained on every write.
+ * A query starts from the most selective indexed statement and only tests the remaining predicates against those candidate rows.
  */
 public class MemoryIndexHandler extends AbstractIndexHandler {
     protected static Logger log = Logger.getLogger(MemoryIndexHandler.class);
 
     protected Map<String, Map<String, Object>> memoryView = null;
+    private Map<String, FieldIndex> fieldIndexes = null;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private IndexProducer indexProducer;
 
     public MemoryIndexHandler() {
@@ -63,16 +76,38 @@ public class MemoryIndexHandler extends AbstractIndexHandler {
     @Override
     public void deleteTable() {
         log.info("Removing index content ");
-        memoryView.clear();
+        lock.writeLock().lock();
+        try {
+            memoryView.clear();
+            for (FieldIndex fieldIndex : fieldIndexes.values()) {
+                fieldIndex.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void removeAll(String rowId) {
-        memoryView.put(rowId, new HashMap<String, Object>());
+        lock.writeLock().lock();
+        try {
+            memoryView.put(rowId, new HashMap<String, Object>());
+            for (FieldIndex fieldIndex : fieldIndexes.values()) {
+                fieldIndex.remove(rowId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     private void reset() {
-        memoryView = new ConcurrentHashMap<>();
+        lock.writeLock().lock();
+        try {
+            memoryView = new ConcurrentHashMap<>();
+            fieldIndexes = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -89,14 +124,26 @@ public class MemoryIndexHandler extends AbstractIndexHandler {
             if (values != null) {
                 // Should be set but Continuous build #80 failed because values was null
                 values.put(ROWID, key);
-                memoryView.put(key, values);
+                putRow(key, values);
             }
         }
     }
 
     @Override
     public void updateRow(String key, Map<String, Object> recordValues) {
-        memoryView.put(key, recordValues);
+        putRow(key, recordValues);
+    }
+
+    private void putRow(String key, Map<String, Object> values) {
+        lock.writeLock().lock();
+        try {
+            memoryView.put(key, values);
+            for (Map.Entry<String, FieldIndex> entry : fieldIndexes.entrySet()) {
+                entry.getValue().add(key, values.get(entry.getKey()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -118,44 +165,92 @@ public class MemoryIndexHandler extends AbstractIndexHandler {
     public TableQueryResult query(String query) {
         TableQueryResult result = new TableQueryResult();
         IndexQuery indexQuery = IndexQueryFactory.parseQuery(query);
-        Map<String, Map<String, Object>> data = memoryView;
         List<Predicate<Map<String, Object>>> predicates = predicatesFromQuery(indexQuery);
+        List<WhereStatement> statements = statementsFromQuery(indexQuery);
 
         List<String> columnNames = indexQuery.getSelect().getFieldList();
         result.setColumnNames(columnNames);
-        List<List<Object>> rows = new LinkedList<>();
-        for (Map.Entry<String, Map<String, Object>> mainEntry : data.entrySet()) {
-            boolean isGood = true;
-            Map<String, Object> body = mainEntry.getValue();
-            for (Predicate<Map<String, Object>> predicate : predicates) {
-                isGood = predicate.apply(body);
-                if (!isGood) {
-                    break;
-                }
+
+        int skip = indexQuery.getSkip();
+        if (skip < 0) skip = 0;
+        int limit = indexQuery.getLimit();
+        // Only the first skip + limit rows in result order can ever be returned, so there is no need to keep the rest
+        long keep = (limit > 0) ? (long) skip + limit : Long.MAX_VALUE;
+
+        Comparator<List<Object>> order = null;
+        if (indexQuery.getOrderBy().getFieldList().size() > 0) {
+            order = RowComparatorFactory.createComparator(indexQuery.getOrderBy().getFieldList(), columnNames, indexQuery.getDirection());
+            if (indexQuery.getDirection() == OrderDirection.DESC) {
+                order = Collections.reverseOrder(order);
             }
-            if (isGood) {
-                List<Object> row = new LinkedList<>();
-                for (String columnName : columnNames) {
-                    row.add(body.get(columnName));
+        }
+
+        // With an ordering the best rows so far are kept in a bounded heap whose head is the worst of them
+        PriorityQueue<List<Object>> best = (order == null || keep == Long.MAX_VALUE) ? null : new PriorityQueue<>(11, Collections.reverseOrder(order));
+        List<List<Object>> rows = new ArrayList<>();
+        Set<List<Object>> seen = indexQuery.isDistinct() ? new HashSet<List<Object>>() : null;
+        int matched = 0;
+
+        ensureFieldIndexes(statements);
+        lock.readLock().lock();
+        try {
+            Collection<String> candidates = candidateRows(statements);
+            Iterable<Map<String, Object>> bodies;
+            if (candidates == null) {
+                bodies = memoryView.values();
+            } else {
+                List<Map<String, Object>> candidateBodies = new ArrayList<>(candidates.size());
+                for (String rowId : candidates) {
+                    Map<String, Object> body = memoryView.get(rowId);
+                    if (body != null) {
+                        candidateBodies.add(body);
+                    }
                 }
-                if (indexQuery.isDistinct() && rows.contains(row)) continue;
-                rows.add(row);
+                bodies = candidateBodies;
             }
-        }
 
-        if (indexQuery.getOrderBy().getFieldList().size() > 0) {
-            Collections.sort(rows, RowComparatorFactory.createComparator(indexQuery.getOrderBy().getFieldList(), columnNames, indexQuery.getDirection()));
-            if (indexQuery.getDirection() == OrderDirection.DESC) {
-                Collections.reverse(rows);
+            for (Map<String, Object> body : bodies) {
+                boolean isGood = true;
+                for (Predicate<Map<String, Object>> predicate : predicates) {
+                    isGood = predicate.apply(body);
+                    if (!isGood) {
+                        break;
+                    }
+                }
+                if (isGood) {
+                    List<Object> row = new ArrayList<>(columnNames.size());
+                    for (String columnName : columnNames) {
+                        row.add(body.get(columnName));
+                    }
+                    if (seen != null && !seen.add(row)) continue;
+                    matched++;
+                    if (best != null) {
+                        best.add(row);
+                        if (best.size() > keep) {
+                            best.poll();
+                        }
+                    } else {
+                        rows.add(row);
+                        if (order == null && matched > keep) {
+                            // Enough to know the result is truncated to the limit
+                            break;
+                        }
+                    }
+                }
             }
+        } finally {
+            lock.readLock().unlock();
         }
 
-        int skip = indexQuery.getSkip();
-        if (skip < 0) skip = 0;
-        if (skip < rows.size()) {
-            int limit = indexQuery.getLimit();
+        if (best != null) {
+            rows.addAll(best);
+        }
+        if (order != null) {
+            Collections.sort(rows, order);
+        }
 
-            if ((limit > 0) && (rows.size() - skip > limit)) {
+        if (skip < matched) {
+            if ((limit > 0) && (matched - skip > limit)) {
                 result.setRows(rows.subList(skip, skip + limit));
             } else {
                 result.setRows(rows);
@@ -164,6 +259,86 @@ public class MemoryIndexHandler extends AbstractIndexHandler {
         return result;
     }
 
+    private List<WhereStatement> statementsFromQuery(IndexQuery indexQuery) {
+        List<WhereStatement> statements = new ArrayList<>();
+        WhereClause whereClause = indexQuery.getWhere();
+        if (whereClause.getPrimary() != null) {
+            statements.add(whereClause.getPrimary());
+        }
+        for (WhereExtension whereExtension : whereClause.getExtensions()) {
+            statements.add(whereExtension.getClause());
+        }
+        return statements;
+    }
+
+    /**
+     * Build the index for any field in the where clause that does not have one yet
+     */
+    private void ensureFieldIndexes(List<WhereStatement> statements) {
+        lock.readLock().lock();
+        try {
+            boolean missing = false;
+            for (WhereStatement statement : statements) {
+                missing |= isIndexable(statement) && !fieldIndexes.containsKey(statement.getField());
+            }
+            if (!missing) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            for (WhereStatement statement : statements) {
+                String field = statement.getField();
+                if (isIndexable(statement) && !fieldIndexes.containsKey(field)) {
+                    FieldIndex fieldIndex = new FieldIndex();
+                    for (Map.Entry<String, Map<String, Object>> entry : memoryView.entrySet()) {
+                        fieldIndex.add(entry.getKey(), entry.getValue().get(field));
+                    }
+                    fieldIndexes.put(field, fieldIndex);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isIndexable(WhereStatement statement) {
+        switch (statement.getOper()) {
+        case EQUAL:
+        case GT:
+        case LT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * The where statements are all and-ed together, so the rows matching the most selective one are enough to test. Null means scan everything.
+     */
+    private Collection<String> candidateRows(List<WhereStatement> statements) {
+        FieldIndex bestIndex = null;
+        WhereStatement bestStatement = null;
+        int bestEstimate = Integer.MAX_VALUE;
+        for (WhereStatement statement : statements) {
+            FieldIndex fieldIndex = fieldIndexes.get(statement.getField());
+            if (fieldIndex != null) {
+                int estimate = fieldIndex.estimate(statement);
+                if (estimate >= 0 && estimate < bestEstimate) {
+                    bestIndex = fieldIndex;
+                    bestStatement = statement;
+                    bestEstimate = estimate;
+                }
+            }
+        }
+        if (bestIndex == null || bestEstimate >= memoryView.size()) {
+            return null;
+        }
+        return bestIndex.candidates(bestStatement);
+    }
+
     @Override
     public Long getLatestEpoch() {
         return 0L;
@@ -69,6 +69,8 @@ import rapture.common.model.RaptureExchange;
 import rapture.common.model.RaptureExchangeQueue;
 import rapture.common.model.RaptureExchangeType;
 import rapture.common.pipeline.PipelineConstants;
+import rapture.config.ConfigLoader;
+import rapture.config.RaptureConfig;
 import rapture.dp.invocable.CheckPrerequisiteStep;
 import rapture.dp.invocable.PrerequisiteConfig;
 import rapture.dp.semaphore.LockKeyFactory;
@@ -188,6 +190,48 @@ public class DecisionProcessExecutorTest {
         }
     }
 
+    @Test
+    public void testFusedSteps() throws InterruptedException {
+        String wuri = "workflow://myworkflow/xFused";
+        List<Step> steps = new ArrayList<>();
+        String[] names = { "start", "second", "third" };
+        for (int i = 0; i < names.length; i++) {
+            Step step = new Step();
+            step.setName(names[i]);
+            step.setExecutable("script://" + REPO_URI + "/" + scr1);
+            if (i + 1 < names.length) {
+                step.setTransitions(WorkflowFactory.createTransition("success", names[i + 1]));
+            }
+            steps.add(step);
+        }
+        Workflow workflow = new Workflow();
+        workflow.setSteps(steps);
+        workflow.setWorkflowURI(wuri);
+        workflow.setStartStep("start");
+        workflow.setCategory("alpha");
+        Kernel.getDecision().putWorkflow(CONTEXT, workflow);
+
+        RaptureConfig config = ConfigLoader.getConf();
+        boolean fusion = config.WorkflowStepFusion;
+        config.WorkflowStepFusion = true;
+        try {
+            final String workOrderUri = Kernel.getDecision().createWorkOrder(CONTEXT, wuri, null);
+            WaitingTestHelper.retry(new Runnable() {
+                @Override
+                public void run() {
+                    assertEquals(WorkOrderExecutionState.FINISHED, Kernel.getDecision().getWorkOrderStatus(CONTEXT, workOrderUri).getStatus());
+                }
+            }, MAX_WAIT);
+            List<StepRecord> records = getStepRecords(workOrderUri);
+            assertEquals(3, records.size());
+            for (StepRecord record : records) {
+                assertEquals(WorkOrderExecutionState.FINISHED, record.getStatus());
+            }
+        } finally {
+            config.WorkflowStepFusion = fusion;
+        }
+    }
+
     protected List<StepRecord> getStepRecords(String workOrderUri) {
         WorkOrderDebug debug = Kernel.getDecision().getWorkOrderDebug(CONTEXT, workOrderUri);
         List<StepRecord> records = new LinkedList<>();
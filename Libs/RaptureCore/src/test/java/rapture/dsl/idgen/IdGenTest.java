@@ -45,4 +45,17 @@ public class IdGenTest {
         result = f.incrementIdGen(655030524L);
         assertEquals("OI-YOMAMA", result);
     }
+
+    @Test
+    public void testLeasedIdsComeFromOneReservedBlock() {
+        RaptureIdGen f = IdGenFactory.getIdGen("IDGEN { lease=\"10\", length=\"3\" } USING MEMORY {}");
+        assertEquals("001", f.incrementIdGen(1L));
+        assertEquals("002", f.incrementIdGen(1L));
+        assertEquals(10L, f.getIdGenStore().getNextIdGen(0L).longValue());
+        // larger increments go straight to the store, past the leased block
+        assertEquals("015", f.incrementIdGen(5L));
+        assertEquals("003", f.incrementIdGen(1L));
+        f.resetIdGen(100L);
+        assertEquals("101", f.incrementIdGen(1L));
+    }
 }
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import rapture.common.CallingContext;
+import rapture.common.RaptureURI;
+import rapture.common.Scheme;
+import rapture.common.model.DocumentRepoConfig;
+import rapture.common.model.DocumentWithMeta;
+import rapture.common.model.IndexScriptPair;
+import rapture.common.model.RunEventHandle;
+import rapture.config.ConfigLoader;
+import rapture.config.RaptureConfig;
+
+public class DocPostWriteQueueTest {
+    private static final String auth = "postwrite" + System.currentTimeMillis();
+
+    private CallingContext callingContext;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> indexed = Collections.synchronizedList(new ArrayList<String>());
+    private final Map<String, String> searchable = Collections.synchronizedMap(new HashMap<String, String>());
+    private DocApiImpl docApi;
+
+    @Before
+    public void setUp() {
+        RaptureConfig.setLoadYaml(false);
+        RaptureConfig config = ConfigLoader.getConf();
+        config.RaptureRepo = "REP {} USING MEMORY {}";
+        config.InitSysConfig = "NREP {} USING MEMORY {}";
+        System.setProperty("LOGSTASH-ISENABLED", "false");
+        Kernel.initBootstrap();
+        callingContext = ContextFactory.getKernelUser();
+        docApi = new DocApiImpl(Kernel.INSTANCE) {
+            @Override
+            RunEventHandle runUpdateEvent(CallingContext context, RaptureURI internalUri, Map<String, String> eventContextMap) {
+                events.add(internalUri.getDocPath());
+                return null;
+            }
+
+            @Override
+            public void runIndex(CallingContext context, IndexScriptPair indexScriptPair, String authority, String displayName, String content) {
+                indexed.add(displayName + "=" + content);
+            }
+
+            @Override
+            void publishSave(CallingContext context, DocumentRepoConfig type, RaptureURI internalUri, DocumentWithMeta doc) {
+                searchable.put(internalUri.getDocPath(), doc.getContent());
+            }
+
+            @Override
+            void publishDelete(CallingContext context, DocumentRepoConfig type, RaptureURI internalUri) {
+                searchable.remove(internalUri.getDocPath());
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        ConfigLoader.getConf().DocPostWriteAsync = false;
+    }
+
+    @Test
+    public void testBatchFiresEveryEventButIndexesLatestOnly() {
+        DocumentRepoConfig type = new DocumentRepoConfig();
+        IndexScriptPair pair = new IndexScriptPair();
+        pair.setIndex("index");
+        pair.setScript("script");
+        type.setIndexes(Sets.newHashSet(pair));
+
+        DocPostWriteQueue.process(ImmutableList.of(task(type, "a", "1"), task(type, "b", "2"), task(type, "a", "3")));
+        assertEquals(ImmutableList.of("a", "b", "a"), events);
+        assertEquals(ImmutableList.of("b=2", "a=3"), indexed);
+    }
+
+    @Test
+    public void testDeleteInBatchSupersedesSave() {
+        DocumentRepoConfig type = new DocumentRepoConfig();
+        IndexScriptPair pair = new IndexScriptPair();
+        pair.setIndex("index");
+        pair.setScript("script");
+        type.setIndexes(Sets.newHashSet(pair));
+
+        RaptureURI uri = new RaptureURI("document://" + auth + "/a", Scheme.DOCUMENT);
+        searchable.put("a", "0");
+        DocPostWriteQueue.process(ImmutableList.of(task(type, "a", "1"), DocPostWriteQueue.Task.delete(docApi, callingContext, uri, type)));
+        assertEquals(ImmutableList.of("a"), events);
+        assertTrue(indexed.isEmpty());
+        assertFalse(searchable.containsKey("a"));
+    }
+
+    @Test
+    public void testSavesOfOneDocumentStayInOrder() {
+        DocumentRepoConfig type = new DocumentRepoConfig();
+        IndexScriptPair pair = new IndexScriptPair();
+        pair.setIndex("index");
+        pair.setScript("script");
+        type.setIndexes(Sets.newHashSet(pair));
+
+        // A small queue per worker, so some saves also take the back pressure path
+        DocPostWriteQueue queue = new DocPostWriteQueue(8, 4, 3);
+        for (int i = 0; i < 300; i++) {
+            queue.submit(task(type, "doc" + (i % 5), String.valueOf(i)));
+        }
+        queue.drain();
+
+        Map<String, Integer> last = new HashMap<>();
+        synchronized (indexed) {
+            for (String entry : indexed) {
+                String[] parts = entry.split("=");
+                Integer previous = last.put(parts[0], Integer.valueOf(parts[1]));
+                assertTrue(entry, previous == null || previous < Integer.valueOf(parts[1]));
+            }
+        }
+        assertEquals(5, last.size());
+        for (int d = 0; d < 5; d++) {
+            assertEquals(Integer.valueOf(295 + d), last.get("doc" + d));
+        }
+        assertEquals(300, events.size());
+    }
+
+    @Test
+    public void testAsyncSaveIsReadableAndFollowUpRuns() {
+        ConfigLoader.getConf().DocPostWriteAsync = true;
+        docApi.createDocRepo(callingContext, "document://" + auth, "NREP {} USING MEMORY {}");
+        String docUri = "document://" + auth + "/x/y";
+        docApi.putDoc(callingContext, docUri, "{\"a\":1}");
+        assertEquals("{\"a\":1}", docApi.getDoc(callingContext, docUri));
+        DocPostWriteQueue.get().drain();
+        for (int i = 0; i < 100 && events.isEmpty(); i++) {
+            sleep();
+        }
+        assertEquals(ImmutableList.of("x/y"), events);
+    }
+
+    @Test
+    public void testAsyncDeleteAfterSaveIsNotSearchable() {
+        ConfigLoader.getConf().DocPostWriteAsync = true;
+        String repoUri = "document://" + auth + "deleted";
+        docApi.createDocRepo(callingContext, repoUri, "NREP {} USING MEMORY {}");
+        for (int i = 0; i < 50; i++) {
+            String docUri = repoUri + "/doc" + i;
+            docApi.putDoc(callingContext, docUri, "{\"a\":" + i + "}");
+            docApi.deleteDoc(callingContext, docUri);
+        }
+        DocPostWriteQueue.get().drain();
+
+        assertTrue(searchable.toString(), searchable.isEmpty());
+        assertEquals(50, events.size());
+        assertNull(docApi.getDoc(callingContext, repoUri + "/doc0"));
+    }
+
+    private DocPostWriteQueue.Task task(DocumentRepoConfig type, String path, String content) {
+        RaptureURI uri = new RaptureURI("document://" + auth + "/" + path, Scheme.DOCUMENT);
+        return new DocPostWriteQueue.Task(docApi, callingContext, uri, content, type, new HashMap<String, String>(), new DocumentWithMeta());
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -29,14 +29,23 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import rapture.common.CallingContext;
 import rapture.common.RaptureConstants;
 import rapture.common.RaptureURI;
 import rapture.common.Scheme;
@@ -122,4 +131,55 @@ public class IdGenApiFileTest {
         String result = f.incrementIdGen(14500L);
         assertEquals("FOO00000BAR",result);
     }
+
+    @Test
+    public void testLeasedIdsAreUniqueAcrossInstances() throws Exception {
+        String config = "IDGEN { lease=\"7\", length=\"6\" } USING FILE { prefix=\"/tmp/" + auth + "/leased\"}";
+        final RaptureIdGen first = IdGenFactory.getIdGen(config);
+        final RaptureIdGen second = IdGenFactory.getIdGen(config);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final RaptureIdGen idgen = (t % 2 == 0) ? first : second;
+            futures.add(executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    List<String> ids = new ArrayList<>();
+                    for (int i = 0; i < 250; i++) {
+                        ids.add(idgen.incrementIdGen(1L));
+                    }
+                    return ids;
+                }
+            }));
+        }
+        Set<String> seen = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            seen.addAll(future.get());
+        }
+        executor.shutdown();
+        assertEquals(2000, seen.size());
+    }
+
+    @Test
+    public void testSetAndDeleteDropLeasesElsewhere() {
+        CallingContext context = ContextFactory.getKernelUser();
+        String uri = "idgen://" + auth + "/shared";
+        String config = "IDGEN { lease=\"10\", length=\"6\" } USING FILE { prefix=\"/tmp/" + auth + "/shared\"}";
+        IdGenApiImpl local = Kernel.getIdGen().getTrusted();
+        // Stands in for another kernel, which applies the change when the notification reaches it
+        IdGenApiImpl other = new IdGenApiImpl(Kernel.INSTANCE);
+        String normalized = new RaptureURI(uri, Scheme.IDGEN).toString();
+
+        local.createIdGen(context, uri, config);
+        assertEquals("000001", other.next(context, uri));
+        local.setIdGen(context, uri, 100L);
+        other.applyChange(normalized);
+        assertEquals("000101", other.next(context, uri));
+
+        local.deleteIdGen(context, uri);
+        local.createIdGen(context, uri, config);
+        other.applyChange(normalized);
+        assertEquals("000001", other.next(context, uri));
+        assertEquals("000011", local.next(context, uri));
+    }
 }
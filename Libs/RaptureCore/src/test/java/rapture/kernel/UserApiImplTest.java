@@ -23,6 +23,7 @@
  */
 package rapture.kernel;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -90,4 +91,16 @@ public class UserApiImplTest {
         assertTrue(api.isPermitted(ozzyContext, "doc.putDoc", "doc://foo/bar"));
     }
     // overlaps with EntitlementApiImplTest
+
+    @Test
+    public void testUserChangesReachSecurityCache() {
+        Kernel.getSecurityCache().getUser(user);
+        api.updateMyDescription(ozzyContext, "Prince of Darkness");
+        assertEquals("Prince of Darkness", Kernel.getSecurityCache().getUser(user).getDescription());
+
+        Kernel.getAdmin().deleteUser(rootContext, user);
+        assertTrue(Kernel.getSecurityCache().getUser(user).getInactive());
+        Kernel.getAdmin().restoreUser(rootContext, user);
+        assertFalse(Kernel.getSecurityCache().getUser(user).getInactive());
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.HttpURLConnection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rapture.common.CallingContext;
+import rapture.common.exception.RaptureException;
+import rapture.common.impl.jackson.MD5Utils;
+import rapture.config.ConfigLoader;
+import rapture.config.RaptureConfig;
+import rapture.kernel.ContextFactory;
+import rapture.kernel.Kernel;
+
+public class SecurityCacheTest {
+    private static final String ENT = "/security/cache/test";
+    private static final String GROUP = "securityCacheGroup";
+    private static final String USER = "securityCacheUser";
+
+    private CallingContext rootContext;
+    private CallingContext userContext;
+
+    @Before
+    public void setUp() {
+        RaptureConfig.setLoadYaml(false);
+        RaptureConfig config = ConfigLoader.getConf();
+        config.RaptureRepo = "REP {} USING MEMORY {}";
+        config.InitSysConfig = "NREP {} USING MEMORY {}";
+        System.setProperty("LOGSTASH-ISENABLED", "false");
+        Kernel.INSTANCE.restart();
+        Kernel.initBootstrap();
+        rootContext = ContextFactory.getKernelUser();
+        if (!Kernel.getAdmin().doesUserExist(rootContext, USER)) {
+            Kernel.getAdmin().addUser(rootContext, USER, "Security cache user", MD5Utils.hash16(USER), "user@incapture.net");
+        }
+        userContext = Kernel.getLogin().login(USER, USER, null);
+        Kernel.getEntitlement().addEntitlementGroup(rootContext, GROUP);
+        Kernel.getEntitlement().addEntitlement(rootContext, ENT, GROUP);
+    }
+
+    @Test
+    public void testDecisionFollowsGroupChanges() {
+        assertFalse(isAllowed(ENT + "/doc"));
+        // the denial is now remembered, and must be forgotten when the user joins the group
+        assertFalse(isAllowed(ENT + "/doc"));
+        Kernel.getEntitlement().addUserToEntitlementGroup(rootContext, GROUP, USER);
+        assertTrue(isAllowed(ENT + "/doc"));
+        assertTrue(isAllowed(ENT + "/doc"));
+        Kernel.getEntitlement().removeUserFromEntitlementGroup(rootContext, GROUP, USER);
+        assertFalse(isAllowed(ENT + "/doc"));
+    }
+
+    @Test
+    public void testUnentitledPathIsAllowed() {
+        assertTrue(isAllowed("/security/open/doc"));
+        assertTrue(isAllowed("/security/open/doc"));
+    }
+
+    @Test
+    public void testSessionsAreCopiedAndForgottenOnLogout() {
+        CallingContext first = Kernel.getKernel().loadContext(userContext.getContext());
+        CallingContext second = Kernel.getKernel().loadContext(userContext.getContext());
+        assertEquals(USER, first.getUser());
+        assertNotSame(first, second);
+        first.setUser("someoneElse");
+        assertEquals(USER, Kernel.getKernel().loadContext(userContext.getContext()).getUser());
+
+        Kernel.getUser().logoutUser(userContext);
+        assertNull(Kernel.getKernel().loadContext(userContext.getContext()));
+    }
+
+    private boolean isAllowed(String path) {
+        try {
+            Kernel.getKernel().validateContext(userContext, path, null);
+            return true;
+        } catch (RaptureException e) {
+            if (e.getStatus() != HttpURLConnection.HTTP_FORBIDDEN) {
+                fail(e.getMessage());
+            }
+            return false;
+        }
+    }
+}
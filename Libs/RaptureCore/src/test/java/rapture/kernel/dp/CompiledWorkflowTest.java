@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.dp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rapture.common.dp.Step;
+import rapture.common.dp.Transition;
+import rapture.common.dp.Workflow;
+import rapture.dp.DefaultDecisionProcessExecutor;
+import rapture.dp.WorkflowFactory;
+import rapture.kernel.dp.CompiledWorkflow.CompiledStep;
+
+public class CompiledWorkflowTest {
+    private static final String WORKFLOW_URI = "workflow://compiled/flow";
+
+    private Workflow workflow;
+    private CompiledWorkflow compiled;
+
+    @Before
+    public void setup() {
+        List<Step> steps = new ArrayList<>();
+        Step first = new Step();
+        first.setName("first step");
+        first.setExecutable("script://compiled/first");
+        List<Transition> transitions = WorkflowFactory.createTransition("ok", "second");
+        Transition otherwise = new Transition();
+        otherwise.setName("");
+        otherwise.setTargetStep("$FAIL");
+        transitions.add(otherwise);
+        first.setTransitions(transitions);
+        steps.add(first);
+
+        Step second = new Step();
+        second.setName("second");
+        second.setExecutable("script://compiled/second");
+        second.setCategoryOverride("beta");
+        second.setSoftTimeout(30);
+        steps.add(second);
+
+        workflow = new Workflow();
+        workflow.setWorkflowURI(WORKFLOW_URI);
+        workflow.setCategory("alpha");
+        workflow.setStartStep("first step");
+        workflow.setSteps(steps);
+        compiled = new CompiledWorkflow(workflow, CompiledWorkflow.workflowPart(WORKFLOW_URI + "#second"));
+    }
+
+    @Test
+    public void testSteps() {
+        CompiledStep second = compiled.getStep(WORKFLOW_URI + "#second");
+        assertSame(workflow.getSteps().get(1), second.getStep());
+        assertEquals(WORKFLOW_URI + "#second", second.getUri());
+        assertEquals("beta", second.getCategory());
+        assertEquals(30, second.getSoftTimeout());
+        assertSame(second, compiled.getStepByName("second"));
+
+        CompiledStep first = compiled.getStepByName("first step");
+        assertEquals("alpha", first.getCategory());
+        assertEquals(-1, first.getSoftTimeout());
+        assertSame(first, compiled.getStep(first.getUri()));
+        assertSame(compiled, first.getWorkflow());
+
+        assertNull(compiled.getStep(WORKFLOW_URI));
+        assertNull(compiled.getStep(WORKFLOW_URI + "#missing"));
+        assertNull(compiled.getStepByName("missing"));
+    }
+
+    @Test
+    public void testImpliedStep() {
+        CompiledStep ret = compiled.getStepByName("$RETURN:done");
+        assertEquals("$RETURN:done", ret.getStep().getExecutable());
+        assertEquals("alpha", ret.getCategory());
+        assertEquals("$RETURN:done", compiled.getStep(ret.getUri()).getName());
+    }
+
+    @Test
+    public void testTransitions() {
+        Step first = workflow.getSteps().get(0);
+        CompiledStep compiledFirst = compiled.getStepByName("first step");
+        for (String name : new String[] { "ok", "", "other" }) {
+            assertSame(DefaultDecisionProcessExecutor.getTransition(first, name), compiledFirst.getTransition(name));
+        }
+        assertEquals("second", compiledFirst.getTransition("ok").getTargetStep());
+        assertEquals("$FAIL", compiledFirst.getTransition(null).getTargetStep());
+        // a step without transitions returns
+        assertNull(compiled.getStepByName("second").getTransition("ok"));
+    }
+}
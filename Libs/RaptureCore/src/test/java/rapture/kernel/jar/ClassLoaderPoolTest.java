@@ -0,0 +1,59 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.jar;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import rapture.common.jar.AbstractClassLoader;
+import rapture.common.jar.ClassLoaderPool;
+import rapture.kernel.script.KernelScript;
+
+public class ClassLoaderPoolTest extends AbstractClassLoaderTest {
+
+    @Test
+    public void testLoadersAreReusedUntilTheirJarsChange() throws Exception {
+        KernelScript ks = new KernelScript();
+        ks.setCallingContext(ctx);
+        ClassLoader parent = this.getClass().getClassLoader();
+        ClassLoaderPool pool = ClassLoaderPool.getInstance();
+        pool.invalidateAll();
+
+        AbstractClassLoader first = pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI1, JAR_URI2));
+        assertSame(first, pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI1, JAR_URI2)));
+        assertSame(first.loadClass("rapture.dp.ClassLoaderTest1"),
+                pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI1, JAR_URI2)).loadClass("rapture.dp.ClassLoaderTest1"));
+        assertNotSame(first, pool.get(parent, ks, ctx.getUser(), true, Arrays.asList(JAR_URI1, JAR_URI2)));
+        assertNotSame(first, pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI2, JAR_URI1)));
+
+        AbstractClassLoader unrelated = pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI3));
+        pool.invalidate(JAR_URI2);
+        assertNotSame(first, pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI1, JAR_URI2)));
+        assertSame(unrelated, pool.get(parent, ks, ctx.getUser(), false, Arrays.asList(JAR_URI3)));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class JobExecTimelineTest {
+
+    @Test
+    public void testDueJobsInOrder() throws InterruptedException {
+        JobExecTimeline timeline = new JobExecTimeline();
+        long now = System.currentTimeMillis();
+        timeline.schedule("job://a", now - 10);
+        timeline.schedule("job://b", now - 20);
+        timeline.schedule("job://c", now + 60000);
+        assertEquals(Arrays.asList("job://b", "job://a"), timeline.takeDue(0));
+        assertEquals(1, timeline.size());
+        assertTrue(timeline.takeDue(10).isEmpty());
+    }
+
+    @Test
+    public void testRescheduleAndCancel() throws InterruptedException {
+        JobExecTimeline timeline = new JobExecTimeline();
+        long now = System.currentTimeMillis();
+        timeline.schedule("job://a", now - 10);
+        timeline.schedule("job://a", now + 60000);
+        assertEquals(Long.valueOf(now + 60000), timeline.getExecTime("job://a"));
+        assertTrue(timeline.takeDue(0).isEmpty());
+        timeline.cancel("job://a");
+        assertNull(timeline.getExecTime("job://a"));
+
+        Map<String, Long> loaded = new HashMap<String, Long>();
+        loaded.put("job://x", now - 1);
+        timeline.reset(loaded);
+        assertEquals(Arrays.asList("job://x"), timeline.takeDue(0));
+    }
+
+    @Test
+    public void testWakesForEarlierJob() throws InterruptedException {
+        final JobExecTimeline timeline = new JobExecTimeline();
+        Thread scheduler = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                timeline.schedule("job://soon", System.currentTimeMillis() + 100);
+            }
+        };
+        scheduler.start();
+        long start = System.currentTimeMillis();
+        List<String> due = timeline.takeDue(30000);
+        assertEquals(Arrays.asList("job://soon"), due);
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        scheduler.join();
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.kernel.search.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rapture.common.DocUpdateObject;
+import rapture.common.RaptureURI;
+import rapture.common.Scheme;
+import rapture.common.SearchResponse;
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.model.DocumentMetadata;
+import rapture.common.model.DocumentWithMeta;
+import rapture.common.series.SeriesUpdateObject;
+import rapture.kernel.search.SearchRepository;
+import rapture.kernel.search.SearchRepositoryFactory;
+import rapture.search.SearchRepoType;
+
+public class LuceneSearchRepositoryTest {
+
+    private LuceneSearchRepository l;
+    private String instanceName;
+
+    @Before
+    public void setup() {
+        l = new LuceneSearchRepository();
+        l.setConfig(new HashMap<String, String>());
+        // Repositories with the same instance name share an in-memory index
+        instanceName = "unittest" + UUID.randomUUID();
+        l.setInstanceName(instanceName);
+        l.start();
+    }
+
+    @Test
+    public void testEasySearch() {
+        String json = "{" + "\"user\":\"kimchy\"," + "\"postDate\":\"2014-01-30\"," + "\"message\":\"trying out Elasticsearch\"" + "}";
+        RaptureURI uri = new RaptureURI("document://unittest/doc1", Scheme.DOCUMENT);
+        DocumentWithMeta d = createDummyDocumentWithMeta(uri.toString(), json);
+        l.put(new DocUpdateObject(d));
+        SearchResponse response = l.search(Arrays.asList(Scheme.DOCUMENT.toString()), "kimchy");
+        assertEquals(1, response.getTotal().longValue());
+        assertEquals(1, response.getSearchHits().size());
+        assertEquals(uri.toShortString(), response.getSearchHits().get(0).getUri());
+        assertEquals(json, response.getSearchHits().get(0).getSource());
+
+        assertEquals(1, l.search(null, "message:\"trying out\" AND -user:bob").getTotal().longValue());
+        assertEquals(0, l.search(null, "message:\"out trying\"").getTotal().longValue());
+        assertEquals(1, l.search(null, "user:kim*").getTotal().longValue());
+    }
+
+    @Test
+    public void testSearchWithCursor() {
+        insertTestDocs();
+        int size = 25;
+        String query = "u*er*";
+        SearchResponse res = l.searchWithCursor(Arrays.asList(Scheme.DOCUMENT.toString()), null, size, query);
+        assertNotNull(res.getCursorId());
+        assertEquals(25, res.getSearchHits().size());
+        assertEquals(100, res.getTotal().longValue());
+        for (int i = 0; i < res.getSearchHits().size(); i++) {
+            assertEquals("document://unittest/doc" + i, res.getSearchHits().get(i).getUri());
+        }
+        int counter = size;
+        while (true) {
+            res = l.searchWithCursor(Arrays.asList(Scheme.DOCUMENT.toString()), res.getCursorId(), size, query);
+            if (res.getSearchHits().isEmpty()) {
+                break;
+            }
+            assertEquals(25, res.getSearchHits().size());
+            assertEquals(100, res.getTotal().longValue());
+            for (int i = 0; i < res.getSearchHits().size(); i++) {
+                assertEquals("document://unittest/doc" + (i + counter), res.getSearchHits().get(i).getUri());
+            }
+            counter += size;
+        }
+        assertEquals(100, counter);
+    }
+
+    @Test
+    public void testDocPut() {
+        String docPath = "dubnation/d2/d1";
+        DocumentWithMeta d = createDummyDocumentWithMeta(Scheme.DOCUMENT.toString() + "://" + docPath, "{\"k1\":\"v1\"}");
+        l.put(new DocUpdateObject(d));
+        SearchResponse r = l.search(Arrays.asList(Scheme.DOCUMENT.toString()), "v1");
+        assertEquals(1L, r.getTotal().longValue());
+        assertEquals("document", r.getSearchHits().get(0).getIndexType());
+        assertEquals("document://" + docPath, r.getSearchHits().get(0).getId());
+        assertEquals("{\"k1\":\"v1\"}", r.getSearchHits().get(0).getSource());
+
+        r = l.search(Arrays.asList(SearchRepoType.uri.toString()), "d2");
+        assertEquals(1L, r.getTotal().longValue());
+        assertEquals(SearchRepoType.uri.toString(), r.getSearchHits().get(0).getIndexType());
+        assertEquals("document://" + docPath, r.getSearchHits().get(0).getUri());
+        assertEquals("{\"parts\":[\"d2\",\"d1\"],\"repo\":\"dubnation\",\"scheme\":\"document\"}", r.getSearchHits().get(0).getSource());
+
+        // a second put replaces rather than adds
+        l.put(new DocUpdateObject(createDummyDocumentWithMeta(Scheme.DOCUMENT.toString() + "://" + docPath, "{\"k1\":\"v2\"}")));
+        assertEquals(0L, l.search(Arrays.asList(Scheme.DOCUMENT.toString()), "v1").getTotal().longValue());
+        assertEquals(1L, l.search(Arrays.asList(Scheme.DOCUMENT.toString()), "k1:v2").getTotal().longValue());
+    }
+
+    @Test
+    public void testSeriesPut() {
+        String uri = "series://unittest/s1";
+        l.put(new SeriesUpdateObject(uri, Arrays.asList("k1"), Arrays.asList("v1")));
+        l.put(new SeriesUpdateObject(uri, Arrays.asList("k2"), Arrays.asList("v2")));
+        SearchResponse r = l.search(Arrays.asList(Scheme.SERIES.toString()), "v1");
+        assertEquals(1L, r.getTotal().longValue());
+        assertEquals("{\"k1\":\"v1\",\"k2\":\"v2\"}", r.getSearchHits().get(0).getSource());
+    }
+
+    @Test
+    public void testConcurrentSeriesPut() throws Exception {
+        final String uri = "series://unittest/s2";
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        // searches keep refreshing the index while the columns are merged in
+        Future<?> reader = pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                while (writing.get()) {
+                    l.search(Arrays.asList(Scheme.SERIES.toString()), "v*");
+                }
+            }
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            writers.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 50; i++) {
+                        l.put(new SeriesUpdateObject(uri, Arrays.asList("k" + thread + "_" + i), Arrays.asList("v" + i)));
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        reader.get();
+        pool.shutdown();
+
+        l.refresh();
+        SearchResponse r = l.search(Arrays.asList(Scheme.SERIES.toString()), "k0_0:v0");
+        assertEquals(1L, r.getTotal().longValue());
+        assertEquals(200, JacksonUtil.getMapFromJson(r.getSearchHits().get(0).getSource()).size());
+    }
+
+    @Test
+    public void testRemoveAndDrop() {
+        insertTestDocs();
+        l.put(new DocUpdateObject(createDummyDocumentWithMeta("document://other/doc1", "{\"user\":\"other\"}")));
+
+        int total = 0;
+        SearchResponse r = l.searchForRepoUris(Scheme.DOCUMENT.toString(), "unittest", null);
+        while (!r.getSearchHits().isEmpty()) {
+            for (rapture.common.SearchHit hit : r.getSearchHits()) {
+                assertTrue(hit.getUri().startsWith("document://unittest/"));
+                total++;
+            }
+            r = l.searchForRepoUris(Scheme.DOCUMENT.toString(), "unittest", r.getCursorId());
+        }
+        assertEquals(100, total);
+
+        l.remove(new RaptureURI("document://unittest/doc0", Scheme.DOCUMENT));
+        assertEquals(99L, l.searchForRepoUris(Scheme.DOCUMENT.toString(), "unittest", null).getTotal().longValue());
+        assertEquals(0L, l.search(null, "doc0").getTotal().longValue());
+
+        l.dropIndexForRepo("unittest");
+        assertEquals(0L, l.searchForRepoUris(Scheme.DOCUMENT.toString(), "unittest", null).getTotal().longValue());
+        assertEquals(1L, l.searchForRepoUris(Scheme.DOCUMENT.toString(), "other", null).getTotal().longValue());
+    }
+
+    @Test
+    public void testRecreateOnSamePath() throws Exception {
+        File dir = Files.createTempDirectory("lucene").toFile();
+        Map<String, String> config = new HashMap<>();
+        config.put("path", dir.getAbsolutePath());
+
+        LuceneSearchRepository first = new LuceneSearchRepository();
+        first.setConfig(config);
+        first.setInstanceName("first");
+        first.start();
+        first.put(new DocUpdateObject(createDummyDocumentWithMeta("document://unittest/before", "{\"k1\":\"before\"}")));
+
+        // As the repo cache does when the search repo config changes
+        LuceneSearchRepository second = new LuceneSearchRepository();
+        second.setConfig(config);
+        second.setInstanceName("second");
+        second.start();
+        second.put(new DocUpdateObject(createDummyDocumentWithMeta("document://unittest/after", "{\"k1\":\"after\"}")));
+        second.commit();
+
+        assertEquals(1L, second.search(Arrays.asList(Scheme.DOCUMENT.toString()), "k1:before").getTotal().longValue());
+        assertEquals(1L, first.search(Arrays.asList(Scheme.DOCUMENT.toString()), "k1:after").getTotal().longValue());
+    }
+
+    @Test
+    public void testRecreateInMemory() {
+        l.put(new DocUpdateObject(createDummyDocumentWithMeta("document://unittest/doc1", "{\"k1\":\"v1\"}")));
+        LuceneSearchRepository again = new LuceneSearchRepository();
+        again.setConfig(new HashMap<String, String>());
+        again.setInstanceName(instanceName);
+        again.start();
+        assertEquals(1L, again.search(Arrays.asList(Scheme.DOCUMENT.toString()), "v1").getTotal().longValue());
+    }
+
+    @Test
+    public void testFactory() {
+        SearchRepository r = SearchRepositoryFactory.createSearchStore("SEARCH {} USING LUCENE { commitEvery = \"10\" }");
+        assertTrue(r instanceof LuceneSearchRepository);
+    }
+
+    private void insertTestDocs() {
+        for (int i = 0; i < 100; i++) {
+            String json = "{" + "\"user\":\"user" + i + "\"," + "\"postDate\":\"2014-01-30\"," + "\"message\":\"trying out Elasticsearch\"" + "}";
+            l.put(new DocUpdateObject(createDummyDocumentWithMeta("document://unittest/doc" + i, json)));
+        }
+    }
+
+    private DocumentWithMeta createDummyDocumentWithMeta(String semanticUri, String json) {
+        DocumentWithMeta d = new DocumentWithMeta();
+        DocumentMetadata m = new DocumentMetadata();
+        m.setComment("Test comment");
+        m.setUser("Test user");
+        m.setVersion(1);
+        m.setSemanticUri(semanticUri);
+        d.setMetaData(m);
+        d.setContent(json);
+        d.setDisplayName(semanticUri);
+        return d;
+    }
+}
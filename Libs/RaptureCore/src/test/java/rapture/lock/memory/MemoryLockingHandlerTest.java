@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.lock.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import rapture.common.LockHandle;
+
+public class MemoryLockingHandlerTest {
+
+    @Test
+    public void testReleaseWakesWaiter() throws InterruptedException {
+        final MemoryLockingHandler handler = new MemoryLockingHandler();
+        LockHandle handle = handler.acquireLock("one", "/lock/a", 0, 60);
+        assertNotNull(handle);
+        assertNull(handler.acquireLock("two", "/lock/a", 0, 60));
+
+        final long[] waited = new long[1];
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                if (handler.acquireLock("two", "/lock/a", 10, 60) != null) {
+                    waited[0] = System.currentTimeMillis() - start;
+                }
+            }
+        };
+        waiter.start();
+        Thread.sleep(100);
+        assertFalse(handler.releaseLock("two", "/lock/a", handle));
+        assertTrue(handler.releaseLock("one", "/lock/a", handle));
+        waiter.join();
+        assertTrue(waited[0] > 0 && waited[0] < 900);
+    }
+
+    @Test
+    public void testExpiryHandsOver() {
+        MemoryLockingHandler handler = new MemoryLockingHandler();
+        assertNotNull(handler.acquireLock("one", "/lock/b", 0, 1));
+        long start = System.currentTimeMillis();
+        assertNotNull(handler.acquireLock("two", "/lock/b", 5, 60));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertNull(handler.acquireLock("three", "/lock/b", 0, 60));
+    }
+
+    @Test
+    public void testWaitersServedInOrder() throws InterruptedException {
+        final MemoryLockingHandler handler = new MemoryLockingHandler();
+        LockHandle handle = handler.acquireLock("holder", "/lock/c", 0, 60);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            final String name = "waiter" + i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    LockHandle mine = handler.acquireLock(name, "/lock/c", 10, 60);
+                    if (mine != null) {
+                        order.add(name);
+                        handler.releaseLock(name, "/lock/c", mine);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+            Thread.sleep(100);
+        }
+        handler.releaseLock("holder", "/lock/c", handle);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(3, order.size());
+        assertEquals("waiter0", order.get(0));
+        assertEquals("waiter1", order.get(1));
+        assertEquals("waiter2", order.get(2));
+    }
+
+    @Test
+    public void testForceRelease() {
+        MemoryLockingHandler handler = new MemoryLockingHandler();
+        assertFalse(handler.forceReleaseLock("/lock/d"));
+        assertNotNull(handler.acquireLock("one", "/lock/d", 0, 60));
+        assertTrue(handler.forceReleaseLock("/lock/d"));
+        assertNotNull(handler.acquireLock("two", "/lock/d", 0, 60));
+    }
+}
@@ -80,6 +80,29 @@ public class MetricsServiceTest {
         assertNull("id2 null", TimerStartRecordStorage.readByFields("a.b.", id2));
     }
 
+    @Test
+    public void testAggregatesKeepFlushScheduled() {
+        ServiceCache cache = new ServiceCache(HUGE, HUGE, HUGE, new DummyMetricsStore());
+        try {
+            assertFalse(cache.hasPendingMetrics());
+            cache.addCount("count", 1L);
+            assertTrue(cache.hasPendingMetrics());
+            cache.storeAll();
+            assertFalse(cache.hasPendingMetrics());
+
+            // a run that does not store must leave the next one scheduled
+            cache.flushIfNeeded();
+            cache.addTimer("timer", 5L);
+            cache.addGaugeValue("gauge", 2L);
+            cache.flushIfNeeded();
+            assertTrue(cache.hasPendingMetrics());
+            cache.storeAll();
+            assertFalse(cache.hasPendingMetrics());
+        } finally {
+            cache.shutdownExecutor();
+        }
+    }
+
     @Test
     public void testEventsCacheOverflow() throws InterruptedException {
         long maxCacheSize = 2;
@@ -258,6 +281,12 @@ public class MetricsServiceTest {
                 deltas.add(delta);
             }
 
+            @Override
+            public void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99) {
+                parameterNames.add(parameterName);
+                deltas.add(p50);
+            }
+
             @Override
             public void recordGaugeValue(String parameterName, Long value) {
                 parameterNames.add(parameterName);
@@ -305,6 +334,12 @@ public class MetricsServiceTest {
                 deltas.add(delta);
             }
 
+            @Override
+            public void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99) {
+                parameterNames.add(parameterName);
+                deltas.add(p50);
+            }
+
             @Override
             public void recordGaugeValue(String parameterName, Long value) {
                 parameterNames.add(parameterName);
@@ -467,6 +502,12 @@ public class MetricsServiceTest {
                 deltas.add(delta);
             }
 
+            @Override
+            public void recordTimerSummary(String parameterName, long count, long min, long max, long p50, long p99) {
+                parameterNames.add(parameterName);
+                deltas.add(p50);
+            }
+
             @Override
             public void recordGaugeValue(String parameterName, Long value) {
                 parameterNames.add(parameterName);
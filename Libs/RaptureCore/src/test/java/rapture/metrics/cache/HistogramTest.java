@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.metrics.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testSingleValueIsExact() {
+        Histogram histogram = new Histogram();
+        histogram.record(3411L);
+        TimerSummary summary = histogram.drain("t");
+        assertEquals("t", summary.getParameterName());
+        assertEquals(1, summary.getCount());
+        assertEquals(3411L, summary.getMin());
+        assertEquals(3411L, summary.getMax());
+        assertEquals(3411L, summary.getP50());
+        assertEquals(3411L, summary.getP99());
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5L);
+        TimerSummary summary = histogram.drain("t");
+        assertEquals(10001, summary.getCount());
+        assertEquals(0L, summary.getMin());
+        assertEquals(10000L, summary.getMax());
+        assertTrue("p50 " + summary.getP50(), Math.abs(summary.getP50() - 5000) <= 5000 * 0.04);
+        assertTrue("p99 " + summary.getP99(), Math.abs(summary.getP99() - 9900) <= 9900 * 0.04);
+    }
+
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (long value = 0; value < 1L << 20; value = value * 2 + 1) {
+            int bucket = Histogram.bucketFor(value);
+            assertTrue(bucket > previous);
+            long midpoint = Histogram.midpointOf(bucket);
+            assertTrue("value " + value + " midpoint " + midpoint, Math.abs(midpoint - value) <= value / 32 + 1);
+            previous = bucket;
+        }
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testDrainResets() {
+        Histogram histogram = new Histogram();
+        assertNull(histogram.drain("t"));
+        histogram.record(10L);
+        histogram.record(20L);
+        assertEquals(2, histogram.drain("t").getCount());
+        assertNull(histogram.drain("t"));
+        histogram.record(7L);
+        TimerSummary summary = histogram.drain("t");
+        assertEquals(1, summary.getCount());
+        assertEquals(7L, summary.getMin());
+        assertEquals(7L, summary.getMax());
+    }
+}
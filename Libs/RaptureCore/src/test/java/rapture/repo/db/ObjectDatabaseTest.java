@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.repo.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rapture.common.impl.jackson.JsonContent;
+import rapture.common.repo.DocumentBagObject;
+import rapture.common.repo.DocumentBagReference;
+import rapture.common.repo.DocumentObject;
+import rapture.common.repo.TreeObject;
+import rapture.repo.mem.MemKeyStore;
+
+public class ObjectDatabaseTest {
+    private int reads;
+    private ObjectDatabase objDb;
+
+    @Before
+    public void setUp() {
+        reads = 0;
+        MemKeyStore store = new MemKeyStore() {
+            @Override
+            public String get(String k) {
+                reads++;
+                return super.get(k);
+            }
+        };
+        store.setConfig(new HashMap<String, String>());
+        objDb = new ObjectDatabase(store);
+    }
+
+    @Test
+    public void testDecodedObjectsAreReadOnce() {
+        DocumentObject doc = new DocumentObject();
+        doc.setContent(new JsonContent("{\"a\":1}"));
+        String ref = objDb.writeDocument(doc);
+        DocumentObject first = objDb.getDocument(ref);
+        assertSame(first, objDb.getDocument(ref));
+        assertEquals(1, reads);
+
+        doc.setContent(new JsonContent("{\"a\":2}"));
+        objDb.writeDocument(doc, ref);
+        assertEquals("{\"a\":2}", objDb.getDocument(ref).getContent().toString());
+
+        objDb.delete(Collections.singletonList(ref));
+        assertNull(objDb.getDocument(ref));
+    }
+
+    @Test
+    public void testPathResolutionIsCached() {
+        DocumentObject doc = new DocumentObject();
+        doc.setContent(new JsonContent("{\"a\":1}"));
+        String docRef = objDb.writeDocument(doc);
+
+        DocumentBagObject bag = new DocumentBagObject();
+        bag.getDocRefs().put("doc", docRef);
+        DocumentBagReference bagRef = new DocumentBagReference();
+        bagRef.setBagRef(objDb.writeDocumentBag(bag));
+        TreeObject inner = new TreeObject();
+        inner.getDocuments().add(bagRef);
+        TreeObject root = new TreeObject();
+        root.getTrees().put("folder", objDb.writeTree(inner));
+        String rootRef = objDb.writeTree(root);
+
+        assertEquals(docRef, objDb.resolveDocumentRef(rootRef, "folder/doc"));
+        int afterFirst = reads;
+        assertEquals(docRef, objDb.resolveDocumentRef(rootRef, "folder/doc"));
+        assertEquals(afterFirst, reads);
+        assertNull(objDb.resolveDocumentRef(rootRef, "folder/missing"));
+    }
+}
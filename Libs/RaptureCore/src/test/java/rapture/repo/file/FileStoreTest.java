@@ -23,7 +23,11 @@
  */
 package rapture.repo.file;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,6 +83,28 @@ public class FileStoreTest {
         }
     }
 
+    @Test
+    public void testBatch() throws Exception {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 != 0) {
+                store.put("batch/" + i, "value" + i);
+            }
+            keys.add("batch/" + i);
+        }
+        List<String> values = store.getBatch(keys);
+        List<String> asyncValues = store.getBatchAsync(keys).get();
+        assertEquals(200, values.size());
+        assertEquals(values, asyncValues);
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 == 0) {
+                assertNull(values.get(i));
+            } else {
+                assertEquals("value" + i, values.get(i));
+            }
+        }
+    }
+
     private void show(List<RaptureFolderInfo> ret) {
         for (RaptureFolderInfo r : ret) {
             System.out.println("Name=" + r.getName() + ",folder=" + r.isFolder());
@@ -0,0 +1,90 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.repo.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rapture.repo.RepoFactory;
+
+public class CachedRepoTest {
+
+    @Test
+    public void testWritesInvalidate() {
+        CachedRepo r = (CachedRepo) RepoFactory.getRepo("CACHE REP {} using MEMORY {} SHADOW MEMORY {}");
+        r.addDocument("a/1", "{\"v\":1}", "test", "add", false);
+        assertEquals("{\"v\":1}", r.getDocument("a/1"));
+        assertEquals(1, r.getDocumentCache().size());
+
+        r.addDocument("a/1", "{\"v\":2}", "test", "update", false);
+        assertEquals("{\"v\":2}", r.getDocument("a/1"));
+
+        r.removeDocument("a/1", "test", "remove");
+        assertNull(r.getDocument("a/1"));
+    }
+
+    @Test
+    public void testGetDocumentsMixesHitsAndMisses() {
+        CachedRepo r = (CachedRepo) RepoFactory.getRepo("CACHE REP {} using MEMORY {} SHADOW MEMORY {}");
+        r.addDocument("b/1", "{\"v\":1}", "test", "add", false);
+        r.addDocument("b/2", "{\"v\":2}", "test", "add", false);
+        r.getDocument("b/2");
+        List<String> contents = r.getDocuments(Arrays.asList("b/1", "b/2", "b/3"));
+        assertEquals(Arrays.asList("{\"v\":1}", "{\"v\":2}", null), contents);
+        assertEquals(2, r.getDocumentCache().size());
+    }
+
+    @Test
+    public void testBoundedBySize() {
+        DocumentCache cache = new DocumentCache(1000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("doc/" + i, "0123456789", cache.generation("doc/" + i));
+        }
+        assertTrue(cache.size() < 100);
+        assertEquals("0123456789", cache.get("doc/99"));
+    }
+
+    @Test
+    public void testInvalidateDuringFillWins() {
+        DocumentCache cache = new DocumentCache(100000);
+        long generation = cache.generation("c/1");
+        // the document is changed while the old content is being read
+        cache.invalidate("c/1");
+        cache.put("c/1", "{\"v\":1}", generation);
+        assertNull(cache.get("c/1"));
+
+        cache.put("c/1", "{\"v\":2}", cache.generation("c/1"));
+        assertEquals("{\"v\":2}", cache.get("c/1"));
+        generation = cache.generation("c/2");
+        cache.invalidateAll();
+        cache.put("c/2", "{\"v\":1}", generation);
+        assertNull(cache.get("c/2"));
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.script.reflex;
+
+import static org.junit.Assert.assertEquals;
+
+import org.antlr.runtime.RecognitionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import reflex.AddingOutputReflexHandler;
+import reflex.ReflexTreeWalker;
+import reflex.debug.NullDebugger;
+
+public class ReflexScriptCacheTest {
+    private static final String SCRIPT = "def fact(n)\n if n <= 1 do\n return 1;\n end\n return n * fact(n - 1);\nend\nx = fact(5);\nreturn x;\n";
+
+    @Before
+    public void setup() {
+        ReflexScriptCache.INSTANCE.clear();
+    }
+
+    private Object run(String name, String script) throws RecognitionException {
+        ReflexTreeWalker walker = ReflexScriptCache.INSTANCE.getWalker(null, name, script);
+        walker.setReflexHandler(new AddingOutputReflexHandler());
+        return walker.walk().evaluateWithoutScope(new NullDebugger()).asObject();
+    }
+
+    @Test
+    public void testParsedOnce() throws RecognitionException {
+        assertEquals(120, ((Number) run("script://test/fact", SCRIPT)).intValue());
+        assertEquals(120, ((Number) run("script://test/fact", SCRIPT)).intValue());
+        assertEquals(1, ReflexScriptCache.INSTANCE.size());
+    }
+
+    @Test
+    public void testContentChangeReparses() throws RecognitionException {
+        assertEquals(120, ((Number) run("script://test/fact", SCRIPT)).intValue());
+        assertEquals(720, ((Number) run("script://test/fact", SCRIPT.replace("fact(5)", "fact(6)"))).intValue());
+        assertEquals(2, ReflexScriptCache.INSTANCE.size());
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rapture.common.SeriesValue;
+import rapture.dsl.serfun.DecimalSeriesValue;
+
+public class MappedSeriesFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedSeriesFile write(int count) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int i = 0; i < count; i++) {
+                out.write(SeriesRecord.of(new DecimalSeriesValue(i, String.format("%04d", i * 2))).toLine());
+            }
+        }
+        return MappedSeriesFile.open(file);
+    }
+
+    @Test
+    public void testStoreSeesWritesAfterMapping() throws IOException {
+        FileSeriesStore store = new FileSeriesStore();
+        Map<String, String> config = new HashMap<String, String>();
+        config.put(FileSeriesStore.PREFIX, folder.newFolder("flat").getAbsolutePath());
+        store.setConfig(config);
+
+        store.addDoubleToSeries("s", "10", 1.0);
+        assertEquals(1, store.getPoints("s").size());
+        store.addDoubleToSeries("s", "20", 2.0);
+        store.addDoubleToSeries("s", "05", 0.5);
+        List<SeriesValue> points = store.getPoints("s");
+        assertEquals(3, points.size());
+        assertEquals(0.5, points.get(0).asDouble(), 0.0);
+        assertEquals("20", store.getLastPoint("s").getColumn());
+
+        store.deletePointsFromSeries("s");
+        assertTrue(store.getPoints("s").isEmpty());
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        MappedSeriesFile mapped = MappedSeriesFile.open(new File(folder.getRoot(), "missing"));
+        assertEquals(0, mapped.length());
+        assertTrue(mapped.read(null, null, 10, false).isEmpty());
+        assertTrue(mapped.read(null, null, 10, true).isEmpty());
+    }
+
+    @Test
+    public void testForwardRange() throws IOException {
+        MappedSeriesFile mapped = write(500);
+        List<SeriesValue> points = mapped.read("0101", "0110", 100, false);
+        assertEquals(5, points.size());
+        assertEquals("0102", points.get(0).getColumn());
+        assertEquals("0110", points.get(4).getColumn());
+
+        points = mapped.read("0000", null, 3, false);
+        assertEquals(3, points.size());
+        assertEquals("0004", points.get(2).getColumn());
+        assertTrue(mapped.read("0999", null, 3, false).isEmpty());
+    }
+
+    @Test
+    public void testReverseRange() throws IOException {
+        MappedSeriesFile mapped = write(500);
+        List<SeriesValue> points = mapped.read("0101", "0090", 100, true);
+        assertEquals(6, points.size());
+        assertEquals("0100", points.get(0).getColumn());
+        assertEquals("0090", points.get(5).getColumn());
+
+        points = mapped.read(null, null, 1, true);
+        assertEquals("0998", points.get(0).getColumn());
+        assertTrue(mapped.read("", null, 3, true).isEmpty());
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.series.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import rapture.common.SeriesValue;
+import rapture.dsl.serfun.DecimalSeriesValue;
+
+public class SegmentedFileSeriesStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    SegmentedFileSeriesStore store = new SegmentedFileSeriesStore();
+    String prefix;
+
+    @Before
+    public void setup() throws IOException {
+        prefix = folder.newFolder("segmented").getAbsolutePath();
+        Map<String, String> config = new HashMap<String, String>();
+        config.put(FileSeriesStore.PREFIX, prefix);
+        config.put(FileSeriesStore.FORMAT, FileSeriesStore.SEGMENTED);
+        store.setConfig(config);
+    }
+
+    @Test
+    public void testAppendOutOfOrder() {
+        store.addDoubleToSeries("a/b", "20", 2.0);
+        store.addDoubleToSeries("a/b", "10", 1.0);
+        store.addDoublesToSeries("a/b", ImmutableList.of("30", "15"), ImmutableList.of(3.0, 1.5));
+        store.addDoubleToSeries("a/b", "20", 2.5);
+
+        List<SeriesValue> points = store.getPoints("a/b");
+        assertEquals(4, points.size());
+        assertEquals("10", points.get(0).getColumn());
+        assertEquals("15", points.get(1).getColumn());
+        assertEquals("20", points.get(2).getColumn());
+        assertEquals(2.5, points.get(2).asDouble(), 0.0);
+        assertEquals("30", points.get(3).getColumn());
+        assertEquals("30", store.getLastPoint("a/b").getColumn());
+    }
+
+    @Test
+    public void testRanges() {
+        addRange("range", 100, 1000);
+        List<SeriesValue> points = store.getPointsAfter("range", "150", "160", 100);
+        assertEquals(11, points.size());
+        assertEquals("150", points.get(0).getColumn());
+        assertEquals("160", points.get(10).getColumn());
+
+        points = store.getPointsAfter("range", "1505", 3);
+        assertEquals("151", points.get(0).getColumn());
+
+        points = store.getPointsAfterReverse("range", "500", 3);
+        assertEquals(3, points.size());
+        assertEquals("500", points.get(0).getColumn());
+        assertEquals("499", points.get(1).getColumn());
+
+        int count = 0;
+        for (SeriesValue value : store.getRangeAsIteration("range", "200", "299", 7)) {
+            assertEquals(String.valueOf(200 + count), value.getColumn());
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    @Test
+    public void testDeletePoints() {
+        addRange("drop", 10, 20);
+        List<String> drop = new ArrayList<>(ImmutableList.of("12", "15"));
+        store.deletePointsFromSeriesByPointKey("drop", drop);
+        List<SeriesValue> points = store.getPoints("drop");
+        assertEquals(8, points.size());
+        assertEquals("13", points.get(2).getColumn());
+
+        assertTrue(store.deletePointsFromSeries("drop"));
+        assertTrue(store.getPoints("drop").isEmpty());
+        assertNull(store.getLastPoint("drop"));
+        assertFalse(store.deletePointsFromSeries("drop"));
+    }
+
+    @Test
+    public void testCompactionAndReopen() throws IOException {
+        File base = new File(prefix + "_series", "compact:");
+        SegmentedSeries series = new SegmentedSeries(base, Integer.MAX_VALUE);
+        series.append(records(0, 500));
+        series.append(ImmutableList.of(SeriesRecord.tombstone("0100")));
+        series.compact();
+        assertFalse(new File(base.getPath() + SegmentedSeries.LOG_SUFFIX).exists());
+        assertFalse(new File(base.getPath() + SegmentedSeries.SEALED_SUFFIX).exists());
+
+        series.append(records(450, 550));
+        assertEquals(549, series.read(null, null, Integer.MAX_VALUE, false).size());
+
+        SegmentedSeries reopened = new SegmentedSeries(base, Integer.MAX_VALUE);
+        List<SeriesValue> points = reopened.read("0099", "0101", 10, false);
+        assertEquals(2, points.size());
+        assertEquals("0099", points.get(0).getColumn());
+        assertEquals("0101", points.get(1).getColumn());
+        assertEquals("0549", reopened.read(null, null, 1, true).get(0).getColumn());
+        assertEquals("0300", reopened.read("0300", null, 1, true).get(0).getColumn());
+    }
+
+    @Test
+    public void testTornLogRecord() throws IOException {
+        File base = new File(prefix + "_series", "torn:");
+        SegmentedSeries series = new SegmentedSeries(base, Integer.MAX_VALUE);
+        series.append(records(0, 3));
+        File logFile = new File(base.getPath() + SegmentedSeries.LOG_SUFFIX);
+        byte[] partial = SeriesRecord.of(new DecimalSeriesValue(9, "0009")).toLine();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(partial, 0, partial.length / 2);
+        }
+
+        SegmentedSeries reopened = new SegmentedSeries(base, Integer.MAX_VALUE);
+        reopened.append(records(5, 6));
+        assertEquals(4, reopened.read(null, null, Integer.MAX_VALUE, false).size());
+
+        List<SeriesValue> points = new SegmentedSeries(base, Integer.MAX_VALUE).read(null, null, Integer.MAX_VALUE, false);
+        assertEquals(4, points.size());
+        assertEquals("0005", points.get(3).getColumn());
+        assertEquals(5.0, points.get(3).asDouble(), 0.0);
+    }
+
+    private void addRange(String key, int from, int to) {
+        List<SeriesValue> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(new DecimalSeriesValue(i, String.valueOf(i)));
+        }
+        store.addPointsToSeries(key, values);
+    }
+
+    private List<SeriesRecord> records(int from, int to) {
+        List<SeriesRecord> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            records.add(SeriesRecord.of(new DecimalSeriesValue(i, String.format("%04d", i))));
+        }
+        return records;
+    }
+}
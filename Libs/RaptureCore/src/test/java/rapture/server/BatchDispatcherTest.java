@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.HttpURLConnection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import rapture.common.CallingContext;
+import rapture.common.ErrorWrapper;
+import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.model.BatchCall;
+import rapture.common.model.GeneralResponse;
+import rapture.common.shared.doc.GetDocPayload;
+import rapture.common.shared.doc.PutDocPayload;
+import rapture.config.ConfigLoader;
+import rapture.config.RaptureConfig;
+import rapture.kernel.ContextFactory;
+import rapture.kernel.Kernel;
+
+public class BatchDispatcherTest {
+    private static final String auth = "batch" + System.currentTimeMillis();
+    private static final String docUri = "document://" + auth + "/a/b";
+
+    private CallingContext callingContext;
+
+    @Before
+    public void setUp() {
+        RaptureConfig.setLoadYaml(false);
+        RaptureConfig config = ConfigLoader.getConf();
+        config.RaptureRepo = "REP {} USING MEMORY {}";
+        config.InitSysConfig = "NREP {} USING MEMORY {}";
+        System.setProperty("LOGSTASH-ISENABLED", "false");
+        Kernel.initBootstrap();
+        callingContext = ContextFactory.getKernelUser();
+        Kernel.getDoc().createDocRepo(callingContext, "document://" + auth, "NREP {} USING MEMORY {}");
+    }
+
+    @Test
+    public void testPutThenGet() {
+        PutDocPayload put = new PutDocPayload();
+        put.setContext(callingContext);
+        put.setDocUri(docUri);
+        put.setContent("{\"a\":1}");
+        GeneralResponse putResponse = BatchDispatcher.run(callingContext, new BatchCall("doc", "PUTDOC", tree(put)));
+        assertTrue(putResponse.isSuccess());
+
+        GetDocPayload get = new GetDocPayload();
+        get.setContext(callingContext);
+        get.setDocUri(docUri);
+        GeneralResponse getResponse = BatchDispatcher.run(callingContext, new BatchCall("doc", "GETDOC", tree(get)));
+        assertTrue(getResponse.isSuccess());
+        assertEquals("{\"a\":1}", JacksonUtil.objectFromJson(getResponse.getResponse().getContent(), String.class));
+    }
+
+    @Test
+    public void testUnknownCallIsReportedInItsSlot() {
+        GetDocPayload get = new GetDocPayload();
+        get.setContext(callingContext);
+        get.setDocUri(docUri);
+        GeneralResponse response = BatchDispatcher.run(callingContext, new BatchCall("doc", "NOSUCHCALL", tree(get)));
+        assertFalse(response.isSuccess());
+        ErrorWrapper error = JacksonUtil.objectFromJson(response.getResponse().getContent(), ErrorWrapper.class);
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, error.getStatus().intValue());
+    }
+
+    @Test
+    public void testBadParametersAreReportedInTheirSlot() {
+        JsonNode params = JacksonUtil.DEFAULT_MAPPER.createObjectNode().put("noSuchField", "x");
+        GeneralResponse response = BatchDispatcher.run(callingContext, new BatchCall("doc", "GETDOC", params));
+        assertFalse(response.isSuccess());
+    }
+
+    private JsonNode tree(Object payload) {
+        return JacksonUtil.DEFAULT_MAPPER.valueToTree(payload);
+    }
+}
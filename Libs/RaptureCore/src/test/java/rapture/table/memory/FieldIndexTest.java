@@ -0,0 +1,94 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package rapture.table.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import rapture.dsl.iqry.NumberWhereValue;
+import rapture.dsl.iqry.StringWhereValue;
+import rapture.dsl.iqry.WhereStatement;
+import rapture.dsl.iqry.WhereTest;
+
+public class FieldIndexTest {
+
+    private FieldIndex index;
+
+    @Before
+    public void setup() {
+        index = new FieldIndex();
+        index.add("a", 1);
+        index.add("b", 2L);
+        index.add("c", "3");
+        index.add("d", 4.5);
+        index.add("e", "x");
+        index.add("f", null);
+    }
+
+    private static WhereStatement num(WhereTest test, String value) {
+        return new WhereStatement("f", test, new NumberWhereValue(value));
+    }
+
+    private static WhereStatement str(WhereTest test, String value) {
+        return new WhereStatement("f", test, new StringWhereValue("\"" + value + "\""));
+    }
+
+    @Test
+    public void testNumberLookups() {
+        assertEquals(ImmutableSet.of("a"), index.candidates(num(WhereTest.EQUAL, "1")));
+        assertEquals(ImmutableSet.of("c"), index.candidates(num(WhereTest.EQUAL, "3")));
+        assertEquals(1, index.estimate(num(WhereTest.EQUAL, "2")));
+        // Non numeric values compare as strings so are always candidates for a range
+        assertEquals(ImmutableSet.of("c", "d", "e"), index.candidates(num(WhereTest.GT, "2")));
+        assertEquals(ImmutableSet.of("a", "e"), index.candidates(num(WhereTest.LT, "2")));
+    }
+
+    @Test
+    public void testStringLookups() {
+        assertEquals(ImmutableSet.of("a"), index.candidates(str(WhereTest.EQUAL, "1")));
+        assertEquals(ImmutableSet.of("d", "e"), index.candidates(str(WhereTest.GT, "4")));
+        assertEquals(ImmutableSet.of("a", "b"), index.candidates(str(WhereTest.LT, "3")));
+        assertNull(index.candidates(str(WhereTest.NOTEQUAL, "3")));
+        assertEquals(-1, index.estimate(str(WhereTest.NOTEQUAL, "3")));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        index.add("a", 7);
+        index.remove("b");
+        assertEquals(0, index.candidates(num(WhereTest.EQUAL, "1")).size());
+        assertEquals(0, index.candidates(num(WhereTest.EQUAL, "2")).size());
+        Set<String> rows = index.candidates(num(WhereTest.GT, "5"));
+        assertEquals(ImmutableSet.of("a", "e"), rows);
+        index.clear();
+        assertEquals(0, index.candidates(num(WhereTest.GT, "0")).size());
+    }
+}
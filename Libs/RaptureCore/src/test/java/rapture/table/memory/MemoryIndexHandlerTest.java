@@ -24,10 +24,13 @@
 package rapture.table.memory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -325,4 +328,48 @@ public class MemoryIndexHandlerTest {
             assertTrue(String.format("Error is %s", ExceptionToString.format(e)), e.getCause() instanceof InvalidQueryException);
         }
     }
+
+    @Test
+    public void testIndexedQueryMatchesScan() {
+        MemoryIndexHandler handler = new MemoryIndexHandler();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("id", "row" + i);
+            values.put("bucket", i % 10);
+            values.put("score", (i % 2 == 0) ? Integer.valueOf(i) : String.valueOf(i));
+            handler.updateRow("row" + i, values);
+        }
+        assertEquals(10, handler.query("SELECT id WHERE bucket = 3").getRows().size());
+        // Index is maintained once built
+        handler.removeAll("row3");
+        Map<String, Object> moved = new HashMap<>();
+        moved.put("id", "row4");
+        moved.put("bucket", 3);
+        moved.put("score", 4);
+        handler.updateRow("row4", moved);
+        List<List<Object>> rows = handler.query("SELECT id, score WHERE bucket = 3 AND score > 50 ORDER BY score").getRows();
+        assertEquals(5, rows.size());
+        assertEquals("row53", rows.get(0).get(0));
+        assertEquals("row93", rows.get(4).get(0));
+        assertEquals(10, handler.query("SELECT id WHERE bucket = \"3\"").getRows().size());
+    }
+
+    @Test
+    public void testOrderedLimit() {
+        MemoryIndexHandler handler = new MemoryIndexHandler();
+        for (int i = 0; i < 50; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("id", "row" + i);
+            values.put("n", i);
+            handler.updateRow("row" + i, values);
+        }
+        List<List<Object>> rows = handler.query("SELECT id, n WHERE n > 9 ORDER BY n DESC SKIP 2 LIMIT 3").getRows();
+        assertEquals(3, rows.size());
+        assertEquals(47, rows.get(0).get(1));
+        assertEquals(45, rows.get(2).get(1));
+        // When the rows after the skip fit in the limit everything is returned
+        assertEquals(40, handler.query("SELECT id, n WHERE n > 9 ORDER BY n SKIP 2 LIMIT 100").getRows().size());
+        assertEquals(3, handler.query("SELECT id LIMIT 3").getRows().size());
+        assertNull(handler.query("SELECT id WHERE n > 9 SKIP 40").getRows());
+    }
 }
@@ -1,7 +1,7 @@
 package rapture.field;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import rapture.common.RaptureField;
 import rapture.common.RaptureStructure;
@@ -9,8 +9,8 @@ import rapture.field.model.FieldDefinition;
 import rapture.field.model.Structure;
 
 public class BaseEngine {
-    private Map<String, RaptureField> fieldCache = new HashMap<String, RaptureField>();  
-    private Map<String, RaptureStructure> structureCache = new HashMap<String, RaptureStructure>();
+    private Map<String, RaptureField> fieldCache = new ConcurrentHashMap<String, RaptureField>();  
+    private Map<String, RaptureStructure> structureCache = new ConcurrentHashMap<String, RaptureStructure>();
     private StructureLoader structureLoader;
     private FieldLoader fieldLoader;
     protected FieldTransformLoader ftLoader;
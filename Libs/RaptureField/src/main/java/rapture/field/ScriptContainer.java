@@ -4,8 +4,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.CommonTreeNodeStream;
+
 import reflex.ReflexExecutor;
 import reflex.ReflexException;
+import reflex.ReflexLexer;
+import reflex.ReflexParser;
+import reflex.ReflexTreeWalker;
+import reflex.debug.NullDebugger;
+import reflex.util.function.LanguageRegistry;
+import reflex.value.internal.ReflexNullValue;
 import reflex.value.internal.ReflexVoidValue;
 import reflex.IReflexHandler;
 import reflex.value.ReflexValue;
@@ -38,4 +50,48 @@ public class ScriptContainer {
           }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * A transform script that has been lexed and parsed once. Each run walks the
+     * parsed tree with its own copy of the registry, so a parsed script can be run
+     * from many threads at once.
+     */
+    public static final class ParsedScript {
+        private final CommonTree tree;
+        private final LanguageRegistry registry;
+
+        private ParsedScript(CommonTree tree, LanguageRegistry registry) {
+            this.tree = tree;
+            this.registry = registry;
+        }
+    }
+
+    public ParsedScript parseTransformScript(String reflexScript) {
+        ReflexLexer lexer = new ReflexLexer();
+        lexer.dataHandler = new StandardReflexHandler(null).getScriptHandler();
+        lexer.setCharStream(new ANTLRStringStream(reflexScript));
+        ReflexParser parser = new ReflexParser(new CommonTokenStream(lexer));
+        try {
+            CommonTree tree = (CommonTree) parser.parse().getTree();
+            return new ParsedScript(tree, parser.languageRegistry);
+        } catch (RecognitionException e) {
+            throw new ReflexException(-1, ReflexExecutor.getParserExceptionDetails(e), e);
+        }
+    }
+
+    public List<Object> runTransformScript(ParsedScript script, Map<String, Object> params) {
+          ReflexTreeWalker walker = new ReflexTreeWalker(new CommonTreeNodeStream(script.tree), new LanguageRegistry(script.registry));
+          walker.setReflexHandler(new StandardReflexHandler(null));
+          params.forEach((k, v) -> walker.currentScope.assign(k, v == null ? new ReflexNullValue() : new ReflexValue(v)));
+          ReflexExecutor.injectSystemIntoScope(walker.currentScope);
+          try {
+              Object resp = walker.walk().evaluateWithoutScope(new NullDebugger()).asObject();
+              if (resp instanceof List) {
+                  return (List<Object>) resp;
+              }
+          } catch (RecognitionException e) {
+              throw new ReflexException(-1, ReflexExecutor.getParserExceptionDetails(e), e);
+          }
+        return null;
+    }
+}
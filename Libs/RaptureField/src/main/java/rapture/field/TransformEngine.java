@@ -5,8 +5,10 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import rapture.common.FieldType;
 import rapture.common.RaptureField;
@@ -21,6 +23,8 @@ import reflex.value.ReflexValue;
  */
  
 public class TransformEngine extends BaseEngine {
+    private final Map<String, TransformPlan> plans = new ConcurrentHashMap<>();
+
     public TransformEngine(StructureLoader sLoader, FieldLoader fLoader, ScriptLoader scLoader, FieldTransformLoader ftLoader) {
         super(sLoader, fLoader, scLoader, ftLoader);
     } 
@@ -32,15 +36,67 @@ public class TransformEngine extends BaseEngine {
      */
      
     public String transform(String sourceDoc, String sourceStructure, String targetStructure, String transArea) {
+        return transform(sourceDoc, getPlan(sourceStructure, targetStructure, transArea));
+    }
+
+    /**
+     * Transform a batch of documents that share one structure pair, in parallel. The results are in the same
+     * order as the source documents.
+     */
+    public List<String> transform(List<String> sourceDocs, String sourceStructure, String targetStructure, String transArea) {
+        return transform(sourceDocs.stream(), sourceStructure, targetStructure, transArea).collect(Collectors.toList());
+    }
+
+    public Stream<String> transform(Stream<String> sourceDocs, String sourceStructure, String targetStructure, String transArea) {
+        TransformPlan plan = getPlan(sourceStructure, targetStructure, transArea);
+        return sourceDocs.parallel().map(doc -> transform(doc, plan));
+    }
+
+    /**
+     * Forget the compiled plans, for when the structures, fields or transforms they were built from change
+     */
+    public void clearPlans() {
+        plans.clear();
+    }
+
+    private TransformPlan getPlan(String sourceStructure, String targetStructure, String transArea) {
+        String key = sourceStructure + "\u0000" + targetStructure + "\u0000" + transArea;
+        TransformPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = buildPlan(sourceStructure, targetStructure, transArea);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    private String transform(String sourceDoc, TransformPlan plan) {
+        if (!plan.isComplete()) {
+            return sourceDoc;
+        }
+        Map<String, Object> srcObject = JacksonUtil.getMapFromJson(sourceDoc);
+        Map<String, Object> targetObject = new HashMap<>();
+        Map<String, FieldStatus> targFields = new LinkedHashMap<>();
+        Map<String, FieldStatus> srcFields = new LinkedHashMap<>();
+        getBaseFields(plan.getTargetStructure(), targetObject, targFields);
+        getBaseFields(plan.getSourceStructure(), srcObject, srcFields);
+
+        plan.getProductions().forEach(tp -> runTransform(tp, srcFields, targFields));
+
+        return JacksonUtil.jsonFromObject(targetObject, true);
+    }
+
+    /**
+     * Work out the productions that take a sourceStructure document to a targetStructure one. This depends only
+     * on the structures and the transforms, never on the document, so it is done once per structure pair.
+     */
+    private TransformPlan buildPlan(String sourceStructure, String targetStructure, String transArea) {
         // Step 1 - collect all of the none repeating (non ARRAY) fields in targetStructure
         RaptureStructure targetS = getStructure(targetStructure);
         RaptureStructure sourceS = getStructure(sourceStructure);
-        Map<String, Object> srcObject = JacksonUtil.getMapFromJson(sourceDoc);
-        Map<String, Object> targetObject = new HashMap<>();
         Map<String, FieldStatus> targFields = new LinkedHashMap<>();
         Map<String, FieldStatus> srcFields = new LinkedHashMap<>();
-        getBaseFields(targetS, targetObject, targFields);
-        getBaseFields(sourceS, srcObject, srcFields);
+        getBaseFields(targetS, new HashMap<>(), targFields);
+        getBaseFields(sourceS, new HashMap<>(), srcFields);
         
         List<TransformProduction> productionList = new ArrayList<>();
         
@@ -49,7 +105,6 @@ public class TransformEngine extends BaseEngine {
         
         // First construct identity transforms for fields that are in the source structure and target structure
         List<String> common = srcFields.keySet().stream().filter(targFields.keySet()::contains).collect(Collectors.toList());
-        //System.out.println("Common fields are " + common);
         common.forEach(id -> {
                 TransformProduction tp = new TransformProduction();
                 tp.setIdentityField(id);
@@ -64,28 +119,24 @@ public class TransformEngine extends BaseEngine {
         }
         //
         transforms.forEach(trId -> {
-            //System.out.println("Checking with " + trId);
             RaptureFieldTransform ft = ftLoader.getFieldTransform(trId);
             // (1) are the sources for this field transform in fields?
             // (2) are any of the targets false or available in target?
             // If so, this is a good transform we should do
             // If not (2), then record the output in the field list because we could have a second generation
              if (srcFields.keySet().containsAll(ft.getSourceFields())) {
-               // System.out.println("Contains all");
                 List<String> usedFields = ft.getTargetFields().stream().filter(tf -> {
-                    //System.out.println("Checking " + tf);
                         boolean satisfy = satisfyMap.containsKey(tf) && !satisfyMap.get(tf);
                         if (satisfy) {
-                            //System.out.println("Adding to satisfyMap");
                             satisfyMap.put(tf, true);
                         }
                         return satisfy;
                 }).collect(Collectors.toList());
                 
                 if (usedFields.size() != 0) {
-                    //System.out.println("Adding production");
                     TransformProduction tp = new TransformProduction();
                     tp.setTransformUri(trId);
+                    tp.setTransform(ft, container.parseTransformScript(scriptLoader.getScript(ft.getTransformScript())));
                     productionList.add(tp);
                 }
             }
@@ -94,15 +145,7 @@ public class TransformEngine extends BaseEngine {
         // Now check to see if we are now satisfied - this lambda finds any that have a value are false. If any
         // have a value of false we are not OK.
         boolean allOk = !satisfyMap.values().stream().anyMatch(v -> !v);
-        
-        if (allOk) {
-             
-            productionList.forEach(tp -> runTransform(tp, srcFields, targFields));
-            
-            String targDoc = JacksonUtil.jsonFromObject(targetObject, true);
-            return targDoc;
-        }
-        return sourceDoc;
+        return new TransformPlan(sourceS, targetS, productionList, allOk);
     }
     
     
@@ -111,7 +154,7 @@ public class TransformEngine extends BaseEngine {
             Object v = srcFields.get(tp.getIdentityField()).getValue();
             targetFields.get(tp.getIdentityField()).setValue(v);
         } else {
-            RaptureFieldTransform ft = ftLoader.getFieldTransform(tp.getTransformUri());
+            RaptureFieldTransform ft = tp.getTransform();
             // Get the variables for the source fields for this transform, we use the sourceStructure to determine what key
             Map<String, Object> inputParams = new HashMap<>();
             List<Object> vals = new ArrayList<>();
@@ -121,8 +164,7 @@ public class TransformEngine extends BaseEngine {
             });
             
             inputParams.put("vals", vals);
-            String reflexScript = scriptLoader.getScript(ft.getTransformScript());
-            List<Object> transList = container.runTransformScript(reflexScript, inputParams);
+            List<Object> transList = container.runTransformScript(tp.getScript(), inputParams);
             if (transList != null && transList.size() == ft.getTargetFields().size()) {
                 AtomicInteger pos = new AtomicInteger(0);
                 ft.getTargetFields().forEach(k -> {
@@ -189,10 +231,45 @@ class FieldStatus {
     }
 }
 
+class TransformPlan {
+    private final RaptureStructure sourceStructure;
+    private final RaptureStructure targetStructure;
+    private final List<TransformProduction> productions;
+    private final boolean complete;
+
+    public TransformPlan(RaptureStructure sourceStructure, RaptureStructure targetStructure, List<TransformProduction> productions, boolean complete) {
+        this.sourceStructure = sourceStructure;
+        this.targetStructure = targetStructure;
+        this.productions = productions;
+        this.complete = complete;
+    }
+
+    public RaptureStructure getSourceStructure() {
+        return sourceStructure;
+    }
+
+    public RaptureStructure getTargetStructure() {
+        return targetStructure;
+    }
+
+    public List<TransformProduction> getProductions() {
+        return productions;
+    }
+
+    /**
+     * Whether the productions fill every target field; if not the source document is passed through unchanged
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
+
 class TransformProduction {
     private String transformUri;
     private String identityField;
     private boolean isIdentity = false;
+    private RaptureFieldTransform transform;
+    private ScriptContainer.ParsedScript script;
     
     @Override
     public String toString() {
@@ -218,4 +295,14 @@ class TransformProduction {
     public String getTransformUri() {
         return transformUri;
     }
+    public void setTransform(RaptureFieldTransform transform, ScriptContainer.ParsedScript script) {
+        this.transform = transform;
+        this.script = script;
+    }
+    public RaptureFieldTransform getTransform() {
+        return transform;
+    }
+    public ScriptContainer.ParsedScript getScript() {
+        return script;
+    }
 }
\ No newline at end of file
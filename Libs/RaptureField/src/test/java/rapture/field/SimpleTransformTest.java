@@ -3,9 +3,11 @@ package rapture.field;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class SimpleTransformTest {
@@ -35,4 +37,19 @@ public class SimpleTransformTest {
         String resp = engine.transform(doc, "//standard/trade/trade", "//standard/position/movement", "//trading");
         System.out.println(resp);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchMatchesSingleTransforms() {
+        ResourceLoader loader = new ResourceLoader();
+        TransformEngine engine = new TransformEngine(loader, loader, loader, loader);
+        List<String> docs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            docs.add(loader.getData(i % 2 == 0 ? "//trade/trade1" : "//trade/trade2"));
+        }
+        List<String> batch = engine.transform(docs, "//standard/trade/trade", "//standard/position/movement", "//trading");
+        assertEquals(docs.size(), batch.size());
+        for (int i = 0; i < docs.size(); i++) {
+            assertEquals(engine.transform(docs.get(i), "//standard/trade/trade", "//standard/position/movement", "//trading"), batch.get(i));
+        }
+    }
+}
@@ -46,13 +46,17 @@ public class AdminServlet extends BaseServlet {
         DispatchAdminFunction adminDispatch = DispatchAdminFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = adminDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = adminDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = adminDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
     }
 
 }
@@ -46,14 +46,18 @@ public class AuditServlet extends BaseServlet {
         DispatchAuditFunction auditDispatch = DispatchAuditFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = auditDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = auditDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = auditDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
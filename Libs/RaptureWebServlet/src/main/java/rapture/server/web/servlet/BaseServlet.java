@@ -53,13 +53,18 @@ import external.multipart.ParamGetter;
 import rapture.common.CallingContext;
 import rapture.common.DispatchReturn;
 import rapture.common.RaptureEntitlementsContext;
+import rapture.common.client.BaseHttpApi;
 import rapture.common.exception.ExceptionToString;
 import rapture.common.exception.RaptureException;
 import rapture.common.exception.RaptureExceptionFactory;
 import rapture.common.impl.jackson.JacksonUtil;
+import rapture.common.impl.jackson.WireFormat;
+import rapture.common.model.BinaryResponse;
 import rapture.kernel.Kernel;
 import rapture.server.BaseDispatcher;
 
+import com.google.common.io.CountingOutputStream;
+
 /**
  * The base servlet contains the common utility classes for manipulating requests and responses
  * 
@@ -204,6 +209,15 @@ public class BaseServlet extends HttpServlet {
 
     protected StandardCallInfo processFunctionalRequest(HttpServletRequest req) throws UnsupportedEncodingException, IOException, ServletException {
         StandardCallInfo ret = new StandardCallInfo();
+        WireFormat format = WireFormat.forContentType(req.getContentType());
+        if (format != null && format.isBinary()) {
+            // the body is the payload itself, left on the stream for the dispatcher to read
+            ret.setFunctionName(req.getHeader(BaseHttpApi.FUNCTION_HEADER));
+            ret.setWireFormat(format);
+            ret.setBinaryContent(req.getInputStream());
+            log.debug("Function is " + ret.getFunctionName());
+            return ret;
+        }
         Map<String, Object> props = getParams(req);
         ret.setFunctionName((String) props.get("FUNCTION"));
         ret.setContent((String) props.get("PARAMS"));
@@ -275,6 +289,36 @@ public class BaseServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Send the result of a dispatch, streaming it in the request's wire format if the dispatcher produced a binary response
+     */
+    protected void sendResponseAppropriately(DispatchReturn response, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        BinaryResponse binaryResponse = response.getBinaryResponse();
+        if (binaryResponse == null) {
+            sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+            return;
+        }
+        WireFormat format = WireFormat.forContentType(req.getContentType());
+        String encoding = req.getHeader("Accept-Encoding");
+        resp.setContentType(format.getContentType());
+        OutputStream o = resp.getOutputStream();
+        if (encoding != null && encoding.indexOf("gzip") >= 0) {
+            resp.setHeader("Content-Encoding", "gzip");
+            o = new GZIPOutputStream(o);
+        }
+        CountingOutputStream counter = new CountingOutputStream(o);
+        try {
+            format.getMapper().writeValue(counter, binaryResponse);
+        } finally {
+            counter.close();
+        }
+        try {
+            Kernel.getKernel().getStat().registerApiThroughput(counter.getCount());
+        } catch (Exception e) {
+
+        }
+    }
+
     /**
      * This should be called when we catch an exception after calling a dispatcher. (We should never get an exception in those circumstances however....)
      * 
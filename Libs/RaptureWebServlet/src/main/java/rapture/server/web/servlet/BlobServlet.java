@@ -57,11 +57,15 @@ public class BlobServlet extends BaseServlet {
         DispatchBlobFunction blobDispatch = DispatchBlobFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = blobDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = blobDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = blobDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-       sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+       sendResponseAppropriately(response, req, resp);
 
     }
 
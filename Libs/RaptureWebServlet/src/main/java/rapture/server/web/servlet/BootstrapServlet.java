@@ -50,14 +50,18 @@ public class BootstrapServlet extends BaseServlet {
         DispatchBootstrapFunction bootstrapDispatch = DispatchBootstrapFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = bootstrapDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = bootstrapDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = bootstrapDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
 
     }
@@ -46,14 +46,18 @@ public class DecisionServlet extends BaseServlet {
         DispatchDecisionFunction decisionDispatch = DispatchDecisionFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = decisionDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = decisionDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = decisionDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 
@@ -47,12 +47,16 @@ public class DocServlet extends BaseServlet {
         DispatchDocFunction docDispatch = DispatchDocFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = docDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = docDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = docDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 
@@ -46,11 +46,15 @@ public class EntityServlet extends BaseServlet {
         DispatchEntityFunction entityDispatch = DispatchEntityFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = entityDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = entityDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = entityDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
     }
 
 }
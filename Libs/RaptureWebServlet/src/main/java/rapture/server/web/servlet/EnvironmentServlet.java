@@ -47,14 +47,18 @@ public class EnvironmentServlet extends BaseServlet {
         DispatchEnvironmentFunction entDispatch = DispatchEnvironmentFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = entDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = entDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = entDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
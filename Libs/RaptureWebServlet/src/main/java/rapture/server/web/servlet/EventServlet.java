@@ -47,14 +47,18 @@ public class EventServlet extends BaseServlet {
         DispatchEventFunction eventDispatch = DispatchEventFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = eventDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = eventDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = eventDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -47,14 +47,18 @@ public class IndexServlet extends BaseServlet {
         DispatchIndexFunction calcDispatch = DispatchIndexFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = calcDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = calcDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = calcDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -55,11 +55,15 @@ public class JarServlet extends BaseServlet {
         DispatchJarFunction jarDispatch = DispatchJarFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = jarDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = jarDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = jarDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-       sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+       sendResponseAppropriately(response, req, resp);
     }
 
     @Override
@@ -46,13 +46,17 @@ public class LockServlet extends BaseServlet {
         DispatchLockFunction lockDispatch = DispatchLockFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = lockDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = lockDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = lockDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
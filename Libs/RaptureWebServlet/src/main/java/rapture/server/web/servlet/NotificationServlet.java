@@ -47,14 +47,18 @@ public class NotificationServlet extends BaseServlet {
         DispatchNotificationFunction notificationDispatch = DispatchNotificationFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = notificationDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = notificationDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = notificationDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -46,13 +46,17 @@ public class OperationServlet extends BaseServlet {
         DispatchOperationFunction operationDispatch = DispatchOperationFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = operationDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = operationDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = operationDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -47,11 +47,15 @@ public class ProgramServlet extends BaseServlet {
         DispatchProgramFunction programDispatch = DispatchProgramFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = programDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = programDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = programDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-       sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+       sendResponseAppropriately(response, req, resp);
     }
 
 }
@@ -47,13 +47,17 @@ public class RunnerServlet extends BaseServlet {
         DispatchRunnerFunction runnerDispatch = DispatchRunnerFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = runnerDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = runnerDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = runnerDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 
@@ -47,13 +47,17 @@ public class ScheduleServlet extends BaseServlet {
         DispatchScheduleFunction scheduleDispatch = DispatchScheduleFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = scheduleDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = scheduleDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = scheduleDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -46,11 +46,15 @@ public class SearchServlet extends BaseServlet {
         DispatchSearchFunction searchDispatch = DispatchSearchFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = searchDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = searchDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = searchDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
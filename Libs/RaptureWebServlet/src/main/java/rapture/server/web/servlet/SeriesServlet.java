@@ -47,14 +47,18 @@ public class SeriesServlet extends BaseServlet {
         DispatchSeriesFunction seriesDispatch = DispatchSeriesFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = seriesDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = seriesDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = seriesDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
@@ -23,11 +23,42 @@
  */
 package rapture.server.web.servlet;
 
+import java.io.InputStream;
+
+import rapture.common.impl.jackson.WireFormat;
+
 public class StandardCallInfo {
     private String functionName;
 
     private String content;
 
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    private InputStream binaryContent;
+
+    /**
+     * True if the payload is to be streamed from {@link #getBinaryContent()} rather than read from {@link #getContent()}
+     */
+    public boolean isBinary() {
+        return wireFormat.isBinary();
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    public InputStream getBinaryContent() {
+        return binaryContent;
+    }
+
+    public void setBinaryContent(InputStream binaryContent) {
+        this.binaryContent = binaryContent;
+    }
+
     public String getContent() {
         return content;
     }
@@ -50,10 +50,14 @@ public class StructuredServlet extends BaseServlet {
         DispatchStructuredFunction structuredDispatch = DispatchStructuredFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = structuredDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = structuredDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = structuredDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
     }
 }
@@ -46,11 +46,15 @@ public class TagServlet extends BaseServlet {
         DispatchTagFunction tagDispatch = DispatchTagFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = tagDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = tagDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = tagDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
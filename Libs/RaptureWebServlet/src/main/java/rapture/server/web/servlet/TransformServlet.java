@@ -46,11 +46,15 @@ public class TransformServlet extends BaseServlet {
         DispatchTransformFunction transformDispatch = DispatchTransformFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = transformDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = transformDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = transformDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
     }
 
 }
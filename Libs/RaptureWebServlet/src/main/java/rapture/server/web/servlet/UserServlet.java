@@ -47,14 +47,18 @@ public class UserServlet extends BaseServlet {
         DispatchUserFunction userDispatch = DispatchUserFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = userDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = userDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = userDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
 
         // Send the response and we're done
 
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
 
     }
 }
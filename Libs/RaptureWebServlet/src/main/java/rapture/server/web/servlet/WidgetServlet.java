@@ -46,11 +46,15 @@ public class WidgetServlet extends BaseServlet {
         DispatchWidgetFunction widgetDispatch = DispatchWidgetFunction.valueOf(call.getFunctionName());
         DispatchReturn response;
         try {
-            response = widgetDispatch.executeDispatch(call.getContent(), req, resp);
+            if (call.isBinary()) {
+                response = widgetDispatch.executeDispatch(call.getBinaryContent(), call.getWireFormat(), req, resp);
+            } else {
+                response = widgetDispatch.executeDispatch(call.getContent(), req, resp);
+            }
         } catch (Exception e) {
             response = handleUnexpectedException(e);
         }
-        sendResponseAppropriately(response.getContext(), req, resp, response.getResponse());
+        sendResponseAppropriately(response, req, resp);
     }
 
 }
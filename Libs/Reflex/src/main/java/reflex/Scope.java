@@ -116,7 +116,7 @@ public class Scope {
         if (constant != null) {
             throw new ReflexException(0, "Assignment into constant variable");
         }
-        if (resolve(var, namespacePrefix) != null) {
+        if (resolve(var, namespacePrefix, constantScope) != null) {
             // There is already such a variable, re-assign it
             if (assignOnce) {
                 throw new ReflexException(0, "Assignment into constant variable");
@@ -216,15 +216,16 @@ public class Scope {
     }
 
     private void reAssign(String identifier, ReflexValue value) {
-        if (variables.containsKey(identifier)) {
-            // The variable is declared in this scope
-            // IF the variable exists, look at the type, because we might want to coerce the assignment
-            // variables.get(identifier).reassign(value);
-            variables.put(identifier, value);
-        } else if (parent != null) {
+        for (Scope s = this; s != null; s = s.parent) {
+            if (s.variables.containsKey(identifier)) {
+                // The variable is declared in this scope
+                // IF the variable exists, look at the type, because we might want to coerce the assignment
+                // variables.get(identifier).reassign(value);
+                s.variables.put(identifier, value);
+                return;
+            }
             // The variable was not declared in this scope, so let
             // the parent scope re-assign it
-            parent.reAssign(identifier, value);
         }
     }
 
@@ -233,29 +234,46 @@ public class Scope {
     }
 
     public ReflexValue resolve(String var, String namespacePrefix) {
-        ReflexValue value;
-        
-        if (assignOnce) { // constants always contain a prefix, if there is any
-            value = variables.get(namespacePrefix + var);
-        } else {
-            // Look for a constant first.
-            value = constantScope.resolve(var, namespacePrefix);
-            if (value == null) {
-                // No constant found 
-                value = variables.get(var);
-            }
-        }
-
-        if (value != null) {
+        return resolve(var, namespacePrefix, null);
+    }
 
-            return value;
-        } else if (parent != null) {
-            // Let the parent scope look for the variable
-            return parent.resolve(var, namespacePrefix);
-        } else {
-            // Unknown variable
-            return null;
+    /**
+     * Walks up the scopes looking for the variable. Every scope in a chain normally shares one constant scope, so that is only looked at once rather
+     * than at every level, and the namespace prefixed name is only built if a constant scope needs it.
+     *
+     * @param checkedConstants
+     *            a constant scope the caller has already looked in, or null
+     */
+    private ReflexValue resolve(String var, String namespacePrefix, Scope checkedConstants) {
+        String prefixedVar = null;
+        for (Scope s = this; s != null; s = s.parent) {
+            ReflexValue value;
+            if (s.assignOnce) { // constants always contain a prefix, if there is any
+                if (s == checkedConstants) {
+                    continue;
+                }
+                if (prefixedVar == null) {
+                    prefixedVar = "".equals(namespacePrefix) ? var : namespacePrefix + var;
+                }
+                value = s.variables.get(prefixedVar);
+            } else {
+                value = null;
+                // Look for a constant first.
+                if (s.constantScope != checkedConstants) {
+                    value = s.constantScope.resolve(var, namespacePrefix);
+                    checkedConstants = s.constantScope;
+                }
+                if (value == null) {
+                    // No constant found
+                    value = s.variables.get(var);
+                }
+            }
+            if (value != null) {
+                return value;
+            }
         }
+        // Unknown variable
+        return null;
     }
 
     public String getAndUsePendingComment() {
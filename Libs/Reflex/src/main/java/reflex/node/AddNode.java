@@ -24,6 +24,7 @@
 package reflex.node;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 import reflex.IReflexHandler;
@@ -71,7 +72,7 @@ public class AddNode extends BaseNode {
         } else if (a.isDate() && b.isNumber()) {
             retVal = new ReflexValue(a.asDate().add(b.asInt()));
         } else if (a.isList()) {
-            List<ReflexValue> list = a.copyOf().asList();
+            List<ReflexValue> list = new ArrayList<>(a.asList());
             if (b.isList()) {
                 list.addAll(b.asList());
             } else {
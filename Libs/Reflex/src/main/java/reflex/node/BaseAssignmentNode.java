@@ -54,14 +54,20 @@ public abstract class BaseAssignmentNode extends BaseNode {
         debugger.stepStart(this, scope);
         ReflexValue ret = new ReflexVoidValue(lineNumber);
         ReflexValue value = rhs.evaluate(debugger, scope).copyOf();
-        handler.getDebugHandler().statementReached(lineNumber, DebugLevel.SPAM, "Assignment, rhs = " + value.toString());
+        // Rendering the value can cost more than the assignment itself, so only do it for a debug handler that will show it
+        boolean tracing = handler.getDebugHandler().hasCapability();
+        if (tracing) {
+            handler.getDebugHandler().statementReached(lineNumber, DebugLevel.SPAM, "Assignment, rhs = " + value.toString());
+        }
 
         if (value .getValue() == ReflexValue.Internal.VOID) {
             throw new ReflexException(lineNumber, "Illegal attempt to assign the result of a void function to the identifier " + identifier);
         }
 
         if (indexNodes.isEmpty()) { // a simple assignment
-            handler.getDebugHandler().statementReached(lineNumber, DebugLevel.SPAM, "assign var into " + identifier);
+            if (tracing) {
+                handler.getDebugHandler().statementReached(lineNumber, DebugLevel.SPAM, "assign var into " + identifier);
+            }
             scopeToAssignIn.assign(identifier, value, namespacePrefix);
         } else { // a possible list-lookup and reassignment
 
@@ -51,7 +51,9 @@ public class ContainsNode extends BaseNode {
         ReflexValue list = scope.resolve(varName, namespacePrefix);
         ReflexValue value = expression.evaluate(debugger, scope);
 
-        handler.getDebugHandler().statementReached(lineNumber, DebugLevel.INFO, "Does " + varName + " contain " + value.toString());
+        if (handler.getDebugHandler().hasCapability()) {
+            handler.getDebugHandler().statementReached(lineNumber, DebugLevel.INFO, "Does " + varName + " contain " + value.toString());
+        }
 
         if (!list.isList()) {
             String errorMessage = "Contains expects a List but argument " + varName + " is " + list.getValueTypeString();
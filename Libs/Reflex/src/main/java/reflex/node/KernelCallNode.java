@@ -47,6 +47,7 @@ public class KernelCallNode extends BaseNode {
     private String fnName;
 
     private List<ReflexNode> params;
+    private final KernelCallSite callSite;
 
     public KernelCallNode(int lineNumber, IReflexHandler handler, Scope scope, String areaAndFunction, List<ReflexNode> ps) {
         super(lineNumber, handler, scope);
@@ -63,6 +64,7 @@ public class KernelCallNode extends BaseNode {
             this.fnName = parts[1];
         }
         this.params = ps == null ? new ArrayList<ReflexNode>() : ps;
+        this.callSite = new KernelCallSite(areaName, fnName, params.size());
     }
 
     @Override
@@ -85,13 +87,13 @@ public class KernelCallNode extends BaseNode {
         ;
 
         if (sdkName == null) {
-            retVal = KernelExecutor.executeFunction(lineNumber, handler.getApi(), areaName, fnName, callParams);
+            retVal = callSite.execute(lineNumber, handler.getApi(), callParams);
         } else {
             InstallableKernelScript sdkKernel = handler.getApi().getInstalledKernel(sdkName).getKernelScript();
             if (sdkKernel == null) {
                 throw new ReflexException(lineNumber, "NO installed kernel named " + sdkName + " found");
             } else {
-                retVal = KernelExecutor.executeFunction(lineNumber, sdkKernel, areaName, fnName, callParams);
+                retVal = callSite.execute(lineNumber, sdkKernel, callParams);
             }
         }
         debugger.stepEnd(this, retVal, scope);
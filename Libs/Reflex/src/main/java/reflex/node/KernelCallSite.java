@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2016 Incapture Technologies LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package reflex.node;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import rapture.common.exception.ExceptionToString;
+import rapture.common.exception.RaptureException;
+import rapture.common.exception.RaptureExceptionFactory;
+import reflex.ReflexException;
+import reflex.value.ReflexValue;
+import reflex.value.internal.ReflexNullValue;
+
+/**
+ * A kernel api call such as #doc.getDoc(uri), resolved once to method handles for the api getter and the api method, along with a converter for each
+ * parameter. The resolution is kept for the class of api object it was made against and redone if a different one turns up.
+ */
+public final class KernelCallSite {
+    private static final Logger log = Logger.getLogger(KernelCallSite.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType METHOD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final String apiName;
+    private final String fnName;
+    private final int numParams;
+    private volatile Binding binding;
+
+    public KernelCallSite(String areaName, String fnName, int numParams) {
+        if (!StringUtils.isEmpty(areaName) && areaName.length() > 1) {
+            this.apiName = areaName.substring(0, 1).toUpperCase() + areaName.substring(1);
+        } else {
+            this.apiName = "<api name missing>";
+        }
+        this.fnName = fnName;
+        this.numParams = numParams;
+    }
+
+    public ReflexValue execute(int lineNumber, Object outerApi, List<ReflexValue> params) {
+        int numPassedParams = params.size();
+        try {
+            Binding b = binding;
+            if (b == null || b.outerClass != outerApi.getClass()) {
+                b = bindOuter(lineNumber, outerApi.getClass());
+            }
+            Object api = b.getApi(outerApi);
+            if (b.apiClass != api.getClass()) {
+                b = bindInner(lineNumber, b, api.getClass());
+            }
+            if (numPassedParams != numParams) {
+                throw new ReflexException(lineNumber, String.format("API call not found: %s.%s (taking %s parameters)", apiName, fnName, numPassedParams));
+            }
+            Object[] callParams = new Object[numParams];
+            for (int i = 0; i < numParams; i++) {
+                callParams[i] = b.converters[i].convert(params.get(i));
+            }
+            Object ret;
+            try {
+                ret = b.method.invokeExact(api, callParams);
+            } catch (Throwable e) {
+                throw new ReflexException(lineNumber, String.format("Error in Reflex script at line %d. Call to %s.%s failed: %s", lineNumber, apiName,
+                        fnName, e.getMessage()), new InvocationTargetException(e));
+            }
+            ReflexValue retVal = new ReflexNullValue(lineNumber);
+            if (ret != null) {
+                retVal = new ReflexValue(KernelExecutor.convertObject(ret));
+            }
+            return retVal;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause != null) {
+                if (cause instanceof OutOfMemoryError) {
+                    log.error(ExceptionToString.format(e));
+                    throw (OutOfMemoryError) cause;
+                } else if (cause instanceof RaptureException) {
+                    log.warn(ExceptionToString.format(e));
+                    String message = ((RaptureException) cause).getFormattedMessage();
+                    throw new ReflexException(lineNumber, message, e);
+                } else {
+                    String details = null;
+                    if (cause.getMessage() != null) {
+                        details = ": " + cause.getMessage();
+                    }
+                    RaptureException re = RaptureExceptionFactory
+                            .create(String.format("Error executing api call: %s.%s (takes %s parameters)%s", apiName, fnName, numPassedParams, details), e);
+
+                    String message = re.getFormattedMessage();
+                    throw new ReflexException(lineNumber, message, re);
+                }
+            }
+            throw new ReflexException(lineNumber, e.getTargetException().getMessage(), e);
+        } catch (ReflexException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(ExceptionToString.format(e));
+            throw new ReflexException(lineNumber, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find the method get[ApiName], which will return the api
+     */
+    private Binding bindOuter(int lineNumber, Class<?> outerClass) throws IllegalAccessException {
+        String getApiMethodName = "get" + apiName;
+        for (Method m : outerClass.getMethods()) {
+            if (m.getName().equals(getApiMethodName) && m.getParameterCount() == 0) {
+                return new Binding(outerClass, unreflect(m).asType(GETTER_TYPE), null, null, null);
+            }
+        }
+        throw new ReflexException(lineNumber, "API '" + apiName + "' not found!");
+    }
+
+    /**
+     * Find the api method with our name and number of parameters; the api should just have one entry
+     */
+    private Binding bindInner(int lineNumber, Binding outer, Class<?> apiClass) throws IllegalAccessException {
+        for (Method im : apiClass.getMethods()) {
+            if (im.getName().equals(fnName) && im.getParameterCount() == numParams) {
+                Type[] types = im.getGenericParameterTypes();
+                KernelExecutor.ValueConverter[] converters = new KernelExecutor.ValueConverter[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    converters[i] = KernelExecutor.converterFor(types[i]);
+                }
+                MethodHandle method = unreflect(im).asSpreader(Object[].class, numParams).asType(METHOD_TYPE);
+                Binding b = new Binding(outer.outerClass, outer.getter, apiClass, method, converters);
+                binding = b;
+                return b;
+            }
+        }
+        throw new ReflexException(lineNumber, String.format("API call not found: %s.%s (taking %s parameters)", apiName, fnName, numParams));
+    }
+
+    private static MethodHandle unreflect(Method m) throws IllegalAccessException {
+        // api implementations are not always public classes, even though the methods are
+        m.setAccessible(true);
+        return MethodHandles.lookup().unreflect(m);
+    }
+
+    private static final class Binding {
+        private final Class<?> outerClass;
+        private final MethodHandle getter;
+        private final Class<?> apiClass;
+        private final MethodHandle method;
+        private final KernelExecutor.ValueConverter[] converters;
+
+        private Binding(Class<?> outerClass, MethodHandle getter, Class<?> apiClass, MethodHandle method, KernelExecutor.ValueConverter[] converters) {
+            this.outerClass = outerClass;
+            this.getter = getter;
+            this.apiClass = apiClass;
+            this.method = method;
+            this.converters = converters;
+        }
+
+        private Object getApi(Object outerApi) throws InvocationTargetException {
+            try {
+                return (Object) getter.invokeExact(outerApi);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+}
@@ -24,8 +24,6 @@
 package reflex.node;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
@@ -34,17 +32,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 import rapture.common.RaptureTransferObject;
-import rapture.common.exception.ExceptionToString;
-import rapture.common.exception.RaptureException;
-import rapture.common.exception.RaptureExceptionFactory;
 import rapture.common.impl.jackson.JacksonUtil;
-import reflex.ReflexException;
 import reflex.value.ReflexFileValue;
 import reflex.value.ReflexValue;
 import reflex.value.internal.ReflexNullValue;
@@ -57,89 +52,22 @@ public final class KernelExecutor {
 
     private static final Logger log = Logger.getLogger(KernelExecutor.class);
 
-    public static ReflexValue executeFunction(int lineNumber, Object outerApi, String areaName, String fnName, List<ReflexValue> params) {
-        String apiName;
-        if (!StringUtils.isEmpty(areaName) && areaName.length() > 1) {
-            apiName = areaName.substring(0, 1).toUpperCase() + areaName.substring(1);
-        } else {
-            apiName = "<api name missing>";
-        }
-        int numPassedParams = params.size();
-        try {
-            // Find the method get[AreaName], which will return the area
-            Method[] methods = outerApi.getClass().getMethods();
-            String getApiMethodName = "get" + apiName;
-
-            for (Method m : methods) {
-                if (m.getName().equals(getApiMethodName)) {
-                    // Call that method to get the api requested
-                    Object api = m.invoke(outerApi);
-                    // Now find the method with the fnName
-                    Method[] innerMethods = api.getClass().getMethods();
-                    for (Method im : innerMethods) {
-                        if (im.getName().equals(fnName)) {
-                            // the api should just have one entry
-                            Type[] types = im.getGenericParameterTypes();
-                            int numExpectedParams = types.length;
-                            if (numExpectedParams == numPassedParams) {
-                                List<Object> callParams = new ArrayList<>(types.length);
-                                // Now coerce the types...
-                                for (int i = 0; i < types.length; i++) {
-                                    ReflexValue v = params.get(i);
-                                    Object x = convertValueToType(v, types[i]);
-                                    callParams.add(x);
-                                }
+    /*
+     * Call sites for callers that do not keep their own, by area, function and number of parameters
+     */
+    private static final ConcurrentMap<String, KernelCallSite> callSites = new ConcurrentHashMap<>();
 
-                                // Now invoke
-                                Object ret;
-                                try {
-                                    ret = im.invoke(api, callParams.toArray());
-                                } catch (InvocationTargetException e) {
-                                    // TODO Auto-generated catch block
-                                    throw new ReflexException(lineNumber, String.format("Error in Reflex script at line %d. Call to %s.%s failed: %s",
-                                            lineNumber, apiName, fnName, e.getTargetException().getMessage()), e);
-                                }
-                                ReflexValue retVal = new ReflexNullValue(lineNumber);
-                                if (ret != null) {
-                                    retVal = new ReflexValue(convertObject(ret));
-                                }
-                                return retVal;
-                            }
-                        }
-                    }
-                    throw new ReflexException(lineNumber, String.format("API call not found: %s.%s (taking %s parameters)", apiName, fnName, numPassedParams));
-                }
-            }
-            throw new ReflexException(lineNumber, "API '" + apiName + "' not found!");
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause != null) {
-                if (cause instanceof OutOfMemoryError) {
-                    log.error(ExceptionToString.format(e));
-                    throw (OutOfMemoryError) cause;
-                } else if (cause instanceof RaptureException) {
-                    log.warn(ExceptionToString.format(e));
-                    String message = ((RaptureException) cause).getFormattedMessage();
-                    throw new ReflexException(lineNumber, message, e);
-                } else {
-                    String details = null;
-                    if (cause.getMessage() != null) {
-                        details = ": " + cause.getMessage();
-                    }
-                    RaptureException re = RaptureExceptionFactory
-                            .create(String.format("Error executing api call: %s.%s (takes %s parameters)%s", apiName, fnName, numPassedParams, details), e);
-
-                    String message = re.getFormattedMessage();
-                    throw new ReflexException(lineNumber, message, re);
-                }
+    public static ReflexValue executeFunction(int lineNumber, Object outerApi, String areaName, String fnName, List<ReflexValue> params) {
+        String key = areaName + "." + fnName + "/" + params.size();
+        KernelCallSite site = callSites.get(key);
+        if (site == null) {
+            site = new KernelCallSite(areaName, fnName, params.size());
+            KernelCallSite existing = callSites.putIfAbsent(key, site);
+            if (existing != null) {
+                site = existing;
             }
-            throw new ReflexException(lineNumber, e.getTargetException().getMessage(), e);
-        } catch (ReflexException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error(ExceptionToString.format(e));
-            throw new ReflexException(lineNumber, e.getMessage(), e);
         }
+        return site.execute(lineNumber, outerApi, params);
     }
 
     public static Object convert(List<ReflexValue> asList) {
@@ -223,28 +151,75 @@ public final class KernelExecutor {
         return ret;
     }
 
+    /**
+     * Converts a script value to the java type of an api parameter
+     */
+    interface ValueConverter {
+        Object convert(ReflexValue v);
+    }
+
+    /**
+     * @return a converter that does what {@link #convertValueToType(ReflexValue, Type)} does for this type, with the choice of conversion made up front
+     */
+    static ValueConverter converterFor(final Type type) {
+        if (type.equals(byte[].class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return toBytes(v);
+                }
+            };
+        } else if (type.equals(String.class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return toText(v);
+                }
+            };
+        } else if (type.equals(Double.class) || type.equals(double.class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return v.asDouble();
+                }
+            };
+        } else if (type.equals(Integer.class) || type.equals(int.class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return v.asInt();
+                }
+            };
+        } else if (type.equals(Long.class) || type.equals(long.class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return v.asLong();
+                }
+            };
+        } else if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(ReflexValue v) {
+                    return v.asBoolean();
+                }
+            };
+        }
+        return new ValueConverter() {
+            @Override
+            public Object convert(ReflexValue v) {
+                return convertValueToType(v, type);
+            }
+        };
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public static Object convertValueToType(ReflexValue v, Type type) {
 
         if (type.equals(byte[].class)) {
-            if (v.isFile()) {
-                // Load file to bytes and return that
-                return getContentFromFile(v.asFile());
-            } else if (v.isByteArray()) {
-                return v.asByteArray();
-            } else if (v.isNull()) {
-                return "".getBytes();
-            } else {
-                return v.toString().getBytes();
-            }
+            return toBytes(v);
         } else if (type.equals(String.class)) {
-            if (v.isFile()) {
-                return new String(getContentFromFile(v.asFile()));
-            } else if (v.isNull()) {
-                return null;
-            } else {
-                return v.toString();
-            }
+            return toText(v);
         } else if (type.equals(Double.class) || type.equals(double.class)) {
             return v.asDouble();
         } else if (type.equals(Integer.class) || type.equals(int.class)) {
@@ -266,6 +241,29 @@ public final class KernelExecutor {
         return v.asObject();
     }
 
+    private static byte[] toBytes(ReflexValue v) {
+        if (v.isFile()) {
+            // Load file to bytes and return that
+            return getContentFromFile(v.asFile());
+        } else if (v.isByteArray()) {
+            return v.asByteArray();
+        } else if (v.isNull()) {
+            return "".getBytes();
+        } else {
+            return v.toString().getBytes();
+        }
+    }
+
+    private static String toText(ReflexValue v) {
+        if (v.isFile()) {
+            return new String(getContentFromFile(v.asFile()));
+        } else if (v.isNull()) {
+            return null;
+        } else {
+            return v.toString();
+        }
+    }
+
     private static byte[] getContentFromFile(ReflexFileValue asFile) {
         try {
             return IOUtils.toByteArray(asFile.getInputStream());
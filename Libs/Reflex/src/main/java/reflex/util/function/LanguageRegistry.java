@@ -62,6 +62,19 @@ public class LanguageRegistry {
         nsStack = new NamespaceStack();
     }
 
+    /**
+     * A copy of another registry, for a run of a program whose parsed form is shared with other runs. Functions are copied as their recursion count is per
+     * run.
+     */
+    public LanguageRegistry(LanguageRegistry other) {
+        functionMap = new HashMap<String, Function>();
+        for (Map.Entry<String, Function> entry : other.functionMap.entrySet()) {
+            functionMap.put(entry.getKey(), new Function(entry.getValue()));
+        }
+        structureMap = new HashMap<String, Structure>(other.structureMap);
+        nsStack = new NamespaceStack(other.nsStack);
+    }
+
     public Function getFunction(FunctionKey key) {
         return functionMap.get(key.toString());
     }
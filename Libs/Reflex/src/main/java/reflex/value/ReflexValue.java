@@ -74,9 +74,8 @@ public class ReflexValue implements Comparable<ReflexValue> {
             map.putAll(this.asMap());
             return new ReflexValue(map);
         case LIST:
-            List<ReflexValue> list = new ArrayList<>();
-            list.addAll(this.asList());
-            return new ReflexValue(list);
+            // the constructor takes its own copy of a list
+            return new ReflexValue(this.asList());
         case SPARSEMATRIX:
             return new ReflexValue(this.asMatrix().copyOf());
         case MIME:
@@ -23,12 +23,48 @@
  */
 package reflex;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
 import org.antlr.runtime.RecognitionException;
 import org.junit.Test;
 
+import reflex.value.ReflexValue;
+
 public class ScopeTest extends ResourceBasedTest {
     @Test
     public void runScopeTest() throws RecognitionException {
         runTestFor("/scopeTest.rfx");
     }
+
+    @Test
+    public void testReassignIntoParent() {
+        Scope global = Scope.getInitialScope();
+        global.assign("a", new ReflexValue(1));
+        Scope inner = Scope.getNextScopeDown(Scope.getNextScopeDown(global));
+        inner.assign("a", new ReflexValue(2));
+        inner.assign("b", new ReflexValue(3));
+        assertEquals(2, global.resolve("a").asInt().intValue());
+        assertNull(global.resolve("b"));
+        assertEquals(3, inner.resolve("b").asInt().intValue());
+    }
+
+    @Test
+    public void testConstants() {
+        Scope global = Scope.getInitialScope();
+        global.getConstantScope().assign("C", new ReflexValue("plain"));
+        global.getConstantScope().assign("C", new ReflexValue("spaced"), "ns.");
+        Scope inner = Scope.getNextScopeDown(global);
+        assertEquals("plain", inner.resolve("C").asString());
+        assertEquals("spaced", inner.resolve("C", "ns.").asString());
+        assertNull(Scope.createIsolatedScope(inner).resolve("C", "other."));
+        try {
+            inner.assign("C", new ReflexValue("changed"));
+            fail("Expected exception");
+        } catch (ReflexException e) {
+            assertEquals("Assignment into constant variable", e.getMessage());
+        }
+        assertEquals("plain", inner.resolve("C").asString());
+    }
 }
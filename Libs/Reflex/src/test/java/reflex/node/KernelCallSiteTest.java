@@ -0,0 +1,104 @@
+package reflex.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import reflex.ReflexException;
+import reflex.value.ReflexValue;
+
+public class KernelCallSiteTest {
+
+    @Test
+    public void testCall() {
+        KernelCallSite site = new KernelCallSite("doc", "putDoc", 3);
+        Outer outer = new Outer(new DocApi());
+        List<ReflexValue> params = Arrays.asList(new ReflexValue("//test/a"), new ReflexValue(3), new ReflexValue(true));
+        ReflexValue ret = site.execute(1, outer, params);
+        assertEquals("//test/a:3:true", ret.asString());
+        // the same site keeps working as it is called again
+        ret = site.execute(1, outer, Arrays.asList(new ReflexValue("//test/b"), new ReflexValue(4L), new ReflexValue(false)));
+        assertEquals("//test/b:4:false", ret.asString());
+        assertTrue(site.execute(1, outer, Arrays.asList(new ReflexValue("//test/b"), new ReflexValue(4L), new ReflexValue(false))).isString());
+
+        ReflexValue none = new KernelCallSite("doc", "deleteDoc", 1).execute(1, outer, Arrays.asList(new ReflexValue("//test/a")));
+        assertTrue(none.isNull());
+    }
+
+    @Test
+    public void testRebind() {
+        KernelCallSite site = new KernelCallSite("doc", "getName", 0);
+        List<ReflexValue> params = new ArrayList<>();
+        assertEquals("doc", site.execute(1, new Outer(new DocApi()), params).asString());
+        assertEquals("other", site.execute(1, new Outer(new OtherDocApi()), params).asString());
+        assertEquals("doc", site.execute(1, new Outer(new DocApi()), params).asString());
+    }
+
+    @Test
+    public void testNotFound() {
+        Outer outer = new Outer(new DocApi());
+        try {
+            new KernelCallSite("blob", "getBlob", 1).execute(1, outer, Arrays.asList(new ReflexValue("x")));
+            fail("Expected exception");
+        } catch (ReflexException e) {
+            assertTrue(e.getMessage().contains("API 'Blob' not found"));
+        }
+        try {
+            new KernelCallSite("doc", "putDoc", 1).execute(1, outer, Arrays.asList(new ReflexValue("x")));
+            fail("Expected exception");
+        } catch (ReflexException e) {
+            assertTrue(e.getMessage().contains("API call not found: Doc.putDoc (taking 1 parameters)"));
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        try {
+            KernelExecutor.executeFunction(7, new Outer(new DocApi()), "doc", "fail", Arrays.asList(new ReflexValue("boom")));
+            fail("Expected exception");
+        } catch (ReflexException e) {
+            assertTrue(e.getMessage().contains("Call to Doc.fail failed: boom"));
+        }
+    }
+
+    public static class Outer {
+        private final Object doc;
+
+        public Outer(Object doc) {
+            this.doc = doc;
+        }
+
+        public Object getDoc() {
+            return doc;
+        }
+    }
+
+    public static class DocApi {
+        public String putDoc(String uri, int version, boolean flag) {
+            return uri + ":" + version + ":" + flag;
+        }
+
+        public void deleteDoc(String uri) {
+        }
+
+        public String getName() {
+            return "doc";
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    public static class OtherDocApi {
+        public String getName() {
+            return "other";
+        }
+    }
+}